@@ -0,0 +1,228 @@
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Minimal stand-in for the Azure DevOps REST API, used by the benchmark scripts.
+ *
+ * <p>
+ * Answers every work item creation with a new ID and writes the epoch milliseconds of the first
+ * request it receives to the given file. It also accepts the CONNECT requests of clients that
+ * reach it as an HTTP proxy, so builds without a configurable base URL can be measured too.
+ * </p>
+ *
+ * <p>
+ * For export-benchmark.sh it also answers WIQL queries and work item batches, posted or read with
+ * {@code GET _apis/wit/workitems?ids=...}, from a project of
+ * {@code work-items} synthetic tasks with IDs 1 to {@code work-items}, last changed at
+ * {@link #CREATED}. Work items created or updated through the API are remembered, with a new
+ * revision and changed date, so syncs can be tried against it; an update whose revision test
+ * fails is answered with 412.
+ * </p>
+ *
+ * <p>
+ * Usage: {@code java StubAzureDevOps.java <port> <first-request-file> [response-delay-ms] [work-items]}
+ * </p>
+ */
+public class StubAzureDevOps {
+
+    private static final AtomicInteger ids = new AtomicInteger(1000);
+    private static final Pattern LAST_ID = Pattern.compile("\\[System\\.Id\\] > (\\d+)");
+    private static final Pattern TOP = Pattern.compile("\\$top=(\\d+)");
+    private static final Pattern BATCH_IDS = Pattern.compile("\"ids\":\\[([^\\]]*)\\]");
+    private static final Pattern GET_IDS = Pattern.compile("GET \\S*/_apis/wit/workitems\\?\\S*?\\bids=([0-9,]+)");
+    private static final Pattern CHANGED_SINCE = Pattern.compile("\\[System\\.ChangedDate\\] >= '([^']+)'");
+    private static final Pattern OPERATION = Pattern.compile(
+            "\\{\"op\":\"(\\w+)\",\"path\":\"([^\"]+)\"(?:,\"value\":(\"(?:[^\"\\\\]|\\\\.)*\"|[^,}{]+))?\\}");
+    private static final Pattern UPDATE = Pattern.compile("PATCH \\S*/_apis/wit/workitems/(\\d+)");
+    private static final Instant CREATED = Instant.parse("2026-01-01T00:00:00Z");
+    private static final Map<Integer, Map<String, String>> changes = new ConcurrentHashMap<>();
+    private static int workItems;
+
+    public static void main(String[] args) throws IOException {
+        int port = Integer.parseInt(args[0]);
+        Path firstRequestFile = Paths.get(args[1]);
+        long delayMs = args.length > 2 ? Long.parseLong(args[2]) : 0;
+        workItems = args.length > 3 ? Integer.parseInt(args[3]) : 50000;
+        ids.set(Math.max(ids.get(), workItems));
+        try (ServerSocket server = new ServerSocket(port)) {
+            while (true) {
+                Socket socket = server.accept();
+                new Thread(() -> handle(socket, firstRequestFile, delayMs)).start();
+            }
+        }
+    }
+
+    private static void handle(Socket socket, Path firstRequestFile, long delayMs) {
+        try (socket) {
+            BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.ISO_8859_1));
+            OutputStream out = socket.getOutputStream();
+            String requestLine;
+            while ((requestLine = in.readLine()) != null && !requestLine.isEmpty()) {
+                long now = System.currentTimeMillis();
+                synchronized (StubAzureDevOps.class) {
+                    if (!Files.exists(firstRequestFile)) {
+                        Files.write(firstRequestFile, Long.toString(now).getBytes(StandardCharsets.US_ASCII));
+                    }
+                }
+
+                int contentLength = 0;
+                String header;
+                while ((header = in.readLine()) != null && !header.isEmpty()) {
+                    if (header.toLowerCase().startsWith("content-length:")) {
+                        contentLength = Integer.parseInt(header.substring(15).trim());
+                    }
+                }
+                StringBuilder requestBody = new StringBuilder(contentLength);
+                for (int i = 0; i < contentLength; i++) {
+                    requestBody.append((char) in.read());
+                }
+
+                if (requestLine.startsWith("CONNECT")) {
+                    // Nothing useful can be said over TLS; the first request time is all we need
+                    out.write("HTTP/1.1 502 Bad Gateway\r\nContent-Length: 0\r\nConnection: close\r\n\r\n".getBytes(StandardCharsets.US_ASCII));
+                    out.flush();
+                    return;
+                }
+
+                if (delayMs > 0) {
+                    try {
+                        Thread.sleep(delayMs);
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                }
+                String json;
+                String status = "200 OK";
+                Matcher update = UPDATE.matcher(requestLine);
+                Matcher getIds = GET_IDS.matcher(requestLine);
+                if (requestLine.contains("/_apis/wit/wiql")) {
+                    json = queryResult(requestLine, requestBody.toString());
+                } else if (requestLine.contains("/_apis/wit/workitemsbatch")) {
+                    Matcher matcher = BATCH_IDS.matcher(requestBody);
+                    json = batchResult(matcher.find() ? matcher.group(1) : "");
+                } else if (getIds.find()) {
+                    json = batchResult(getIds.group(1));
+                } else if (update.find()) {
+                    json = update(Integer.parseInt(update.group(1)), requestBody.toString());
+                    if (json == null) {
+                        status = "412 Precondition Failed";
+                        json = "{\"message\":\"The revision test failed\"}";
+                    }
+                } else {
+                    int id = ids.incrementAndGet();
+                    json = update(id, requestBody.toString());
+                }
+                byte[] body = json.getBytes(StandardCharsets.UTF_8);
+                out.write(("HTTP/1.1 " + status + "\r\nContent-Type: application/json\r\nContent-Length: " + body.length
+                        + "\r\n\r\n").getBytes(StandardCharsets.US_ASCII));
+                out.write(body);
+                out.flush();
+            }
+        } catch (IOException e) {
+            // Client went away
+        }
+    }
+
+    private static String queryResult(String requestLine, String requestBody) {
+        Matcher last = LAST_ID.matcher(requestBody);
+        Matcher top = TOP.matcher(requestLine);
+        Matcher since = CHANGED_SINCE.matcher(requestBody);
+        int from = last.find() ? Integer.parseInt(last.group(1)) + 1 : 1;
+        int limit = top.find() ? Integer.parseInt(top.group(1)) : 20000;
+        Instant changedSince = since.find() ? Instant.parse(since.group(1)) : null;
+        StringBuilder json = new StringBuilder("{\"queryType\":\"flat\",\"workItems\":[");
+        int count = 0;
+        for (int id = from; id <= ids.get() && count < limit; id++) {
+            Map<String, String> changed = changes.get(id);
+            if (id > workItems && changed == null) {
+                continue;
+            }
+            Instant changedDate = changed == null ? CREATED : Instant.parse(unquote(changed.get("System.ChangedDate")));
+            if (changedSince != null && changedDate.isBefore(changedSince)) {
+                continue;
+            }
+            json.append(count++ == 0 ? "" : ",").append("{\"id\":").append(id).append('}');
+        }
+        return json.append("]}").toString();
+    }
+
+    private static synchronized String update(int id, String requestBody) {
+        Map<String, String> fields = changes.computeIfAbsent(id, key -> new LinkedHashMap<>());
+        int rev = fields.containsKey("System.Rev") ? Integer.parseInt(fields.get("System.Rev")) : 1;
+        Matcher operation = OPERATION.matcher(requestBody);
+        Map<String, String> values = new LinkedHashMap<>();
+        while (operation.find()) {
+            String path = operation.group(2);
+            if (operation.group(1).equals("test") && path.equals("/rev")) {
+                if (Integer.parseInt(operation.group(3)) != rev) {
+                    return null;
+                }
+            } else if (path.startsWith("/fields/")) {
+                values.put(path.substring(8), operation.group(1).equals("remove") ? "null" : operation.group(3));
+            }
+        }
+        boolean created = id > workItems && !fields.containsKey("System.ChangedDate");
+        fields.putAll(values);
+        fields.put("System.Rev", Integer.toString(created ? 1 : rev + 1));
+        fields.put("System.ChangedDate", '"' + Instant.now().toString() + '"');
+        return "{\"id\":" + id + ",\"rev\":" + fields.get("System.Rev") + "}";
+    }
+
+    private static String unquote(String value) {
+        return value.substring(1, value.length() - 1);
+    }
+
+    private static String batchResult(String idList) {
+        StringBuilder json = new StringBuilder("{\"count\":0,\"value\":[");
+        if (!idList.isEmpty()) {
+            String[] batch = idList.split(",");
+            for (int i = 0; i < batch.length; i++) {
+                int id = Integer.parseInt(batch[i].trim());
+                Map<String, String> fields = new LinkedHashMap<>();
+                fields.put("System.Id", Integer.toString(id));
+                if (id <= workItems) {
+                    fields.put("System.Title", "\"Task " + id + '"');
+                    fields.put("System.Description", "\"<div>Line one\\nLine two, with a comma</div>\"");
+                    fields.put("System.AssignedTo", "{\"displayName\":\"User\",\"uniqueName\":\"user@example.com\"}");
+                    fields.put("System.IterationPath", "\"Project\\\\Sprint " + id % 10 + '"');
+                    fields.put("System.AreaPath", "\"Project\\\\Team\"");
+                    fields.put("Microsoft.VSTS.Scheduling.OriginalEstimate", "8.0");
+                    fields.put("Microsoft.VSTS.Scheduling.RemainingWork", "2.5");
+                    fields.put("System.Parent", Integer.toString(100000 + id / 20));
+                }
+                fields.put("System.WorkItemType", "\"Task\"");
+                fields.put("System.Rev", "1");
+                fields.put("System.ChangedDate", '"' + CREATED.toString() + '"');
+                Map<String, String> changed = changes.get(id);
+                if (changed != null) {
+                    fields.putAll(changed);
+                }
+                json.append(i == 0 ? "" : ",").append("{\"id\":").append(id).append(",\"fields\":{");
+                String separator = "";
+                for (Map.Entry<String, String> field : fields.entrySet()) {
+                    if (!field.getValue().equals("null")) {
+                        json.append(separator).append('"').append(field.getKey()).append("\":").append(field.getValue());
+                        separator = ",";
+                    }
+                }
+                json.append("}}");
+            }
+        }
+        return json.append("]}").toString();
+    }
+}
@@ -0,0 +1,39 @@
+#!/usr/bin/env bash
+#
+# Measures an export of a project of synthetic work items (default: 50000) from a local stub,
+# and checks that every work item was written once, in ID order.
+#
+# Usage: bench/export-benchmark.sh [work-items] [concurrency]
+
+set -euo pipefail
+
+ITEMS=${1:-50000}
+CONCURRENCY=${2:-8}
+PORT=${PORT:-18080}
+DELAY_MS=${DELAY_MS:-20}
+ROOT=$(cd "$(dirname "$0")/.." && pwd)
+WORK=$(mktemp -d)
+trap 'kill "${STUB_PID:-}" 2>/dev/null || true; rm -rf "$WORK"' EXIT
+
+echo "Building current tree..."
+(cd "$ROOT" && mvn -B -q package -DskipTests >/dev/null)
+JAR=$(ls "$ROOT"/target/azure-task-*.jar | grep -v original | head -1)
+
+java "$ROOT/bench/StubAzureDevOps.java" "$PORT" "$WORK/first-request" "$DELAY_MS" "$ITEMS" &
+STUB_PID=$!
+sleep 2
+
+start=$(date +%s%3N)
+AZURE_DEVOPS_TOKEN=token java -Xmx128m -jar "$JAR" --base-url "http://127.0.0.1:$PORT" \
+    --export "$WORK/export.csv" --organization org --project project --area-path 'Project\Team' \
+    --export-concurrency "$CONCURRENCY" >/dev/null
+echo "Exported in $(( $(date +%s%3N) - start )) ms"
+
+rows=$(( $(wc -l < "$WORK/export.csv") - 1 ))
+expected=$(seq 1 "$ITEMS" | sed 's/^/Task /')
+actual=$(tail -n +2 "$WORK/export.csv" | cut -d, -f1)
+if [ "$rows" -ne "$ITEMS" ] || [ "$expected" != "$actual" ]; then
+    echo "Expected $ITEMS rows in ID order, got $rows" >&2
+    exit 1
+fi
+echo "$rows rows in ID order"
@@ -0,0 +1,62 @@
+#!/usr/bin/env bash
+#
+# Runs a sharded import with several local worker JVMs against a stub server, kills one of the
+# workers halfway through and checks that the others reclaim its shards and that the merged
+# results cover every row exactly once.
+#
+# Usage: bench/sharded-local.sh [workers] [rows]
+
+set -euo pipefail
+
+WORKERS=${1:-3}
+ROWS=${2:-600}
+PORT=${PORT:-18090}
+ROOT=$(cd "$(dirname "$0")/.." && pwd)
+WORK=$(mktemp -d)
+echo "Working directory: $WORK"
+PIDS=()
+trap 'kill "${STUB_PID:-}" "${PIDS[@]}" 2>/dev/null || true; [ -n "${KEEP:-}" ] || rm -rf "$WORK"' EXIT
+
+(cd "$ROOT" && mvn -B -q package -DskipTests >/dev/null)
+JAR=$(ls "$ROOT"/target/azure-task-*.jar | grep -v original | head -1)
+
+CSV="$WORK/tasks.csv"
+echo "Title,Description,AssignedTo,OriginalEstimateHours,RemainingHours,Area,ParentStory,Organization,Project,Username,Token" > "$CSV"
+for i in $(seq 1 "$ROWS"); do
+    echo "Task $i,Sharded task,,1,1,area,1,org,project,user,token" >> "$CSV"
+done
+
+# Every response takes 20 ms, so the run lasts long enough to kill a worker in the middle of it
+java "$ROOT/bench/StubAzureDevOps.java" "$PORT" "$WORK/first-request" 20 &
+STUB_PID=$!
+sleep 2
+
+# Lease timeout is read from config.properties in the working directory
+echo "shard.leaseTimeoutMs=3000" > "$WORK/config.properties"
+
+for w in $(seq 1 "$WORKERS"); do
+    (cd "$WORK" && exec java -jar "$JAR" --csv "$CSV" --base-url "http://127.0.0.1:$PORT" --skip-path-validation \
+        -r 1 --shard-dir "$WORK/shards" --shard-size 50 > "$WORK/worker-$w.log" 2>&1) &
+    PIDS+=($!)
+done
+
+# Kill worker 1 while it holds a lease, once it has created part of its shard
+until grep -qs "^${PIDS[0]}@" "$WORK"/shards/*.lease; do
+    sleep 0.05
+done
+sleep 1
+echo "Killing worker 1 (pid ${PIDS[0]})"
+kill -9 "${PIDS[0]}"
+
+for pid in "${PIDS[@]:1}"; do
+    wait "$pid"
+done
+
+(cd "$WORK" && java -jar "$JAR" --shard-dir "$WORK/shards" --merge-shards > "$WORK/merge.log" 2>&1)
+
+MERGED=$(( $(wc -l < "$WORK/shards/results.csv") - 1 ))
+UNIQUE=$(tail -n +2 "$WORK/shards/results.csv" | cut -d, -f1 | sort -u | wc -l)
+CREATED=$(grep -c ",CREATED," "$WORK/shards/results.csv" || true)
+echo "Merged rows: $MERGED, distinct lines: $UNIQUE, created: $CREATED (expected $ROWS)"
+grep -h "reclaiming\|already created" "$WORK"/worker-*.log || true
+[ "$MERGED" -eq "$ROWS" ] && [ "$UNIQUE" -eq "$ROWS" ] && [ "$CREATED" -eq "$ROWS" ]
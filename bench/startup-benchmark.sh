@@ -0,0 +1,57 @@
+#!/usr/bin/env bash
+#
+# Measures the time from JVM launch to the first request sent to Azure DevOps.
+#
+# The current tree is compared with a baseline revision (default: HEAD~1), both run against a
+# local stub on a 10-row CSV file. Builds without --base-url reach the stub as an HTTPS proxy.
+#
+# Usage: bench/startup-benchmark.sh [baseline-revision] [runs]
+
+set -euo pipefail
+
+BASELINE=${1:-HEAD~1}
+RUNS=${2:-5}
+PORT=${PORT:-18080}
+ROOT=$(cd "$(dirname "$0")/.." && pwd)
+WORK=$(mktemp -d)
+trap 'kill "${STUB_PID:-}" 2>/dev/null || true; git -C "$ROOT" worktree remove --force "$WORK/baseline" >/dev/null 2>&1 || true; rm -rf "$WORK"' EXIT
+
+CSV="$WORK/tasks.csv"
+echo "Title,Description,AssignedTo,OriginalEstimateHours,RemainingHours,Area,ParentStory,Organization,Project,Username,Token" > "$CSV"
+for i in $(seq 1 10); do
+    echo "Task $i,Benchmark task,,1,1,area,1,org,project,user,token" >> "$CSV"
+done
+
+build() {
+    (cd "$1" && mvn -B -q package -DskipTests >/dev/null)
+    ls "$1"/target/azure-task-*.jar | grep -v original | head -1
+}
+
+echo "Building current tree..."
+CURRENT_JAR=$(build "$ROOT")
+echo "Building $BASELINE..."
+git -C "$ROOT" worktree add --detach "$WORK/baseline" "$BASELINE" >/dev/null 2>&1
+BASELINE_JAR=$(build "$WORK/baseline")
+
+java "$ROOT/bench/StubAzureDevOps.java" "$PORT" "$WORK/first-request" &
+STUB_PID=$!
+sleep 2
+
+measure() {
+    local label=$1; shift
+    local total=0
+    for run in $(seq 1 "$RUNS"); do
+        rm -f "$WORK/first-request"
+        local start
+        start=$(date +%s%3N)
+        java "$@" >/dev/null 2>&1 || true
+        local elapsed=$(( $(cat "$WORK/first-request") - start ))
+        total=$(( total + elapsed ))
+        echo "  $label run $run: ${elapsed} ms"
+    done
+    echo "$label average: $(( total / RUNS )) ms"
+}
+
+measure baseline -Dhttps.proxyHost=127.0.0.1 -Dhttps.proxyPort="$PORT" \
+    -jar "$BASELINE_JAR" --csv "$CSV" --skip-path-validation -r 1
+measure current -jar "$CURRENT_JAR" --csv "$CSV" --base-url "http://127.0.0.1:$PORT" --skip-path-validation -r 1
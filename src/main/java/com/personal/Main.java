@@ -1,5 +1,6 @@
 package com.personal;
 
+import com.personal.config.AppConfig;
 import com.personal.core.TaskActions;
 import com.personal.model.Task;
 import com.personal.util.CsvReader;
@@ -27,12 +28,13 @@ public class Main {
      * and performs necessary operations.
      * </p>
      *
-     * @param args Command-line arguments (not used in this application).
+     * @param args Command-line arguments, read for the base URL and timeouts like those of {@link TaskManager}.
      */
     public static void main(String[] args) {
         String filePath = "./tasks.csv";
         
         try {
+            AppConfig config = AppConfig.loadConfig(args);
             log.info("Starting Azure DevOps Task Manager");
             log.info("Reading tasks from CSV file: {}", filePath);
             
@@ -47,10 +49,10 @@ public class Main {
             log.info("Found {} tasks in the CSV file", tasks.size());
             
             // Create the tasks in Azure DevOps
-            TaskActions.createTasksInAzureDevOps(tasks);
+            TaskActions.createTasksInAzureDevOps(tasks, config);
             
             // Uncomment the following line to delete tasks
-            // TaskActions.deleteTasksInAzureDevOps(tasks);
+            // TaskActions.deleteTasksInAzureDevOps(tasks, config);
             
             log.info("Azure DevOps Task Manager completed successfully");
         } catch (IOException e) {
@@ -1,30 +1,55 @@
 package com.personal;
 
 import com.personal.config.AppConfig;
+import com.personal.config.ConfigWatcher;
+import com.personal.core.JobServer;
+import com.personal.core.OrderedResultWriter;
+import com.personal.core.ResultSink;
+import com.personal.core.RunLimits;
+import com.personal.core.ShardedRunner;
+import com.personal.core.TaskEngine;
+import com.personal.core.WatchDirectoryDaemon;
+import com.personal.core.WorkItemExporter;
+import com.personal.core.WorkItemSync;
 import com.personal.model.Task;
+import com.personal.model.TaskResult;
 import com.personal.service.AzureDevOpsService;
-import com.personal.util.ValidationUtil;
+import com.personal.util.CsvResultRowWriter;
+import com.personal.util.CsvWriter;
+import com.personal.util.ExcelResultRowWriter;
+import com.personal.util.InputSources;
+import com.personal.util.NdjsonTaskDecoder;
+import com.personal.util.PerSourceResultRowWriter;
+import com.personal.util.ResultRowWriter;
+import com.personal.util.TaskTemplates;
 import lombok.extern.slf4j.Slf4j;
 
-import java.io.BufferedReader;
-import java.io.FileReader;
 import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.Locale;
 import java.util.concurrent.CompletableFuture;
-import java.util.concurrent.ExecutionException;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
 /**
  * Main class for managing Azure DevOps tasks.
- * Provides command-line interface and orchestrates the task creation process.
+ * Provides command-line interface and orchestrates the task creation process on a {@link TaskEngine}.
  */
 @Slf4j
 public class TaskManager {
 
     private final AppConfig config;
+    private final TaskEngine engine;
     private final AzureDevOpsService azureService;
-    private final List<Task> tasks;
+    private final ConfigWatcher configWatcher;
 
     /**
      * Creates a new instance of TaskManager.
@@ -33,8 +58,10 @@ public class TaskManager {
      */
     public TaskManager(String[] args) {
         this.config = AppConfig.loadConfig(args);
-        this.azureService = new AzureDevOpsService(config);
-        this.tasks = new ArrayList<>();
+        this.engine = new TaskEngine(config);
+        this.azureService = engine.getAzureService();
+        this.configWatcher = new ConfigWatcher(Paths.get(AppConfig.CONFIG_FILE), config);
+        this.configWatcher.addListener(azureService::applyConcurrencyLimits);
     }
 
     /**
@@ -43,167 +70,536 @@ public class TaskManager {
      * @param args Command line arguments
      */
     public static void main(String[] args) {
+        int status;
         try {
-            TaskManager manager = new TaskManager(args);
-            manager.run();
+            status = new TaskManager(args).execute();
         } catch (Exception e) {
             log.error("Application error: {}", e.getMessage());
-            System.exit(1);
+            status = 1;
+        }
+        // The engine never exits the process; only the command line does, and only on failure
+        if (status != 0) {
+            System.exit(status);
         }
     }
 
+    /**
+     * Runs the mode selected by the command line.
+     *
+     * @return The exit status: 0 on success, 1 on failure
+     * @throws Exception If the mode fails to run
+     */
+    public int execute() throws Exception {
+        if (config.getExportFile() != null) {
+            export();
+        } else if (config.getSyncFile() != null) {
+            sync();
+        } else if (config.getShardDirectory() != null && config.isMergeShards()) {
+            return mergeShards() == 0 ? 0 : 1;
+        } else if (config.getShardDirectory() != null) {
+            return runShardWorker();
+        } else if (config.getServerPort() > 0) {
+            serve();
+        } else if (config.getWatchDirectory() != null) {
+            watch();
+        } else if (config.isStreamInput() || config.getTemplateFile() != null) {
+            return runStreaming();
+        } else {
+            return run();
+        }
+        return 0;
+    }
+
     /**
      * Runs the task manager.
+     *
+     * @return The exit status: 0 on success, 1 if validation failed or a task was not created,
+     *         unless continue-on-error is set
      */
-    public void run() {
+    public int run() {
+        RunLimits limits = RunLimits.start(config);
         try {
-            // Load tasks from CSV
-            loadTasksFromCsv();
+            // Load the transport in the background while the input is read
+            azureService.warmUp();
+            configWatcher.start();
+
+            // Load tasks from the input files
+            List<Path> sources = InputSources.resolve(config.getCsvFilePath());
+            List<Task> tasks = engine.load(sources);
 
             // Validate tasks if enabled
             if (config.isValidateBeforeProcessing()) {
-                if (!validateTasks()) {
+                if (!engine.validate(tasks)) {
                     if (!config.isContinueOnError()) {
                         log.error("Validation failed. Exiting...");
-                        System.exit(1);
+                        return 1;
                     }
                     log.warn("Validation failed but continuing due to continue-on-error flag");
                 }
             }
 
             // Process tasks
-            processTasks();
+            List<TaskResult> results;
+            try (ResultSink sink = new ResultSink(Paths.get(config.getResultsFilePath()));
+                 OrderedResultWriter writeBack = config.isWriteBack() ? openWriteBack(sources) : null) {
+                results = processTasks(tasks, limits, sink, writeBack, config.getResubmitFilePath());
+            }
+
+            return countFailures(results) > 0 && !config.isContinueOnError() ? 1 : 0;
 
         } catch (Exception e) {
             log.error("Error running task manager: {}", e.getMessage());
-            System.exit(1);
+            return 1;
         } finally {
-            azureService.shutdown();
+            configWatcher.stop();
+            engine.close();
         }
     }
 
     /**
-     * Loads tasks from the CSV file.
+     * Runs the task manager on an input that is read and sent at the same time, see
+     * {@link TaskEngine#submit(TaskEngine.TaskSource, Consumer)}.
      *
-     * @throws IOException If there is an error reading the CSV file
+     * <p>
+     * With a templates file, every row of the input is a story, expanded into one task per
+     * template as it is read, so the tasks of the whole input never exist at once.
+     * </p>
+     *
+     * @return The exit status: 0 on success, 1 if the input could not be read completely or a task
+     *         was not created, unless continue-on-error is set
      */
-    private void loadTasksFromCsv() throws IOException {
-        log.info("Loading tasks from CSV file: {}", config.getCsvFilePath());
-        
-        try (BufferedReader reader = new BufferedReader(new FileReader(config.getCsvFilePath()))) {
-            // Skip header line
-            String header = reader.readLine();
-            if (header == null) {
-                throw new IOException("CSV file is empty");
-            }
+    public int runStreaming() {
+        RunLimits limits = RunLimits.start(config);
+        AtomicInteger completed = new AtomicInteger();
+        AtomicInteger failed = new AtomicInteger();
+        List<Task> shortCircuited = Collections.synchronizedList(new ArrayList<>());
 
-            String line;
-            int lineNumber = 1;
-            while ((line = reader.readLine()) != null) {
-                lineNumber++;
-                try {
-                    Task task = parseTaskFromCsv(line, lineNumber);
-                    tasks.add(task);
-                } catch (Exception e) {
-                    log.error("Error parsing line {}: {}", lineNumber, e.getMessage());
-                    if (!config.isContinueOnError()) {
-                        throw e;
-                    }
+        try (ResultSink sink = new ResultSink(Paths.get(config.getResultsFilePath()))) {
+            azureService.warmUp();
+            configWatcher.start();
+
+            Consumer<TaskResult> onResult = result -> {
+                sink.accept(result);
+                if (result.getStatus() == TaskResult.Status.SHORT_CIRCUITED) {
+                    shortCircuited.add(result.getTask());
                 }
+                // The total is not known while the input is still being read
+                logResult(result, completed.incrementAndGet(),
+                        result.isCreated() ? failed.get() : failed.incrementAndGet(), -1, config.getProgressLogInterval());
+            };
+
+            List<Path> sources = InputSources.resolve(config.getCsvFilePath());
+            TaskTemplates templates = config.getTemplateFile() == null
+                    ? null
+                    : TaskTemplates.load(Paths.get(config.getTemplateFile()));
+            Long sent = null;
+            try {
+                sent = engine.submit(engine.source(sources, templates), limits, onResult).join();
+            } catch (CompletionException e) {
+                // The error was logged by the reader; the tasks read before it were sent and are reported below
             }
+
+            log.info("Task processing completed:");
+            log.info("  - Total tasks: {}", completed.get());
+            if (sent != null) {
+                log.info("  - Sent: {}", sent);
+            }
+            log.info("  - Successful: {}", completed.get() - failed.get());
+            log.info("  - Failed: {}", failed.get());
+            log.info("  - Short-circuited: {}", shortCircuited.size());
+            log.info("  - Retry budget: {}", limits.getRetryBudget().describe());
+            if (azureService.getCredentials().isPooled()) {
+                log.info("  - Credentials: {}", azureService.getCredentials().describe());
+            }
+            if (!shortCircuited.isEmpty()) {
+                reportShortCircuited(shortCircuited, config.getResubmitFilePath());
+            }
+            if (sent == null) {
+                return 1;
+            }
+        } catch (Exception e) {
+            log.error("Error running task manager: {}", e.getMessage());
+            return 1;
+        } finally {
+            configWatcher.stop();
+            engine.close();
         }
 
-        log.info("Loaded {} tasks from CSV", tasks.size());
+        return failed.get() > 0 && !config.isContinueOnError() ? 1 : 0;
     }
 
     /**
-     * Parses a task from a CSV line.
+     * Runs the task manager as a daemon that processes every file dropped into the watch directory.
+     * The scheduler, HTTP connections and caches stay warm between files.
      *
-     * @param line The CSV line to parse
-     * @param lineNumber The line number in the CSV file
-     * @return The parsed Task object
+     * @throws IOException If the watch directory cannot be watched
      */
-    private Task parseTaskFromCsv(String line, int lineNumber) {
-        String[] fields = line.split(",");
-        if (fields.length < 11) {
-            throw new IllegalArgumentException(
-                String.format("Line %d: Invalid number of fields. Expected 11, got %d", 
-                    lineNumber, fields.length));
-        }
-
-        // Remove quotes from fields
-        for (int i = 0; i < fields.length; i++) {
-            fields[i] = fields[i].trim().replaceAll("^\"|\"$", "");
-        }
-
-        return Task.builder()
-                .title(fields[0])
-                .description(fields[1])
-                .assignedTo(fields[2])
-                .originalEstimateHours(fields[3])
-                .remainingHours(fields[4])
-                .area(fields[5])
-                .parentStory(fields[6])
-                .organization(fields[7])
-                .project(fields[8])
-                .username(fields[9])
-                .token(fields[10])
+    public void watch() throws IOException {
+        WatchDirectoryDaemon daemon = new WatchDirectoryDaemon(
+                Paths.get(config.getWatchDirectory()), config.getMaxConcurrentTasks(), this::processFile);
+        configWatcher.start();
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            daemon.stop();
+            configWatcher.stop();
+            engine.close();
+        }));
+        daemon.run();
+    }
+
+    /**
+     * Runs the task manager as a local job server that accepts import jobs over HTTP.
+     * The jobs share the scheduler, HTTP connections and caches of the engine.
+     *
+     * @throws IOException If the port cannot be bound or the jobs directory cannot be created
+     * @throws InterruptedException If the thread is interrupted while serving
+     */
+    public void serve() throws IOException, InterruptedException {
+        JobServer server = new JobServer(engine, config.getServerPort(), config.getServerJobConcurrency(),
+                config.getInteractiveJobMaxTasks(), Paths.get(config.getClassificationCacheDir(), "jobs"),
+                config.getServerInputDirectory() == null ? null : Paths.get(config.getServerInputDirectory()),
+                TimeUnit.MINUTES.toMillis(config.getServerJobRetentionMinutes()));
+        azureService.warmUp();
+        configWatcher.start();
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            server.stop();
+            configWatcher.stop();
+            engine.close();
+        }));
+        server.run();
+    }
+
+    /**
+     * Runs as one worker of a sharded run: claims shards of the input in the shard directory and
+     * processes them until every shard is done, together with the other workers.
+     *
+     * @return The exit status: 0 on success, 1 if validation failed, unless continue-on-error is set
+     * @throws IOException If the input cannot be read or the shard directory cannot be used
+     * @throws InterruptedException If the thread is interrupted while waiting for other workers
+     */
+    public int runShardWorker() throws IOException, InterruptedException {
+        RunLimits limits = RunLimits.start(config);
+        try {
+            azureService.warmUp();
+            configWatcher.start();
+
+            List<Task> tasks = engine.load(InputSources.resolve(config.getCsvFilePath()));
+            if (config.isValidateBeforeProcessing() && !engine.validate(tasks) && !config.isContinueOnError()) {
+                log.error("Validation failed. Exiting...");
+                return 1;
+            }
+
+            ShardedRunner runner = new ShardedRunner(Paths.get(config.getShardDirectory()), config.getShardSize(),
+                    config.getShardLeaseTimeoutMs(),
+                    // Each shard writes its short-circuited tasks to its own resubmit file
+                    (shard, progress, shardLimits) -> processTasks(shard, shardLimits, progress, null, null));
+            runner.run(tasks, limits);
+            return 0;
+        } finally {
+            configWatcher.stop();
+            engine.close();
+        }
+    }
+
+    /**
+     * Merges the results of every shard of a sharded run.
+     *
+     * @return The number of shards that are not done yet
+     * @throws IOException If the shard results cannot be merged
+     */
+    public int mergeShards() throws IOException {
+        return ShardedRunner.merge(Paths.get(config.getShardDirectory()));
+    }
+
+    /**
+     * Exports the work items of the configured project, optionally under an area or iteration path,
+     * to the export file.
+     *
+     * @return The number of exported work items
+     * @throws IOException If the work items cannot be fetched or the file cannot be written
+     * @throws InterruptedException If the thread is interrupted while waiting for a request
+     */
+    public long export() throws IOException, InterruptedException {
+        try {
+            WorkItemExporter exporter = new WorkItemExporter(azureService, config, config.getExportConcurrency(),
+                    RunLimits.start(config));
+            return exporter.export(exportProject(), exportCondition(), Paths.get(config.getExportFile()));
+        } finally {
+            engine.close();
+        }
+    }
+
+    /**
+     * Syncs the mirror file with the work items of the configured project, optionally under an
+     * area or iteration path, that changed since the last sync.
+     *
+     * @throws IOException If the work items cannot be fetched or the mirror cannot be written
+     * @throws InterruptedException If the thread is interrupted while waiting for a request
+     */
+    public void sync() throws IOException, InterruptedException {
+        try {
+            WorkItemExporter exporter = new WorkItemExporter(azureService, config, config.getExportConcurrency(),
+                    RunLimits.start(config));
+            WorkItemSync sync = new WorkItemSync(azureService, exporter,
+                    Paths.get(config.getClassificationCacheDir(), "sync"));
+            sync.sync(exportProject(), exportCondition(), Paths.get(config.getSyncFile()));
+        } finally {
+            engine.close();
+        }
+    }
+
+    /**
+     * Gets the project of an export or sync, with its credentials.
+     *
+     * @return A task holding the organization, project and credentials
+     * @throws IllegalArgumentException If the organization, project or token is missing
+     */
+    private Task exportProject() {
+        Task project = Task.builder()
+                .organization(config.getExportOrganization())
+                .project(config.getExportProject())
+                .username(config.getExportUsername())
+                .token(config.getExportToken())
                 .build();
+        if (isBlank(project.getOrganization()) || isBlank(project.getProject()) || isBlank(project.getToken())) {
+            throw new IllegalArgumentException(
+                    "An export or sync needs --organization, --project and a token in AZURE_DEVOPS_TOKEN or export.token");
+        }
+        return project;
+    }
+
+    /**
+     * Gets the WIQL condition of the work items of an export or sync.
+     *
+     * @return The condition
+     */
+    private String exportCondition() {
+        List<String> conditions = new ArrayList<>();
+        conditions.add("[System.WorkItemType] = 'Task'");
+        if (!isBlank(config.getExportAreaPath())) {
+            conditions.add("[System.AreaPath] UNDER " + wiqlString(config.getExportAreaPath()));
+        }
+        if (!isBlank(config.getExportIterationPath())) {
+            conditions.add("[System.IterationPath] UNDER " + wiqlString(config.getExportIterationPath()));
+        }
+        return String.join(" AND ", conditions);
+    }
+
+    /**
+     * Quotes a value as a WIQL string literal.
+     *
+     * @param value The value
+     * @return The value in single quotes, with single quotes inside it doubled
+     */
+    private static String wiqlString(String value) {
+        return "'" + value.replace("'", "''") + "'";
+    }
+
+    /**
+     * Determines if a value is missing.
+     *
+     * @param value The value
+     * @return true if the value is null or blank, false otherwise
+     */
+    private static boolean isBlank(String value) {
+        return value == null || value.trim().isEmpty();
+    }
+
+    /**
+     * Loads, validates and processes a single input file.
+     *
+     * @param file The input file
+     * @return The result of every task of the file
+     * @throws IOException If the file cannot be read
+     */
+    public List<TaskResult> processFile(Path file) throws IOException {
+        List<Task> tasks = engine.load(file);
+        if (config.isValidateBeforeProcessing() && !engine.validate(tasks) && !config.isContinueOnError()) {
+            log.error("Validation of {} failed, no task was sent", file);
+            return tasks.stream()
+                    .map(task -> TaskResult.builder()
+                            .task(task)
+                            .status(TaskResult.Status.FAILED)
+                            .error("Validation failed")
+                            .build())
+                    .collect(Collectors.toList());
+        }
+        // The daemon writes the results and the short-circuited tasks of each file next to it instead
+        // of to the results and resubmit files, and every file gets the whole run deadline and retry budget
+        return processTasks(tasks, RunLimits.start(config), null, null, null);
     }
 
     /**
-     * Validates the loaded tasks.
+     * Opens the files the input rows are written back to with their results, one next to each input file.
      *
-     * @return true if all tasks are valid, false otherwise
+     * @param sources The input files
+     * @return The writer of the results files
+     * @throws IOException If the results file cannot be created
      */
-    private boolean validateTasks() {
-        log.info("Validating {} tasks...", tasks.size());
-        return ValidationUtil.validateAndLogTasks(tasks);
+    private static OrderedResultWriter openWriteBack(List<Path> sources) throws IOException {
+        if (sources.size() == 1) {
+            return new OrderedResultWriter(openResultRows(sources.get(0)));
+        }
+        // Each results file is created when the first row of its input file completes
+        return new OrderedResultWriter(new PerSourceResultRowWriter(TaskManager::openResultRows));
+    }
+
+    /**
+     * Opens the file the rows of an input file are written back to with their results, next to it.
+     * Excel inputs are written back as an XLSX workbook, and CSV and NDJSON inputs as CSV. The
+     * rows of the standard input are written to {@code stdin.result.csv} in the working directory.
+     *
+     * @param input The input file
+     * @return The writer of the results file
+     * @throws IOException If the results file cannot be created
+     */
+    private static ResultRowWriter openResultRows(Path input) throws IOException {
+        String name = input.toString().equals(NdjsonTaskDecoder.STDIN) ? "stdin" : input.getFileName().toString();
+        int dot = name.lastIndexOf('.');
+        String baseName = dot > 0 ? name.substring(0, dot) : name;
+        String extension = dot > 0 ? name.substring(dot + 1).toLowerCase(Locale.ROOT) : "";
+
+        ResultRowWriter out;
+        Path output;
+        if (extension.equals("xlsx") || extension.equals("xls")) {
+            output = input.resolveSibling(baseName + ".result.xlsx");
+            out = new ExcelResultRowWriter(output);
+        } else {
+            output = input.resolveSibling(baseName + ".result.csv");
+            out = new CsvResultRowWriter(output);
+        }
+        log.info("Writing results back to {}", output);
+        return out;
     }
 
     /**
      * Processes the tasks by sending them to Azure DevOps.
+     *
+     * <p>
+     * The outcome of every task goes to the result sink. On the console, created tasks are only
+     * logged every {@code progressLogInterval} completions together with the progress of the run;
+     * failed tasks are always logged.
+     * </p>
+     *
+     * @param tasks The tasks to send
+     * @param limits The deadline and retry budget of the run
+     * @param sink The sink the result of every task is written to, or null
+     * @param writeBack The writer of the input rows with their results, or null
+     * @param resubmitFile The file the short-circuited tasks are written to, or null to only log them
+     * @return The result of every task, in the same order as the tasks
      */
-    private void processTasks() {
+    private List<TaskResult> processTasks(List<Task> tasks, RunLimits limits, ResultSink sink,
+            OrderedResultWriter writeBack, String resubmitFile) {
         log.info("Processing {} tasks...", tasks.size());
 
-        List<CompletableFuture<String>> futures = tasks.stream()
-                .map(task -> azureService.createTask(task)
-                        .thenApply(id -> {
-                            log.info("Created task: {} (ID: {})", task.getTitle(), id);
-                            return id;
-                        })
-                        .exceptionally(ex -> {
-                            log.error("Failed to create task: {} - Error: {}", 
-                                task.getTitle(), ex.getMessage());
-                            return null;
-                        }))
+        int interval = config.getProgressLogInterval();
+        AtomicInteger completed = new AtomicInteger();
+        AtomicInteger failed = new AtomicInteger();
+
+        List<CompletableFuture<TaskResult>> submitted = engine.submit(tasks, limits);
+        List<CompletableFuture<TaskResult>> futures = IntStream.range(0, tasks.size())
+                .mapToObj(i -> submitted.get(i).whenComplete((result, ex) -> {
+                    if (sink != null) {
+                        sink.accept(result);
+                    }
+                    if (writeBack != null) {
+                        writeBack.accept(i, result);
+                    }
+                    logResult(result, completed.incrementAndGet(),
+                            result.isCreated() ? failed.get() : failed.incrementAndGet(),
+                            tasks.size(), interval);
+                }))
                 .collect(Collectors.toList());
 
         // Wait for all tasks to complete
-        CompletableFuture.allOf(futures.toArray(new CompletableFuture[0]))
-                .join();
+        List<TaskResult> results = futures.stream()
+                .map(CompletableFuture::join)
+                .collect(Collectors.toList());
 
         // Count successes and failures
-        long successes = futures.stream()
-                .filter(f -> {
-                    try {
-                        return f.get() != null;
-                    } catch (InterruptedException | ExecutionException e) {
-                        return false;
-                    }
-                })
-                .count();
-
-        long failures = tasks.size() - successes;
+        long failures = countFailures(results);
+        long successes = tasks.size() - failures;
+        List<Task> shortCircuited = results.stream()
+                .filter(result -> result.getStatus() == TaskResult.Status.SHORT_CIRCUITED)
+                .map(TaskResult::getTask)
+                .collect(Collectors.toList());
 
         log.info("Task processing completed:");
         log.info("  - Total tasks: {}", tasks.size());
         log.info("  - Successful: {}", successes);
         log.info("  - Failed: {}", failures);
+        log.info("  - Short-circuited: {}", shortCircuited.size());
+        log.info("  - Retry budget: {}", limits.getRetryBudget().describe());
+        if (azureService.getCredentials().isPooled()) {
+            log.info("  - Credentials: {}", azureService.getCredentials().describe());
+        }
+
+        if (!shortCircuited.isEmpty()) {
+            reportShortCircuited(shortCircuited, resubmitFile);
+        }
+
+        return results;
+    }
 
-        if (failures > 0 && !config.isContinueOnError()) {
-            System.exit(1);
+    /**
+     * Logs the outcome of a single task. Failures are always logged; short-circuited tasks are
+     * reported together at the end; created tasks are sampled.
+     *
+     * @param result The result of the task
+     * @param completed The number of tasks completed so far, including this one
+     * @param failed The number of tasks not created so far
+     * @param total The number of tasks of the run, or -1 if it is not known yet
+     * @param interval The number of completions between progress lines, or 0 to log every task
+     */
+    private static void logResult(TaskResult result, int completed, int failed, int total, int interval) {
+        Task task = result.getTask();
+        if (result.getStatus() == TaskResult.Status.FAILED) {
+            log.warn("Failed to create task: {} ({}) - Error: {}", task.getTitle(), task.getProvenance(), result.getError());
+        } else if (result.isCreated() && interval <= 0) {
+            log.info("Created task: {} (ID: {})", task.getTitle(), result.getWorkItemId());
+        } else {
+            log.debug("Task {} ({}): {}", task.getTitle(), task.getProvenance(), result.getStatus());
+        }
+        if (interval > 0 && (completed % interval == 0 || completed == total)) {
+            if (total < 0) {
+                log.info("Progress: {} tasks done, {} not created", completed, failed);
+            } else {
+                log.info("Progress: {}/{} tasks done, {} not created", completed, total, failed);
+            }
+        }
+    }
+
+    /**
+     * Counts the tasks that were not created.
+     *
+     * @param results The results of a run
+     * @return The number of tasks that were not created
+     */
+    private static long countFailures(List<TaskResult> results) {
+        return results.stream().filter(result -> !result.isCreated()).count();
+    }
+
+    /**
+     * Reports the tasks that were not sent because the circuit of their endpoint was open or the
+     * run deadline had passed, or not retried because the retry budget was exhausted or the
+     * deadline was too close, and writes them to a resubmit file so they can be processed again
+     * later.
+     *
+     * @param shortCircuited The tasks that were short-circuited
+     * @param resubmitFile The file the tasks are written to, or null to only log them
+     */
+    private static void reportShortCircuited(List<Task> shortCircuited, String resubmitFile) {
+        log.warn("{} tasks were not sent or not retried because their endpoint was failing or time ran out:",
+                shortCircuited.size());
+        for (Task task : shortCircuited) {
+            log.warn("  - {} ({}/{})", task.getTitle(), task.getOrganization(), task.getProject());
+        }
+        if (resubmitFile == null) {
+            return;
+        }
+        try {
+            CsvWriter.writeTasksToCsv(resubmitFile, shortCircuited);
+        } catch (IOException e) {
+            log.error("Could not write resubmit file {}: {}", resubmitFile, e.getMessage());
         }
     }
-} 
\ No newline at end of file
+} 
@@ -14,6 +14,12 @@ import java.util.Properties;
 /**
  * Configuration class for the application.
  * Handles loading configuration from properties file, environment variables, and command line arguments.
+ *
+ * <p>
+ * The retry and concurrency limits are volatile and can be changed during a run by editing the
+ * properties file; see {@link #applyReloadableProperties(Properties)}. All other settings are
+ * fixed once loaded.
+ * </p>
  */
 @Slf4j
 @Data
@@ -24,19 +30,31 @@ public class AppConfig {
      * Maximum number of retry attempts for failed operations.
      */
     @Builder.Default
-    private int maxRetryAttempts = 3;
+    private volatile int maxRetryAttempts = 3;
     
     /**
      * Initial delay in milliseconds between retry attempts.
      */
     @Builder.Default
-    private long initialRetryDelayMs = 1000;
+    private volatile long initialRetryDelayMs = 1000;
     
     /**
      * Maximum delay in milliseconds between retry attempts.
      */
     @Builder.Default
-    private long maxRetryDelayMs = 10000;
+    private volatile long maxRetryDelayMs = 10000;
+    
+    /**
+     * Retries allowed over the whole run, as a percentage of the successful requests.
+     */
+    @Builder.Default
+    private int retryBudgetPercent = 10;
+    
+    /**
+     * Retries allowed over the whole run before any request has succeeded.
+     */
+    @Builder.Default
+    private int retryBudgetMinRetries = 10;
     
     /**
      * Timeout in milliseconds for HTTP requests.
@@ -44,17 +62,150 @@ public class AppConfig {
     @Builder.Default
     private int httpTimeoutMs = 30000;
     
+    /**
+     * Timeout in milliseconds for opening a connection.
+     */
+    @Builder.Default
+    private int connectTimeoutMs = 10000;
+    
+    /**
+     * Time in milliseconds the whole run may take, or 0 for no limit. Tasks not sent by then are reported.
+     */
+    @Builder.Default
+    private long runDeadlineMs = 0;
+    
+    /**
+     * Time in milliseconds a task may take, retries included, or 0 for no limit.
+     */
+    @Builder.Default
+    private long taskDeadlineMs = 0;
+    
     /**
      * Maximum number of concurrent tasks to process.
      */
     @Builder.Default
-    private int maxConcurrentTasks = 5;
+    private volatile int maxConcurrentTasks = 5;
+    
+    /**
+     * Maximum number of concurrent tasks of a single organization (0 means no limit beyond maxConcurrentTasks).
+     */
+    @Builder.Default
+    private volatile int maxConcurrentTasksPerOrganization = 0;
     
     /**
-     * Path to the CSV file containing task data.
+     * Base URL of the Azure DevOps server.
+     */
+    @Builder.Default
+    private String baseUrl = DEFAULT_BASE_URL;
+    
+    /**
+     * Input containing task data: a CSV or Excel file, a directory or a glob, or several of them separated by commas.
      */
     private String csvFilePath;
     
+    /**
+     * Directory to watch for task files when running as a daemon, or null to process a single file.
+     */
+    private String watchDirectory;
+    
+    /**
+     * Port of the local job server on 127.0.0.1, or 0 to not run one.
+     */
+    @Builder.Default
+    private int serverPort = 0;
+    
+    /**
+     * Number of jobs of the job server that run at the same time, besides the one reserved for interactive jobs.
+     */
+    @Builder.Default
+    private int serverJobConcurrency = 2;
+    
+    /**
+     * Largest job of the job server, in tasks, that goes in the interactive lane.
+     */
+    @Builder.Default
+    private int interactiveJobMaxTasks = 100;
+    
+    /**
+     * Directory the job server may read inputs named by path from, or null to only accept uploaded inputs.
+     */
+    private String serverInputDirectory;
+    
+    /**
+     * Minutes a finished job of the job server, and its results file, are kept before they are removed.
+     */
+    @Builder.Default
+    private int serverJobRetentionMinutes = 60;
+    
+    /**
+     * Shard directory shared by the workers of a sharded run, or null to process the input in a single process.
+     */
+    private String shardDirectory;
+    
+    /**
+     * Whether to merge the results of the shards in the shard directory instead of processing tasks.
+     */
+    @Builder.Default
+    private boolean mergeShards = false;
+    
+    /**
+     * Number of rows per shard of a sharded run.
+     */
+    @Builder.Default
+    private int shardSize = 500;
+    
+    /**
+     * Time in milliseconds after which the lease of a worker that stopped renewing it can be reclaimed.
+     */
+    @Builder.Default
+    private long shardLeaseTimeoutMs = 30000;
+    
+    /**
+     * CSV file to export the work items of a project to, or null to create tasks.
+     */
+    private String exportFile;
+    
+    /**
+     * Mirror file to sync with the work items of a project, or null to create tasks.
+     */
+    private String syncFile;
+    
+    /**
+     * Organization of the project to export or sync.
+     */
+    private String exportOrganization;
+    
+    /**
+     * Project to export or sync.
+     */
+    private String exportProject;
+    
+    /**
+     * Area path whose work items, including those of its children, are exported, or null for any area.
+     */
+    private String exportAreaPath;
+    
+    /**
+     * Iteration path whose work items, including those of its children, are exported, or null for any iteration.
+     */
+    private String exportIterationPath;
+    
+    /**
+     * Username for the export and sync requests.
+     */
+    private String exportUsername;
+    
+    /**
+     * Personal access token for the export and sync requests; only read from the environment or the properties file.
+     */
+    private String exportToken;
+    
+    /**
+     * Number of work item batches fetched at the same time during an export or sync.
+     */
+    @Builder.Default
+    private int exportConcurrency = 8;
+    
     /**
      * Whether to validate tasks before processing.
      */
@@ -67,10 +218,165 @@ public class AppConfig {
     @Builder.Default
     private boolean continueOnError = false;
     
+    /**
+     * Whether to check area and iteration paths against the project's classification trees.
+     */
+    @Builder.Default
+    private boolean validateClassificationPaths = true;
+    
+    /**
+     * Directory where classification trees are cached between runs.
+     */
+    @Builder.Default
+    private String classificationCacheDir = DEFAULT_CACHE_DIR;
+    
+    /**
+     * Minutes a cached classification tree is used before checking the server for changes.
+     */
+    @Builder.Default
+    private long classificationCacheTtlMinutes = 60;
+    
+    /**
+     * Number of recent calls per organization/project the circuit breaker rates are computed over.
+     */
+    @Builder.Default
+    private int circuitWindowSize = 20;
+    
+    /**
+     * Number of calls needed before a circuit breaker can open.
+     */
+    @Builder.Default
+    private int circuitMinimumCalls = 5;
+    
+    /**
+     * Failure rate, in percent, that opens a circuit breaker.
+     */
+    @Builder.Default
+    private int circuitFailureRateThreshold = 50;
+    
+    /**
+     * Duration in milliseconds from which a call counts as slow.
+     */
+    @Builder.Default
+    private long circuitSlowCallDurationMs = 15000;
+    
+    /**
+     * Slow-call rate, in percent, that opens a circuit breaker.
+     */
+    @Builder.Default
+    private int circuitSlowCallRateThreshold = 80;
+    
+    /**
+     * Time in milliseconds an open circuit breaker waits before probing the endpoint again.
+     */
+    @Builder.Default
+    private long circuitOpenDurationMs = 30000;
+    
+    /**
+     * Number of probe calls a half-open circuit breaker lets through.
+     */
+    @Builder.Default
+    private int circuitHalfOpenProbes = 2;
+    
+    /**
+     * Path of the CSV file the short-circuited tasks are written to for resubmission.
+     */
+    @Builder.Default
+    private String resubmitFilePath = DEFAULT_RESUBMIT_FILE;
+    
+    /**
+     * Path of the file with the pools of credentials per organization, or null to use the credentials of every task.
+     */
+    private String credentialsFile;
+    
+    /**
+     * Milliseconds a pooled identity whose token was rejected is left out before it is tried again.
+     */
+    @Builder.Default
+    private long credentialRejectCooldownMs = 900000;
+    
+    /**
+     * Path of the CSV file of task templates every input row is expanded with, or null if every input row is a task.
+     */
+    private String templateFile;
+    
+    /**
+     * Path of the NDJSON file one result record per task is written to.
+     */
+    @Builder.Default
+    private String resultsFilePath = DEFAULT_RESULTS_FILE;
+    
+    /**
+     * Number of completed tasks between progress lines on the console (0 logs every task).
+     */
+    @Builder.Default
+    private int progressLogInterval = 100;
+    
+    /**
+     * Whether to write the input rows back, with the created work item ID and status of each, next to the input file.
+     */
+    @Builder.Default
+    private boolean writeBack = false;
+    
+    /**
+     * Whether to send tasks while the input is still being read, instead of loading it first.
+     */
+    @Builder.Default
+    private boolean streamInput = false;
+    
+    /**
+     * Whether to keep snapshots of parsed input files in the cache directory, so unchanged inputs are not parsed again.
+     */
+    @Builder.Default
+    private boolean snapshotCache = true;
+    
+    /**
+     * Total size in megabytes of the input snapshots kept in the cache directory; the least recently used are deleted first.
+     */
+    @Builder.Default
+    private int snapshotCacheMaxMb = 256;
+    
+    /**
+     * Number of pending tasks kept in memory in streaming mode before spilling to disk.
+     */
+    @Builder.Default
+    private int spillHighWaterMark = 10000;
+    
+    /**
+     * Directory for the spill files of pending tasks in streaming mode.
+     */
+    @Builder.Default
+    private String spillDirectory = DEFAULT_SPILL_DIR;
+    
+    /**
+     * Whether to hedge slow GET requests with a second identical request.
+     */
+    @Builder.Default
+    private boolean hedgeGetRequests = false;
+    
+    /**
+     * Maximum number of hedged GET requests, as a percentage of all GET requests.
+     */
+    @Builder.Default
+    private int hedgeBudgetPercent = 10;
+    
+    /**
+     * Minimum time in milliseconds to wait for a GET response before hedging it.
+     */
+    @Builder.Default
+    private long hedgeMinDelayMs = 50;
+    
     /**
      * Default configuration values
      */
+    public static final String CONFIG_FILE = "config.properties";
     public static final String DEFAULT_CSV_FILE = "tasks.csv";
+    public static final String DEFAULT_BASE_URL = "https://dev.azure.com";
+    public static final String DEFAULT_CACHE_DIR = ".azure-task-cache";
+    public static final String DEFAULT_RESUBMIT_FILE = "resubmit.csv";
+    public static final String DEFAULT_RESULTS_FILE = "results.ndjson";
+    public static final String DEFAULT_SPILL_DIR =
+            Paths.get(System.getProperty("java.io.tmpdir"), "azure-task-spill").toString();
     
     /**
      * Loads configuration from multiple sources in the following order:
@@ -87,13 +393,41 @@ public class AppConfig {
         
         // Set default values
         builder.csvFilePath(DEFAULT_CSV_FILE)
+                .baseUrl(DEFAULT_BASE_URL)
                 .maxRetryAttempts(3)
                 .initialRetryDelayMs(1000)
                 .maxRetryDelayMs(10000)
+                .retryBudgetPercent(10)
+                .retryBudgetMinRetries(10)
+                .credentialRejectCooldownMs(900000)
                 .httpTimeoutMs(30000)
+                .connectTimeoutMs(10000)
+                .runDeadlineMs(0)
+                .taskDeadlineMs(0)
                 .maxConcurrentTasks(5)
+                .maxConcurrentTasksPerOrganization(0)
                 .validateBeforeProcessing(true)
-                .continueOnError(false);
+                .continueOnError(false)
+                .validateClassificationPaths(true)
+                .classificationCacheDir(DEFAULT_CACHE_DIR)
+                .classificationCacheTtlMinutes(60)
+                .resubmitFilePath(DEFAULT_RESUBMIT_FILE)
+                .resultsFilePath(DEFAULT_RESULTS_FILE)
+                .progressLogInterval(100)
+                .writeBack(false)
+                .streamInput(false)
+                .snapshotCache(true)
+                .snapshotCacheMaxMb(256)
+                .spillHighWaterMark(10000)
+                .spillDirectory(DEFAULT_SPILL_DIR)
+                .mergeShards(false)
+                .shardSize(500)
+                .shardLeaseTimeoutMs(30000)
+                .exportConcurrency(8)
+                .serverPort(0)
+                .serverJobConcurrency(2)
+                .interactiveJobMaxTasks(100)
+                .serverJobRetentionMinutes(60);
         
         // Load from properties file if exists
         loadFromPropertiesFile(builder);
@@ -113,7 +447,7 @@ public class AppConfig {
      * @param builder The AppConfigBuilder to update
      */
     private static void loadFromPropertiesFile(AppConfigBuilder builder) {
-        Path configPath = Paths.get("config.properties");
+        Path configPath = Paths.get(CONFIG_FILE);
         if (Files.exists(configPath)) {
             try (FileInputStream fis = new FileInputStream(configPath.toFile())) {
                 Properties props = new Properties();
@@ -122,9 +456,72 @@ public class AppConfig {
                 if (props.containsKey("csv.file")) {
                     builder.csvFilePath(props.getProperty("csv.file"));
                 }
+                if (props.containsKey("azure.baseUrl")) {
+                    builder.baseUrl(props.getProperty("azure.baseUrl"));
+                }
+                if (props.containsKey("shard.directory")) {
+                    builder.shardDirectory(props.getProperty("shard.directory"));
+                }
+                if (props.containsKey("shard.size")) {
+                    builder.shardSize(Integer.parseInt(props.getProperty("shard.size")));
+                }
+                if (props.containsKey("export.file")) {
+                    builder.exportFile(props.getProperty("export.file"));
+                }
+                if (props.containsKey("sync.file")) {
+                    builder.syncFile(props.getProperty("sync.file"));
+                }
+                if (props.containsKey("export.organization")) {
+                    builder.exportOrganization(props.getProperty("export.organization"));
+                }
+                if (props.containsKey("export.project")) {
+                    builder.exportProject(props.getProperty("export.project"));
+                }
+                if (props.containsKey("export.areaPath")) {
+                    builder.exportAreaPath(props.getProperty("export.areaPath"));
+                }
+                if (props.containsKey("export.iterationPath")) {
+                    builder.exportIterationPath(props.getProperty("export.iterationPath"));
+                }
+                if (props.containsKey("export.username")) {
+                    builder.exportUsername(props.getProperty("export.username"));
+                }
+                if (props.containsKey("export.token")) {
+                    builder.exportToken(props.getProperty("export.token"));
+                }
+                if (props.containsKey("export.concurrency")) {
+                    builder.exportConcurrency(Integer.parseInt(props.getProperty("export.concurrency")));
+                }
+                if (props.containsKey("shard.leaseTimeoutMs")) {
+                    builder.shardLeaseTimeoutMs(Long.parseLong(props.getProperty("shard.leaseTimeoutMs")));
+                }
+                if (props.containsKey("watch.directory")) {
+                    builder.watchDirectory(props.getProperty("watch.directory"));
+                }
+                if (props.containsKey("server.port")) {
+                    builder.serverPort(Integer.parseInt(props.getProperty("server.port")));
+                }
+                if (props.containsKey("server.jobConcurrency")) {
+                    builder.serverJobConcurrency(Integer.parseInt(props.getProperty("server.jobConcurrency")));
+                }
+                if (props.containsKey("server.interactiveJobMaxTasks")) {
+                    builder.interactiveJobMaxTasks(Integer.parseInt(props.getProperty("server.interactiveJobMaxTasks")));
+                }
+                if (props.containsKey("server.inputDirectory")) {
+                    builder.serverInputDirectory(props.getProperty("server.inputDirectory"));
+                }
+                if (props.containsKey("server.jobRetentionMinutes")) {
+                    builder.serverJobRetentionMinutes(Integer.parseInt(props.getProperty("server.jobRetentionMinutes")));
+                }
                 if (props.containsKey("app.maxRetryAttempts")) {
                     builder.maxRetryAttempts(Integer.parseInt(props.getProperty("app.maxRetryAttempts")));
                 }
+                if (props.containsKey("app.retryBudgetPercent")) {
+                    builder.retryBudgetPercent(Integer.parseInt(props.getProperty("app.retryBudgetPercent")));
+                }
+                if (props.containsKey("app.retryBudgetMinRetries")) {
+                    builder.retryBudgetMinRetries(Integer.parseInt(props.getProperty("app.retryBudgetMinRetries")));
+                }
                 if (props.containsKey("app.initialRetryDelayMs")) {
                     builder.initialRetryDelayMs(Long.parseLong(props.getProperty("app.initialRetryDelayMs")));
                 }
@@ -134,15 +531,102 @@ public class AppConfig {
                 if (props.containsKey("app.httpTimeoutMs")) {
                     builder.httpTimeoutMs(Integer.parseInt(props.getProperty("app.httpTimeoutMs")));
                 }
+                if (props.containsKey("app.connectTimeoutMs")) {
+                    builder.connectTimeoutMs(Integer.parseInt(props.getProperty("app.connectTimeoutMs")));
+                }
+                if (props.containsKey("app.runDeadlineMs")) {
+                    builder.runDeadlineMs(Long.parseLong(props.getProperty("app.runDeadlineMs")));
+                }
+                if (props.containsKey("app.taskDeadlineMs")) {
+                    builder.taskDeadlineMs(Long.parseLong(props.getProperty("app.taskDeadlineMs")));
+                }
                 if (props.containsKey("app.maxConcurrentTasks")) {
                     builder.maxConcurrentTasks(Integer.parseInt(props.getProperty("app.maxConcurrentTasks")));
                 }
+                if (props.containsKey("app.maxConcurrentTasksPerOrganization")) {
+                    builder.maxConcurrentTasksPerOrganization(Integer.parseInt(props.getProperty("app.maxConcurrentTasksPerOrganization")));
+                }
                 if (props.containsKey("app.validateBeforeProcessing")) {
                     builder.validateBeforeProcessing(Boolean.parseBoolean(props.getProperty("app.validateBeforeProcessing")));
                 }
                 if (props.containsKey("app.continueOnError")) {
                     builder.continueOnError(Boolean.parseBoolean(props.getProperty("app.continueOnError")));
                 }
+                if (props.containsKey("app.validateClassificationPaths")) {
+                    builder.validateClassificationPaths(Boolean.parseBoolean(props.getProperty("app.validateClassificationPaths")));
+                }
+                if (props.containsKey("app.classificationCacheDir")) {
+                    builder.classificationCacheDir(props.getProperty("app.classificationCacheDir"));
+                }
+                if (props.containsKey("app.classificationCacheTtlMinutes")) {
+                    builder.classificationCacheTtlMinutes(Long.parseLong(props.getProperty("app.classificationCacheTtlMinutes")));
+                }
+                if (props.containsKey("app.circuitWindowSize")) {
+                    builder.circuitWindowSize(Integer.parseInt(props.getProperty("app.circuitWindowSize")));
+                }
+                if (props.containsKey("app.circuitMinimumCalls")) {
+                    builder.circuitMinimumCalls(Integer.parseInt(props.getProperty("app.circuitMinimumCalls")));
+                }
+                if (props.containsKey("app.circuitFailureRateThreshold")) {
+                    builder.circuitFailureRateThreshold(Integer.parseInt(props.getProperty("app.circuitFailureRateThreshold")));
+                }
+                if (props.containsKey("app.circuitSlowCallDurationMs")) {
+                    builder.circuitSlowCallDurationMs(Long.parseLong(props.getProperty("app.circuitSlowCallDurationMs")));
+                }
+                if (props.containsKey("app.circuitSlowCallRateThreshold")) {
+                    builder.circuitSlowCallRateThreshold(Integer.parseInt(props.getProperty("app.circuitSlowCallRateThreshold")));
+                }
+                if (props.containsKey("app.circuitOpenDurationMs")) {
+                    builder.circuitOpenDurationMs(Long.parseLong(props.getProperty("app.circuitOpenDurationMs")));
+                }
+                if (props.containsKey("app.circuitHalfOpenProbes")) {
+                    builder.circuitHalfOpenProbes(Integer.parseInt(props.getProperty("app.circuitHalfOpenProbes")));
+                }
+                if (props.containsKey("app.hedgeGetRequests")) {
+                    builder.hedgeGetRequests(Boolean.parseBoolean(props.getProperty("app.hedgeGetRequests")));
+                }
+                if (props.containsKey("app.hedgeBudgetPercent")) {
+                    builder.hedgeBudgetPercent(Integer.parseInt(props.getProperty("app.hedgeBudgetPercent")));
+                }
+                if (props.containsKey("app.hedgeMinDelayMs")) {
+                    builder.hedgeMinDelayMs(Long.parseLong(props.getProperty("app.hedgeMinDelayMs")));
+                }
+                if (props.containsKey("app.resubmitFile")) {
+                    builder.resubmitFilePath(props.getProperty("app.resubmitFile"));
+                }
+                if (props.containsKey("app.credentialsFile")) {
+                    builder.credentialsFile(props.getProperty("app.credentialsFile"));
+                }
+                if (props.containsKey("app.credentialRejectCooldownMs")) {
+                    builder.credentialRejectCooldownMs(Long.parseLong(props.getProperty("app.credentialRejectCooldownMs")));
+                }
+                if (props.containsKey("app.templateFile")) {
+                    builder.templateFile(props.getProperty("app.templateFile"));
+                }
+                if (props.containsKey("app.resultsFile")) {
+                    builder.resultsFilePath(props.getProperty("app.resultsFile"));
+                }
+                if (props.containsKey("app.writeBack")) {
+                    builder.writeBack(Boolean.parseBoolean(props.getProperty("app.writeBack")));
+                }
+                if (props.containsKey("app.progressLogInterval")) {
+                    builder.progressLogInterval(Integer.parseInt(props.getProperty("app.progressLogInterval")));
+                }
+                if (props.containsKey("app.snapshotCache")) {
+                    builder.snapshotCache(Boolean.parseBoolean(props.getProperty("app.snapshotCache")));
+                }
+                if (props.containsKey("app.snapshotCacheMaxMb")) {
+                    builder.snapshotCacheMaxMb(Integer.parseInt(props.getProperty("app.snapshotCacheMaxMb")));
+                }
+                if (props.containsKey("app.streamInput")) {
+                    builder.streamInput(Boolean.parseBoolean(props.getProperty("app.streamInput")));
+                }
+                if (props.containsKey("app.spillHighWaterMark")) {
+                    builder.spillHighWaterMark(Integer.parseInt(props.getProperty("app.spillHighWaterMark")));
+                }
+                if (props.containsKey("app.spillDirectory")) {
+                    builder.spillDirectory(props.getProperty("app.spillDirectory"));
+                }
                 
                 log.info("Configuration loaded from properties file");
             } catch (IOException e) {
@@ -151,6 +635,111 @@ public class AppConfig {
         }
     }
     
+    /**
+     * Applies the settings that can be changed during a run from a reloaded properties file.
+     *
+     * <p>
+     * Only the retry and concurrency limits are applied; they take precedence over the values given
+     * on the command line, since editing the file mid-run is an explicit request to change them.
+     * Invalid values are logged and ignored: counts must be at least 1, and the retry delays are
+     * only applied together, if the maximum delay is not below the initial one.
+     * </p>
+     *
+     * @param props The reloaded properties
+     * @return true if any setting changed, false otherwise
+     */
+    public synchronized boolean applyReloadableProperties(Properties props) {
+        boolean changed = false;
+
+        int concurrentTasks = reloadedValue(props, "app.maxConcurrentTasks", maxConcurrentTasks, 1);
+        if (concurrentTasks != maxConcurrentTasks) {
+            log.info("maxConcurrentTasks changed from {} to {}", maxConcurrentTasks, concurrentTasks);
+            maxConcurrentTasks = concurrentTasks;
+            changed = true;
+        }
+        int concurrentPerOrg = reloadedValue(props, "app.maxConcurrentTasksPerOrganization",
+                maxConcurrentTasksPerOrganization, 1);
+        if (concurrentPerOrg != maxConcurrentTasksPerOrganization) {
+            log.info("maxConcurrentTasksPerOrganization changed from {} to {}", maxConcurrentTasksPerOrganization, concurrentPerOrg);
+            maxConcurrentTasksPerOrganization = concurrentPerOrg;
+            changed = true;
+        }
+        int retryAttempts = reloadedValue(props, "app.maxRetryAttempts", maxRetryAttempts, 1);
+        if (retryAttempts != maxRetryAttempts) {
+            log.info("maxRetryAttempts changed from {} to {}", maxRetryAttempts, retryAttempts);
+            maxRetryAttempts = retryAttempts;
+            changed = true;
+        }
+        long initialDelay = reloadedValue(props, "app.initialRetryDelayMs", initialRetryDelayMs);
+        long maxDelay = reloadedValue(props, "app.maxRetryDelayMs", maxRetryDelayMs);
+        if (maxDelay < initialDelay) {
+            log.warn("Ignoring retry delays: maxRetryDelayMs {} is below initialRetryDelayMs {}", maxDelay, initialDelay);
+            return changed;
+        }
+        if (initialDelay != initialRetryDelayMs) {
+            log.info("initialRetryDelayMs changed from {} to {}", initialRetryDelayMs, initialDelay);
+            initialRetryDelayMs = initialDelay;
+            changed = true;
+        }
+        if (maxDelay != maxRetryDelayMs) {
+            log.info("maxRetryDelayMs changed from {} to {}", maxRetryDelayMs, maxDelay);
+            maxRetryDelayMs = maxDelay;
+            changed = true;
+        }
+        return changed;
+    }
+    
+    /**
+     * Reads a reloadable count from a properties file.
+     *
+     * @param props The reloaded properties
+     * @param key The property key
+     * @param current The current value
+     * @param minimum The smallest valid value
+     * @return The new value, or the current one if the key is missing or its value is not a number of at least the minimum
+     */
+    private static int reloadedValue(Properties props, String key, int current, int minimum) {
+        String value = props.getProperty(key);
+        if (value == null) {
+            return current;
+        }
+        try {
+            int parsed = Integer.parseInt(value.trim());
+            if (parsed >= minimum) {
+                return parsed;
+            }
+        } catch (NumberFormatException e) {
+            // Logged below
+        }
+        log.warn("Ignoring invalid value for {}: {}", key, value);
+        return current;
+    }
+    
+    /**
+     * Reads a reloadable duration from a properties file.
+     *
+     * @param props The reloaded properties
+     * @param key The property key
+     * @param current The current value
+     * @return The new value, or the current one if the key is missing or its value is not a non-negative number
+     */
+    private static long reloadedValue(Properties props, String key, long current) {
+        String value = props.getProperty(key);
+        if (value == null) {
+            return current;
+        }
+        try {
+            long parsed = Long.parseLong(value.trim());
+            if (parsed >= 0) {
+                return parsed;
+            }
+        } catch (NumberFormatException e) {
+            // Logged below
+        }
+        log.warn("Ignoring invalid value for {}: {}", key, value);
+        return current;
+    }
+    
     /**
      * Loads configuration from environment variables.
      *
@@ -162,6 +751,26 @@ public class AppConfig {
             builder.csvFilePath(csvFile);
         }
         
+        String baseUrl = System.getenv("AZURE_DEVOPS_BASE_URL");
+        if (baseUrl != null && !baseUrl.isEmpty()) {
+            builder.baseUrl(baseUrl);
+        }
+        
+        String shardDir = System.getenv("AZURE_TASK_SHARD_DIR");
+        if (shardDir != null && !shardDir.isEmpty()) {
+            builder.shardDirectory(shardDir);
+        }
+        
+        String resultsFile = System.getenv("AZURE_TASK_RESULTS_FILE");
+        if (resultsFile != null && !resultsFile.isEmpty()) {
+            builder.resultsFilePath(resultsFile);
+        }
+        
+        String watchDirectory = System.getenv("AZURE_TASK_WATCH_DIR");
+        if (watchDirectory != null && !watchDirectory.isEmpty()) {
+            builder.watchDirectory(watchDirectory);
+        }
+        
         String maxRetryAttempts = System.getenv("AZURE_MAX_RETRY_ATTEMPTS");
         if (maxRetryAttempts != null && !maxRetryAttempts.isEmpty()) {
             try {
@@ -207,6 +816,15 @@ public class AppConfig {
             }
         }
         
+        String maxConcurrentTasksPerOrganization = System.getenv("AZURE_MAX_CONCURRENT_TASKS_PER_ORGANIZATION");
+        if (maxConcurrentTasksPerOrganization != null && !maxConcurrentTasksPerOrganization.isEmpty()) {
+            try {
+                builder.maxConcurrentTasksPerOrganization(Integer.parseInt(maxConcurrentTasksPerOrganization));
+            } catch (NumberFormatException e) {
+                log.warn("Invalid value for AZURE_MAX_CONCURRENT_TASKS_PER_ORGANIZATION: {}", maxConcurrentTasksPerOrganization);
+            }
+        }
+        
         String validateBeforeProcessing = System.getenv("AZURE_VALIDATE_BEFORE_PROCESSING");
         if (validateBeforeProcessing != null && !validateBeforeProcessing.isEmpty()) {
             builder.validateBeforeProcessing(Boolean.parseBoolean(validateBeforeProcessing));
@@ -216,6 +834,41 @@ public class AppConfig {
         if (continueOnError != null && !continueOnError.isEmpty()) {
             builder.continueOnError(Boolean.parseBoolean(continueOnError));
         }
+        
+        String validateClassificationPaths = System.getenv("AZURE_VALIDATE_CLASSIFICATION_PATHS");
+        if (validateClassificationPaths != null && !validateClassificationPaths.isEmpty()) {
+            builder.validateClassificationPaths(Boolean.parseBoolean(validateClassificationPaths));
+        }
+        
+        String hedgeGetRequests = System.getenv("AZURE_HEDGE_GET_REQUESTS");
+        if (hedgeGetRequests != null && !hedgeGetRequests.isEmpty()) {
+            builder.hedgeGetRequests(Boolean.parseBoolean(hedgeGetRequests));
+        }
+        
+        String classificationCacheDir = System.getenv("AZURE_CLASSIFICATION_CACHE_DIR");
+        if (classificationCacheDir != null && !classificationCacheDir.isEmpty()) {
+            builder.classificationCacheDir(classificationCacheDir);
+        }
+        
+        String organization = System.getenv("AZURE_DEVOPS_ORGANIZATION");
+        if (organization != null && !organization.isEmpty()) {
+            builder.exportOrganization(organization);
+        }
+        
+        String project = System.getenv("AZURE_DEVOPS_PROJECT");
+        if (project != null && !project.isEmpty()) {
+            builder.exportProject(project);
+        }
+        
+        String username = System.getenv("AZURE_DEVOPS_USERNAME");
+        if (username != null && !username.isEmpty()) {
+            builder.exportUsername(username);
+        }
+        
+        String token = System.getenv("AZURE_DEVOPS_TOKEN");
+        if (token != null && !token.isEmpty()) {
+            builder.exportToken(token);
+        }
     }
     
     /**
@@ -236,6 +889,40 @@ public class AppConfig {
                 if (i + 1 < args.length) {
                     builder.csvFilePath(args[++i]);
                 }
+            } else if (arg.equals("--base-url")) {
+                if (i + 1 < args.length) {
+                    builder.baseUrl(args[++i]);
+                }
+            } else if (arg.equals("--shard-dir")) {
+                if (i + 1 < args.length) {
+                    builder.shardDirectory(args[++i]);
+                }
+            } else if (arg.equals("--shard-size")) {
+                if (i + 1 < args.length) {
+                    try {
+                        builder.shardSize(Integer.parseInt(args[++i]));
+                    } catch (NumberFormatException e) {
+                        log.warn("Invalid value for shard-size: {}", args[i]);
+                    }
+                }
+            } else if (arg.equals("--merge-shards")) {
+                builder.mergeShards(true);
+            } else if (arg.equals("--watch") || arg.equals("-w")) {
+                if (i + 1 < args.length) {
+                    builder.watchDirectory(args[++i]);
+                }
+            } else if (arg.equals("--serve")) {
+                if (i + 1 < args.length) {
+                    try {
+                        builder.serverPort(Integer.parseInt(args[++i]));
+                    } catch (NumberFormatException e) {
+                        log.warn("Invalid value for serve: {}", args[i]);
+                    }
+                }
+            } else if (arg.equals("--serve-input-dir")) {
+                if (i + 1 < args.length) {
+                    builder.serverInputDirectory(args[++i]);
+                }
             } else if (arg.equals("--max-retry-attempts") || arg.equals("-r")) {
                 if (i + 1 < args.length) {
                     try {
@@ -244,6 +931,14 @@ public class AppConfig {
                         log.warn("Invalid value for max-retry-attempts: {}", args[i]);
                     }
                 }
+            } else if (arg.equals("--retry-budget")) {
+                if (i + 1 < args.length) {
+                    try {
+                        builder.retryBudgetPercent(Integer.parseInt(args[++i]));
+                    } catch (NumberFormatException e) {
+                        log.warn("Invalid value for retry-budget: {}", args[i]);
+                    }
+                }
             } else if (arg.equals("--initial-retry-delay") || arg.equals("-d")) {
                 if (i + 1 < args.length) {
                     try {
@@ -268,6 +963,30 @@ public class AppConfig {
                         log.warn("Invalid value for http-timeout: {}", args[i]);
                     }
                 }
+            } else if (arg.equals("--connect-timeout")) {
+                if (i + 1 < args.length) {
+                    try {
+                        builder.connectTimeoutMs(Integer.parseInt(args[++i]));
+                    } catch (NumberFormatException e) {
+                        log.warn("Invalid value for connect-timeout: {}", args[i]);
+                    }
+                }
+            } else if (arg.equals("--deadline")) {
+                if (i + 1 < args.length) {
+                    try {
+                        builder.runDeadlineMs(Long.parseLong(args[++i]));
+                    } catch (NumberFormatException e) {
+                        log.warn("Invalid value for deadline: {}", args[i]);
+                    }
+                }
+            } else if (arg.equals("--task-deadline")) {
+                if (i + 1 < args.length) {
+                    try {
+                        builder.taskDeadlineMs(Long.parseLong(args[++i]));
+                    } catch (NumberFormatException e) {
+                        log.warn("Invalid value for task-deadline: {}", args[i]);
+                    }
+                }
             } else if (arg.equals("--max-concurrent-tasks") || arg.equals("-c")) {
                 if (i + 1 < args.length) {
                     try {
@@ -276,10 +995,104 @@ public class AppConfig {
                         log.warn("Invalid value for max-concurrent-tasks: {}", args[i]);
                     }
                 }
+            } else if (arg.equals("--max-concurrent-tasks-per-org")) {
+                if (i + 1 < args.length) {
+                    try {
+                        builder.maxConcurrentTasksPerOrganization(Integer.parseInt(args[++i]));
+                    } catch (NumberFormatException e) {
+                        log.warn("Invalid value for max-concurrent-tasks-per-org: {}", args[i]);
+                    }
+                }
             } else if (arg.equals("--validate-before-processing") || arg.equals("-v")) {
                 builder.validateBeforeProcessing(true);
             } else if (arg.equals("--continue-on-error") || arg.equals("-e")) {
                 builder.continueOnError(true);
+            } else if (arg.equals("--skip-path-validation")) {
+                builder.validateClassificationPaths(false);
+            } else if (arg.equals("--cache-dir")) {
+                if (i + 1 < args.length) {
+                    builder.classificationCacheDir(args[++i]);
+                }
+            } else if (arg.equals("--hedge-get-requests")) {
+                builder.hedgeGetRequests(true);
+            } else if (arg.equals("--hedge-budget")) {
+                if (i + 1 < args.length) {
+                    try {
+                        builder.hedgeBudgetPercent(Integer.parseInt(args[++i]));
+                    } catch (NumberFormatException e) {
+                        log.warn("Invalid value for hedge-budget: {}", args[i]);
+                    }
+                }
+            } else if (arg.equals("--resubmit-file")) {
+                if (i + 1 < args.length) {
+                    builder.resubmitFilePath(args[++i]);
+                }
+            } else if (arg.equals("--credentials")) {
+                if (i + 1 < args.length) {
+                    builder.credentialsFile(args[++i]);
+                }
+            } else if (arg.equals("--template")) {
+                if (i + 1 < args.length) {
+                    builder.templateFile(args[++i]);
+                }
+            } else if (arg.equals("--results-file")) {
+                if (i + 1 < args.length) {
+                    builder.resultsFilePath(args[++i]);
+                }
+            } else if (arg.equals("--write-back")) {
+                builder.writeBack(true);
+            } else if (arg.equals("--progress-interval")) {
+                if (i + 1 < args.length) {
+                    try {
+                        builder.progressLogInterval(Integer.parseInt(args[++i]));
+                    } catch (NumberFormatException e) {
+                        log.warn("Invalid value for progress-interval: {}", args[i]);
+                    }
+                }
+            } else if (arg.equals("--no-snapshot-cache")) {
+                builder.snapshotCache(false);
+            } else if (arg.equals("--stream")) {
+                builder.streamInput(true);
+            } else if (arg.equals("--spill-dir")) {
+                if (i + 1 < args.length) {
+                    builder.spillDirectory(args[++i]);
+                }
+            } else if (arg.equals("--export")) {
+                if (i + 1 < args.length) {
+                    builder.exportFile(args[++i]);
+                }
+            } else if (arg.equals("--sync")) {
+                if (i + 1 < args.length) {
+                    builder.syncFile(args[++i]);
+                }
+            } else if (arg.equals("--organization")) {
+                if (i + 1 < args.length) {
+                    builder.exportOrganization(args[++i]);
+                }
+            } else if (arg.equals("--project")) {
+                if (i + 1 < args.length) {
+                    builder.exportProject(args[++i]);
+                }
+            } else if (arg.equals("--area-path")) {
+                if (i + 1 < args.length) {
+                    builder.exportAreaPath(args[++i]);
+                }
+            } else if (arg.equals("--iteration-path")) {
+                if (i + 1 < args.length) {
+                    builder.exportIterationPath(args[++i]);
+                }
+            } else if (arg.equals("--username")) {
+                if (i + 1 < args.length) {
+                    builder.exportUsername(args[++i]);
+                }
+            } else if (arg.equals("--export-concurrency")) {
+                if (i + 1 < args.length) {
+                    try {
+                        builder.exportConcurrency(Integer.parseInt(args[++i]));
+                    } catch (NumberFormatException e) {
+                        log.warn("Invalid value for export-concurrency: {}", args[i]);
+                    }
+                }
             } else if (arg.equals("--help") || arg.equals("-h")) {
                 printHelp();
                 System.exit(0);
@@ -295,14 +1108,47 @@ public class AppConfig {
         System.out.println("Usage: java -jar azure-task.jar [options]");
         System.out.println();
         System.out.println("Options:");
-        System.out.println("  -c, --csv FILE           Path to the CSV file (default: tasks.csv)");
+        System.out.println("  -c, --csv INPUT          CSV/NDJSON/Excel file, directory or glob, or - for NDJSON on stdin; several separated by commas (default: tasks.csv)");
+        System.out.println("  --base-url URL           Base URL of the Azure DevOps server (default: https://dev.azure.com)");
+        System.out.println("  -w, --watch DIR          Run as a daemon processing every CSV/XLSX file dropped into DIR");
+        System.out.println("  --serve PORT             Run as a local job server on 127.0.0.1:PORT accepting import jobs over HTTP");
+        System.out.println("  --serve-input-dir DIR    Directory the job server may read inputs named by ?path= from (default: uploads only)");
+        System.out.println("  --shard-dir DIR          Run as one of several workers sharing the input through shards in DIR");
+        System.out.println("  --shard-size N           Rows per shard of a sharded run (default: 500)");
+        System.out.println("  --merge-shards           Merge the shard results in --shard-dir into DIR/results.csv and exit");
         System.out.println("  -r, --max-retry-attempts N Maximum number of retry attempts (default: 3)");
+        System.out.println("  --retry-budget PERCENT   Retries allowed over the run as a percentage of successful requests (default: 10)");
         System.out.println("  -d, --initial-retry-delay MS Initial delay between retries in milliseconds (default: 1000)");
         System.out.println("  -m, --max-retry-delay MS Maximum delay between retries in milliseconds (default: 10000)");
         System.out.println("  -t, --http-timeout MS   Timeout for HTTP requests in milliseconds (default: 30000)");
+        System.out.println("  --connect-timeout MS     Timeout for opening a connection in milliseconds (default: 10000)");
+        System.out.println("  --deadline MS            Time the whole run may take; tasks not sent by then are reported (default: none)");
+        System.out.println("  --task-deadline MS       Time a task may take, retries included (default: none)");
         System.out.println("  -c, --max-concurrent-tasks N Maximum number of concurrent tasks (default: 5)");
+        System.out.println("  --max-concurrent-tasks-per-org N Maximum number of concurrent tasks per organization (default: no limit)");
         System.out.println("  -v, --validate-before-processing Validate CSV file before processing");
         System.out.println("  -e, --continue-on-error Continue processing even if some tasks fail");
+        System.out.println("  --skip-path-validation   Do not check area and iteration paths against the project");
+        System.out.println("  --cache-dir DIR          Directory for cached classification trees and input snapshots (default: .azure-task-cache)");
+        System.out.println("  --no-snapshot-cache      Always parse the input instead of loading the snapshot of an unchanged file");
+        System.out.println("  --hedge-get-requests     Send a second copy of GET requests slower than the observed p95");
+        System.out.println("  --hedge-budget PERCENT   Maximum hedged GET requests as a percentage of all GETs (default: 10)");
+        System.out.println("  --resubmit-file FILE     CSV file for tasks skipped by an open circuit (default: resubmit.csv)");
+        System.out.println("  --credentials FILE       Pools of credentials per organization, one Organization,Username,Token per line");
+        System.out.println("  --template FILE          CSV file of task templates; every input row is a story expanded with them");
+        System.out.println("  --results-file FILE      NDJSON file with one result record per task (default: results.ndjson)");
+        System.out.println("  --write-back             Write each row with its work item ID and status to <input>.result.csv/.xlsx");
+        System.out.println("  --progress-interval N    Completed tasks between progress lines (default: 100, 0 logs every task)");
+        System.out.println("  --stream                 Send tasks while the input is read, spilling pending tasks to disk");
+        System.out.println("  --spill-dir DIR          Directory for spilled tasks in --stream mode (default: <tmp>/azure-task-spill)");
+        System.out.println("  --export FILE            Export the work items of --project to FILE instead of creating tasks");
+        System.out.println("  --sync FILE              Sync FILE with the work items of --project changed since the last sync");
+        System.out.println("  --organization ORG       Organization of the export or sync (or AZURE_DEVOPS_ORGANIZATION)");
+        System.out.println("  --project PROJECT        Project of the export or sync (or AZURE_DEVOPS_PROJECT)");
+        System.out.println("  --area-path PATH         Export only the work items under PATH");
+        System.out.println("  --iteration-path PATH    Export only the work items under PATH");
+        System.out.println("  --username USER          Username of the export or sync (or AZURE_DEVOPS_USERNAME); the token is read from AZURE_DEVOPS_TOKEN");
+        System.out.println("  --export-concurrency N   Work item batches fetched at the same time (default: 8)");
         System.out.println("  -h, --help               Show this help message");
     }
 } 
\ No newline at end of file
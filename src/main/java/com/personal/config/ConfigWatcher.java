@@ -0,0 +1,124 @@
+package com.personal.config;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Watches the properties file during a run and applies the settings that can be changed live.
+ *
+ * <p>
+ * The file is polled for changes to its modification time, which also works on network and
+ * container file systems where file system events are unreliable. When it changes, the reloadable
+ * settings are applied to the {@link AppConfig} and the registered listeners are notified, so
+ * running schedulers can adopt the new limits.
+ * </p>
+ */
+@Slf4j
+public class ConfigWatcher {
+
+    private static final long POLL_INTERVAL_MS = 1000;
+
+    private final Path file;
+    private final AppConfig config;
+    private final List<Runnable> listeners = new CopyOnWriteArrayList<>();
+    private final ScheduledExecutorService poller;
+    private FileTime lastModified;
+
+    /**
+     * Creates a new instance of ConfigWatcher.
+     *
+     * @param file The properties file to watch
+     * @param config The configuration to update
+     */
+    public ConfigWatcher(Path file, AppConfig config) {
+        this.file = file;
+        this.config = config;
+        this.lastModified = modifiedTime();
+        this.poller = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "config-watcher");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Registers a listener called after the reloadable settings have changed.
+     *
+     * @param listener The listener
+     */
+    public void addListener(Runnable listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * Starts watching the file.
+     */
+    public void start() {
+        poller.scheduleWithFixedDelay(this::poll, POLL_INTERVAL_MS, POLL_INTERVAL_MS, TimeUnit.MILLISECONDS);
+        log.debug("Watching {} for changes", file);
+    }
+
+    /**
+     * Stops watching the file.
+     */
+    public void stop() {
+        poller.shutdownNow();
+    }
+
+    /**
+     * Reloads the file if it has been modified since the last check.
+     */
+    private void poll() {
+        FileTime modified = modifiedTime();
+        if (modified == null || modified.equals(lastModified)) {
+            return;
+        }
+        lastModified = modified;
+
+        Properties props = new Properties();
+        try (InputStream in = Files.newInputStream(file)) {
+            props.load(in);
+        } catch (IOException e) {
+            log.warn("Could not reload {}: {}", file, e.getMessage());
+            return;
+        }
+
+        if (config.applyReloadableProperties(props)) {
+            for (Runnable listener : listeners) {
+                try {
+                    listener.run();
+                } catch (RuntimeException e) {
+                    log.error("Error applying reloaded configuration: {}", e.getMessage());
+                }
+            }
+        }
+    }
+
+    /**
+     * Gets the modification time of the file.
+     *
+     * @return The modification time, or null if the file does not exist or cannot be read
+     */
+    private FileTime modifiedTime() {
+        try {
+            return Files.getLastModifiedTime(file);
+        } catch (NoSuchFileException e) {
+            return null;
+        } catch (IOException e) {
+            log.debug("Could not check {}: {}", file, e.getMessage());
+            return null;
+        }
+    }
+}
@@ -0,0 +1,186 @@
+package com.personal.core;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Circuit breaker guarding the calls to a single Azure DevOps endpoint (organization/project).
+ *
+ * <p>
+ * The outcome of the last {@code windowSize} calls is kept in a ring buffer. Once at least
+ * {@code minimumCalls} have been recorded, the breaker opens when the failure rate or the
+ * slow-call rate reaches its threshold. While open, calls are rejected without touching the
+ * network. After {@code openDurationMs} the breaker lets a few probe calls through
+ * (half-open): if they all succeed it closes again, if any fails it reopens.
+ * </p>
+ */
+@Slf4j
+public class CircuitBreaker {
+
+    /**
+     * The states of the breaker.
+     */
+    public enum State {
+        CLOSED, OPEN, HALF_OPEN
+    }
+
+    private final String name;
+    private final int windowSize;
+    private final int minimumCalls;
+    private final int failureRateThreshold;
+    private final long slowCallDurationMs;
+    private final int slowCallRateThreshold;
+    private final long openDurationMs;
+    private final int halfOpenProbes;
+
+    private final boolean[] failed;
+    private final boolean[] slow;
+    private int recorded;
+    private int next;
+    private int failures;
+    private int slowCalls;
+
+    private State state = State.CLOSED;
+    private long openUntil;
+    private int probesStarted;
+    private int probesSucceeded;
+
+    /**
+     * Creates a new instance of CircuitBreaker.
+     *
+     * @param name The name of the guarded endpoint, used for logging
+     * @param windowSize The number of recent calls the rates are computed over
+     * @param minimumCalls The number of calls needed before the breaker can open
+     * @param failureRateThreshold The failure rate, in percent, that opens the breaker
+     * @param slowCallDurationMs The duration from which a call counts as slow
+     * @param slowCallRateThreshold The slow-call rate, in percent, that opens the breaker
+     * @param openDurationMs How long the breaker stays open before probing
+     * @param halfOpenProbes The number of probe calls allowed while half-open
+     */
+    public CircuitBreaker(String name, int windowSize, int minimumCalls, int failureRateThreshold,
+                          long slowCallDurationMs, int slowCallRateThreshold, long openDurationMs, int halfOpenProbes) {
+        this.name = name;
+        this.windowSize = Math.max(1, windowSize);
+        this.minimumCalls = Math.max(1, Math.min(minimumCalls, this.windowSize));
+        this.failureRateThreshold = failureRateThreshold;
+        this.slowCallDurationMs = slowCallDurationMs;
+        this.slowCallRateThreshold = slowCallRateThreshold;
+        this.openDurationMs = openDurationMs;
+        this.halfOpenProbes = Math.max(1, halfOpenProbes);
+        this.failed = new boolean[this.windowSize];
+        this.slow = new boolean[this.windowSize];
+    }
+
+    /**
+     * Asks for permission to make a call.
+     *
+     * @return true if the call may proceed, false if it must be short-circuited
+     */
+    public synchronized boolean tryAcquire() {
+        if (state == State.OPEN) {
+            if (System.currentTimeMillis() < openUntil) {
+                return false;
+            }
+            state = State.HALF_OPEN;
+            probesStarted = 0;
+            probesSucceeded = 0;
+            log.info("Circuit for {} is half-open, probing", name);
+        }
+        if (state == State.HALF_OPEN) {
+            if (probesStarted >= halfOpenProbes) {
+                return false;
+            }
+            probesStarted++;
+        }
+        return true;
+    }
+
+    /**
+     * Records a successful call.
+     *
+     * @param durationMs The duration of the call
+     */
+    public synchronized void onSuccess(long durationMs) {
+        if (state == State.HALF_OPEN) {
+            probesSucceeded++;
+            if (probesSucceeded >= halfOpenProbes) {
+                reset();
+                log.info("Circuit for {} is closed", name);
+            }
+            return;
+        }
+        record(false, durationMs >= slowCallDurationMs);
+    }
+
+    /**
+     * Records a failed call.
+     *
+     * @param durationMs The duration of the call
+     */
+    public synchronized void onFailure(long durationMs) {
+        if (state == State.HALF_OPEN) {
+            open();
+            return;
+        }
+        record(true, durationMs >= slowCallDurationMs);
+    }
+
+    /**
+     * Gets the current state of the breaker.
+     *
+     * @return The current state
+     */
+    public synchronized State getState() {
+        return state;
+    }
+
+    /**
+     * Adds a call outcome to the window and opens the breaker if a threshold is reached.
+     *
+     * @param isFailure Whether the call failed
+     * @param isSlow Whether the call was slow
+     */
+    private void record(boolean isFailure, boolean isSlow) {
+        if (state != State.CLOSED) {
+            return;
+        }
+        if (recorded == windowSize) {
+            failures -= failed[next] ? 1 : 0;
+            slowCalls -= slow[next] ? 1 : 0;
+        } else {
+            recorded++;
+        }
+        failed[next] = isFailure;
+        slow[next] = isSlow;
+        failures += isFailure ? 1 : 0;
+        slowCalls += isSlow ? 1 : 0;
+        next = (next + 1) % windowSize;
+
+        if (recorded < minimumCalls) {
+            return;
+        }
+        if (failures * 100 >= failureRateThreshold * recorded
+                || slowCalls * 100 >= slowCallRateThreshold * recorded) {
+            open();
+        }
+    }
+
+    /**
+     * Opens the breaker.
+     */
+    private void open() {
+        state = State.OPEN;
+        openUntil = System.currentTimeMillis() + openDurationMs;
+        log.warn("Circuit for {} is open, failing calls fast for {} ms", name, openDurationMs);
+    }
+
+    /**
+     * Closes the breaker and clears the window.
+     */
+    private void reset() {
+        state = State.CLOSED;
+        recorded = 0;
+        next = 0;
+        failures = 0;
+        slowCalls = 0;
+    }
+}
@@ -0,0 +1,19 @@
+package com.personal.core;
+
+/**
+ * Thrown when a call is rejected because the circuit breaker of its endpoint is open.
+ * Tasks failing with this exception were never sent and can be resubmitted as they are.
+ */
+public class CircuitOpenException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * Creates a new instance of CircuitOpenException.
+     *
+     * @param endpoint The endpoint whose circuit is open
+     */
+    public CircuitOpenException(String endpoint) {
+        super("Circuit for " + endpoint + " is open");
+    }
+}
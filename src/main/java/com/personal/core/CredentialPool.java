@@ -0,0 +1,350 @@
+package com.personal.core;
+
+import com.personal.model.Task;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * Pool of credentials per organization, so requests are spread over several identities.
+ *
+ * <p>
+ * Azure DevOps applies its rate limits per identity. When a pool is configured for an
+ * organization, every request of that organization is sent with the identity that has the most
+ * headroom left, as reported by the {@code X-RateLimit-Remaining} header, and the fewest requests
+ * in flight. An identity that is throttled is sidelined until its {@code Retry-After} or
+ * {@code X-RateLimit-Reset} time has passed, and an identity whose token is rejected is sidelined
+ * for the configured cooldown, after which one request tries it again, in case the token was
+ * renewed. Organizations without a pool use the credentials of the task itself.
+ * </p>
+ *
+ * <p>
+ * The Authorization header of every identity is encoded once, when the identity is first used.
+ * </p>
+ */
+@Slf4j
+public class CredentialPool {
+
+    /**
+     * The time an identity is sidelined when it is throttled without saying for how long.
+     */
+    private static final long DEFAULT_SIDELINE_MS = 30000;
+
+    /**
+     * The time an identity whose token was rejected is sidelined, unless configured otherwise.
+     */
+    private static final long DEFAULT_REJECT_COOLDOWN_MS = TimeUnit.MINUTES.toMillis(15);
+
+    private final Map<String, List<Identity>> pools;
+    private final long rejectCooldownMs;
+    private final Map<String, Identity> taskIdentities = new ConcurrentHashMap<>();
+
+    /**
+     * Creates a pool without configured credentials, so every task uses its own.
+     */
+    public CredentialPool() {
+        this(Collections.emptyMap(), DEFAULT_REJECT_COOLDOWN_MS);
+    }
+
+    /**
+     * Creates a new instance of CredentialPool.
+     *
+     * @param pools The identities of each organization, by lower case organization name
+     * @param rejectCooldownMs The time an identity whose token was rejected is sidelined
+     */
+    private CredentialPool(Map<String, List<Identity>> pools, long rejectCooldownMs) {
+        this.pools = pools;
+        this.rejectCooldownMs = rejectCooldownMs > 0 ? rejectCooldownMs : DEFAULT_REJECT_COOLDOWN_MS;
+    }
+
+    /**
+     * Loads the pools from a credentials file.
+     *
+     * <p>
+     * Every line holds the organization, username and token of one identity, separated by
+     * commas. An optional {@code Organization,Username,Token} header, empty lines and lines
+     * starting with {@code #} are skipped. The username may be empty, as for personal access tokens.
+     * </p>
+     *
+     * @param file The credentials file
+     * @param rejectCooldownMs The time an identity whose token was rejected is sidelined
+     * @return The credential pool
+     * @throws IOException If the file cannot be read or a line is invalid
+     */
+    public static CredentialPool load(Path file, long rejectCooldownMs) throws IOException {
+        Map<String, List<Identity>> pools = new HashMap<>();
+        int identities = 0;
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            String line;
+            int lineNumber = 0;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                String trimmed = line.trim();
+                if (trimmed.isEmpty() || trimmed.startsWith("#")
+                        || (lineNumber == 1 && trimmed.equalsIgnoreCase("Organization,Username,Token"))) {
+                    continue;
+                }
+                // The token is the rest of the line, so it is never split
+                String[] values = trimmed.split(",", 3);
+                if (values.length < 3 || values[0].trim().isEmpty() || values[2].trim().isEmpty()) {
+                    throw new IOException(file + ": line " + lineNumber + " must be Organization,Username,Token");
+                }
+                pools.computeIfAbsent(values[0].trim().toLowerCase(Locale.ROOT), organization -> new ArrayList<>())
+                        .add(new Identity(values[1].trim(), values[2].trim()));
+                identities++;
+            }
+        }
+        log.info("Loaded {} credentials for {} organizations from {}", identities, pools.size(), file);
+        return new CredentialPool(pools, rejectCooldownMs);
+    }
+
+    /**
+     * Chooses the identity to send a request of the task with, and counts the request as in flight
+     * until it is released.
+     *
+     * @param task The task whose organization, or own credentials, are used
+     * @return The identity to use; it must be passed to {@link #release(Identity)} afterwards
+     * @throws IllegalArgumentException If the task has no organization
+     */
+    public Identity acquire(Task task) {
+        String organization = task.getOrganization();
+        if (organization == null || organization.trim().isEmpty()) {
+            throw new IllegalArgumentException("Task '" + task.getTitle() + "' has no organization");
+        }
+        List<Identity> pool = pools.get(organization.trim().toLowerCase(Locale.ROOT));
+        if (pool == null) {
+            Identity identity = taskIdentities.computeIfAbsent(task.getUsername() + ":" + task.getToken(),
+                    credentials -> new Identity(task.getUsername(), task.getToken()));
+            synchronized (this) {
+                identity.inFlight++;
+            }
+            return identity;
+        }
+        synchronized (this) {
+            long now = System.nanoTime();
+            Identity best = null;
+            for (Identity identity : pool) {
+                if (best == null || isBetter(identity, best, now)) {
+                    best = identity;
+                }
+            }
+            best.inFlight++;
+            best.requests++;
+            return best;
+        }
+    }
+
+    /**
+     * Determines if an identity is a better choice than another one.
+     * Available identities come first, then the most headroom, then the least load.
+     *
+     * @param identity The candidate
+     * @param best The best identity so far
+     * @param now The current {@link System#nanoTime()}
+     * @return true if the candidate is better, false otherwise
+     */
+    private static boolean isBetter(Identity identity, Identity best, long now) {
+        boolean available = identity.isAvailable(now);
+        if (available != best.isAvailable(now)) {
+            return available;
+        }
+        if (!available) {
+            // Every identity is sidelined; the one that returns first is throttled the least
+            return identity.sidelinedUntilNanos - best.sidelinedUntilNanos < 0;
+        }
+        long headroom = identity.headroom();
+        long bestHeadroom = best.headroom();
+        if (headroom != bestHeadroom) {
+            return headroom > bestHeadroom;
+        }
+        if (identity.inFlight != best.inFlight) {
+            return identity.inFlight < best.inFlight;
+        }
+        return identity.requests < best.requests;
+    }
+
+    /**
+     * Records the rate limit headers of a response, sidelining the identity if it was throttled
+     * or its token was rejected.
+     *
+     * @param identity The identity the request was sent with
+     * @param statusCode The HTTP status code of the response
+     * @param headers Looks up the first value of a response header, or null if it is missing
+     */
+    public synchronized void record(Identity identity, int statusCode, Function<String, String> headers) {
+        long now = System.nanoTime();
+        Long resetSeconds = parseLong(headers.apply("X-RateLimit-Reset"));
+        long resetDelayMs = resetSeconds == null ? -1 : resetSeconds * 1000 - System.currentTimeMillis();
+        Long remaining = parseLong(headers.apply("X-RateLimit-Remaining"));
+        if (remaining != null) {
+            identity.remaining = remaining;
+            identity.remainingUntilNanos = now + TimeUnit.MILLISECONDS.toNanos(resetDelayMs > 0 ? resetDelayMs : DEFAULT_SIDELINE_MS);
+        }
+
+        long sidelineMs = -1;
+        if (statusCode == 401) {
+            sidelineMs = rejectCooldownMs;
+        } else if (statusCode == 429 || (remaining != null && remaining <= 0)) {
+            Long retryAfter = parseLong(headers.apply("Retry-After"));
+            sidelineMs = retryAfter != null ? retryAfter * 1000 : resetDelayMs > 0 ? resetDelayMs : DEFAULT_SIDELINE_MS;
+        }
+        if (sidelineMs >= 0) {
+            sideline(identity, sidelineMs, now, statusCode);
+        }
+    }
+
+    /**
+     * Sidelines an identity, so requests prefer the other identities of its pool.
+     *
+     * @param identity The identity
+     * @param sidelineMs The time in milliseconds
+     * @param now The current {@link System#nanoTime()}
+     * @param statusCode The HTTP status code that caused it
+     */
+    private void sideline(Identity identity, long sidelineMs, long now, int statusCode) {
+        long until = now + TimeUnit.MILLISECONDS.toNanos(sidelineMs);
+        boolean wasAvailable = identity.isAvailable(now);
+        if (until - identity.sidelinedUntilNanos > 0) {
+            identity.sidelinedUntilNanos = until;
+        }
+        identity.throttled++;
+        if (wasAvailable) {
+            if (statusCode == 401) {
+                log.warn("Credentials of '{}' were rejected (status {}); sidelined for {} ms, then tried again",
+                        identity.username, statusCode, sidelineMs);
+            } else {
+                log.warn("Credentials of '{}' are throttled (status {}); sidelined for {} ms",
+                        identity.username, statusCode, sidelineMs);
+            }
+        }
+    }
+
+    /**
+     * Releases an identity once its request has completed or failed.
+     *
+     * @param identity The identity returned by {@link #acquire(Task)}
+     */
+    public synchronized void release(Identity identity) {
+        identity.inFlight--;
+    }
+
+    /**
+     * Determines if credentials have been configured for any organization.
+     *
+     * @return true if there is at least one pool, false if every task uses its own credentials
+     */
+    public boolean isPooled() {
+        return !pools.isEmpty();
+    }
+
+    /**
+     * Describes the use of the pooled identities, for the summary of a run.
+     *
+     * @return The requests sent with every identity and the times it was sidelined
+     */
+    public synchronized String describe() {
+        StringBuilder description = new StringBuilder();
+        pools.forEach((organization, pool) -> {
+            for (Identity identity : pool) {
+                if (description.length() > 0) {
+                    description.append(", ");
+                }
+                description.append(organization).append('/').append(identity.username).append(": ")
+                        .append(identity.requests).append(" requests, sidelined ")
+                        .append(identity.throttled).append(" times");
+            }
+        });
+        return description.toString();
+    }
+
+    /**
+     * Parses the value of a numeric header.
+     *
+     * @param value The header value, or null
+     * @return The number, or null if the header is missing or not a whole number
+     */
+    private static Long parseLong(String value) {
+        if (value == null) {
+            return null;
+        }
+        try {
+            return Long.parseLong(value.trim());
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    /**
+     * One set of credentials, with the rate limit state last reported for it.
+     * The state is guarded by the pool.
+     */
+    public static final class Identity {
+
+        private final String username;
+        private final String authorization;
+        private long remaining = -1;
+        private long remainingUntilNanos;
+        private long sidelinedUntilNanos = System.nanoTime();
+        private int inFlight;
+        private long requests;
+        private long throttled;
+
+        /**
+         * Creates a new instance of Identity, encoding its Authorization header.
+         *
+         * @param username The username, possibly empty
+         * @param token The personal access token
+         */
+        private Identity(String username, String token) {
+            this.username = username;
+            this.authorization = "Basic " + Base64.getEncoder()
+                    .encodeToString((username + ":" + token).getBytes(StandardCharsets.UTF_8));
+        }
+
+        /**
+         * Gets the value of the Authorization header of this identity.
+         *
+         * @return The Basic authorization header value
+         */
+        public String getAuthorization() {
+            return authorization;
+        }
+
+        /**
+         * Determines if the identity is not sidelined.
+         *
+         * @param now The current {@link System#nanoTime()}
+         * @return true if the identity can be used, false otherwise
+         */
+        private boolean isAvailable(long now) {
+            return now - sidelinedUntilNanos >= 0;
+        }
+
+        /**
+         * Gets the rate limit headroom of the identity, less the requests in flight.
+         * Until Azure DevOps reports the remaining usage, or once it has been reset, the headroom is unlimited.
+         *
+         * @return The headroom
+         */
+        private long headroom() {
+            if (remaining < 0 || System.nanoTime() - remainingUntilNanos >= 0) {
+                return Long.MAX_VALUE - inFlight;
+            }
+            return remaining - inFlight;
+        }
+    }
+}
@@ -0,0 +1,85 @@
+package com.personal.core;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A point in time by which some work, such as a run or a task, must be done.
+ *
+ * <p>
+ * Deadlines are derived from each other, so a task deadline never lies after the run deadline,
+ * and they are checked before starting anything that might not finish in time, such as a retry.
+ * </p>
+ */
+public final class Deadline {
+
+    /**
+     * A deadline that never expires.
+     */
+    public static final Deadline NONE = new Deadline(Long.MAX_VALUE);
+
+    /**
+     * The deadline in {@link System#nanoTime()} units, or Long.MAX_VALUE for none.
+     */
+    private final long deadlineNanos;
+
+    /**
+     * Creates a new instance of Deadline.
+     *
+     * @param deadlineNanos The deadline in {@link System#nanoTime()} units, or Long.MAX_VALUE for none
+     */
+    private Deadline(long deadlineNanos) {
+        this.deadlineNanos = deadlineNanos;
+    }
+
+    /**
+     * Creates a deadline some time from now.
+     *
+     * @param timeoutMs The time in milliseconds from now, or 0 or less for no deadline
+     * @return The deadline
+     */
+    public static Deadline after(long timeoutMs) {
+        return timeoutMs <= 0 ? NONE : new Deadline(System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMs));
+    }
+
+    /**
+     * Gets the earlier of this deadline and another one some time from now.
+     *
+     * @param timeoutMs The time in milliseconds from now, or 0 or less for no other deadline
+     * @return The earlier deadline
+     */
+    public Deadline orAfter(long timeoutMs) {
+        Deadline other = after(timeoutMs);
+        return other.deadlineNanos - deadlineNanos < 0 ? other : this;
+    }
+
+    /**
+     * Determines if the deadline has passed.
+     *
+     * @return true if the deadline has passed, false otherwise
+     */
+    public boolean isExpired() {
+        return this != NONE && System.nanoTime() - deadlineNanos >= 0;
+    }
+
+    /**
+     * Determines if work taking some time, started now, would finish before the deadline.
+     *
+     * @param durationMs The time in milliseconds the work may take
+     * @return true if the work would finish in time, false otherwise
+     */
+    public boolean allows(long durationMs) {
+        return this == NONE || deadlineNanos - System.nanoTime() - TimeUnit.MILLISECONDS.toNanos(durationMs) >= 0;
+    }
+
+    /**
+     * Gets the time left before the deadline.
+     *
+     * @return The time left in milliseconds, 0 if the deadline has passed, or Long.MAX_VALUE for none
+     */
+    public long remainingMs() {
+        if (this == NONE) {
+            return Long.MAX_VALUE;
+        }
+        return Math.max(0, TimeUnit.NANOSECONDS.toMillis(deadlineNanos - System.nanoTime()));
+    }
+}
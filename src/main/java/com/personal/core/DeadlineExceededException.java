@@ -0,0 +1,19 @@
+package com.personal.core;
+
+/**
+ * Thrown when a task is not sent, or not retried, because it could not finish before the run
+ * or task deadline. Tasks failing with this exception can be resubmitted later.
+ */
+public class DeadlineExceededException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * Creates a new instance of DeadlineExceededException.
+     *
+     * @param message What was not done, and why
+     */
+    public DeadlineExceededException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,30 @@
+package com.personal.core;
+
+/**
+ * Thrown for a task that was not sent because its parent row could not be created, or because
+ * the keys and parent references of the rows do not form a forest. In the first case the cause
+ * is the failure of the parent.
+ */
+public class DependencyFailedException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * Creates a new instance of DependencyFailedException.
+     *
+     * @param parentKey The key of the parent row
+     * @param cause The failure of the parent
+     */
+    public DependencyFailedException(String parentKey, Throwable cause) {
+        super("Parent '" + parentKey + "' was not created: " + cause.getMessage(), cause);
+    }
+
+    /**
+     * Creates a new instance of DependencyFailedException for a row whose references are invalid.
+     *
+     * @param reason Why the row cannot be placed in the hierarchy, e.g. a duplicate key or a cycle
+     */
+    public DependencyFailedException(String reason) {
+        super("Not sent: " + reason);
+    }
+}
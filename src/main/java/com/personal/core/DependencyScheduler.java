@@ -0,0 +1,156 @@
+package com.personal.core;
+
+import com.personal.model.Task;
+import com.personal.model.WorkItemResponse;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Function;
+
+/**
+ * Schedules the creation of tasks that reference other rows of the same input as their parent.
+ *
+ * <p>
+ * A row whose {@code parentStory} matches the {@code key} of another row depends on that row.
+ * The rows form a forest: rows without a local parent are started immediately, and every other
+ * row is started as soon as its own parent has been created, with the parent's real work item ID
+ * substituted into its {@code parentStory}. Independent branches therefore never wait for each
+ * other, so a whole hierarchy is created in one run with as much parallelism as the tree allows.
+ * </p>
+ */
+@Slf4j
+public class DependencyScheduler {
+
+    /**
+     * Creates the given tasks in dependency order.
+     *
+     * <p>
+     * Rows that share a key, rows whose parent key is shared by several rows, and rows whose
+     * parent references form a cycle are not sent: their futures fail with a
+     * {@link DependencyFailedException} giving the reason, and so do those of their descendants.
+     * </p>
+     *
+     * @param tasks The tasks to create
+     * @param create The function that creates a single task and returns the created work item
+     * @return The futures of the created work items, in the same order as the tasks
+     */
+    public static List<CompletableFuture<WorkItemResponse>> schedule(
+            List<Task> tasks, Function<Task, CompletableFuture<WorkItemResponse>> create) {
+        Set<String> duplicateKeys = new HashSet<>();
+        Map<String, Integer> keyIndex = indexKeys(tasks, duplicateKeys);
+
+        int[] parentOf = new int[tasks.size()];
+        String[] rejected = new String[tasks.size()];
+        List<List<Integer>> children = new ArrayList<>(tasks.size());
+        Deque<Integer> ready = new ArrayDeque<>();
+        for (int i = 0; i < tasks.size(); i++) {
+            children.add(new ArrayList<>());
+        }
+        for (int i = 0; i < tasks.size(); i++) {
+            String key = trimmed(tasks.get(i).getKey());
+            String parent = trimmed(tasks.get(i).getParentStory());
+            Integer parentIndex = parent == null ? null : keyIndex.get(parent);
+            parentOf[i] = parentIndex == null ? -1 : parentIndex;
+            if (key != null && duplicateKeys.contains(key)) {
+                rejected[i] = "Duplicate task key: " + key;
+            } else if (parent != null && duplicateKeys.contains(parent)) {
+                rejected[i] = "Parent '" + parent + "' is ambiguous, several rows have this key";
+            }
+            if (parentIndex == null) {
+                ready.add(i);
+            } else {
+                children.get(parentIndex).add(i);
+            }
+        }
+
+        List<CompletableFuture<WorkItemResponse>> futures = new ArrayList<>(tasks.size());
+        for (int i = 0; i < tasks.size(); i++) {
+            futures.add(null);
+        }
+
+        int scheduled = 0;
+        while (!ready.isEmpty()) {
+            int index = ready.poll();
+            Task task = tasks.get(index);
+            if (rejected[index] != null) {
+                futures.set(index, CompletableFuture.failedFuture(new DependencyFailedException(rejected[index])));
+            } else if (parentOf[index] < 0) {
+                futures.set(index, create.apply(task));
+            } else {
+                Task parent = tasks.get(parentOf[index]);
+                futures.set(index, futures.get(parentOf[index])
+                        .handle((created, error) -> {
+                            if (error != null) {
+                                throw new DependencyFailedException(parent.getKey(), unwrap(error));
+                            }
+                            String parentId = String.valueOf(created.getId());
+                            log.debug("Parent {} of {} created as {}", parent.getKey(), task.getTitle(), parentId);
+                            return task.toBuilder().parentStory(parentId).build();
+                        })
+                        .thenCompose(create));
+            }
+            scheduled++;
+            ready.addAll(children.get(index));
+        }
+
+        if (scheduled < tasks.size()) {
+            // The rows left are in a cycle, or below one, and none of them can be created
+            DependencyFailedException cycle = new DependencyFailedException("Parent references form a cycle between "
+                    + (tasks.size() - scheduled) + " rows");
+            for (int i = 0; i < tasks.size(); i++) {
+                if (futures.get(i) == null) {
+                    futures.set(i, CompletableFuture.failedFuture(cycle));
+                }
+            }
+        }
+        return futures;
+    }
+
+    /**
+     * Maps the local key of every row that has one, and that no other row shares, to the row's index.
+     *
+     * @param tasks The tasks
+     * @param duplicateKeys The set the keys shared by several rows are added to
+     * @return The index of every unique key
+     */
+    private static Map<String, Integer> indexKeys(List<Task> tasks, Set<String> duplicateKeys) {
+        Map<String, Integer> keyIndex = new HashMap<>();
+        for (int i = 0; i < tasks.size(); i++) {
+            String key = trimmed(tasks.get(i).getKey());
+            if (key != null && keyIndex.put(key, i) != null) {
+                duplicateKeys.add(key);
+            }
+        }
+        keyIndex.keySet().removeAll(duplicateKeys);
+        return keyIndex;
+    }
+
+    /**
+     * Trims a key or parent reference.
+     *
+     * @param value The value
+     * @return The trimmed value, or null if it is missing or blank
+     */
+    private static String trimmed(String value) {
+        return value == null || value.trim().isEmpty() ? null : value.trim();
+    }
+
+    /**
+     * Unwraps the CompletionException added by CompletableFuture stages.
+     *
+     * @param error The error
+     * @return The underlying cause
+     */
+    private static Throwable unwrap(Throwable error) {
+        return error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+    }
+}
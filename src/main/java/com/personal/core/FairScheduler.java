@@ -0,0 +1,320 @@
+package com.personal.core;
+
+import com.personal.model.Task;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Scheduler that shares a fixed number of worker slots fairly between tenants.
+ *
+ * <p>
+ * Work is queued per key (normally the Azure DevOps organization) and the queues are
+ * served round-robin. While other queues are waiting, a queue is held to its fair share of
+ * the slots, so one slow or throttled organization cannot occupy every worker and block the
+ * rows of the others. When it is the only queue with work it may use every slot, up to the
+ * per-key limit.
+ * </p>
+ *
+ * <p>
+ * The limits can be changed while work is running with {@link #setLimits(int, int)}. A queue is
+ * dropped as soon as it has no pending or running work, so keys that come and go in a
+ * long-running process do not accumulate.
+ * </p>
+ */
+public class FairScheduler {
+
+    private final ThreadPoolExecutor executor;
+    private int maxConcurrency;
+    private int maxConcurrencyPerKey;
+    private final Map<String, Lane> lanes = new HashMap<>();
+    private final List<Lane> order = new ArrayList<>();
+    private int cursor;
+    private int active;
+    private boolean shutdown;
+
+    /**
+     * Creates a new instance of FairScheduler.
+     *
+     * @param maxConcurrency The maximum number of work items running at the same time
+     * @param maxConcurrencyPerKey The maximum number of work items of a single key running at the same time
+     */
+    public FairScheduler(int maxConcurrency, int maxConcurrencyPerKey) {
+        this.maxConcurrency = Math.max(1, maxConcurrency);
+        this.maxConcurrencyPerKey = maxConcurrencyPerKey > 0
+                ? Math.min(maxConcurrencyPerKey, this.maxConcurrency)
+                : this.maxConcurrency;
+        this.executor = new ThreadPoolExecutor(this.maxConcurrency, this.maxConcurrency,
+                60, TimeUnit.SECONDS, new LinkedBlockingQueue<>());
+        this.executor.allowCoreThreadTimeOut(true);
+    }
+
+    /**
+     * Changes the concurrency limits. Running work items are never interrupted: when the limits
+     * are lowered, no new item is started until the running ones have dropped below the new limits.
+     *
+     * @param maxConcurrency The maximum number of work items running at the same time
+     * @param maxConcurrencyPerKey The maximum number of work items of a single key running at the same time
+     */
+    public synchronized void setLimits(int maxConcurrency, int maxConcurrencyPerKey) {
+        int max = Math.max(1, maxConcurrency);
+        if (max > executor.getMaximumPoolSize()) {
+            executor.setMaximumPoolSize(max);
+            executor.setCorePoolSize(max);
+        } else {
+            executor.setCorePoolSize(max);
+            executor.setMaximumPoolSize(max);
+        }
+        this.maxConcurrency = max;
+        this.maxConcurrencyPerKey = maxConcurrencyPerKey > 0 ? Math.min(maxConcurrencyPerKey, max) : max;
+        dispatch();
+    }
+
+    /**
+     * Gets the scheduling key of a task.
+     *
+     * @param task The task
+     * @return The organization of the task, lower-cased
+     */
+    public static String keyOf(Task task) {
+        return task.getOrganization() == null ? "" : task.getOrganization().toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Queues a work item under the given key.
+     *
+     * @param <T> The type of the result
+     * @param key The key of the queue, e.g. the organization
+     * @param work The work to run
+     * @return A CompletableFuture that completes with the result of the work, or exceptionally with a
+     *         {@link RejectedExecutionException} if the scheduler is shut down
+     */
+    public <T> CompletableFuture<T> submit(String key, Supplier<T> work) {
+        Item<T> item = new Item<>(work);
+        synchronized (this) {
+            if (shutdown) {
+                return CompletableFuture.failedFuture(new RejectedExecutionException("The scheduler is shut down"));
+            }
+            Lane lane = lanes.get(key);
+            if (lane == null) {
+                lane = new Lane(key);
+                lanes.put(key, lane);
+                order.add(lane);
+            }
+            lane.pending.add(item);
+            dispatch();
+        }
+        return item.future;
+    }
+
+    /**
+     * Starts queued work items while there are free slots.
+     * Must be called while holding the scheduler lock.
+     */
+    private void dispatch() {
+        while (active < maxConcurrency) {
+            Lane lane = nextLane();
+            if (lane == null) {
+                return;
+            }
+            Item<?> item = lane.pending.poll();
+            lane.active++;
+            active++;
+            try {
+                executor.execute(() -> {
+                    try {
+                        item.run();
+                    } finally {
+                        release(lane);
+                    }
+                });
+            } catch (RejectedExecutionException e) {
+                // The executor was shut down with work still queued; none of it can run anymore
+                lane.active--;
+                active--;
+                item.reject(e);
+                rejectPending(e);
+                return;
+            }
+        }
+    }
+
+    /**
+     * Fails every queued work item and drops every idle queue.
+     * Must be called while holding the scheduler lock.
+     *
+     * @param error The reason the work items cannot run
+     */
+    private void rejectPending(RejectedExecutionException error) {
+        for (Lane lane : new ArrayList<>(order)) {
+            Item<?> item;
+            while ((item = lane.pending.poll()) != null) {
+                item.reject(error);
+            }
+            removeIfIdle(lane);
+        }
+    }
+
+    /**
+     * Drops a queue that has no pending or running work.
+     * Must be called while holding the scheduler lock.
+     *
+     * @param lane The queue
+     */
+    private void removeIfIdle(Lane lane) {
+        if (!lane.pending.isEmpty() || lane.active > 0) {
+            return;
+        }
+        int index = order.indexOf(lane);
+        if (index < 0) {
+            return;
+        }
+        order.remove(index);
+        lanes.remove(lane.key);
+        // Keep serving the queue that was next
+        if (index < cursor) {
+            cursor--;
+        }
+        if (cursor >= order.size()) {
+            cursor = 0;
+        }
+    }
+
+    /**
+     * Picks the next queue to serve, round-robin.
+     * Queues below their fair share are preferred; the others are only served when no such queue is waiting.
+     *
+     * @return The queue to serve, or null if no queue can be served
+     */
+    private Lane nextLane() {
+        // Idle queues are dropped, so every queue left has pending or running work
+        int busy = order.size();
+        if (busy == 0) {
+            return null;
+        }
+        int fairShare = Math.max(1, (maxConcurrency + busy - 1) / busy);
+
+        Lane fallback = null;
+        for (int i = 0; i < order.size(); i++) {
+            Lane lane = order.get((cursor + i) % order.size());
+            if (lane.pending.isEmpty() || lane.active >= maxConcurrencyPerKey) {
+                continue;
+            }
+            if (lane.active < fairShare) {
+                cursor = (cursor + i + 1) % order.size();
+                return lane;
+            }
+            if (fallback == null) {
+                fallback = lane;
+            }
+        }
+        if (fallback != null) {
+            cursor = (order.indexOf(fallback) + 1) % order.size();
+        }
+        return fallback;
+    }
+
+    /**
+     * Frees the slot of a finished work item and starts the next one.
+     *
+     * @param lane The queue the finished work item belonged to
+     */
+    private synchronized void release(Lane lane) {
+        lane.active--;
+        active--;
+        removeIfIdle(lane);
+        dispatch();
+        if (active == 0) {
+            notifyAll();
+        }
+    }
+
+    /**
+     * Shuts down the scheduler after the queued work has finished. Work submitted from now on is rejected.
+     */
+    public void shutdown() {
+        try {
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(60);
+            synchronized (this) {
+                shutdown = true;
+                long remaining;
+                while (active > 0 && (remaining = deadline - System.nanoTime()) > 0) {
+                    TimeUnit.NANOSECONDS.timedWait(this, remaining);
+                }
+            }
+            executor.shutdown();
+            if (!executor.awaitTermination(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS)) {
+                executor.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            executor.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * The queue of a single key.
+     */
+    private static class Lane {
+        private final String key;
+        private final Queue<Item<?>> pending = new ArrayDeque<>();
+        private int active;
+
+        /**
+         * Creates a new instance of Lane.
+         *
+         * @param key The key of the queue
+         */
+        Lane(String key) {
+            this.key = key;
+        }
+    }
+
+    /**
+     * A queued work item and the future of its result.
+     *
+     * @param <T> The type of the result
+     */
+    private static class Item<T> implements Runnable {
+        private final Supplier<T> work;
+        private final CompletableFuture<T> future = new CompletableFuture<>();
+
+        /**
+         * Creates a new instance of Item.
+         *
+         * @param work The work to run
+         */
+        Item(Supplier<T> work) {
+            this.work = work;
+        }
+
+        @Override
+        public void run() {
+            try {
+                future.complete(work.get());
+            } catch (Throwable t) {
+                future.completeExceptionally(t);
+            }
+        }
+
+        /**
+         * Fails the work item without running it.
+         *
+         * @param error The reason it cannot run
+         */
+        void reject(Throwable error) {
+            future.completeExceptionally(error);
+        }
+    }
+}
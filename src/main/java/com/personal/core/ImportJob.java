@@ -0,0 +1,285 @@
+package com.personal.core;
+
+import com.google.gson.stream.JsonWriter;
+import com.personal.model.TaskResult;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * An import job of the {@link JobServer}: one input file, with its state and progress.
+ *
+ * <p>
+ * The counters are updated from the threads the results complete on and read by status
+ * requests at any time, so a status is a consistent snapshot of each counter but not of all of
+ * them together.
+ * </p>
+ */
+public class ImportJob {
+
+    /**
+     * The lane a job is queued in.
+     */
+    public enum Lane {
+        /**
+         * Small jobs someone is waiting for; they start before any queued bulk job and hold back
+         * the tasks of running bulk jobs that have not been sent yet.
+         */
+        INTERACTIVE,
+        /**
+         * Large jobs, streamed while they are read.
+         */
+        BULK
+    }
+
+    /**
+     * The state of a job.
+     */
+    public enum State {
+        /**
+         * Waiting in its lane.
+         */
+        QUEUED,
+        /**
+         * Being read and sent.
+         */
+        RUNNING,
+        /**
+         * Every task was sent; some may have failed.
+         */
+        DONE,
+        /**
+         * The input could not be read, or did not pass validation.
+         */
+        FAILED
+    }
+
+    private final long id;
+    private final Lane lane;
+    private final Path input;
+    private final boolean uploaded;
+    private final Path resultsFile;
+    private final long submittedAt = System.currentTimeMillis();
+    private volatile State state = State.QUEUED;
+    private volatile long startedAt;
+    private volatile long finishedAt;
+    private volatile String error;
+    private volatile RunLimits limits;
+    private volatile long expiresAt = Long.MAX_VALUE;
+    private volatile int total = -1;
+    private final AtomicInteger read = new AtomicInteger();
+    private final AtomicInteger created = new AtomicInteger();
+    private final AtomicInteger failed = new AtomicInteger();
+    private final AtomicInteger shortCircuited = new AtomicInteger();
+
+    /**
+     * Creates a new instance of ImportJob.
+     *
+     * @param id The ID of the job
+     * @param lane The lane of the job
+     * @param input The input file of the job
+     * @param uploaded true if the input was uploaded and is deleted once the job is over
+     * @param resultsFile The NDJSON file the result of every task is written to
+     */
+    ImportJob(long id, Lane lane, Path input, boolean uploaded, Path resultsFile) {
+        this.id = id;
+        this.lane = lane;
+        this.input = input;
+        this.uploaded = uploaded;
+        this.resultsFile = resultsFile;
+    }
+
+    /**
+     * Gets the ID of the job.
+     *
+     * @return The ID
+     */
+    public long getId() {
+        return id;
+    }
+
+    /**
+     * Gets the lane of the job.
+     *
+     * @return The lane
+     */
+    public Lane getLane() {
+        return lane;
+    }
+
+    /**
+     * Gets the input file of the job.
+     *
+     * @return The input file
+     */
+    public Path getInput() {
+        return input;
+    }
+
+    /**
+     * Determines if the input was uploaded with the job, rather than named by its path.
+     *
+     * @return true if the input was uploaded, false otherwise
+     */
+    public boolean isUploaded() {
+        return uploaded;
+    }
+
+    /**
+     * Gets the NDJSON file the result of every task is written to.
+     *
+     * @return The results file
+     */
+    public Path getResultsFile() {
+        return resultsFile;
+    }
+
+    /**
+     * Gets the state of the job.
+     *
+     * @return The state
+     */
+    public State getState() {
+        return state;
+    }
+
+    /**
+     * Determines if the job is over, whether it succeeded or not.
+     *
+     * @return true if the job is done or failed, false if it is queued or running
+     */
+    public boolean isOver() {
+        return state == State.DONE || state == State.FAILED;
+    }
+
+    /**
+     * Marks the job as running.
+     *
+     * @param limits The deadline and retry budget of the job, which start with it
+     */
+    void start(RunLimits limits) {
+        this.limits = limits;
+        startedAt = System.currentTimeMillis();
+        state = State.RUNNING;
+    }
+
+    /**
+     * Gets the deadline and retry budget of the job.
+     *
+     * @return The limits, or null if the job has not started
+     */
+    RunLimits getLimits() {
+        return limits;
+    }
+
+    /**
+     * Brings the time the job is removed forward, if it is later than the given time.
+     *
+     * @param time The time, in milliseconds since the epoch, the job is removed at the latest
+     */
+    synchronized void expireBy(long time) {
+        expiresAt = Math.min(expiresAt, time);
+    }
+
+    /**
+     * Determines if the job is due to be removed.
+     *
+     * @param now The current time, in milliseconds since the epoch
+     * @return true if the job is over and its time has passed
+     */
+    boolean isExpired(long now) {
+        return isOver() && now >= expiresAt;
+    }
+
+    /**
+     * Marks the job as over.
+     *
+     * @param failure The reason the job failed, or null if every task was sent
+     */
+    void finish(String failure) {
+        error = failure;
+        finishedAt = System.currentTimeMillis();
+        state = failure == null ? State.DONE : State.FAILED;
+    }
+
+    /**
+     * Counts a task read from the input.
+     */
+    void taskRead() {
+        read.incrementAndGet();
+    }
+
+    /**
+     * Records that the whole input has been read, so the number of tasks of the job is known.
+     */
+    void readComplete() {
+        total = read.get();
+    }
+
+    /**
+     * Counts the result of a task.
+     *
+     * @param result The result
+     */
+    void record(TaskResult result) {
+        switch (result.getStatus()) {
+            case CREATED:
+                created.incrementAndGet();
+                break;
+            case SHORT_CIRCUITED:
+                shortCircuited.incrementAndGet();
+                break;
+            default:
+                failed.incrementAndGet();
+                break;
+        }
+    }
+
+    /**
+     * Writes the status and progress of the job as a JSON object.
+     *
+     * @param json The writer
+     * @param queuePosition The number of jobs ahead of this one in its lane, or -1 if it is not queued
+     * @throws IOException If the status cannot be written
+     */
+    void writeStatus(JsonWriter json, int queuePosition) throws IOException {
+        json.beginObject();
+        json.name("id").value(id);
+        json.name("lane").value(lane.name());
+        json.name("state").value(state.name());
+        json.name("input").value(uploaded ? "upload" : input.toString());
+        if (queuePosition >= 0) {
+            json.name("queuePosition").value(queuePosition);
+        }
+        json.name("submittedAt").value(Instant.ofEpochMilli(submittedAt).toString());
+        if (startedAt > 0) {
+            json.name("startedAt").value(Instant.ofEpochMilli(startedAt).toString());
+        }
+        if (finishedAt > 0) {
+            json.name("finishedAt").value(Instant.ofEpochMilli(finishedAt).toString());
+        }
+        json.name("tasks").beginObject();
+        if (total >= 0) {
+            json.name("total").value(total);
+        }
+        int createdTasks = created.get();
+        int failedTasks = failed.get();
+        int shortCircuitedTasks = shortCircuited.get();
+        json.name("read").value(read.get());
+        json.name("completed").value(createdTasks + failedTasks + shortCircuitedTasks);
+        json.name("created").value(createdTasks);
+        json.name("failed").value(failedTasks);
+        json.name("shortCircuited").value(shortCircuitedTasks);
+        json.endObject();
+        RunLimits jobLimits = limits;
+        if (jobLimits != null) {
+            json.name("retryBudget").value(jobLimits.getRetryBudget().describe());
+        }
+        if (error != null) {
+            json.name("error").value(error);
+        }
+        json.endObject();
+    }
+}
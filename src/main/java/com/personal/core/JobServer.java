@@ -0,0 +1,788 @@
+package com.personal.core;
+
+import com.google.gson.stream.JsonWriter;
+import com.personal.model.Task;
+import com.personal.model.TaskResult;
+import com.personal.util.NdjsonTaskDecoder;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.StringWriter;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.InvalidPathException;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Local HTTP server that accepts import jobs and runs them on a shared {@link TaskEngine}.
+ *
+ * <p>
+ * The server only listens on the loopback address. It offers:
+ * </p>
+ * <ul>
+ *   <li>{@code POST /jobs}: queues a job. The body is a CSV file, or NDJSON when the content type
+ *       mentions {@code ndjson} or {@code jsonl}; or {@code ?path=FILE} names an input file in the
+ *       input directory instead, if there is one. {@code ?lane=interactive} or {@code ?lane=bulk} chooses the lane.
+ *       Answers {@code 202} with the status of the job.</li>
+ *   <li>{@code GET /jobs} and {@code GET /jobs/ID}: the status and progress of every job, or of one.</li>
+ *   <li>{@code GET /jobs/ID/results}: the NDJSON result records of a job, as far as they are written.</li>
+ *   <li>{@code GET /status}: the queued and running jobs of each lane and the state of the engine.</li>
+ * </ul>
+ *
+ * <p>
+ * Without a lane, a job of at most {@code interactiveJobMaxTasks} rows goes in the interactive
+ * lane and any larger job, or a workbook, in the bulk lane. Queued interactive jobs always start
+ * before queued bulk jobs, and one worker only runs interactive jobs, so they never wait for a
+ * bulk job to finish. While an interactive job is queued or running, the tasks of running bulk
+ * jobs that have not been sent yet are held back, so the interactive tasks only wait for the bulk
+ * requests already in flight. Interactive jobs are loaded and validated whole, like a normal run;
+ * bulk jobs are streamed as with {@code --stream}, so their parent rows must come first.
+ * </p>
+ *
+ * <p>
+ * Every job has its own run deadline and retry budget, which start when the job does. A finished
+ * job and its results file are removed after the retention time, or shortly after its results
+ * were fetched whole.
+ * </p>
+ *
+ * <p>
+ * Requests that carry an {@code Origin} header, or a {@code Host} header that is not a loopback
+ * name, are rejected with {@code 403}: they come from a web page, possibly through DNS rebinding,
+ * which must not be able to start imports from the user's browser.
+ * </p>
+ */
+@Slf4j
+public class JobServer {
+
+    private static final String JOBS_PATH = "/jobs";
+    private static final String RESULTS_SUFFIX = "/results";
+    private static final int HTTP_THREADS = 4;
+    private static final long FETCHED_RESULTS_RETENTION_MS = TimeUnit.MINUTES.toMillis(1);
+
+    private final TaskEngine engine;
+    private final Path jobsDirectory;
+    private final Path inputDirectory;
+    private final long jobRetentionMs;
+    private final int interactiveJobMaxTasks;
+    private final HttpServer server;
+    private final ExecutorService httpExecutor;
+    private final List<Thread> workers = new ArrayList<>();
+    private final CountDownLatch stopped = new CountDownLatch(1);
+    private final AtomicLong nextId = new AtomicLong();
+    private final Map<Long, ImportJob> jobs = new ConcurrentSkipListMap<>();
+
+    // Guarded by this
+    private final Deque<ImportJob> interactive = new ArrayDeque<>();
+    private final Deque<ImportJob> bulk = new ArrayDeque<>();
+    private int interactiveJobs;
+    private int runningJobs;
+    private CompletableFuture<Void> interactiveIdle = CompletableFuture.completedFuture(null);
+    private boolean running = true;
+
+    /**
+     * Creates a new instance of JobServer and binds its port.
+     *
+     * @param engine The engine the jobs run on
+     * @param port The port to listen on, on the loopback address
+     * @param jobConcurrency The number of jobs of either lane that run at the same time, besides
+     *        the one reserved for interactive jobs
+     * @param interactiveJobMaxTasks The largest job, in rows, that goes in the interactive lane by default
+     * @param jobsDirectory The directory uploaded inputs and the results of every job are written to
+     * @param inputDirectory The directory inputs named by path are read from, or null to only accept uploads
+     * @param jobRetentionMs The time a finished job and its results are kept
+     * @throws IOException If the port cannot be bound
+     */
+    public JobServer(TaskEngine engine, int port, int jobConcurrency, int interactiveJobMaxTasks, Path jobsDirectory,
+            Path inputDirectory, long jobRetentionMs) throws IOException {
+        this.engine = engine;
+        this.jobsDirectory = jobsDirectory;
+        this.inputDirectory = inputDirectory;
+        this.jobRetentionMs = jobRetentionMs;
+        this.interactiveJobMaxTasks = interactiveJobMaxTasks;
+        this.server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+        AtomicInteger threadCount = new AtomicInteger();
+        this.httpExecutor = Executors.newFixedThreadPool(HTTP_THREADS, r -> {
+            Thread thread = new Thread(r, "job-server-http-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.server.setExecutor(httpExecutor);
+        this.server.createContext(JOBS_PATH, this::handleJobs);
+        this.server.createContext("/status", this::handleStatus);
+
+        workers.add(new Thread(() -> work(true), "job-worker-interactive"));
+        for (int i = 1; i <= Math.max(1, jobConcurrency); i++) {
+            workers.add(new Thread(() -> work(false), "job-worker-" + i));
+        }
+    }
+
+    /**
+     * Serves requests and runs jobs until {@link #stop()} is called.
+     *
+     * @throws IOException If the jobs directory cannot be created
+     * @throws InterruptedException If the thread is interrupted while serving
+     */
+    public void run() throws IOException, InterruptedException {
+        Files.createDirectories(jobsDirectory);
+        for (Thread worker : workers) {
+            worker.start();
+        }
+        server.start();
+        log.info("Job server listening on http://{}:{}", server.getAddress().getHostString(), server.getAddress().getPort());
+        stopped.await();
+    }
+
+    /**
+     * Stops accepting jobs, and waits up to a minute for the running jobs to finish. Queued jobs are
+     * not run; they fail.
+     */
+    public void stop() {
+        server.stop(0);
+        httpExecutor.shutdownNow();
+        List<ImportJob> dropped;
+        synchronized (this) {
+            running = false;
+            dropped = new ArrayList<>(interactive);
+            dropped.addAll(bulk);
+            // Running bulk jobs must not hold back their tasks for interactive jobs that will never run
+            interactiveJobs -= interactive.size();
+            interactive.clear();
+            bulk.clear();
+            if (interactiveJobs == 0) {
+                interactiveIdle.complete(null);
+            }
+            notifyAll();
+        }
+        for (ImportJob job : dropped) {
+            job.finish("The job server stopped before the job started");
+            deleteUpload(job);
+        }
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(60);
+        for (Thread worker : workers) {
+            try {
+                worker.join(Math.max(1, TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime())));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+        log.info("Job server stopped");
+        stopped.countDown();
+    }
+
+    /**
+     * Queues a job for an input file, which is left in place.
+     *
+     * @param input The input file of the job
+     * @param lane The lane, or null to choose it from the size of the input
+     * @return The queued job
+     * @throws IOException If the input cannot be read
+     * @throws IllegalStateException If the server is stopping
+     */
+    public ImportJob submit(Path input, ImportJob.Lane lane) throws IOException {
+        return queue(nextId.incrementAndGet(), input, false, lane);
+    }
+
+    /**
+     * Queues a job with a known ID.
+     *
+     * @param id The ID of the job
+     * @param input The input file of the job
+     * @param uploaded true if the input was uploaded and is deleted once the job is over
+     * @param lane The lane, or null to choose it from the size of the input
+     * @return The queued job
+     * @throws IOException If the input cannot be read
+     * @throws IllegalStateException If the server is stopping
+     */
+    private ImportJob queue(long id, Path input, boolean uploaded, ImportJob.Lane lane) throws IOException {
+        if (lane == null) {
+            lane = isInteractive(input) ? ImportJob.Lane.INTERACTIVE : ImportJob.Lane.BULK;
+        }
+        ImportJob job = new ImportJob(id, lane, input, uploaded,
+                jobsDirectory.resolve("job-" + id + ".results.ndjson"));
+        // IDs start over with every server, so a file of an earlier one must not pass for the results of this job
+        Files.deleteIfExists(job.getResultsFile());
+        synchronized (this) {
+            if (!running) {
+                throw new IllegalStateException("Job server is stopping");
+            }
+            jobs.put(id, job);
+            if (lane == ImportJob.Lane.INTERACTIVE) {
+                if (interactiveJobs++ == 0) {
+                    interactiveIdle = new CompletableFuture<>();
+                }
+                interactive.add(job);
+            } else {
+                bulk.add(job);
+            }
+            notifyAll();
+        }
+        log.info("Queued job {} ({} lane): {}", id, lane.name().toLowerCase(Locale.ROOT),
+                uploaded ? "uploaded input" : input);
+        return job;
+    }
+
+    /**
+     * Determines if an input is small enough for the interactive lane, reading no further than needed.
+     *
+     * @param input The input file
+     * @return true if the input is a CSV or NDJSON file of at most {@code interactiveJobMaxTasks} rows
+     * @throws IOException If the input cannot be read
+     */
+    private boolean isInteractive(Path input) throws IOException {
+        String name = input.getFileName().toString().toLowerCase(Locale.ROOT);
+        if (name.endsWith(".xlsx") || name.endsWith(".xls")) {
+            return false;
+        }
+        // The header of a CSV file is not a row
+        int rows = NdjsonTaskDecoder.isNdjson(input) ? 0 : -1;
+        try (BufferedReader reader = Files.newBufferedReader(input, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (!line.trim().isEmpty() && ++rows > interactiveJobMaxTasks) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Runs jobs until the server stops.
+     *
+     * @param interactiveOnly true if this worker is reserved for interactive jobs
+     */
+    private void work(boolean interactiveOnly) {
+        while (true) {
+            ImportJob job;
+            synchronized (this) {
+                while (running && interactive.isEmpty() && (interactiveOnly || bulk.isEmpty())) {
+                    try {
+                        wait();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        return;
+                    }
+                }
+                if (!running) {
+                    return;
+                }
+                job = interactive.isEmpty() ? bulk.poll() : interactive.poll();
+                runningJobs++;
+            }
+            try {
+                runJob(job);
+            } finally {
+                synchronized (this) {
+                    runningJobs--;
+                    if (job.getLane() == ImportJob.Lane.INTERACTIVE && --interactiveJobs == 0) {
+                        interactiveIdle.complete(null);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Runs a job, writing the result of every task to its results file.
+     *
+     * @param job The job
+     */
+    private void runJob(ImportJob job) {
+        job.start(RunLimits.start(engine.getConfig()));
+        log.info("Running job {} ({} lane)", job.getId(), job.getLane().name().toLowerCase(Locale.ROOT));
+        String failure = null;
+        try (ResultSink sink = new ResultSink(job.getResultsFile())) {
+            TaskEngine.TaskSource source = engine.source(List.of(job.getInput()), null);
+            if (job.getLane() == ImportJob.Lane.INTERACTIVE) {
+                failure = runInteractive(job, source, sink);
+            } else {
+                failure = runBulk(job, source, sink);
+            }
+        } catch (Exception e) {
+            failure = e.getMessage() != null ? e.getMessage() : e.toString();
+        } finally {
+            deleteUpload(job);
+        }
+        job.finish(failure);
+        job.expireBy(System.currentTimeMillis() + jobRetentionMs);
+        if (failure == null) {
+            log.info("Job {} done", job.getId());
+        } else {
+            log.warn("Job {} failed: {}", job.getId(), failure);
+        }
+    }
+
+    /**
+     * Deletes the input of a job if it was uploaded.
+     *
+     * @param job The job
+     */
+    private static void deleteUpload(ImportJob job) {
+        if (job.isUploaded()) {
+            try {
+                // Uploaded inputs hold the tokens of their tasks
+                Files.deleteIfExists(job.getInput());
+            } catch (IOException e) {
+                log.warn("Could not delete the input of job {}: {}", job.getId(), e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Removes the finished jobs whose retention has passed, with their results files.
+     */
+    private void evictExpired() {
+        long now = System.currentTimeMillis();
+        for (ImportJob job : jobs.values()) {
+            if (job.isExpired(now) && jobs.remove(job.getId(), job)) {
+                try {
+                    Files.deleteIfExists(job.getResultsFile());
+                } catch (IOException e) {
+                    log.warn("Could not delete the results of job {}: {}", job.getId(), e.getMessage());
+                }
+                log.debug("Removed job {}", job.getId());
+            }
+        }
+    }
+
+    /**
+     * Loads, validates and sends the tasks of an interactive job.
+     *
+     * @param job The job
+     * @param source The source of its tasks
+     * @param sink The sink of its results
+     * @return The reason the job failed, or null if every task was sent
+     * @throws IOException If the input cannot be read
+     */
+    private String runInteractive(ImportJob job, TaskEngine.TaskSource source, ResultSink sink) throws IOException {
+        List<Task> tasks = new ArrayList<>();
+        source.forEach(task -> {
+            job.taskRead();
+            tasks.add(task);
+        });
+        job.readComplete();
+        if (engine.getConfig().isValidateBeforeProcessing() && !engine.validate(tasks)
+                && !engine.getConfig().isContinueOnError()) {
+            return "Validation failed, no task was sent";
+        }
+        List<CompletableFuture<TaskResult>> submitted = engine.submit(tasks, job.getLimits());
+        List<CompletableFuture<Void>> recorded = new ArrayList<>(submitted.size());
+        for (int i = 0; i < submitted.size(); i++) {
+            Task task = tasks.get(i);
+            // The engine reports failures as results; anything else must still be counted and written
+            recorded.add(submitted.get(i)
+                    .exceptionally(ex -> TaskResult.builder()
+                            .task(task)
+                            .status(TaskResult.Status.FAILED)
+                            .error(ex.getMessage() != null ? ex.getMessage() : ex.toString())
+                            .build())
+                    .thenAccept(result -> record(job, sink, result)));
+        }
+        CompletableFuture.allOf(recorded.toArray(new CompletableFuture<?>[0])).join();
+        return null;
+    }
+
+    /**
+     * Streams the tasks of a bulk job, holding back every task while interactive jobs are queued or running.
+     *
+     * @param job The job
+     * @param source The source of its tasks
+     * @param sink The sink of its results
+     * @return The reason the job failed, or null if every task was sent
+     */
+    private String runBulk(ImportJob job, TaskEngine.TaskSource source, ResultSink sink) {
+        TaskEngine.TaskSource counted = consumer -> {
+            source.forEach(task -> {
+                job.taskRead();
+                consumer.accept(task);
+            });
+            job.readComplete();
+        };
+        RunLimits limits = job.getLimits();
+        try {
+            engine.submit(counted, task -> interactiveIdle().thenCompose(idle -> engine.submit(task, limits)),
+                    result -> record(job, sink, result)).join();
+            return null;
+        } catch (Exception e) {
+            Throwable cause = e.getCause() != null ? e.getCause() : e;
+            return cause.getMessage() != null ? cause.getMessage() : cause.toString();
+        }
+    }
+
+    /**
+     * Gets the future that completes once no interactive job is queued or running.
+     *
+     * @return The future
+     */
+    private synchronized CompletableFuture<Void> interactiveIdle() {
+        return interactiveIdle;
+    }
+
+    /**
+     * Records the result of a task of a job.
+     *
+     * @param job The job
+     * @param sink The sink of its results
+     * @param result The result
+     */
+    private static void record(ImportJob job, ResultSink sink, TaskResult result) {
+        job.record(result);
+        sink.accept(result);
+    }
+
+    /**
+     * Handles the requests under {@code /jobs}.
+     *
+     * @param exchange The exchange
+     * @throws IOException If the response cannot be sent
+     */
+    private void handleJobs(HttpExchange exchange) throws IOException {
+        try {
+            if (!isLocalRequest(exchange)) {
+                respondError(exchange, 403, "Requests from web pages are not accepted");
+                return;
+            }
+            evictExpired();
+            String path = exchange.getRequestURI().getPath();
+            String method = exchange.getRequestMethod();
+            if (path.equals(JOBS_PATH) || path.equals(JOBS_PATH + "/")) {
+                if (method.equals("POST")) {
+                    ImportJob job = accept(exchange);
+                    exchange.getResponseHeaders().set("Location", JOBS_PATH + "/" + job.getId());
+                    respond(exchange, 202, json -> writeStatus(json, job));
+                } else if (method.equals("GET")) {
+                    respond(exchange, 200, json -> {
+                        json.beginArray();
+                        for (ImportJob job : jobs.values()) {
+                            writeStatus(json, job);
+                        }
+                        json.endArray();
+                    });
+                } else {
+                    respondError(exchange, 405, "Use GET or POST");
+                }
+                return;
+            }
+
+            String rest = path.substring(JOBS_PATH.length() + 1);
+            boolean results = rest.endsWith(RESULTS_SUFFIX);
+            ImportJob job = jobs.get(parseId(results ? rest.substring(0, rest.length() - RESULTS_SUFFIX.length()) : rest));
+            if (job == null) {
+                respondError(exchange, 404, "No such job");
+            } else if (!method.equals("GET")) {
+                respondError(exchange, 405, "Use GET");
+            } else if (results) {
+                boolean over = job.isOver();
+                if (sendResults(exchange, job) && over) {
+                    job.expireBy(System.currentTimeMillis() + FETCHED_RESULTS_RETENTION_MS);
+                }
+            } else {
+                respond(exchange, 200, json -> writeStatus(json, job));
+            }
+        } catch (IllegalArgumentException | IllegalStateException e) {
+            respondError(exchange, 400, e.getMessage());
+        } catch (IOException e) {
+            log.warn("Error handling {} {}: {}", exchange.getRequestMethod(), exchange.getRequestURI(), e.getMessage());
+            respondError(exchange, 500, e.getMessage());
+        } finally {
+            exchange.close();
+        }
+    }
+
+    /**
+     * Determines if a request comes from a local client rather than from a web page. Browsers add
+     * an {@code Origin} header to cross-origin POSTs, and a page reaching the server through DNS
+     * rebinding sends the rebound name as {@code Host}.
+     *
+     * @param exchange The exchange
+     * @return true if the request has no {@code Origin} header and its {@code Host}, if any, is a loopback name
+     */
+    private static boolean isLocalRequest(HttpExchange exchange) {
+        if (exchange.getRequestHeaders().containsKey("Origin")) {
+            return false;
+        }
+        String host = exchange.getRequestHeaders().getFirst("Host");
+        if (host == null) {
+            return true;
+        }
+        String name;
+        if (host.startsWith("[")) {
+            int end = host.indexOf(']');
+            name = end < 0 ? host : host.substring(1, end);
+        } else {
+            int colon = host.indexOf(':');
+            name = colon < 0 ? host : host.substring(0, colon);
+        }
+        name = name.toLowerCase(Locale.ROOT);
+        return name.equals("localhost") || name.equals("127.0.0.1") || name.equals("::1");
+    }
+
+    /**
+     * Accepts a job from a {@code POST /jobs} request.
+     *
+     * @param exchange The exchange
+     * @return The queued job
+     * @throws IOException If the body cannot be saved or the input cannot be read
+     * @throws IllegalArgumentException If the request names no input, an input outside the input
+     *         directory, or an unknown lane
+     */
+    private ImportJob accept(HttpExchange exchange) throws IOException {
+        Map<String, String> query = parseQuery(exchange.getRequestURI().getRawQuery());
+        ImportJob.Lane lane = null;
+        if (query.containsKey("lane")) {
+            try {
+                lane = ImportJob.Lane.valueOf(query.get("lane").toUpperCase(Locale.ROOT));
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("Lane must be interactive or bulk");
+            }
+        }
+
+        if (query.containsKey("path")) {
+            return submit(resolveInput(query.get("path")), lane);
+        }
+
+        long id = nextId.incrementAndGet();
+        String contentType = exchange.getRequestHeaders().getFirst("Content-Type");
+        String type = contentType == null ? "" : contentType.toLowerCase(Locale.ROOT);
+        Path input = jobsDirectory.resolve("job-" + id + (type.contains("ndjson") || type.contains("jsonl") ? ".jsonl" : ".csv"));
+        try (InputStream body = exchange.getRequestBody()) {
+            Files.copy(body, input);
+        }
+        if (Files.size(input) == 0) {
+            Files.delete(input);
+            throw new IllegalArgumentException("Send the tasks as the body, or the path of an input file as ?path=");
+        }
+        try {
+            return queue(id, input, true, lane);
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(input);
+            throw e;
+        }
+    }
+
+    /**
+     * Resolves an input named by {@code ?path=}, relative to the input directory.
+     *
+     * @param name The path of the input, absolute or relative to the input directory
+     * @return The real path of the input
+     * @throws IOException If the input directory cannot be read
+     * @throws IllegalArgumentException If inputs by path are not accepted, or the path is not a file
+     *         inside the input directory
+     */
+    private Path resolveInput(String name) throws IOException {
+        if (inputDirectory == null) {
+            throw new IllegalArgumentException("Inputs by path are not accepted; send the tasks as the body");
+        }
+        Path directory = inputDirectory.toRealPath();
+        Path input;
+        try {
+            // The real path follows links, so a link cannot lead out of the directory
+            input = directory.resolve(name).toRealPath();
+        } catch (InvalidPathException | NoSuchFileException e) {
+            input = null;
+        }
+        if (input == null || !input.startsWith(directory) || !Files.isRegularFile(input)) {
+            throw new IllegalArgumentException("No such file in the input directory: " + name);
+        }
+        return input;
+    }
+
+    /**
+     * Handles {@code GET /status}.
+     *
+     * @param exchange The exchange
+     * @throws IOException If the response cannot be sent
+     */
+    private void handleStatus(HttpExchange exchange) throws IOException {
+        try {
+            if (!isLocalRequest(exchange)) {
+                respondError(exchange, 403, "Requests from web pages are not accepted");
+                return;
+            }
+            evictExpired();
+            int queuedInteractive;
+            int queuedBulk;
+            int active;
+            synchronized (this) {
+                queuedInteractive = interactive.size();
+                queuedBulk = bulk.size();
+                active = runningJobs;
+            }
+            respond(exchange, 200, json -> {
+                json.beginObject();
+                json.name("queued").beginObject();
+                json.name("interactive").value(queuedInteractive);
+                json.name("bulk").value(queuedBulk);
+                json.endObject();
+                json.name("running").value(active);
+                json.name("jobs").value(jobs.size());
+                if (engine.getAzureService().getCredentials().isPooled()) {
+                    json.name("credentials").value(engine.getAzureService().getCredentials().describe());
+                }
+                json.endObject();
+            });
+        } finally {
+            exchange.close();
+        }
+    }
+
+    /**
+     * Writes the status of a job, with its position in its lane if it is queued.
+     *
+     * @param json The writer
+     * @param job The job
+     * @throws IOException If the status cannot be written
+     */
+    private void writeStatus(JsonWriter json, ImportJob job) throws IOException {
+        int position;
+        synchronized (this) {
+            int index = 0;
+            position = -1;
+            for (ImportJob queued : job.getLane() == ImportJob.Lane.INTERACTIVE ? interactive : bulk) {
+                if (queued == job) {
+                    position = index;
+                    break;
+                }
+                index++;
+            }
+        }
+        job.writeStatus(json, position);
+    }
+
+    /**
+     * Sends the results file of a job.
+     *
+     * @param exchange The exchange
+     * @param job The job
+     * @return true if the whole file was sent
+     * @throws IOException If the error response cannot be sent
+     */
+    private static boolean sendResults(HttpExchange exchange, ImportJob job) throws IOException {
+        InputStream file;
+        try {
+            file = Files.newInputStream(job.getResultsFile());
+        } catch (NoSuchFileException e) {
+            respondError(exchange, 404, "The job has not started yet");
+            return false;
+        }
+        // Once the headers are sent an error can no longer be answered; the response is cut short instead
+        try (InputStream results = file) {
+            exchange.getResponseHeaders().set("Content-Type", "application/x-ndjson; charset=utf-8");
+            exchange.sendResponseHeaders(200, 0);
+            try (OutputStream out = exchange.getResponseBody()) {
+                results.transferTo(out);
+            }
+            return true;
+        } catch (IOException e) {
+            log.warn("Could not send the results of job {}: {}", job.getId(), e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * Parses the ID of a job from the request path.
+     *
+     * @param id The ID as text
+     * @return The ID, or -1 if it is not a number
+     */
+    private static long parseId(String id) {
+        try {
+            return Long.parseLong(id);
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    /**
+     * Parses the parameters of a query string.
+     *
+     * @param query The raw query string, or null
+     * @return The decoded values by name
+     */
+    private static Map<String, String> parseQuery(String query) {
+        Map<String, String> parameters = new HashMap<>();
+        if (query == null || query.isEmpty()) {
+            return parameters;
+        }
+        for (String parameter : query.split("&")) {
+            int equals = parameter.indexOf('=');
+            String name = equals < 0 ? parameter : parameter.substring(0, equals);
+            String value = equals < 0 ? "" : parameter.substring(equals + 1);
+            parameters.put(URLDecoder.decode(name, StandardCharsets.UTF_8), URLDecoder.decode(value, StandardCharsets.UTF_8));
+        }
+        return parameters;
+    }
+
+    /**
+     * Sends a JSON response.
+     *
+     * @param exchange The exchange
+     * @param status The HTTP status code
+     * @param body The writer of the body
+     * @throws IOException If the response cannot be sent
+     */
+    private static void respond(HttpExchange exchange, int status, JsonBody body) throws IOException {
+        StringWriter text = new StringWriter();
+        try (JsonWriter json = new JsonWriter(text)) {
+            body.write(json);
+        }
+        byte[] bytes = (text + "\n").getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    /**
+     * Sends an error response.
+     *
+     * @param exchange The exchange
+     * @param status The HTTP status code
+     * @param message The error message
+     * @throws IOException If the response cannot be sent
+     */
+    private static void respondError(HttpExchange exchange, int status, String message) throws IOException {
+        respond(exchange, status, json -> json.beginObject().name("error").value(message).endObject());
+    }
+
+    /**
+     * Writer of the body of a JSON response.
+     */
+    @FunctionalInterface
+    private interface JsonBody {
+
+        /**
+         * Writes the body.
+         *
+         * @param json The writer
+         * @throws IOException If the body cannot be written
+         */
+        void write(JsonWriter json) throws IOException;
+    }
+}
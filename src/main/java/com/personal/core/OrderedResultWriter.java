@@ -0,0 +1,74 @@
+package com.personal.core;
+
+import com.personal.model.TaskResult;
+import com.personal.util.ResultRowWriter;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Writes the results of a run in input order while tasks are still completing.
+ *
+ * <p>
+ * Tasks complete out of order, but the results file must follow the input. A result is written
+ * as soon as every row before it has been written; only the results that are waiting for an
+ * earlier, still running row are held in memory.
+ * </p>
+ */
+@Slf4j
+public class OrderedResultWriter implements AutoCloseable {
+
+    private final ResultRowWriter out;
+    private final Map<Integer, TaskResult> waiting = new HashMap<>();
+    private int next;
+    private boolean failed;
+
+    /**
+     * Creates a new instance of OrderedResultWriter.
+     *
+     * @param out The writer of the results file
+     */
+    public OrderedResultWriter(ResultRowWriter out) {
+        this.out = out;
+    }
+
+    /**
+     * Accepts the result of a task and writes every result that is now next in order.
+     *
+     * @param index The index of the task in the input
+     * @param result The result of the task
+     */
+    public synchronized void accept(int index, TaskResult result) {
+        if (failed) {
+            return;
+        }
+        waiting.put(index, result);
+        TaskResult ready;
+        while ((ready = waiting.remove(next)) != null) {
+            try {
+                out.write(ready);
+                next++;
+            } catch (IOException e) {
+                failed = true;
+                waiting.clear();
+                log.error("Could not write results file: {}", e.getMessage());
+                return;
+            }
+        }
+    }
+
+    /**
+     * Closes the results file. Results still waiting for an earlier row are not written.
+     *
+     * @throws IOException If the file cannot be written
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        if (!waiting.isEmpty()) {
+            log.warn("{} results were not written because an earlier row never completed", waiting.size());
+        }
+        out.close();
+    }
+}
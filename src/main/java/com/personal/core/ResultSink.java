@@ -0,0 +1,175 @@
+package com.personal.core;
+
+import com.google.gson.stream.JsonWriter;
+import com.personal.model.TaskResult;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Asynchronous sink that writes one NDJSON record per task result to a file.
+ *
+ * <p>
+ * Request threads only enqueue their result on a lock-free queue and return; a single writer
+ * thread drains the queue and appends a compact record per task:
+ * </p>
+ *
+ * <pre>
+ * {"line":12,"id":"4711","status":"CREATED","latencyMs":183,"attempts":1}
+ * {"line":13,"status":"FAILED","latencyMs":7021,"attempts":3,"error":"Status 400: ..."}
+ * </pre>
+ *
+ * <p>
+ * The file is flushed whenever the queue runs empty, so it can be followed while a run is in
+ * progress. {@link #close()} waits until every accepted result has been written.
+ * </p>
+ */
+@Slf4j
+public class ResultSink implements AutoCloseable {
+
+    private static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+
+    private final Path file;
+    private final Writer writer;
+    private final Queue<TaskResult> queue = new ConcurrentLinkedQueue<>();
+    private final Thread writerThread;
+    private final AtomicInteger accepting = new AtomicInteger();
+    private volatile boolean closed;
+    private long written;
+
+    /**
+     * Creates a new instance of ResultSink, replacing any existing file.
+     *
+     * @param file The NDJSON file to write
+     * @throws IOException If the file cannot be created
+     */
+    public ResultSink(Path file) throws IOException {
+        this(file, false);
+    }
+
+    /**
+     * Creates a new instance of ResultSink.
+     *
+     * @param file The NDJSON file to write
+     * @param append Whether to append to an existing file instead of replacing it
+     * @throws IOException If the file cannot be opened
+     */
+    public ResultSink(Path file, boolean append) throws IOException {
+        this.file = file;
+        this.writer = append
+                ? Files.newBufferedWriter(file, StandardCharsets.UTF_8, StandardOpenOption.CREATE, StandardOpenOption.APPEND)
+                : Files.newBufferedWriter(file, StandardCharsets.UTF_8);
+        this.writerThread = new Thread(this::drain, "result-sink");
+        this.writerThread.setDaemon(true);
+        this.writerThread.start();
+    }
+
+    /**
+     * Queues a result to be written. Never blocks.
+     *
+     * @param result The result of a task
+     */
+    public void accept(TaskResult result) {
+        // Counted before the closed check, so the writer does not stop between the check and the offer
+        accepting.incrementAndGet();
+        try {
+            if (closed) {
+                throw new IllegalStateException("Result sink is closed");
+            }
+            queue.offer(result);
+        } finally {
+            accepting.decrementAndGet();
+        }
+        LockSupport.unpark(writerThread);
+    }
+
+    /**
+     * Writes the queued results until the sink is closed and the queue is empty.
+     */
+    private void drain() {
+        boolean failed = false;
+        while (true) {
+            TaskResult result = queue.poll();
+            if (result != null) {
+                if (!failed) {
+                    try {
+                        writeRecord(result);
+                        written++;
+                    } catch (IOException e) {
+                        failed = true;
+                        log.error("Could not write results file {}: {}", file, e.getMessage());
+                    }
+                }
+                continue;
+            }
+            if (!failed) {
+                try {
+                    writer.flush();
+                } catch (IOException e) {
+                    failed = true;
+                    log.error("Could not write results file {}: {}", file, e.getMessage());
+                }
+            }
+            // A result being accepted is in the queue once it is no longer counted
+            if (closed && accepting.get() == 0 && queue.isEmpty()) {
+                return;
+            }
+            LockSupport.parkNanos(this, IDLE_PARK_NANOS);
+        }
+    }
+
+    /**
+     * Writes a single result as one line of JSON.
+     *
+     * @param result The result to write
+     * @throws IOException If the record cannot be written
+     */
+    private void writeRecord(TaskResult result) throws IOException {
+        // Not closed: closing the JsonWriter would close the file
+        JsonWriter json = new JsonWriter(writer);
+        json.beginObject();
+        if (result.getTask().getSource() != null) {
+            json.name("source").value(result.getTask().getSource());
+        }
+        json.name("line").value(result.getTask().getLineNumber());
+        if (result.getWorkItemId() != null) {
+            json.name("id").value(result.getWorkItemId());
+        }
+        json.name("status").value(result.getStatus().name());
+        json.name("latencyMs").value(result.getLatencyMs());
+        json.name("attempts").value(result.getAttempts());
+        if (result.getError() != null) {
+            json.name("error").value(result.getError());
+        }
+        json.endObject();
+        writer.write('\n');
+    }
+
+    /**
+     * Writes every queued result and closes the file.
+     *
+     * @throws IOException If the file cannot be closed
+     */
+    @Override
+    public void close() throws IOException {
+        closed = true;
+        LockSupport.unpark(writerThread);
+        try {
+            writerThread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        writer.close();
+        log.info("Wrote {} results to {}", written, file);
+    }
+}
@@ -0,0 +1,106 @@
+package com.personal.core;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Run-wide budget of retries, shared by every request, so a failing service is not sent a
+ * multiple of the normal load while it struggles.
+ *
+ * <p>
+ * The budget is a token bucket. It starts with {@code minRetries} tokens, and every successful
+ * request adds {@code percent}/100 of a token, up to {@value #CAPACITY_FACTOR} times
+ * {@code minRetries}. Every retry takes a whole token. While requests succeed, the occasional
+ * failure is retried as usual; during an outage, retries stop once the tokens run out, so at
+ * most about {@code percent} percent of the load is retried, instead of every request being
+ * sent {@code maxRetryAttempts} times.
+ * </p>
+ */
+@Slf4j
+public class RetryBudget {
+
+    /**
+     * The balance is kept in hundredths of a retry, so deposits of a percentage are exact.
+     */
+    private static final int TOKEN = 100;
+
+    /**
+     * The capacity of the bucket, as a multiple of minRetries, so a long run of successes does
+     * not save up enough tokens for a retry storm.
+     */
+    private static final int CAPACITY_FACTOR = 10;
+
+    private final int percent;
+    private final long capacity;
+    private long balance;
+    private long retries;
+    private long denied;
+    private boolean exhaustedLogged;
+
+    /**
+     * Creates a new instance of RetryBudget.
+     *
+     * @param percent The retries allowed, as a percentage of the successful requests
+     * @param minRetries The retries allowed before any request has succeeded
+     */
+    public RetryBudget(int percent, int minRetries) {
+        this.percent = Math.max(0, percent);
+        this.balance = (long) Math.max(0, minRetries) * TOKEN;
+        this.capacity = Math.max(this.balance * CAPACITY_FACTOR, TOKEN);
+    }
+
+    /**
+     * Records a successful request, which adds to the budget.
+     */
+    public synchronized void onSuccess() {
+        balance = Math.min(capacity, balance + percent);
+        if (balance >= TOKEN) {
+            exhaustedLogged = false;
+        }
+    }
+
+    /**
+     * Asks for permission to retry a failed request.
+     *
+     * @return true if the request may be retried, false if the budget is exhausted
+     */
+    public synchronized boolean tryAcquire() {
+        if (balance >= TOKEN) {
+            balance -= TOKEN;
+            retries++;
+            return true;
+        }
+        denied++;
+        if (!exhaustedLogged) {
+            exhaustedLogged = true;
+            log.warn("Retry budget exhausted; failed requests are not retried until more requests succeed");
+        }
+        return false;
+    }
+
+    /**
+     * Gets the number of retries allowed so far.
+     *
+     * @return The number of retries
+     */
+    public synchronized long getRetries() {
+        return retries;
+    }
+
+    /**
+     * Gets the number of retries denied so far because the budget was exhausted.
+     *
+     * @return The number of denied retries
+     */
+    public synchronized long getDenied() {
+        return denied;
+    }
+
+    /**
+     * Describes the use of the budget, for the summary of a run.
+     *
+     * @return The retries used and denied, and the retries left
+     */
+    public synchronized String describe() {
+        return String.format("%d retries used, %d denied, %.1f left", retries, denied, balance / (double) TOKEN);
+    }
+}
@@ -0,0 +1,19 @@
+package com.personal.core;
+
+/**
+ * Thrown when a failed call is not retried because the run-wide retry budget is exhausted.
+ * Tasks failing with this exception can be resubmitted later, as a retry would have sent them again.
+ */
+public class RetryBudgetExhaustedException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * Creates a new instance of RetryBudgetExhaustedException.
+     *
+     * @param lastError The error of the last attempt
+     */
+    public RetryBudgetExhaustedException(String lastError) {
+        super("Not retried, the retry budget is exhausted: " + lastError);
+    }
+}
@@ -0,0 +1,78 @@
+package com.personal.core;
+
+import com.personal.config.AppConfig;
+
+/**
+ * The deadline and retry budget of one submission: a command-line run, a file of the daemon,
+ * a job of the job server, or a call to the engine.
+ *
+ * <p>
+ * They belong to the submission rather than to the long-lived service, so a deadline that has
+ * passed, or a budget spent on a failing batch, does not short-circuit every later submission.
+ * </p>
+ */
+public final class RunLimits {
+
+    private final Deadline deadline;
+    private final RetryBudget retryBudget;
+    private volatile String stopReason;
+
+    /**
+     * Creates a new instance of RunLimits.
+     *
+     * @param deadline The deadline of the submission, or {@link Deadline#NONE}
+     * @param retryBudget The retry budget shared by the requests of the submission
+     */
+    public RunLimits(Deadline deadline, RetryBudget retryBudget) {
+        this.deadline = deadline;
+        this.retryBudget = retryBudget;
+    }
+
+    /**
+     * Starts the limits of a new submission, with the run deadline and retry budget of the configuration.
+     *
+     * @param config The configuration
+     * @return The limits, whose deadline counts from now
+     */
+    public static RunLimits start(AppConfig config) {
+        return new RunLimits(Deadline.after(config.getRunDeadlineMs()),
+                new RetryBudget(config.getRetryBudgetPercent(), config.getRetryBudgetMinRetries()));
+    }
+
+    /**
+     * Gets the deadline of the submission.
+     *
+     * @return The deadline, or {@link Deadline#NONE}
+     */
+    public Deadline getDeadline() {
+        return deadline;
+    }
+
+    /**
+     * Gets the retry budget shared by the requests of the submission.
+     *
+     * @return The retry budget
+     */
+    public RetryBudget getRetryBudget() {
+        return retryBudget;
+    }
+
+    /**
+     * Stops the submission: its tasks that have not been sent yet are not sent, and those that
+     * failed are not retried. Requests already in flight complete.
+     *
+     * @param reason Why the submission was stopped
+     */
+    public void stop(String reason) {
+        stopReason = reason;
+    }
+
+    /**
+     * Gets the reason the submission was stopped.
+     *
+     * @return The reason, or null if it was not stopped
+     */
+    public String getStopReason() {
+        return stopReason;
+    }
+}
@@ -0,0 +1,156 @@
+package com.personal.core;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+
+/**
+ * A lease on a shard, held through a lease file in a directory shared by every worker.
+ *
+ * <p>
+ * A lease is acquired by creating the lease file exclusively and kept alive by touching it:
+ * its modification time is the heartbeat. A lease whose heartbeat is older than the timeout
+ * belongs to a worker that died; it is broken by atomically renaming the lease file, which only
+ * one of the competing workers can do, before acquiring it again.
+ * </p>
+ *
+ * <p>
+ * Expiry compares the heartbeat with the local clock, so the clocks of hosts sharing the
+ * directory must be synchronized to well within the timeout.
+ * </p>
+ */
+@Slf4j
+public class ShardLease {
+
+    private final Path file;
+    private final String owner;
+
+    /**
+     * Creates a new instance of ShardLease.
+     *
+     * @param file The lease file
+     * @param owner The ID of the worker holding the lease
+     */
+    private ShardLease(Path file, String owner) {
+        this.file = file;
+        this.owner = owner;
+    }
+
+    /**
+     * Tries to acquire the lease, breaking it first if its holder stopped renewing it.
+     *
+     * @param file The lease file
+     * @param owner The ID of the worker acquiring the lease
+     * @param timeoutMs The time in milliseconds after which a lease that was not renewed expires
+     * @return The acquired lease, or null if another worker holds it
+     * @throws IOException If the lease file cannot be created or broken
+     */
+    public static ShardLease tryAcquire(Path file, String owner, long timeoutMs) throws IOException {
+        if (create(file, owner)) {
+            return new ShardLease(file, owner);
+        }
+
+        FileTime heartbeat;
+        try {
+            heartbeat = Files.getLastModifiedTime(file);
+        } catch (NoSuchFileException e) {
+            // Released in the meantime
+            return create(file, owner) ? new ShardLease(file, owner) : null;
+        }
+        if (System.currentTimeMillis() - heartbeat.toMillis() < timeoutMs) {
+            return null;
+        }
+
+        Path broken = file.resolveSibling(file.getFileName() + "." + owner + ".expired");
+        try {
+            Files.move(file, broken, StandardCopyOption.ATOMIC_MOVE);
+        } catch (NoSuchFileException e) {
+            // Broken or released by another worker first
+            return null;
+        }
+        if (System.currentTimeMillis() - Files.getLastModifiedTime(broken).toMillis() < timeoutMs) {
+            // Another worker broke the expired lease and acquired it again between our checks;
+            // give it back unless a lease was created since (an atomic rename would replace it)
+            try {
+                Files.move(broken, file);
+            } catch (FileAlreadyExistsException e) {
+                Files.deleteIfExists(broken);
+            }
+            return null;
+        }
+        log.warn("Lease {} of {} expired, reclaiming it", file.getFileName(), readOwner(broken));
+        Files.deleteIfExists(broken);
+        return create(file, owner) ? new ShardLease(file, owner) : null;
+    }
+
+    /**
+     * Renews the lease by touching its file.
+     *
+     * @return true if the lease is still held, false if it was lost to another worker
+     */
+    public boolean renew() {
+        try {
+            if (!owner.equals(readOwner(file))) {
+                return false;
+            }
+            Files.setLastModifiedTime(file, FileTime.fromMillis(System.currentTimeMillis()));
+            return true;
+        } catch (IOException e) {
+            log.warn("Could not renew lease {}: {}", file.getFileName(), e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * Releases the lease, unless it was lost to another worker.
+     */
+    public void release() {
+        try {
+            if (owner.equals(readOwner(file))) {
+                Files.deleteIfExists(file);
+            }
+        } catch (IOException e) {
+            log.warn("Could not release lease {}: {}", file.getFileName(), e.getMessage());
+        }
+    }
+
+    /**
+     * Creates the lease file if it does not exist.
+     *
+     * @param file The lease file
+     * @param owner The ID of the worker creating it
+     * @return true if the file was created, false if it already existed
+     * @throws IOException If the file cannot be created
+     */
+    private static boolean create(Path file, String owner) throws IOException {
+        try {
+            Files.write(file, owner.getBytes(StandardCharsets.UTF_8), StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+            return true;
+        } catch (FileAlreadyExistsException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Reads the owner of a lease file.
+     *
+     * @param file The lease file
+     * @return The ID of the worker that created it, or null if it does not exist
+     * @throws IOException If the file cannot be read
+     */
+    private static String readOwner(Path file) throws IOException {
+        try {
+            return new String(Files.readAllBytes(file), StandardCharsets.UTF_8);
+        } catch (NoSuchFileException e) {
+            return null;
+        }
+    }
+}
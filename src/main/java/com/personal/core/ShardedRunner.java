@@ -0,0 +1,495 @@
+package com.personal.core;
+
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import com.personal.model.Task;
+import com.personal.model.TaskResult;
+import com.personal.util.CsvWriter;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs one worker of a sharded run, in which several processes share the rows of the same input.
+ *
+ * <p>
+ * Every worker reads the same input and splits it into the same shards. Rows that reference each
+ * other through their keys always end up in the same shard, so every hierarchy is created by a
+ * single worker. The workers then claim shards through {@link ShardLease}s in the shared shard
+ * directory, which may be on a network file system shared by several hosts. A shard is done when
+ * its result file exists; a worker keeps claiming shards until every shard is done.
+ * </p>
+ *
+ * <p>
+ * The outcome of every task is appended to the shard's progress file as it completes. When the
+ * lease of a dead worker is reclaimed, the rows it had already created are carried over from that
+ * file instead of being created again. A worker that finds it lost the lease of its shard stops
+ * sending the shard's tasks and leaves the shard to its new owner. The short-circuited tasks of a
+ * shard are written to its own resubmit file. {@link #merge(Path)} combines the result and
+ * resubmit files of every shard into a single results file and a single resubmit file.
+ * </p>
+ */
+@Slf4j
+public class ShardedRunner {
+
+    /**
+     * Processes the tasks of a single shard.
+     */
+    @FunctionalInterface
+    public interface ShardProcessor {
+
+        /**
+         * Sends the tasks of a shard.
+         *
+         * @param tasks The tasks to send
+         * @param progress The sink the result of every task must be written to as it completes
+         * @param limits The limits the tasks must be sent with, which are stopped if the lease of the shard is lost
+         * @return The result of every task, in the same order as the tasks
+         */
+        List<TaskResult> process(List<Task> tasks, ResultSink progress, RunLimits limits);
+    }
+
+    private static final String MANIFEST_FILE = "shards.properties";
+    private static final String MERGED_RESULTS_FILE = "results.csv";
+    private static final String MERGED_RESUBMIT_FILE = "resubmit.csv";
+    private static final String LEASE_SUFFIX = ".lease";
+    private static final String PROGRESS_SUFFIX = ".progress.ndjson";
+    private static final String RESULT_SUFFIX = ".result.csv";
+    private static final String RESUBMIT_SUFFIX = ".resubmit.csv";
+
+    private final Path directory;
+    private final int shardSize;
+    private final long leaseTimeoutMs;
+    private final String workerId;
+    private final ShardProcessor processor;
+
+    /**
+     * Creates a new instance of ShardedRunner.
+     *
+     * @param directory The shard directory shared by every worker
+     * @param shardSize The number of rows per shard
+     * @param leaseTimeoutMs The time in milliseconds after which the lease of a worker that stopped renewing it expires
+     * @param processor The processor of each claimed shard
+     */
+    public ShardedRunner(Path directory, int shardSize, long leaseTimeoutMs, ShardProcessor processor) {
+        this.directory = directory;
+        this.shardSize = Math.max(1, shardSize);
+        this.leaseTimeoutMs = leaseTimeoutMs;
+        this.workerId = workerId();
+        this.processor = processor;
+    }
+
+    /**
+     * Claims and processes shards until every shard of the input is done.
+     *
+     * @param tasks Every task of the input, in input order
+     * @param limits The deadline and retry budget of the worker, shared by the shards it processes
+     * @return The number of shards processed by this worker
+     * @throws IOException If the shard directory cannot be used
+     * @throws InterruptedException If the thread is interrupted while waiting for other workers
+     */
+    public int run(List<Task> tasks, RunLimits limits) throws IOException, InterruptedException {
+        Files.createDirectories(directory);
+        List<List<Task>> shards = partition(tasks, shardSize);
+        writeManifest(shards.size(), tasks.size());
+        log.info("Worker {} joined a run of {} shards ({} rows)", workerId, shards.size(), tasks.size());
+
+        int processed = 0;
+        while (true) {
+            boolean pending = false;
+            boolean claimed = false;
+            for (int i = 0; i < shards.size(); i++) {
+                if (Files.exists(shardFile(i, RESULT_SUFFIX))) {
+                    continue;
+                }
+                pending = true;
+                ShardLease lease = ShardLease.tryAcquire(shardFile(i, LEASE_SUFFIX), workerId, leaseTimeoutMs);
+                if (lease == null) {
+                    continue;
+                }
+                try {
+                    // Finished by another worker between the check and the claim
+                    if (!Files.exists(shardFile(i, RESULT_SUFFIX)) && processShard(i, shards.get(i), lease, limits)) {
+                        processed++;
+                        claimed = true;
+                    }
+                } finally {
+                    lease.release();
+                }
+            }
+            if (!pending) {
+                break;
+            }
+            if (!claimed) {
+                // Every remaining shard is leased; wait for them to finish or expire
+                TimeUnit.MILLISECONDS.sleep(Math.max(100, leaseTimeoutMs / 3));
+            }
+        }
+        log.info("Worker {} done, processed {} of {} shards", workerId, processed, shards.size());
+        return processed;
+    }
+
+    /**
+     * Processes a claimed shard while keeping its lease alive, and writes its resubmit and result files.
+     *
+     * @param index The index of the shard
+     * @param shard The tasks of the shard
+     * @param lease The lease of the shard
+     * @param limits The deadline and retry budget of the worker
+     * @return true if the shard is done, false if its lease was lost and it was left to its new owner
+     * @throws IOException If the progress, resubmit or result file cannot be written
+     */
+    private boolean processShard(int index, List<Task> shard, ShardLease lease, RunLimits limits) throws IOException {
+        // The shard shares the deadline and retry budget of the worker, but is stopped on its own
+        RunLimits shardLimits = new RunLimits(limits.getDeadline(), limits.getRetryBudget());
+        ScheduledExecutorService heartbeat = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "shard-heartbeat");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long period = Math.max(1, leaseTimeoutMs / 3);
+        heartbeat.scheduleAtFixedRate(() -> {
+            if (shardLimits.getStopReason() == null && !lease.renew()) {
+                log.error("Lost the lease of shard {}; sending no more of its tasks", index);
+                shardLimits.stop("the lease of shard " + index + " was lost");
+            }
+        }, period, period, TimeUnit.MILLISECONDS);
+
+        try {
+            Path progressFile = shardFile(index, PROGRESS_SUFFIX);
+            Map<String, String> created = readCreated(progressFile);
+
+            // Rows created by a previous holder of the lease are not sent again
+            Map<String, String> createdKeys = new HashMap<>();
+            for (Task task : shard) {
+                String id = created.get(rowKey(task.getSource(), task.getLineNumber()));
+                if (id != null && task.getKey() != null && !task.getKey().trim().isEmpty()) {
+                    createdKeys.put(task.getKey().trim(), id);
+                }
+            }
+            List<Task> remaining = new ArrayList<>();
+            for (Task task : shard) {
+                if (created.containsKey(rowKey(task.getSource(), task.getLineNumber()))) {
+                    continue;
+                }
+                String parent = task.getParentStory();
+                String parentId = parent == null ? null : createdKeys.get(parent.trim());
+                remaining.add(parentId == null ? task : task.toBuilder().parentStory(parentId).build());
+            }
+
+            log.info("Processing shard {} ({} rows, {} already created)", index, shard.size(), shard.size() - remaining.size());
+            List<TaskResult> results;
+            try (ResultSink progress = new ResultSink(progressFile, true)) {
+                results = remaining.isEmpty() ? new ArrayList<>() : processor.process(remaining, progress, shardLimits);
+            }
+            // The lease may have been lost since the last heartbeat
+            if (shardLimits.getStopReason() != null || !lease.renew()) {
+                // The new owner carries the rows created so far over from the progress file
+                log.warn("Left shard {} unfinished for the worker that took over its lease", index);
+                return false;
+            }
+
+            List<TaskResult> shardResults = new ArrayList<>(shard.size());
+            int next = 0;
+            for (Task task : shard) {
+                String id = created.get(rowKey(task.getSource(), task.getLineNumber()));
+                if (id != null) {
+                    shardResults.add(TaskResult.builder().task(task).status(TaskResult.Status.CREATED).workItemId(id).build());
+                } else {
+                    shardResults.add(results.get(next++));
+                }
+            }
+
+            // Written before the result file, which marks the shard as done
+            List<Task> shortCircuited = new ArrayList<>();
+            for (TaskResult result : results) {
+                if (result.getStatus() == TaskResult.Status.SHORT_CIRCUITED) {
+                    shortCircuited.add(result.getTask());
+                }
+            }
+            Path resubmit = shardFile(index, RESUBMIT_SUFFIX);
+            if (shortCircuited.isEmpty()) {
+                Files.deleteIfExists(resubmit);
+            } else {
+                CsvWriter.writeTasksToCsv(resubmit.toString(), shortCircuited);
+            }
+
+            Path tmp = shardFile(index, RESULT_SUFFIX + ".tmp");
+            CsvWriter.writeResultsToCsv(tmp, shardResults);
+            Files.move(tmp, shardFile(index, RESULT_SUFFIX), StandardCopyOption.ATOMIC_MOVE);
+            return true;
+        } finally {
+            heartbeat.shutdownNow();
+        }
+    }
+
+    /**
+     * Reads the rows already created from a shard's progress file.
+     *
+     * @param progressFile The progress file
+     * @return The created work item ID of every created row, by {@link #rowKey(String, int)}
+     * @throws IOException If the file cannot be read
+     */
+    private static Map<String, String> readCreated(Path progressFile) throws IOException {
+        Map<String, String> created = new HashMap<>();
+        if (!Files.exists(progressFile)) {
+            return created;
+        }
+        try (BufferedReader reader = Files.newBufferedReader(progressFile, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                try {
+                    JsonObject record = JsonParser.parseString(line).getAsJsonObject();
+                    if (TaskResult.Status.CREATED.name().equals(record.get("status").getAsString())) {
+                        String source = record.has("source") ? record.get("source").getAsString() : null;
+                        created.put(rowKey(source, record.get("line").getAsInt()), record.get("id").getAsString());
+                    }
+                } catch (RuntimeException e) {
+                    // The last record of a worker that died while writing it
+                    log.debug("Skipping incomplete progress record in {}", progressFile);
+                }
+            }
+        }
+        return created;
+    }
+
+    /**
+     * Identifies a row of the input, which may span several files with the same line numbers.
+     *
+     * @param source The file and sheet of the row, or null
+     * @param line The line of the row
+     * @return The key of the row
+     */
+    private static String rowKey(String source, int line) {
+        return source + ":" + line;
+    }
+
+    /**
+     * Records the shard layout of the run, or checks it against the one recorded by the first worker.
+     *
+     * @param shards The number of shards
+     * @param rows The number of rows of the input
+     * @throws IOException If the manifest cannot be read or written
+     * @throws IllegalStateException If another worker split a different input
+     */
+    private void writeManifest(int shards, int rows) throws IOException {
+        Properties manifest = new Properties();
+        manifest.setProperty("shards", Integer.toString(shards));
+        manifest.setProperty("rows", Integer.toString(rows));
+        manifest.setProperty("shardSize", Integer.toString(shardSize));
+
+        // Written completely under a temporary name first, so other workers never read a partial manifest
+        Path file = directory.resolve(MANIFEST_FILE);
+        Path tmp = Files.createTempFile(directory, MANIFEST_FILE, ".tmp");
+        try {
+            try (OutputStream out = Files.newOutputStream(tmp)) {
+                manifest.store(out, "Shard layout of the run");
+            }
+            Files.move(tmp, file);
+            return;
+        } catch (FileAlreadyExistsException e) {
+            // Written by the first worker
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+
+        Properties existing = readManifest(directory);
+        if (!manifest.equals(existing)) {
+            throw new IllegalStateException("Shard directory " + directory + " belongs to a different run: "
+                    + existing + " vs " + manifest);
+        }
+    }
+
+    /**
+     * Merges the result files of every shard into a single results file in the shard directory,
+     * and the resubmit files of the shards that have one into a single resubmit file.
+     *
+     * @param directory The shard directory
+     * @return The number of shards that are not done yet
+     * @throws IOException If the result files cannot be read or the merged files cannot be written
+     */
+    public static int merge(Path directory) throws IOException {
+        int shards = Integer.parseInt(readManifest(directory).getProperty("shards"));
+        Path merged = directory.resolve(MERGED_RESULTS_FILE);
+
+        int missing = 0;
+        long rows = 0;
+        List<Path> resubmits = new ArrayList<>();
+        try (BufferedWriter writer = Files.newBufferedWriter(merged, StandardCharsets.UTF_8)) {
+            writer.write(CsvWriter.RESULTS_HEADER);
+            writer.newLine();
+            for (int i = 0; i < shards; i++) {
+                Path result = directory.resolve(shardFileName(i, RESULT_SUFFIX));
+                if (!Files.exists(result)) {
+                    log.warn("Shard {} is not done yet", i);
+                    missing++;
+                    continue;
+                }
+                rows += appendRows(result, writer);
+                Path resubmit = directory.resolve(shardFileName(i, RESUBMIT_SUFFIX));
+                if (Files.exists(resubmit)) {
+                    resubmits.add(resubmit);
+                }
+            }
+        }
+        log.info("Merged {} rows of {}/{} shards into {}", rows, shards - missing, shards, merged);
+
+        Path mergedResubmit = directory.resolve(MERGED_RESUBMIT_FILE);
+        if (resubmits.isEmpty()) {
+            Files.deleteIfExists(mergedResubmit);
+        } else {
+            long tasks = 0;
+            try (BufferedWriter writer = Files.newBufferedWriter(mergedResubmit, StandardCharsets.UTF_8)) {
+                writer.write(CsvWriter.HEADER);
+                writer.newLine();
+                for (Path resubmit : resubmits) {
+                    tasks += appendRows(resubmit, writer);
+                }
+            }
+            log.warn("{} short-circuited tasks of {} shards are in {}", tasks, resubmits.size(), mergedResubmit);
+        }
+        return missing;
+    }
+
+    /**
+     * Appends the rows of a CSV file of a shard, without its header, to a merged file.
+     *
+     * @param file The file of the shard
+     * @param writer The writer of the merged file
+     * @return The number of rows appended
+     * @throws IOException If the file cannot be read or the rows cannot be written
+     */
+    private static long appendRows(Path file, BufferedWriter writer) throws IOException {
+        long rows = 0;
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            // Skip header line
+            reader.readLine();
+            String line;
+            while ((line = reader.readLine()) != null) {
+                writer.write(line);
+                writer.newLine();
+                rows++;
+            }
+        }
+        return rows;
+    }
+
+    /**
+     * Reads the shard layout of a run.
+     *
+     * @param directory The shard directory
+     * @return The manifest
+     * @throws IOException If the manifest cannot be read
+     */
+    private static Properties readManifest(Path directory) throws IOException {
+        Properties manifest = new Properties();
+        try (InputStream in = Files.newInputStream(directory.resolve(MANIFEST_FILE))) {
+            manifest.load(in);
+        }
+        return manifest;
+    }
+
+    /**
+     * Splits the tasks into shards of about {@code shardSize} rows, keeping every hierarchy of
+     * rows linked by their keys in a single shard. The split only depends on the input, so every
+     * worker computes the same shards.
+     *
+     * @param tasks The tasks, in input order
+     * @param shardSize The number of rows per shard
+     * @return The shards, in input order
+     */
+    static List<List<Task>> partition(List<Task> tasks, int shardSize) {
+        Map<String, Integer> keyIndex = new HashMap<>();
+        for (int i = 0; i < tasks.size(); i++) {
+            String key = tasks.get(i).getKey();
+            if (key != null && !key.trim().isEmpty()) {
+                keyIndex.putIfAbsent(key.trim(), i);
+            }
+        }
+
+        // Group the rows by the first row of their hierarchy
+        Map<Integer, List<Task>> groups = new LinkedHashMap<>();
+        for (int i = 0; i < tasks.size(); i++) {
+            int root = i;
+            for (int depth = 0; depth < tasks.size(); depth++) {
+                String parent = tasks.get(root).getParentStory();
+                Integer parentIndex = parent == null ? null : keyIndex.get(parent.trim());
+                if (parentIndex == null || parentIndex == i) {
+                    break;
+                }
+                root = parentIndex;
+            }
+            groups.computeIfAbsent(root, k -> new ArrayList<>()).add(tasks.get(i));
+        }
+
+        List<List<Task>> shards = new ArrayList<>();
+        List<Task> current = new ArrayList<>();
+        for (List<Task> group : groups.values()) {
+            if (!current.isEmpty() && current.size() + group.size() > shardSize) {
+                shards.add(current);
+                current = new ArrayList<>();
+            }
+            current.addAll(group);
+        }
+        if (!current.isEmpty()) {
+            shards.add(current);
+        }
+        return shards;
+    }
+
+    /**
+     * Gets a file of a shard in the shard directory.
+     *
+     * @param index The index of the shard
+     * @param suffix The suffix of the file
+     * @return The file
+     */
+    private Path shardFile(int index, String suffix) {
+        return directory.resolve(shardFileName(index, suffix));
+    }
+
+    /**
+     * Gets the name of a file of a shard.
+     *
+     * @param index The index of the shard
+     * @param suffix The suffix of the file
+     * @return The file name
+     */
+    private static String shardFileName(int index, String suffix) {
+        return String.format("shard-%05d%s", index, suffix);
+    }
+
+    /**
+     * Builds an ID for this worker that is unique across the hosts sharing the shard directory.
+     *
+     * @return The process ID and host name of this worker
+     */
+    private static String workerId() {
+        String host;
+        try {
+            host = InetAddress.getLocalHost().getHostName();
+        } catch (IOException e) {
+            host = "localhost";
+        }
+        return ProcessHandle.current().pid() + "@" + host;
+    }
+}
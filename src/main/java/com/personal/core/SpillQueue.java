@@ -0,0 +1,412 @@
+package com.personal.core;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryNotEmptyException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileAttribute;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * FIFO queue between a producer that must never block and a consumer that may stall,
+ * which keeps its items in memory up to a high-water mark and spills the rest to disk.
+ *
+ * <p>
+ * Once the high-water mark is reached, new items are encoded into a compact binary form and
+ * appended to memory-mapped segment files. Items are always taken in the order they were put:
+ * while any item is on disk, new items are spilled too, and the queue only returns to memory
+ * once the spilled items have been replayed. A segment file is unmapped and deleted as soon as it
+ * has been read completely, so the disk usage follows the backlog. Every queue spills to its own
+ * subdirectory of the spill directory, which is removed with the last segment. The subdirectory
+ * and the segment files are only accessible by their owner where the file system supports it.
+ * </p>
+ *
+ * <p>
+ * The queue supports a single producer and a single consumer.
+ * </p>
+ *
+ * @param <T> The type of the items
+ */
+@Slf4j
+public class SpillQueue<T> {
+
+    /**
+     * Encodes and decodes the items of a spill queue.
+     *
+     * @param <T> The type of the items
+     */
+    public interface Codec<T> {
+
+        /**
+         * Writes an item.
+         *
+         * @param item The item
+         * @param out The output
+         * @throws IOException If the item cannot be written
+         */
+        void encode(T item, DataOutputStream out) throws IOException;
+
+        /**
+         * Reads an item written by {@link #encode(Object, DataOutputStream)}.
+         *
+         * @param in The input
+         * @return The item
+         * @throws IOException If the item cannot be read
+         */
+        T decode(DataInputStream in) throws IOException;
+    }
+
+    /**
+     * Default size in bytes of each segment file.
+     */
+    public static final int DEFAULT_SEGMENT_SIZE = 8 * 1024 * 1024;
+
+    private static final int END_OF_SEGMENT = -1;
+
+    /**
+     * The number of queues created so far, so the segment files of queues of the same process do not collide.
+     */
+    private static final AtomicInteger QUEUES = new AtomicInteger();
+
+    /**
+     * Unmaps a mapped buffer right away, or null if the JDK does not allow it; the buffer is then
+     * unmapped when it is garbage collected.
+     */
+    private static final Unmapper UNMAPPER = Unmapper.create();
+
+    private final Path directory;
+    private final Codec<T> codec;
+    private final int highWaterMark;
+    private final int segmentSize;
+    private final Deque<T> memory = new ArrayDeque<>();
+    private final Deque<Segment> segments = new ArrayDeque<>();
+    private final ByteArrayOutputStream encoded = new ByteArrayOutputStream();
+    private final List<Path> undeleted = new ArrayList<>();
+    private long spilled;
+    private int nextSegment;
+    private boolean closed;
+
+    /**
+     * Creates a new instance of SpillQueue.
+     *
+     * @param directory The directory the subdirectory with the segment files of the queue is created in
+     * @param codec The codec of the items
+     * @param highWaterMark The number of items kept in memory before spilling to disk
+     * @param segmentSize The size in bytes of each segment file
+     */
+    public SpillQueue(Path directory, Codec<T> codec, int highWaterMark, int segmentSize) {
+        // Queues of the same or other processes may share the directory, so each one has its own
+        this.directory = directory.resolve(String.format("spill-%d-%d",
+                ProcessHandle.current().pid(), QUEUES.incrementAndGet()));
+        this.codec = codec;
+        this.highWaterMark = Math.max(1, highWaterMark);
+        this.segmentSize = segmentSize;
+    }
+
+    /**
+     * Adds an item at the end of the queue. Never blocks on the consumer.
+     *
+     * @param item The item
+     * @throws IOException If the item has to be spilled and cannot be written
+     * @throws IllegalStateException If the queue is closed
+     */
+    public synchronized void put(T item) throws IOException {
+        if (closed) {
+            throw new IllegalStateException("Queue is closed");
+        }
+        if (spilled == 0 && memory.size() < highWaterMark) {
+            memory.add(item);
+        } else {
+            if (spilled == 0) {
+                log.info("{} items pending, spilling to {}", memory.size(), directory);
+            }
+            spill(item);
+        }
+        notifyAll();
+    }
+
+    /**
+     * Marks the end of the items; {@link #take()} returns null once the remaining items have been taken.
+     */
+    public synchronized void close() {
+        closed = true;
+        notifyAll();
+    }
+
+    /**
+     * Drops every remaining item and deletes the segment files and the directory of the queue,
+     * e.g. when the consumer gives up. Spilled items may contain credentials, so segment files
+     * are never left behind.
+     */
+    public synchronized void discard() {
+        closed = true;
+        memory.clear();
+        spilled = 0;
+        deleteSegments();
+        notifyAll();
+    }
+
+    /**
+     * Takes the first item of the queue, waiting until one is available.
+     *
+     * @return The item, or null if the queue is closed and empty
+     * @throws InterruptedException If the thread is interrupted while waiting
+     */
+    public synchronized T take() throws InterruptedException {
+        while (memory.isEmpty() && spilled == 0) {
+            if (closed) {
+                deleteSegments();
+                return null;
+            }
+            wait();
+        }
+        if (!memory.isEmpty()) {
+            return memory.poll();
+        }
+        try {
+            return replay();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not read spilled items", e);
+        }
+    }
+
+    /**
+     * Gets the number of items in the queue.
+     *
+     * @return The number of items in memory and on disk
+     */
+    public synchronized long size() {
+        return memory.size() + spilled;
+    }
+
+    /**
+     * Encodes an item and appends it to the last segment, starting a new segment when it is full.
+     *
+     * @param item The item
+     * @throws IOException If the item cannot be written
+     */
+    private void spill(T item) throws IOException {
+        encoded.reset();
+        codec.encode(item, new DataOutputStream(encoded));
+        int length = encoded.size();
+
+        Segment segment = segments.peekLast();
+        if (segment == null || segment.write.remaining() < Integer.BYTES + length + Integer.BYTES) {
+            if (segment != null) {
+                segment.write.putInt(END_OF_SEGMENT);
+            }
+            // Room for the record and the end marker, even if a single record is larger than a segment
+            segment = openSegment(Math.max(segmentSize, Integer.BYTES + length + Integer.BYTES));
+            segments.add(segment);
+        }
+        segment.write.putInt(length);
+        segment.write.put(encoded.toByteArray(), 0, length);
+        spilled++;
+    }
+
+    /**
+     * Reads the next spilled item, deleting segments that have been read completely.
+     *
+     * @return The item
+     * @throws IOException If the item cannot be read
+     */
+    private T replay() throws IOException {
+        while (true) {
+            Segment segment = segments.peekFirst();
+            // Nothing has been written past the writer's position of the last segment
+            int length = segment.read.position() < segment.write.position() ? segment.read.getInt() : END_OF_SEGMENT;
+            if (length == END_OF_SEGMENT) {
+                segments.poll();
+                delete(segment);
+                continue;
+            }
+            byte[] record = new byte[length];
+            segment.read.get(record);
+            spilled--;
+            if (spilled == 0) {
+                // Everything replayed; the next items can stay in memory again
+                segments.poll();
+                delete(segment);
+                deleteDirectory();
+            }
+            return codec.decode(new DataInputStream(new ByteArrayInputStream(record)));
+        }
+    }
+
+    /**
+     * Creates and maps a new segment file.
+     *
+     * @param size The size of the segment in bytes
+     * @return The segment
+     * @throws IOException If the file cannot be created or mapped
+     */
+    private Segment openSegment(int size) throws IOException {
+        boolean posix = directory.getFileSystem().supportedFileAttributeViews().contains("posix");
+        if (!Files.isDirectory(directory)) {
+            // The spill directory may be shared, e.g. in the temporary directory; only the queue's own is restricted
+            Files.createDirectories(directory.getParent());
+            if (posix) {
+                Files.createDirectory(directory, PosixFilePermissions.asFileAttribute(
+                        PosixFilePermissions.fromString("rwx------")));
+            } else {
+                Files.createDirectory(directory);
+            }
+        }
+        Path file = directory.resolve(String.format("segment-%06d.seg", nextSegment++));
+        FileAttribute<?>[] attributes = posix
+                ? new FileAttribute<?>[] {PosixFilePermissions.asFileAttribute(
+                        PosixFilePermissions.fromString("rw-------"))}
+                : new FileAttribute<?>[0];
+        try (FileChannel channel = FileChannel.open(file, EnumSet.of(StandardOpenOption.CREATE_NEW,
+                StandardOpenOption.READ, StandardOpenOption.WRITE), attributes)) {
+            // The mapping stays valid after the channel is closed
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+            return new Segment(file, buffer);
+        }
+    }
+
+    /**
+     * Deletes every remaining segment file and the directory of the queue.
+     */
+    private void deleteSegments() {
+        Segment segment;
+        while ((segment = segments.poll()) != null) {
+            delete(segment);
+        }
+        deleteDirectory();
+    }
+
+    /**
+     * Unmaps a segment that has been removed from the queue and deletes its file. A file that
+     * cannot be deleted yet, as on Windows while it is still mapped, is deleted with a later segment.
+     *
+     * @param segment The segment, which must not be used anymore
+     */
+    private void delete(Segment segment) {
+        if (UNMAPPER != null) {
+            UNMAPPER.unmap(segment.mapped);
+        }
+        undeleted.add(segment.file);
+        undeleted.removeIf(SpillQueue::tryDelete);
+    }
+
+    /**
+     * Removes the directory of the queue once it holds no segment file.
+     */
+    private void deleteDirectory() {
+        undeleted.removeIf(SpillQueue::tryDelete);
+        if (!undeleted.isEmpty()) {
+            log.warn("Could not delete {} spill segments in {}", undeleted.size(), directory);
+            return;
+        }
+        try {
+            Files.deleteIfExists(directory);
+        } catch (DirectoryNotEmptyException e) {
+            log.warn("Could not delete spill directory {}: it is not empty", directory);
+        } catch (IOException e) {
+            log.warn("Could not delete spill directory {}: {}", directory, e.getMessage());
+        }
+    }
+
+    /**
+     * Deletes a segment file.
+     *
+     * @param file The segment file
+     * @return true if the file is gone, false if it could not be deleted
+     */
+    private static boolean tryDelete(Path file) {
+        try {
+            Files.deleteIfExists(file);
+            return true;
+        } catch (IOException e) {
+            log.debug("Could not delete spill segment {} yet: {}", file, e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * A memory-mapped segment file, with independent write and read positions.
+     */
+    private static class Segment {
+        private final Path file;
+        private final MappedByteBuffer mapped;
+        private final ByteBuffer write;
+        private final ByteBuffer read;
+
+        Segment(Path file, MappedByteBuffer buffer) {
+            this.file = file;
+            this.mapped = buffer;
+            this.write = buffer;
+            this.read = buffer.duplicate();
+        }
+    }
+
+    /**
+     * Releases the memory mapping of a buffer without waiting for the garbage collector, through
+     * {@code sun.misc.Unsafe.invokeCleaner}. The buffer and its duplicates must never be used again.
+     */
+    private static final class Unmapper {
+        private final Object unsafe;
+        private final Method invokeCleaner;
+
+        /**
+         * Creates a new instance of Unmapper.
+         *
+         * @param unsafe The {@code sun.misc.Unsafe} instance
+         * @param invokeCleaner Its {@code invokeCleaner(ByteBuffer)} method
+         */
+        private Unmapper(Object unsafe, Method invokeCleaner) {
+            this.unsafe = unsafe;
+            this.invokeCleaner = invokeCleaner;
+        }
+
+        /**
+         * Looks up {@code sun.misc.Unsafe.invokeCleaner}.
+         *
+         * @return The unmapper, or null if this JDK does not offer it
+         */
+        static Unmapper create() {
+            try {
+                Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+                Field theUnsafe = unsafeClass.getDeclaredField("theUnsafe");
+                theUnsafe.setAccessible(true);
+                return new Unmapper(theUnsafe.get(null), unsafeClass.getMethod("invokeCleaner", ByteBuffer.class));
+            } catch (ReflectiveOperationException | RuntimeException e) {
+                log.debug("Spill segments are unmapped by the garbage collector: {}", e.toString());
+                return null;
+            }
+        }
+
+        /**
+         * Unmaps a buffer.
+         *
+         * @param buffer The mapped buffer
+         */
+        void unmap(MappedByteBuffer buffer) {
+            try {
+                invokeCleaner.invoke(unsafe, buffer);
+            } catch (ReflectiveOperationException | RuntimeException e) {
+                log.debug("Could not unmap a spill segment: {}", e.toString());
+            }
+        }
+    }
+}
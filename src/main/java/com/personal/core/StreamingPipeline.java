@@ -0,0 +1,117 @@
+package com.personal.core;
+
+import com.personal.model.Task;
+import com.personal.model.TaskResult;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Semaphore;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Submits the tasks of a {@link SpillQueue} as they arrive, with a bounded number in flight.
+ *
+ * <p>
+ * The producer fills the queue without ever waiting for submissions; this pipeline takes tasks
+ * from it only while fewer than {@code maxInFlight} are being sent. When Azure DevOps slows
+ * down, pending tasks accumulate in the queue, which spills them to disk, instead of in the
+ * scheduler. Results are handed to a callback and not retained.
+ * </p>
+ *
+ * <p>
+ * A row whose parent is another row of the input, referenced by its key, is sent once the parent
+ * has been created, as in {@link DependencyScheduler}. Parents must come before their children,
+ * and only the futures of rows that have a key are kept.
+ * </p>
+ */
+@Slf4j
+public class StreamingPipeline {
+
+    private final SpillQueue<Task> queue;
+    private final Semaphore inFlight;
+    private final int maxInFlight;
+    private final Function<Task, CompletableFuture<TaskResult>> submit;
+    private final Map<String, CompletableFuture<TaskResult>> keyed = new HashMap<>();
+
+    /**
+     * Creates a new instance of StreamingPipeline.
+     *
+     * @param queue The queue the producer puts the tasks in
+     * @param maxInFlight The maximum number of tasks being sent at the same time
+     * @param submit The function that sends a task and completes with its result, never exceptionally
+     */
+    public StreamingPipeline(SpillQueue<Task> queue, int maxInFlight, Function<Task, CompletableFuture<TaskResult>> submit) {
+        this.queue = queue;
+        this.maxInFlight = Math.max(1, maxInFlight);
+        this.inFlight = new Semaphore(this.maxInFlight);
+        this.submit = submit;
+    }
+
+    /**
+     * Sends every task of the queue until the producer closes it, and waits for the last results.
+     *
+     * @param onResult The callback receiving the result of every task
+     * @return The number of tasks sent
+     * @throws InterruptedException If the thread is interrupted while waiting
+     */
+    public long run(Consumer<TaskResult> onResult) throws InterruptedException {
+        long count = 0;
+        try {
+            Task task;
+            while ((task = queue.take()) != null) {
+                inFlight.acquire();
+                CompletableFuture<TaskResult> result = send(task);
+                String key = task.getKey();
+                if (key != null && !key.trim().isEmpty()) {
+                    keyed.put(key.trim(), result);
+                }
+                result.whenComplete((r, ex) -> {
+                    try {
+                        onResult.accept(r);
+                    } finally {
+                        // Released after the callback, so that run() returns once every result was handed over
+                        inFlight.release();
+                    }
+                });
+                count++;
+            }
+            // Wait for the tasks still being sent
+            inFlight.acquire(maxInFlight);
+            inFlight.release(maxInFlight);
+        } finally {
+            queue.discard();
+        }
+        return count;
+    }
+
+    /**
+     * Sends a task, after its parent row if it has one.
+     *
+     * @param task The task
+     * @return The future of its result
+     */
+    private CompletableFuture<TaskResult> send(Task task) {
+        String parentKey = task.getParentStory() == null ? null : task.getParentStory().trim();
+        CompletableFuture<TaskResult> parent = parentKey == null ? null : keyed.get(parentKey);
+        if (parent == null) {
+            return submit.apply(task);
+        }
+        return parent.thenCompose(parentResult -> {
+            if (parentResult.isCreated()) {
+                log.debug("Parent {} of {} created as {}", parentKey, task.getTitle(), parentResult.getWorkItemId());
+                return submit.apply(task.toBuilder().parentStory(parentResult.getWorkItemId()).build());
+            }
+            // Not sent, like any task whose parent failed; resubmittable if the parent was only short-circuited
+            return CompletableFuture.completedFuture(TaskResult.builder()
+                    .task(task)
+                    .status(parentResult.getStatus() == TaskResult.Status.SHORT_CIRCUITED
+                            ? TaskResult.Status.SHORT_CIRCUITED
+                            : TaskResult.Status.FAILED)
+                    .error("Parent '" + parentKey + "' was not created: " + parentResult.getError())
+                    .build());
+        });
+    }
+}
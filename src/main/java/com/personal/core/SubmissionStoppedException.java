@@ -0,0 +1,20 @@
+package com.personal.core;
+
+/**
+ * Thrown when a task is not sent, or not retried, because its submission was stopped, for example
+ * because the worker lost the lease of its shard. Tasks failing with this exception can be
+ * resubmitted later.
+ */
+public class SubmissionStoppedException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * Creates a new instance of SubmissionStoppedException.
+     *
+     * @param message What was not done, and why
+     */
+    public SubmissionStoppedException(String message) {
+        super(message);
+    }
+}
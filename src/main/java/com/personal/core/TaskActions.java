@@ -1,21 +1,23 @@
 package com.personal.core;
 
+import com.personal.config.AppConfig;
 import com.personal.model.Task;
+import com.personal.model.WorkItemResponse;
 import com.personal.util.TaskJsonConverter;
+import com.personal.util.WorkItemResponseParser;
 import lombok.extern.slf4j.Slf4j;
-import org.apache.poi.ss.usermodel.*;
 
 import java.io.IOException;
+import java.io.InputStream;
 import java.net.URI;
+import java.net.URLEncoder;
 import java.net.http.HttpClient;
 import java.net.http.HttpRequest;
 import java.net.http.HttpResponse;
-import java.util.ArrayList;
-import java.util.Base64;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
 import java.util.List;
 import java.util.concurrent.CompletableFuture;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
 import java.util.stream.Collectors;
 
 /**
@@ -25,70 +27,90 @@ import java.util.stream.Collectors;
  * This class provides methods to create, update, and delete tasks in Azure DevOps.
  * It uses the Azure DevOps REST API to perform these operations.
  * </p>
+ *
+ * <p>
+ * An instance keeps its HTTP client, scheduler and credentials across calls, so it can be reused
+ * for any number of batches and closed once it is no longer needed. The base URL and timeouts
+ * come from the configuration it is created with. The static methods use a new instance for a
+ * single batch.
+ * </p>
  */
 @Slf4j
-public class TaskActions {
+public class TaskActions implements AutoCloseable {
 
     private static final String API_VERSION = "7.1-preview.3";
     private static final int MAX_CONCURRENT_REQUESTS = 5;
 
+    private final AppConfig config;
+
     /**
-     * Reads tasks data from the provided Excel workbook and creates a list of tasks to be aggregated to Azure DevOps.
-     * <p>
-     * This method parses the Excel workbook and extracts task information from it to create a list of Task objects.
-     * Each row in the Excel sheet represents a task, and specific columns correspond to different attributes of the task.
-     * <p>
-     * Author: Luis Hernandez Jimenez
-     * <p>
-     * Contact: luisjimenezh8@gmail.com <a href="https://www.linkedin.com/in/luis-hernandez-jimenez-55986318a/">LinkedIn</a>
-     * @param workbook The Excel workbook containing task data.
-     * @return A list of tasks to be aggregated to Azure DevOps.
+     * Client shared by every request, so connections are reused; a hung connection fails after the timeouts.
      */
-    public static List<Task> readTasksFromExcel(Workbook workbook) {
-        List<Task> tasks = new ArrayList<>();
-        try {
-            Sheet sheet = workbook.getSheetAt(0);
-            int rows = sheet.getPhysicalNumberOfRows();
-            for (int i = 1; i < rows; i++) {
-                Row row = sheet.getRow(i);
-                if (row != null) {
-                    String title = getStringValue(row.getCell(0)); //Column tile
-                    String description = getStringValue(row.getCell(1));
-                    String assignedTo = getStringValue(row.getCell(2));
-                    String iterationPath = getStringValue(row.getCell(3));
-                    String areaPath = getStringValue(row.getCell(4));
-                    String originalEstimateHours = getStringValue(row.getCell(5));
-                    String remainingHours = getStringValue(row.getCell(6));
-                    String parentStory = getStringValue(row.getCell(7));
-                    String organization = getStringValue(row.getCell(8));
-                    String project = getStringValue(row.getCell(9));
-                    String area = getStringValue(row.getCell(10));
-                    String username = getStringValue(row.getCell(11));
-                    String token = getStringValue(row.getCell(12));
-                    if(!organization.isEmpty()) {
-                        tasks.add(
-                                new Task(
-                                        title, description, assignedTo, iterationPath, areaPath, originalEstimateHours, remainingHours, parentStory, organization, project, area, username, token
-                                )
-                        );
-                    }
-                }
-            }
-        } catch (Exception e) {
-            System.out.println("Exception: 1" + e.getMessage());
+    private final HttpClient client;
+
+    /**
+     * Shares the request slots fairly between the organizations of the tasks.
+     */
+    private final FairScheduler scheduler = new FairScheduler(MAX_CONCURRENT_REQUESTS, MAX_CONCURRENT_REQUESTS);
+
+    /**
+     * Encodes the credentials of every identity once.
+     */
+    private final CredentialPool credentials = new CredentialPool();
+
+    /**
+     * Creates a new instance of TaskActions.
+     *
+     * @param config The configuration the base URL and the timeouts are taken from
+     */
+    public TaskActions(AppConfig config) {
+        this.config = config;
+        this.client = HttpClient.newBuilder()
+                .connectTimeout(Duration.ofMillis(config.getConnectTimeoutMs()))
+                .build();
+    }
+
+    /**
+     * Creates tasks in Azure DevOps with a new instance.
+     *
+     * @param tasks The list of tasks to be created in Azure DevOps.
+     * @param config The configuration the base URL and the timeouts are taken from.
+     * @throws IllegalArgumentException If the tasks list is null or empty.
+     * @throws IOException If an error occurs while sending the HTTP request.
+     * @throws InterruptedException If the thread is interrupted while waiting for the HTTP response.
+     */
+    public static void createTasksInAzureDevOps(List<Task> tasks, AppConfig config)
+            throws IllegalArgumentException, IOException, InterruptedException {
+        try (TaskActions actions = new TaskActions(config)) {
+            actions.createTasks(tasks);
+        }
+    }
+
+    /**
+     * Deletes tasks from Azure DevOps with a new instance.
+     *
+     * @param tasks The list of tasks to be deleted from Azure DevOps.
+     * @param config The configuration the base URL and the timeouts are taken from.
+     * @throws IllegalArgumentException If the tasks list is null or empty.
+     * @throws IOException If an error occurs while sending the HTTP request.
+     * @throws InterruptedException If the thread is interrupted while waiting for the HTTP response.
+     */
+    public static void deleteTasksInAzureDevOps(List<Task> tasks, AppConfig config)
+            throws IllegalArgumentException, IOException, InterruptedException {
+        try (TaskActions actions = new TaskActions(config)) {
+            actions.deleteTasks(tasks);
         }
-        return tasks;
     }
 
     /**
-     * Creates tasks in Azure DevOps.
+     * Creates tasks in Azure DevOps, sharing the request slots of this instance with concurrent calls.
      *
      * @param tasks The list of tasks to be created in Azure DevOps.
      * @throws IllegalArgumentException If the tasks list is null or empty.
      * @throws IOException If an error occurs while sending the HTTP request.
      * @throws InterruptedException If the thread is interrupted while waiting for the HTTP response.
      */
-    public static void createTasksInAzureDevOps(List<Task> tasks) throws IllegalArgumentException, IOException, InterruptedException {
+    public void createTasks(List<Task> tasks) throws IllegalArgumentException, IOException, InterruptedException {
         if (tasks == null || tasks.isEmpty()) {
             throw new IllegalArgumentException("Task list cannot be null or empty");
         }
@@ -107,28 +129,22 @@ public class TaskActions {
         
         log.info("{} tasks are valid and will be created", validTasks.size());
         
-        // Create a thread pool for concurrent requests
-        ExecutorService executor = Executors.newFixedThreadPool(MAX_CONCURRENT_REQUESTS);
+        // Process tasks concurrently
+        List<CompletableFuture<Void>> futures = validTasks.stream()
+                .map(task -> scheduler.<Void>submit(FairScheduler.keyOf(task), () -> {
+                    try {
+                        createTaskInAzureDevOps(task);
+                    } catch (Exception e) {
+                        log.error("Error creating task: {}", task.getTitle(), e);
+                    }
+                    return null;
+                }))
+                .collect(Collectors.toList());
         
-        try {
-            // Process tasks concurrently
-            List<CompletableFuture<Void>> futures = validTasks.stream()
-                    .map(task -> CompletableFuture.runAsync(() -> {
-                        try {
-                            createTaskInAzureDevOps(task);
-                        } catch (Exception e) {
-                            log.error("Error creating task: {}", task.getTitle(), e);
-                        }
-                    }, executor))
-                    .collect(Collectors.toList());
-            
-            // Wait for all tasks to complete
-            CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).join();
-            
-            log.info("All tasks have been processed");
-        } finally {
-            executor.shutdown();
-        }
+        // Wait for all tasks to complete
+        CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[0])).join();
+        
+        log.info("All tasks have been processed");
     }
 
     /**
@@ -138,39 +154,44 @@ public class TaskActions {
      * @throws IOException If an error occurs while sending the HTTP request.
      * @throws InterruptedException If the thread is interrupted while waiting for the HTTP response.
      */
-    private static void createTaskInAzureDevOps(Task task) throws IOException, InterruptedException {
-        String url = String.format("https://dev.azure.com/%s/%s/_apis/wit/workitems/$Task?api-version=%s",
-                task.getOrganization(), task.getProject(), API_VERSION);
+    private void createTaskInAzureDevOps(Task task) throws IOException, InterruptedException {
+        URI url = buildApiUrl(task.getOrganization(), task.getProject(),
+                "wit/workitems/" + encodePathSegment("$" + task.getWorkItemType()));
         
         log.debug("Creating task: {}", task.getTitle());
         
-        HttpClient client = HttpClient.newHttpClient();
-        HttpRequest request = HttpRequest.newBuilder()
-                .uri(URI.create(url))
-                .header("Content-Type", "application/json-patch+json")
-                .header("Authorization", "Basic " + getBase64Credentials(task))
-                .POST(HttpRequest.BodyPublishers.ofString(TaskJsonConverter.createTaskJson(task)))
-                .build();
-        
-        HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
+        CredentialPool.Identity identity = credentials.acquire(task);
+        WorkItemResponse response;
+        try {
+            HttpRequest request = HttpRequest.newBuilder()
+                    .uri(url)
+                    .header("Content-Type", "application/json-patch+json")
+                    .timeout(Duration.ofMillis(config.getHttpTimeoutMs()))
+                    .header("Authorization", identity.getAuthorization())
+                    .POST(HttpRequest.BodyPublishers.ofString(TaskJsonConverter.createTaskJson(task)))
+                    .build();
+            response = send(client, request);
+        } finally {
+            credentials.release(identity);
+        }
         
-        if (response.statusCode() == 200 || response.statusCode() == 201) {
-            log.info("Task successfully created: {}", task.getTitle());
+        if (response.getStatusCode() == 200 || response.getStatusCode() == 201) {
+            log.debug("Task successfully created: {} (ID: {})", task.getTitle(), response.getId());
         } else {
-            log.error("Error creating task: {} - Status: {}, Response: {}", 
-                    task.getTitle(), response.statusCode(), response.body());
+            log.error("Error creating task: {} - Status: {}, Message: {}", 
+                    task.getTitle(), response.getStatusCode(), response.getMessage());
         }
     }
 
     /**
-     * Deletes tasks from Azure DevOps.
+     * Deletes tasks from Azure DevOps, sharing the request slots of this instance with concurrent calls.
      *
      * @param tasks The list of tasks to be deleted from Azure DevOps.
      * @throws IllegalArgumentException If the tasks list is null or empty.
      * @throws IOException If an error occurs while sending the HTTP request.
      * @throws InterruptedException If the thread is interrupted while waiting for the HTTP response.
      */
-    public static void deleteTasksInAzureDevOps(List<Task> tasks) throws IllegalArgumentException, IOException, InterruptedException {
+    public void deleteTasks(List<Task> tasks) throws IllegalArgumentException, IOException, InterruptedException {
         if (tasks == null || tasks.isEmpty()) {
             throw new IllegalArgumentException("Task list cannot be null or empty");
         }
@@ -181,21 +202,19 @@ public class TaskActions {
         Task firstTask = tasks.get(0);
         String organization = firstTask.getOrganization();
         String project = firstTask.getProject();
-        String credentials = getBase64Credentials(firstTask);
-        
-        // Create a thread pool for concurrent requests
-        ExecutorService executor = Executors.newFixedThreadPool(MAX_CONCURRENT_REQUESTS);
+        CredentialPool.Identity identity = credentials.acquire(firstTask);
         
         try {
             // Process tasks concurrently
             List<CompletableFuture<Void>> futures = tasks.stream()
-                    .map(task -> CompletableFuture.runAsync(() -> {
+                    .map(task -> scheduler.<Void>submit(organization, () -> {
                         try {
-                            deleteTaskInAzureDevOps(task, organization, project, credentials);
+                            deleteTaskInAzureDevOps(task, organization, project, identity.getAuthorization());
                         } catch (Exception e) {
                             log.error("Error deleting task: {}", task.getTitle(), e);
                         }
-                    }, executor))
+                        return null;
+                    }))
                     .collect(Collectors.toList());
             
             // Wait for all tasks to complete
@@ -203,7 +222,7 @@ public class TaskActions {
             
             log.info("All tasks have been processed for deletion");
         } finally {
-            executor.shutdown();
+            credentials.release(identity);
         }
     }
 
@@ -213,69 +232,81 @@ public class TaskActions {
      * @param task The task to be deleted.
      * @param organization The Azure DevOps organization.
      * @param project The Azure DevOps project.
-     * @param credentials The base64 encoded credentials.
+     * @param credentials The value of the Authorization header.
      * @throws IOException If an error occurs while sending the HTTP request.
      * @throws InterruptedException If the thread is interrupted while waiting for the HTTP response.
      */
-    private static void deleteTaskInAzureDevOps(Task task, String organization, String project, String credentials) 
+    private void deleteTaskInAzureDevOps(Task task, String organization, String project, String credentials) 
             throws IOException, InterruptedException {
-        String url = String.format("https://dev.azure.com/%s/%s/_apis/wit/workitems/%s?api-version=%s",
-                organization, project, task.getParentStory(), API_VERSION);
+        URI url = buildApiUrl(organization, project, "wit/workitems/" + encodePathSegment(task.getParentStory()));
         
         log.debug("Deleting task: {}", task.getTitle());
         
-        HttpClient client = HttpClient.newHttpClient();
         HttpRequest request = HttpRequest.newBuilder()
-                .uri(URI.create(url))
+                .uri(url)
                 .header("Content-Type", "application/json-patch+json")
-                .header("Authorization", "Basic " + credentials)
+                .timeout(Duration.ofMillis(config.getHttpTimeoutMs()))
+                .header("Authorization", credentials)
                 .DELETE()
                 .build();
         
-        HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
+        WorkItemResponse response = send(client, request);
         
-        if (response.statusCode() == 200 || response.statusCode() == 204) {
-            log.info("Task successfully deleted: {}", task.getTitle());
+        if (response.getStatusCode() == 200 || response.getStatusCode() == 204) {
+            log.debug("Task successfully deleted: {}", task.getTitle());
         } else {
-            log.error("Error deleting task: {} - Status: {}, Response: {}", 
-                    task.getTitle(), response.statusCode(), response.body());
+            log.error("Error deleting task: {} - Status: {}, Message: {}", 
+                    task.getTitle(), response.getStatusCode(), response.getMessage());
         }
     }
 
     /**
-     * Generates base64 encoded credentials for Azure DevOps authentication.
+     * Builds the URL of a work item endpoint below the configured base URL.
      *
-     * @param task The task containing username and token.
-     * @return Base64 encoded credentials.
+     * @param organization The Azure DevOps organization
+     * @param project The Azure DevOps project
+     * @param path The already encoded path below {@code _apis/}
+     * @return The complete URL for the API endpoint
      */
-    private static String getBase64Credentials(Task task) {
-        return java.util.Base64.getEncoder().encodeToString(
-                (task.getUsername() + ":" + task.getToken()).getBytes());
+    private URI buildApiUrl(String organization, String project, String path) {
+        return URI.create(config.getBaseUrl()
+                + '/' + encodePathSegment(organization)
+                + '/' + encodePathSegment(project)
+                + "/_apis/" + path
+                + "?api-version=" + API_VERSION);
     }
 
     /**
-     * Retrieves the value from the given cell in an Excel spreadsheet.
-     * <p>
-     * This method extracts the value from the provided cell, handling different cell types
-     * such as string and numeric. It returns a trimmed string representation of the cell's value.
-     * <p>
-     * Author: Luis Hernandez Jimenez
-     * <p>
-     * Contact: luisjimenezh8@gmail.com
-     * <a href="https://www.linkedin.com/in/luis-hernandez-jimenez-55986318a/">LinkedIn</a>
-     * @param cell The Excel cell from which to retrieve the value.
-     * @return The value of the cell as a trimmed string. If the cell is null or empty, returns an empty string.
+     * Encodes a value for use as a URL path segment.
+     *
+     * @param value The value to encode
+     * @return The encoded value
      */
-    private static String getStringValue(Cell cell) {
-        if (cell == null) {
-            return "";
-        }
-        if (cell.getCellType() == CellType.STRING) {
-            return cell.getStringCellValue().trim();
-        } else if (cell.getCellType() == CellType.NUMERIC) {
-            return String.valueOf((int) cell.getNumericCellValue());
-        } else {
-            return "";
+    private static String encodePathSegment(String value) {
+        return URLEncoder.encode(value, StandardCharsets.UTF_8).replace("+", "%20").replace("%24", "$");
+    }
+
+    /**
+     * Sends a work item request and reads only the ID, revision and error message from the streamed body.
+     *
+     * @param client The HTTP client
+     * @param request The request to send
+     * @return The parsed response
+     * @throws IOException If an error occurs while sending the request or reading the response
+     * @throws InterruptedException If the thread is interrupted while waiting for the response
+     */
+    private static WorkItemResponse send(HttpClient client, HttpRequest request) throws IOException, InterruptedException {
+        HttpResponse<InputStream> response = client.send(request, HttpResponse.BodyHandlers.ofInputStream());
+        try (InputStream body = response.body()) {
+            return WorkItemResponseParser.parse(response.statusCode(), body);
         }
     }
+
+    /**
+     * Shuts down the scheduler once the queued requests have been sent.
+     */
+    @Override
+    public void close() {
+        scheduler.shutdown();
+    }
 }
@@ -0,0 +1,146 @@
+package com.personal.core;
+
+import com.personal.model.Task;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Compact binary form of a task, used to spill pending tasks to disk.
+ *
+ * <p>
+ * Every field is written as its UTF-8 length followed by its bytes, with -1 for a missing value,
+ * and the line number last. Unlike {@link DataOutputStream#writeUTF(String)}, values are not
+ * limited to 64 KB, so long descriptions survive the round trip.
+ * </p>
+ *
+ * <p>
+ * Tokens never reach the disk: the codec keeps them in memory and writes the index of the token
+ * instead, so spilled tasks can only be decoded by the codec that encoded them. A codec is used
+ * by a single {@link SpillQueue}, under its lock.
+ * </p>
+ */
+public class TaskCodec implements SpillQueue.Codec<Task> {
+
+    private final Map<String, Integer> tokenIds = new HashMap<>();
+    private final List<String> tokens = new ArrayList<>();
+
+    @Override
+    public void encode(Task task, DataOutputStream out) throws IOException {
+        writeString(out, task.getTitle());
+        writeString(out, task.getDescription());
+        writeString(out, task.getAssignedTo());
+        writeString(out, task.getIterationPath());
+        writeString(out, task.getAreaPath());
+        writeString(out, task.getOriginalEstimateHours());
+        writeString(out, task.getRemainingHours());
+        writeString(out, task.getParentStory());
+        writeString(out, task.getOrganization());
+        writeString(out, task.getProject());
+        writeString(out, task.getArea());
+        writeString(out, task.getUsername());
+        out.writeInt(tokenId(task.getToken()));
+        writeString(out, task.getKey());
+        writeString(out, task.getWorkItemType());
+        out.writeInt(task.getLineNumber());
+        writeString(out, task.getSourceFile());
+        writeString(out, task.getSheet());
+    }
+
+    @Override
+    public Task decode(DataInputStream in) throws IOException {
+        return Task.builder()
+                .title(readString(in))
+                .description(readString(in))
+                .assignedTo(readString(in))
+                .iterationPath(readString(in))
+                .areaPath(readString(in))
+                .originalEstimateHours(readString(in))
+                .remainingHours(readString(in))
+                .parentStory(readString(in))
+                .organization(readString(in))
+                .project(readString(in))
+                .area(readString(in))
+                .username(readString(in))
+                .token(token(in.readInt()))
+                .key(readString(in))
+                .workItemType(readString(in))
+                .lineNumber(in.readInt())
+                .sourceFile(readString(in))
+                .sheet(readString(in))
+                .build();
+    }
+
+    /**
+     * Gets the index of a token, adding it to the tokens kept in memory if it is new.
+     *
+     * @param token The token, or null
+     * @return The index of the token, or -1 if it is null
+     */
+    private int tokenId(String token) {
+        if (token == null) {
+            return -1;
+        }
+        return tokenIds.computeIfAbsent(token, t -> {
+            tokens.add(t);
+            return tokens.size() - 1;
+        });
+    }
+
+    /**
+     * Gets a token by the index written by {@link #tokenId(String)}.
+     *
+     * @param id The index
+     * @return The token, or null if the index is -1
+     * @throws IOException If the index is not one of this codec
+     */
+    private String token(int id) throws IOException {
+        if (id == -1) {
+            return null;
+        }
+        if (id < 0 || id >= tokens.size()) {
+            throw new IOException("Unknown token index " + id);
+        }
+        return tokens.get(id);
+    }
+
+    /**
+     * Writes a value that may be null.
+     *
+     * @param out The output
+     * @param value The value
+     * @throws IOException If the value cannot be written
+     */
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    /**
+     * Reads a value written by {@link #writeString(DataOutputStream, String)}.
+     *
+     * @param in The input
+     * @return The value, or null if it was missing
+     * @throws IOException If the value cannot be read
+     */
+    private static String readString(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,35 @@
+package com.personal.core;
+
+import lombok.Getter;
+
+/**
+ * Thrown when a task could not be created after exhausting its retry attempts.
+ */
+@Getter
+public class TaskCreationException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * The number of requests sent for the task.
+     */
+    private final int attempts;
+
+    /**
+     * The time in milliseconds spent sending the task, including retries.
+     */
+    private final long latencyMs;
+
+    /**
+     * Creates a new instance of TaskCreationException.
+     *
+     * @param message The reason of the last failed attempt
+     * @param attempts The number of requests sent for the task
+     * @param latencyMs The time in milliseconds spent sending the task
+     */
+    public TaskCreationException(String message, int attempts, long latencyMs) {
+        super(message);
+        this.attempts = attempts;
+        this.latencyMs = latencyMs;
+    }
+}
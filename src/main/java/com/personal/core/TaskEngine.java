@@ -0,0 +1,632 @@
+package com.personal.core;
+
+import com.personal.config.AppConfig;
+import com.personal.model.Task;
+import com.personal.model.TaskResult;
+import com.personal.model.WorkItemResponse;
+import com.personal.service.AzureDevOpsService;
+import com.personal.service.ClassificationCache;
+import com.personal.util.ExcelReader;
+import com.personal.util.NdjsonTaskDecoder;
+import com.personal.util.TaskRowDecoder;
+import com.personal.util.TaskSnapshotCache;
+import com.personal.util.TaskTemplates;
+import com.personal.util.ValidationUtil;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * Engine that reads, validates and sends tasks, for the command line and for in-process use.
+ *
+ * <p>
+ * An engine is built once from an {@link AppConfig} and owns the scheduler, HTTP clients,
+ * circuit breakers, retry budget and caches, so they stay warm across any number of submissions.
+ * It is thread-safe: several lists or streams of tasks can be submitted at the same time and share
+ * the concurrency limits. Failures are returned as results, or as failed futures, and the engine
+ * never exits the process. {@link #close()} releases its threads once it is no longer needed.
+ * </p>
+ */
+@Slf4j
+public class TaskEngine implements AutoCloseable {
+
+    private final AppConfig config;
+    private final AzureDevOpsService azureService;
+    private final ClassificationCache classificationCache;
+    private final TaskSnapshotCache snapshotCache;
+    private final AtomicInteger streams = new AtomicInteger();
+
+    /**
+     * Creates a new instance of TaskEngine.
+     *
+     * @param config The configuration of the engine
+     */
+    public TaskEngine(AppConfig config) {
+        this.config = config;
+        this.azureService = new AzureDevOpsService(config);
+        this.classificationCache = config.isValidateClassificationPaths()
+                ? new ClassificationCache(azureService, config)
+                : null;
+        this.snapshotCache = config.isSnapshotCache()
+                ? new TaskSnapshotCache(Paths.get(config.getClassificationCacheDir(), "snapshots"),
+                        config.getSnapshotCacheMaxMb() * 1024L * 1024L)
+                : null;
+    }
+
+    /**
+     * Gets the configuration of the engine.
+     *
+     * @return The configuration
+     */
+    public AppConfig getConfig() {
+        return config;
+    }
+
+    /**
+     * Gets the service the engine sends its requests with, e.g. for exports or run statistics.
+     *
+     * @return The Azure DevOps service
+     */
+    public AzureDevOpsService getAzureService() {
+        return azureService;
+    }
+
+    /**
+     * Sends a task, with a deadline and retry budget of its own.
+     *
+     * @param task The task
+     * @return A future that completes with the result of the task, never exceptionally
+     */
+    public CompletableFuture<TaskResult> submit(Task task) {
+        return submit(task, RunLimits.start(config));
+    }
+
+    /**
+     * Sends a task as part of a larger submission.
+     *
+     * @param task The task
+     * @param limits The deadline and retry budget of the submission
+     * @return A future that completes with the result of the task, never exceptionally
+     */
+    public CompletableFuture<TaskResult> submit(Task task, RunLimits limits) {
+        return azureService.createTask(task, limits).handle((response, ex) -> toResult(task, response, ex));
+    }
+
+    /**
+     * Sends a list of tasks, with a deadline and retry budget of their own.
+     *
+     * @param tasks The tasks
+     * @return A future per task, see {@link #submit(List, RunLimits)}
+     */
+    public List<CompletableFuture<TaskResult>> submit(List<Task> tasks) {
+        return submit(tasks, RunLimits.start(config));
+    }
+
+    /**
+     * Sends a list of tasks. A task whose parent is another task of the list, referenced by its key,
+     * is sent once its parent has been created.
+     *
+     * @param tasks The tasks
+     * @param limits The deadline and retry budget of the submission
+     * @return A future per task, in the same order, that completes with its result, never exceptionally
+     */
+    public List<CompletableFuture<TaskResult>> submit(List<Task> tasks, RunLimits limits) {
+        List<CompletableFuture<WorkItemResponse>> created = DependencyScheduler.schedule(tasks,
+                task -> azureService.createTask(task, limits));
+        return IntStream.range(0, tasks.size())
+                .mapToObj(i -> created.get(i).handle((response, ex) -> toResult(tasks.get(i), response, ex)))
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Sends a stream of tasks while it is being read.
+     *
+     * <p>
+     * A reader thread takes the tasks from the source and validates each one, if validation is
+     * enabled, into a {@link SpillQueue}. That queue keeps up to {@code spillHighWaterMark} pending
+     * tasks in memory and spills the rest to disk, so the reader never waits for Azure DevOps and
+     * the heap does not grow with the input. Invalid tasks are reported as failed and skipped,
+     * since earlier tasks may already have been sent. A parent must come before its children.
+     * </p>
+     *
+     * @param source The source of the tasks
+     * @param limits The deadline and retry budget of the submission
+     * @param onResult The callback receiving the result of every task, from any thread
+     * @return A future that completes with the number of tasks sent once every result has been
+     *         handed over, or exceptionally if the source could not be read completely; the tasks
+     *         read before the error are still sent
+     */
+    public CompletableFuture<Long> submit(TaskSource source, RunLimits limits, Consumer<TaskResult> onResult) {
+        return submit(source, task -> submit(task, limits), onResult);
+    }
+
+    /**
+     * Sends a stream of tasks while it is being read, with a deadline and retry budget of their own.
+     *
+     * @param source The source of the tasks
+     * @param onResult The callback receiving the result of every task, from any thread
+     * @return A future that completes with the number of tasks sent, see {@link #submit(TaskSource, RunLimits, Consumer)}
+     */
+    public CompletableFuture<Long> submit(TaskSource source, Consumer<TaskResult> onResult) {
+        return submit(source, RunLimits.start(config), onResult);
+    }
+
+    /**
+     * Sends a stream of tasks while it is being read, each through the given function, such as
+     * one that holds back the tasks of a bulk job while interactive jobs are running.
+     *
+     * @param source The source of the tasks
+     * @param send The function that sends a task and completes with its result, never exceptionally
+     * @param onResult The callback receiving the result of every task, from any thread
+     * @return A future that completes with the number of tasks sent, see {@link #submit(TaskSource, RunLimits, Consumer)}
+     */
+    CompletableFuture<Long> submit(TaskSource source, Function<Task, CompletableFuture<TaskResult>> send,
+            Consumer<TaskResult> onResult) {
+        SpillQueue<Task> queue = new SpillQueue<>(Paths.get(config.getSpillDirectory()), new TaskCodec(),
+                config.getSpillHighWaterMark(), SpillQueue.DEFAULT_SEGMENT_SIZE);
+        CompletableFuture<Long> done = new CompletableFuture<>();
+        AtomicReference<Exception> readError = new AtomicReference<>();
+        int stream = streams.incrementAndGet();
+
+        Thread reader = new Thread(() -> {
+            try {
+                Set<String> keys = new HashSet<>();
+                source.forEach(task -> {
+                    if (config.isValidateBeforeProcessing()
+                            && !ValidationUtil.validateTask(task, task.getLineNumber(), classificationCache, keys)) {
+                        onResult.accept(TaskResult.builder()
+                                .task(task)
+                                .status(TaskResult.Status.FAILED)
+                                .error("Validation failed")
+                                .build());
+                        return;
+                    }
+                    if (task.getKey() != null && !task.getKey().trim().isEmpty()) {
+                        keys.add(task.getKey().trim());
+                    }
+                    queue.put(task);
+                });
+            } catch (Exception e) {
+                log.error("Error reading input: {}", e.getMessage());
+                readError.set(e);
+            } finally {
+                queue.close();
+            }
+        }, "input-reader-" + stream);
+
+        Thread sender = new Thread(() -> {
+            try {
+                StreamingPipeline pipeline = new StreamingPipeline(queue, config.getMaxConcurrentTasks() * 2, send);
+                long sent = pipeline.run(onResult);
+                reader.join();
+                if (readError.get() != null) {
+                    done.completeExceptionally(readError.get());
+                } else {
+                    done.complete(sent);
+                }
+            } catch (Throwable e) {
+                queue.discard();
+                done.completeExceptionally(e);
+            }
+        }, "stream-sender-" + stream);
+
+        reader.start();
+        sender.start();
+        return done;
+    }
+
+    /**
+     * Gets the source of the tasks of input files, read one file after the other so that rows stay
+     * in input order. CSV and NDJSON files are read one line at a time; workbooks are loaded whole.
+     *
+     * @param sources The input files; {@code -} stands for the standard input
+     * @param templates The templates every row is a story of, or null if every row is a task
+     * @return The source of the tasks
+     */
+    public TaskSource source(List<Path> sources, TaskTemplates templates) {
+        return consumer -> {
+            for (Path input : sources) {
+                if (isExcel(input) && templates != null) {
+                    throw new IOException(input + ": stories for templates must be a CSV or NDJSON file");
+                } else if (isExcel(input)) {
+                    for (Task task : load(input)) {
+                        consumer.accept(task);
+                    }
+                } else {
+                    log.info("Streaming {} from {}", templates == null ? "tasks" : "stories", describeInput(input));
+                    readTasks(input, templates, consumer);
+                }
+            }
+        };
+    }
+
+    /**
+     * Loads the tasks of every input file, parsing the files concurrently.
+     *
+     * <p>
+     * The tasks are merged in the order of the files, and of the sheets within each workbook, so
+     * that the submission order does not depend on which file was parsed first. Every task keeps
+     * its file, sheet and row for error reports. These are the inputs named on the command line, so
+     * a snapshot of each file is used and kept.
+     * </p>
+     *
+     * @param sources The input files
+     * @return The tasks of every file
+     * @throws IOException If a file cannot be read, unless continue-on-error is set
+     */
+    public List<Task> load(List<Path> sources) throws IOException {
+        if (sources.size() == 1) {
+            return load(sources.get(0), true);
+        }
+
+        int threads = Math.min(sources.size(), Runtime.getRuntime().availableProcessors());
+        AtomicInteger threadCount = new AtomicInteger();
+        ExecutorService parsers = Executors.newFixedThreadPool(threads, r -> {
+            Thread thread = new Thread(r, "input-reader-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        try {
+            List<Future<List<Task>>> parsed = new ArrayList<>();
+            for (Path source : sources) {
+                parsed.add(parsers.submit(() -> load(source, true)));
+            }
+
+            List<Task> tasks = new ArrayList<>();
+            for (int i = 0; i < sources.size(); i++) {
+                try {
+                    tasks.addAll(parsed.get(i).get());
+                } catch (ExecutionException e) {
+                    Throwable cause = e.getCause();
+                    log.error("Error reading {}: {}", sources.get(i), cause.getMessage());
+                    if (!config.isContinueOnError()) {
+                        throw cause instanceof IOException
+                                ? (IOException) cause
+                                : new IOException("Error reading " + sources.get(i), cause);
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IOException("Interrupted while reading the input", e);
+                }
+            }
+            log.info("Loaded {} tasks from {} files", tasks.size(), sources.size());
+            return tasks;
+        } finally {
+            parsers.shutdownNow();
+        }
+    }
+
+    /**
+     * Loads tasks from a CSV, NDJSON or Excel file, depending on its extension. No snapshot is
+     * used or kept, as for the files of the watch daemon and the job server, which are read once.
+     *
+     * @param file The input file, or {@code -} for the standard input
+     * @return The loaded tasks
+     * @throws IOException If there is an error reading the file
+     */
+    public List<Task> load(Path file) throws IOException {
+        return load(file, false);
+    }
+
+    /**
+     * Loads tasks from a CSV, NDJSON or Excel file, depending on its extension, or from the snapshot
+     * of the file if it did not change since it was last parsed. The standard input is never cached.
+     *
+     * @param file The input file, or {@code -} for the standard input
+     * @param snapshot true to use and keep a snapshot of the file, for inputs named on the command line
+     * @return The loaded tasks
+     * @throws IOException If there is an error reading the file
+     */
+    private List<Task> load(Path file, boolean snapshot) throws IOException {
+        boolean cached = snapshot && snapshotCache != null && !isStdin(file);
+        List<Task> tasks = cached ? snapshotCache.load(file) : null;
+        if (tasks != null) {
+            return tasks;
+        }
+        TaskSnapshotCache.Fingerprint fingerprint = cached ? snapshotCache.fingerprint(file) : null;
+        int skipped = 0;
+        if (isExcel(file)) {
+            tasks = loadTasksFromExcel(file);
+        } else {
+            tasks = new ArrayList<>();
+            skipped = loadTasksFromLines(file, tasks);
+        }
+        // Skipped rows must be reported again on the next run, so there is no snapshot
+        if (fingerprint != null && skipped == 0) {
+            snapshotCache.store(fingerprint, tasks);
+        }
+        return tasks;
+    }
+
+    /**
+     * Determines if an input file is an Excel workbook, from its extension.
+     *
+     * @param file The input file
+     * @return true if the file is an Excel workbook, false otherwise
+     */
+    private static boolean isExcel(Path file) {
+        String name = file.getFileName().toString().toLowerCase(Locale.ROOT);
+        return name.endsWith(".xlsx") || name.endsWith(".xls");
+    }
+
+    /**
+     * Loads tasks from every sheet of an Excel file.
+     *
+     * @param file The Excel file
+     * @return The loaded tasks
+     * @throws IOException If there is an error reading the file
+     */
+    private List<Task> loadTasksFromExcel(Path file) throws IOException {
+        log.info("Loading tasks from Excel file: {}", file);
+        List<Task> tasks = ExcelReader.readTasksFromExcel(file);
+        log.info("Loaded {} tasks from Excel file {}", tasks.size(), file);
+        return tasks;
+    }
+
+    /**
+     * Loads tasks from a CSV or NDJSON file.
+     *
+     * @param file The input file, or {@code -} for the standard input
+     * @param tasks The list the loaded tasks are added to
+     * @return The number of rows that could not be parsed and were skipped
+     * @throws IOException If there is an error reading the file
+     */
+    private int loadTasksFromLines(Path file, List<Task> tasks) throws IOException {
+        log.info("Loading tasks from {}", describeInput(file));
+        int skipped = readTasks(file, null, tasks::add);
+        log.info("Loaded {} tasks from {}", tasks.size(), describeInput(file));
+        return skipped;
+    }
+
+    /**
+     * Reads the tasks of a CSV or NDJSON file one line at a time.
+     *
+     * @param file The input file, or {@code -} for the standard input
+     * @param templates The templates every line is a story of, or null if every line is a task
+     * @param consumer The consumer of every parsed task
+     * @return The number of rows that could not be parsed and were skipped
+     * @throws IOException If there is an error reading the file
+     */
+    private int readTasks(Path file, TaskTemplates templates, TaskConsumer consumer) throws IOException {
+        if (isStdin(file)) {
+            // The standard input is not closed, like any stream the application did not open
+            BufferedReader stdin = new BufferedReader(new InputStreamReader(System.in, StandardCharsets.UTF_8));
+            return readLines(stdin, file.toString(), true, templates, consumer);
+        }
+        try (BufferedReader reader = Files.newBufferedReader(file)) {
+            return readLines(reader, file.toString(), NdjsonTaskDecoder.isNdjson(file), templates, consumer);
+        }
+    }
+
+    /**
+     * Reads the tasks of a CSV or NDJSON input one line at a time.
+     *
+     * @param input The input
+     * @param source The name of the input, recorded as the source file of its tasks
+     * @param ndjson true if the input is NDJSON, false if it is CSV with a header line
+     * @param templates The templates every line is a story of, or null if every line is a task
+     * @param consumer The consumer of every parsed task
+     * @return The number of rows that could not be parsed and were skipped
+     * @throws IOException If there is an error reading the input
+     */
+    private int readLines(BufferedReader input, String source, boolean ndjson, TaskTemplates templates,
+            TaskConsumer consumer) throws IOException {
+        LineDecoder decoder;
+        int lineNumber = 0;
+        if (ndjson && templates != null) {
+            decoder = (line, number) -> templates.expand(NdjsonTaskDecoder.decodeProperties(line, number), number);
+        } else if (ndjson) {
+            NdjsonTaskDecoder tasks = new NdjsonTaskDecoder();
+            decoder = (line, number) -> Collections.singletonList(tasks.decode(line, number));
+        } else {
+            String header = input.readLine();
+            if (header == null) {
+                throw new IOException("CSV file is empty");
+            }
+            lineNumber++;
+            if (templates != null) {
+                List<String> columns = TaskTemplates.storyColumns(header);
+                decoder = (line, number) -> templates.expand(columns, line, number);
+            } else {
+                TaskRowDecoder rows;
+                try {
+                    rows = TaskRowDecoder.forHeader(header);
+                } catch (IllegalArgumentException e) {
+                    throw new IOException(source + ": " + e.getMessage(), e);
+                }
+                decoder = (line, number) -> Collections.singletonList(rows.decode(line, number));
+            }
+        }
+
+        String line;
+        int skipped = 0;
+        while ((line = input.readLine()) != null) {
+            lineNumber++;
+            if (line.trim().isEmpty()) {
+                continue;
+            }
+            List<Task> tasks;
+            try {
+                tasks = decoder.decode(line, lineNumber);
+            } catch (Exception e) {
+                log.error("Error parsing {} line {}: {}", source, lineNumber, e.getMessage());
+                if (!config.isContinueOnError()) {
+                    throw e;
+                }
+                skipped++;
+                continue;
+            }
+            for (Task task : tasks) {
+                task.setLineNumber(lineNumber);
+                task.setSourceFile(source);
+                consumer.accept(task);
+            }
+        }
+        return skipped;
+    }
+
+    /**
+     * Determines if an input is the standard input.
+     *
+     * @param file The input file
+     * @return true if the input is {@code -}, false otherwise
+     */
+    private static boolean isStdin(Path file) {
+        return file.toString().equals(NdjsonTaskDecoder.STDIN);
+    }
+
+    /**
+     * Describes an input for the log.
+     *
+     * @param file The input file
+     * @return The format and name of the input
+     */
+    private static String describeInput(Path file) {
+        if (isStdin(file)) {
+            return "standard input (NDJSON)";
+        }
+        return (NdjsonTaskDecoder.isNdjson(file) ? "NDJSON file " : "CSV file ") + file;
+    }
+
+    /**
+     * Validates the loaded tasks.
+     *
+     * @param tasks The tasks to validate
+     * @return true if all tasks are valid, false otherwise
+     */
+    public boolean validate(List<Task> tasks) {
+        log.info("Validating {} tasks...", tasks.size());
+        return ValidationUtil.validateAndLogTasks(tasks, classificationCache);
+    }
+
+    /**
+     * Builds the result of a task from the outcome of its creation.
+     *
+     * @param task The task, as it appears in the input
+     * @param response The created work item, or null if the task failed
+     * @param error The failure of the task, or null if it was created
+     * @return The result of the task
+     */
+    private static TaskResult toResult(Task task, WorkItemResponse response, Throwable error) {
+        if (error == null) {
+            return TaskResult.builder()
+                    .task(task)
+                    .status(TaskResult.Status.CREATED)
+                    .workItemId(String.valueOf(response.getId()))
+                    .latencyMs(response.getLatencyMs())
+                    .attempts(response.getAttempts())
+                    .build();
+        }
+        Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+        TaskResult.TaskResultBuilder result = TaskResult.builder()
+                .task(task)
+                .status(isShortCircuited(cause)
+                        ? TaskResult.Status.SHORT_CIRCUITED
+                        : TaskResult.Status.FAILED)
+                .error(cause.getMessage());
+        if (cause instanceof TaskCreationException) {
+            TaskCreationException failure = (TaskCreationException) cause;
+            result.latencyMs(failure.getLatencyMs()).attempts(failure.getAttempts());
+        }
+        return result.build();
+    }
+
+    /**
+     * Determines if a task was not sent because a circuit was open, the run deadline had passed or
+     * the submission was stopped, or not retried because the retry budget was exhausted or the
+     * retry could not finish in time,
+     * either for the task itself or for one of the parent rows it depends on.
+     *
+     * @param error The failure of the task
+     * @return true if the task can be resubmitted as it is, false otherwise
+     */
+    private static boolean isShortCircuited(Throwable error) {
+        Throwable cause = error;
+        while (cause instanceof DependencyFailedException && cause.getCause() != null) {
+            cause = cause.getCause();
+        }
+        return cause instanceof CircuitOpenException
+                || cause instanceof RetryBudgetExhaustedException
+                || cause instanceof DeadlineExceededException
+                || cause instanceof SubmissionStoppedException;
+    }
+
+    /**
+     * Decoder of the lines of a CSV or NDJSON input.
+     */
+    @FunctionalInterface
+    private interface LineDecoder {
+
+        /**
+         * Decodes a line into its tasks.
+         *
+         * @param line The line
+         * @param lineNumber The line number, for error messages
+         * @return The tasks of the line: one for a task input, one per template for a story
+         */
+        List<Task> decode(String line, int lineNumber);
+    }
+
+    /**
+     * Consumer of tasks read from an input.
+     */
+    @FunctionalInterface
+    public interface TaskConsumer {
+
+        /**
+         * Accepts a task.
+         *
+         * @param task The task
+         * @throws IOException If the task cannot be handled
+         */
+        void accept(Task task) throws IOException;
+    }
+
+
+    /**
+     * Source of a stream of tasks, such as the rows of input files or of a request body.
+     */
+    @FunctionalInterface
+    public interface TaskSource {
+
+        /**
+         * Hands every task of the source to a consumer, in order.
+         *
+         * @param consumer The consumer of the tasks
+         * @throws IOException If the source cannot be read
+         */
+        void forEach(TaskConsumer consumer) throws IOException;
+    }
+
+    /**
+     * Shuts down the scheduler once the queued tasks have been sent. The engine cannot be used afterwards.
+     */
+    @Override
+    public void close() {
+        azureService.shutdown();
+    }
+}
@@ -0,0 +1,297 @@
+package com.personal.core;
+
+import com.personal.model.Task;
+import com.personal.model.TaskResult;
+import com.personal.util.CsvWriter;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Daemon that processes every task file dropped into a directory.
+ *
+ * <p>
+ * New {@code .csv}, {@code .jsonl}, {@code .ndjson}, {@code .xlsx} and {@code .xls} files are
+ * detected with a {@link WatchService}.
+ * Once a file has stopped changing it is claimed by atomically moving it into the
+ * {@code .processing} subdirectory, so a file is never processed twice, even by several daemons
+ * watching the same directory. After processing, the input is moved to the {@code done}
+ * subdirectory and its outcome is written next to it as {@code <name>.result.csv}, or as
+ * {@code <name>.error.txt} if the file could not be processed at all. The tasks that were
+ * short-circuited are also written as {@code <name>.resubmit.csv}, in the input format, so they
+ * can be dropped into the directory again.
+ * </p>
+ *
+ * <p>
+ * Hidden files and files ending in {@code .tmp} or {@code .part} are ignored, so producers can
+ * write a file under a temporary name and rename it when complete.
+ * </p>
+ */
+@Slf4j
+public class WatchDirectoryDaemon {
+
+    /**
+     * Processes a single claimed input file.
+     */
+    @FunctionalInterface
+    public interface FileProcessor {
+
+        /**
+         * Processes an input file.
+         *
+         * @param file The claimed input file
+         * @return The result of every task of the file
+         * @throws IOException If the file cannot be read
+         */
+        List<TaskResult> process(Path file) throws IOException;
+    }
+
+    private static final String PROCESSING_DIR = ".processing";
+    private static final String DONE_DIR = "done";
+    private static final String RESULT_SUFFIX = ".result.csv";
+    private static final String ERROR_SUFFIX = ".error.txt";
+    private static final String RESUBMIT_SUFFIX = ".resubmit.csv";
+    private static final long STABLE_CHECK_MS = 250;
+
+    private final Path directory;
+    private final Path processingDir;
+    private final Path doneDir;
+    private final FileProcessor processor;
+    private final ExecutorService fileExecutor;
+    private final Set<Path> pending = ConcurrentHashMap.newKeySet();
+    private volatile boolean running = true;
+    private volatile WatchService watchService;
+
+    /**
+     * Creates a new instance of WatchDirectoryDaemon.
+     *
+     * @param directory The directory to watch
+     * @param maxConcurrentFiles The maximum number of files processed at the same time
+     * @param processor The processor of each claimed file
+     */
+    public WatchDirectoryDaemon(Path directory, int maxConcurrentFiles, FileProcessor processor) {
+        this.directory = directory.toAbsolutePath();
+        this.processingDir = this.directory.resolve(PROCESSING_DIR);
+        this.doneDir = this.directory.resolve(DONE_DIR);
+        this.processor = processor;
+        this.fileExecutor = Executors.newFixedThreadPool(Math.max(1, maxConcurrentFiles));
+    }
+
+    /**
+     * Watches the directory until {@link #stop()} is called.
+     *
+     * @throws IOException If the directory cannot be watched
+     */
+    public void run() throws IOException {
+        Files.createDirectories(processingDir);
+        Files.createDirectories(doneDir);
+        warnAboutInterruptedFiles();
+
+        try (WatchService service = directory.getFileSystem().newWatchService()) {
+            watchService = service;
+            directory.register(service, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+            log.info("Watching {} for task files", directory);
+
+            // Files dropped while the daemon was not running
+            scan();
+
+            while (running) {
+                WatchKey key = service.poll(1, TimeUnit.SECONDS);
+                if (key == null) {
+                    continue;
+                }
+                for (WatchEvent<?> event : key.pollEvents()) {
+                    if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                        scan();
+                    } else {
+                        submit(directory.resolve((Path) event.context()));
+                    }
+                }
+                key.reset();
+            }
+        } catch (ClosedWatchServiceException e) {
+            log.debug("Watch service closed");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            fileExecutor.shutdown();
+            try {
+                fileExecutor.awaitTermination(60, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        log.info("Stopped watching {}", directory);
+    }
+
+    /**
+     * Stops watching; files already claimed are still processed.
+     */
+    public void stop() {
+        running = false;
+        WatchService service = watchService;
+        if (service != null) {
+            try {
+                service.close();
+            } catch (IOException e) {
+                log.debug("Error closing watch service: {}", e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Submits every candidate file currently in the directory.
+     *
+     * @throws IOException If the directory cannot be listed
+     */
+    private void scan() throws IOException {
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory)) {
+            for (Path file : files) {
+                submit(file);
+            }
+        }
+    }
+
+    /**
+     * Queues a file for claiming and processing, unless it is not a task file or is already queued.
+     *
+     * @param file The file
+     */
+    private void submit(Path file) {
+        if (!isCandidate(file) || !pending.add(file)) {
+            return;
+        }
+        fileExecutor.execute(() -> {
+            try {
+                Path claimed = claim(file);
+                if (claimed != null) {
+                    process(claimed);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (Exception e) {
+                log.error("Error handling {}: {}", file, e.getMessage());
+            } finally {
+                pending.remove(file);
+            }
+        });
+    }
+
+    /**
+     * Waits until the file stops changing and moves it atomically into the processing directory.
+     *
+     * @param file The file to claim
+     * @return The claimed file, or null if it disappeared or was claimed by someone else
+     * @throws IOException If the file cannot be moved
+     * @throws InterruptedException If the thread is interrupted while waiting
+     */
+    private Path claim(Path file) throws IOException, InterruptedException {
+        try {
+            BasicFileAttributes previous = Files.readAttributes(file, BasicFileAttributes.class);
+            while (true) {
+                TimeUnit.MILLISECONDS.sleep(STABLE_CHECK_MS);
+                BasicFileAttributes current = Files.readAttributes(file, BasicFileAttributes.class);
+                if (current.size() == previous.size()
+                        && current.lastModifiedTime().equals(previous.lastModifiedTime())) {
+                    break;
+                }
+                previous = current;
+            }
+            Path claimed = processingDir.resolve(file.getFileName());
+            Files.move(file, claimed, StandardCopyOption.ATOMIC_MOVE);
+            return claimed;
+        } catch (NoSuchFileException e) {
+            // Claimed by another daemon or removed by its producer
+            return null;
+        }
+    }
+
+    /**
+     * Processes a claimed file, moves it to the done directory and writes its outcome next to it.
+     *
+     * @param claimed The claimed file
+     * @throws IOException If the file cannot be moved or the outcome cannot be written
+     */
+    private void process(Path claimed) throws IOException {
+        String name = claimed.getFileName().toString();
+        long start = System.nanoTime();
+        log.info("Processing {}", name);
+
+        List<TaskResult> results = null;
+        String error = null;
+        try {
+            results = processor.process(claimed);
+        } catch (Exception e) {
+            error = e.getMessage() != null ? e.getMessage() : e.toString();
+            log.error("Could not process {}: {}", name, error);
+        }
+
+        Path done = doneDir.resolve(name);
+        Files.move(claimed, done, StandardCopyOption.REPLACE_EXISTING);
+        if (results != null) {
+            CsvWriter.writeResultsToCsv(doneDir.resolve(name + RESULT_SUFFIX), results);
+            List<Task> shortCircuited = results.stream()
+                    .filter(result -> result.getStatus() == TaskResult.Status.SHORT_CIRCUITED)
+                    .map(TaskResult::getTask)
+                    .collect(Collectors.toList());
+            if (!shortCircuited.isEmpty()) {
+                CsvWriter.writeTasksToCsv(doneDir.resolve(name + RESUBMIT_SUFFIX).toString(), shortCircuited);
+            }
+            long created = results.stream().filter(TaskResult::isCreated).count();
+            log.info("Processed {} in {} ms: {}/{} tasks created", name,
+                    TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start), created, results.size());
+        } else {
+            Files.write(doneDir.resolve(name + ERROR_SUFFIX), error.getBytes(StandardCharsets.UTF_8));
+        }
+    }
+
+    /**
+     * Logs the files left in the processing directory by a daemon that stopped while processing them.
+     * They are not processed again automatically, since some of their tasks may already have been created.
+     *
+     * @throws IOException If the processing directory cannot be listed
+     */
+    private void warnAboutInterruptedFiles() throws IOException {
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(processingDir)) {
+            for (Path file : files) {
+                log.warn("{} was being processed when the daemon stopped; check it and drop it again if needed", file);
+            }
+        }
+    }
+
+    /**
+     * Determines if a file is a task file that should be processed.
+     *
+     * @param file The file
+     * @return true if the file should be processed, false otherwise
+     */
+    private static boolean isCandidate(Path file) {
+        String name = file.getFileName().toString().toLowerCase(Locale.ROOT);
+        if (name.startsWith(".") || name.endsWith(".tmp") || name.endsWith(".part") || name.endsWith(RESULT_SUFFIX)) {
+            return false;
+        }
+        return (name.endsWith(".csv") || name.endsWith(".jsonl") || name.endsWith(".ndjson")
+                || name.endsWith(".xlsx") || name.endsWith(".xls"))
+                && Files.isRegularFile(file);
+    }
+}
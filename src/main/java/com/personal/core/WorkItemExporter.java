@@ -0,0 +1,345 @@
+package com.personal.core;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import com.personal.config.AppConfig;
+import com.personal.model.Task;
+import com.personal.service.AzureDevOpsService;
+import com.personal.util.CsvWriter;
+import com.personal.util.TaskJsonConverter;
+import com.personal.util.TaskJsonConverter.WorkItemField;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Exports the work items under an area or iteration path to a CSV file in the layout the CSV readers read.
+ *
+ * <p>
+ * The IDs are collected with WIQL queries, paged by ID because a single query returns at most
+ * {@value #QUERY_PAGE_SIZE} items. The work items are then fetched in batches of
+ * {@value #BATCH_SIZE} with only the exported fields, several batches at a time, and written in
+ * ID order as the batches arrive. At most {@code concurrency} batches are held in memory, so the
+ * size of the project does not affect the heap beyond its list of IDs.
+ * </p>
+ *
+ * <p>
+ * Key holds the ID of each work item and ParentStory the ID of its parent, so a parent that is
+ * exported too is created first when the file is imported into another project. Username and
+ * Token are left empty and must be filled in before the file is imported again.
+ * </p>
+ */
+@Slf4j
+public class WorkItemExporter {
+
+    /**
+     * Maximum number of work items a WIQL query may return.
+     */
+    public static final int QUERY_PAGE_SIZE = 20000;
+
+    /**
+     * Maximum number of work items of a batch request.
+     */
+    public static final int BATCH_SIZE = 200;
+
+    /**
+     * The fields of the work items written to the file.
+     */
+    public static final List<String> FIELDS = new ArrayList<>();
+
+    static {
+        FIELDS.add("System.Id");
+        for (WorkItemField field : WorkItemField.values()) {
+            FIELDS.add(field.getReferenceName());
+        }
+        FIELDS.add(TaskJsonConverter.PARENT);
+        FIELDS.add(TaskJsonConverter.WORK_ITEM_TYPE);
+    }
+
+    private final AzureDevOpsService azureService;
+    private final AppConfig config;
+    private final int concurrency;
+    private final RunLimits limits;
+
+    /**
+     * Creates a new instance of WorkItemExporter.
+     *
+     * @param azureService The service used to query and fetch the work items
+     * @param config The application configuration, for the retry settings
+     * @param concurrency The number of batches fetched at the same time
+     * @param limits The deadline and retry budget of the export or sync
+     */
+    public WorkItemExporter(AzureDevOpsService azureService, AppConfig config, int concurrency, RunLimits limits) {
+        this.azureService = azureService;
+        this.config = config;
+        this.concurrency = Math.max(1, concurrency);
+        this.limits = limits;
+    }
+
+    /**
+     * Gets the deadline and retry budget of the export or sync.
+     *
+     * @return The limits
+     */
+    RunLimits getLimits() {
+        return limits;
+    }
+
+    /**
+     * Exports the work items of a project that match a WIQL condition.
+     *
+     * @param project A task holding the organization, project and credentials to use
+     * @param condition The WIQL condition, e.g. {@code [System.AreaPath] UNDER 'Project\Team'}
+     * @param output The CSV file to write, replaced if it exists
+     * @return The number of exported work items
+     * @throws IOException If a request fails after every retry or the file cannot be written
+     * @throws InterruptedException If the thread is interrupted while waiting for a request
+     */
+    public long export(Task project, String condition, Path output) throws IOException, InterruptedException {
+        long start = System.nanoTime();
+        List<Integer> ids = queryIds(project, condition);
+        log.info("Exporting {} work items to {}", ids.size(), output);
+
+        long[] written = {0};
+        try (BufferedWriter writer = Files.newBufferedWriter(output, StandardCharsets.UTF_8)) {
+            writer.write(CsvWriter.HEADER);
+            writer.newLine();
+            fetch(project, ids, FIELDS, batch -> {
+                for (JsonObject item : batch) {
+                    CsvWriter.writeTask(writer, toTask(project, item));
+                    writer.newLine();
+                }
+                written[0] += batch.size();
+            });
+        }
+        log.info("Exported {} work items in {} ms", written[0], TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        return written[0];
+    }
+
+    /**
+     * Converts a fetched work item into a task of the project.
+     *
+     * @param project A task holding the organization and project of the work item
+     * @param item The work item, with its "id" and "fields"
+     * @return The task, with the ID of the work item as its key
+     */
+    public static Task toTask(Task project, JsonObject item) {
+        Task task = TaskJsonConverter.readTask(item.getAsJsonObject("fields"));
+        task.setOrganization(project.getOrganization());
+        task.setProject(project.getProject());
+        task.setKey(item.get("id").getAsString());
+        return task;
+    }
+
+    /**
+     * Fetches work items in batches, several batches at a time, and hands the batches to a
+     * consumer in ID order. A batch is only requested once fewer than {@code concurrency} batches
+     * are waiting to be consumed, so memory use does not grow with the number of IDs.
+     *
+     * @param project A task holding the organization, project and credentials to use
+     * @param ids The IDs of the work items, in the order the batches should be consumed
+     * @param fields The reference names of the fields to fetch
+     * @param consumer The consumer of the batches, called on the calling thread
+     * @throws IOException If a batch cannot be fetched or consumed
+     * @throws InterruptedException If the thread is interrupted while waiting for a batch
+     */
+    public void fetch(Task project, List<Integer> ids, List<String> fields, BatchConsumer consumer)
+            throws IOException, InterruptedException {
+        AtomicInteger threadCount = new AtomicInteger();
+        ExecutorService fetchers = Executors.newFixedThreadPool(concurrency, r -> {
+            Thread thread = new Thread(r, "export-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        try {
+            Deque<Future<List<JsonObject>>> pending = new ArrayDeque<>();
+            for (int from = 0; from < ids.size(); from += BATCH_SIZE) {
+                if (pending.size() == concurrency) {
+                    consumer.accept(await(pending.poll()));
+                }
+                List<Integer> batch = ids.subList(from, Math.min(from + BATCH_SIZE, ids.size()));
+                pending.add(fetchers.submit(() -> fetchBatch(project, batch, fields)));
+            }
+            while (!pending.isEmpty()) {
+                consumer.accept(await(pending.poll()));
+            }
+        } finally {
+            fetchers.shutdownNow();
+        }
+    }
+
+    /**
+     * Collects the IDs of the matching work items in ascending order, one query page at a time.
+     *
+     * @param project A task holding the organization, project and credentials to use
+     * @param condition The WIQL condition
+     * @return The IDs
+     * @throws IOException If a query fails after every retry
+     * @throws InterruptedException If the thread is interrupted while waiting for a query
+     */
+    public List<Integer> queryIds(Task project, String condition) throws IOException, InterruptedException {
+        List<Integer> ids = new ArrayList<>();
+        int last = 0;
+        while (true) {
+            String wiql = "SELECT [System.Id] FROM WorkItems WHERE [System.TeamProject] = @project AND ("
+                    + condition + ") AND [System.Id] > " + last + " ORDER BY [System.Id] ASC";
+            JsonObject result = send(() -> azureService.queryWorkItems(project, wiql, QUERY_PAGE_SIZE));
+            JsonArray workItems = result.getAsJsonArray("workItems");
+            for (JsonElement workItem : workItems) {
+                last = workItem.getAsJsonObject().get("id").getAsInt();
+                ids.add(last);
+            }
+            log.debug("Query page of {} IDs, {} so far", workItems.size(), ids.size());
+            if (workItems.size() < QUERY_PAGE_SIZE) {
+                return ids;
+            }
+        }
+    }
+
+    /**
+     * Fetches a batch of work items.
+     *
+     * @param project A task holding the organization, project and credentials to use
+     * @param ids The IDs of the batch
+     * @param fields The reference names of the fields to fetch
+     * @return The work items, in ID order
+     * @throws IOException If the request fails after every retry
+     * @throws InterruptedException If the thread is interrupted while waiting for the request
+     */
+    private List<JsonObject> fetchBatch(Task project, List<Integer> ids, List<String> fields)
+            throws IOException, InterruptedException {
+        JsonObject result = send(() -> azureService.fetchWorkItemsBatch(project, ids, fields));
+        List<JsonObject> items = new ArrayList<>(ids.size());
+        for (JsonElement item : result.getAsJsonArray("value")) {
+            // Work items that were deleted or cannot be read come back as null
+            if (item.isJsonObject()) {
+                items.add(item.getAsJsonObject());
+            }
+        }
+        // The batch API does not guarantee the order of the IDs
+        items.sort(Comparator.comparingInt(item -> item.get("id").getAsInt()));
+        return items;
+    }
+
+    /**
+     * Waits for a batch, unwrapping its failure.
+     *
+     * @param future The future of the batch
+     * @return The work items of the batch
+     * @throws IOException If the batch could not be fetched
+     * @throws InterruptedException If the thread is interrupted while waiting
+     */
+    private static List<JsonObject> await(Future<List<JsonObject>> future) throws IOException, InterruptedException {
+        try {
+            return future.get();
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            throw new IOException("Could not fetch work items: " + cause.getMessage(), cause);
+        }
+    }
+
+    /**
+     * Sends a request, retrying throttled and failed requests with exponential backoff while
+     * the run's retry budget lasts.
+     *
+     * @param request The request
+     * @return The JSON body of the successful response
+     * @throws IOException If the request still fails after the last attempt
+     * @throws InterruptedException If the thread is interrupted while waiting
+     */
+    JsonObject send(Request request) throws IOException, InterruptedException {
+        long delay = config.getInitialRetryDelayMs();
+        for (int attempt = 1; ; attempt++) {
+            HttpResponse<String> response;
+            try {
+                response = request.send();
+            } catch (IOException e) {
+                if (attempt >= config.getMaxRetryAttempts()) {
+                    throw e;
+                }
+                if (!limits.getDeadline().allows(delay + config.getHttpTimeoutMs())) {
+                    throw new IOException("Not retried, it could not finish before the run deadline: " + e.getMessage(), e);
+                }
+                if (!limits.getRetryBudget().tryAcquire()) {
+                    throw new IOException("Not retried, the retry budget is exhausted: " + e.getMessage(), e);
+                }
+                log.debug("Export request failed ({}), retrying in {} ms", e.getMessage(), delay);
+                TimeUnit.MILLISECONDS.sleep(delay);
+                delay = Math.min(delay * 2, config.getMaxRetryDelayMs());
+                continue;
+            }
+            int status = response.statusCode();
+            if (status == 200) {
+                limits.getRetryBudget().onSuccess();
+                return JsonParser.parseString(response.body()).getAsJsonObject();
+            }
+            boolean retryable = status == 429 || status >= 500;
+            if (!retryable || attempt >= config.getMaxRetryAttempts()) {
+                throw new IOException("Status " + status + ": " + response.body());
+            }
+            // Throttled responses say how long to wait
+            long wait = Math.max(delay, response.headers().firstValueAsLong("Retry-After").orElse(0) * 1000);
+            if (!limits.getDeadline().allows(wait + config.getHttpTimeoutMs())) {
+                throw new IOException("Not retried, it could not finish before the run deadline: Status " + status);
+            }
+            if (!limits.getRetryBudget().tryAcquire()) {
+                throw new IOException("Not retried, the retry budget is exhausted: Status " + status + ": " + response.body());
+            }
+            log.debug("Export request failed (status {}), retrying in {} ms", status, wait);
+            TimeUnit.MILLISECONDS.sleep(wait);
+            delay = Math.min(delay * 2, config.getMaxRetryDelayMs());
+        }
+    }
+
+    /**
+     * Consumer of the batches of fetched work items.
+     */
+    @FunctionalInterface
+    public interface BatchConsumer {
+
+        /**
+         * Accepts a batch.
+         *
+         * @param items The work items of the batch, in ID order
+         * @throws IOException If the batch cannot be consumed
+         */
+        void accept(List<JsonObject> items) throws IOException;
+    }
+
+    /**
+     * A request to Azure DevOps.
+     */
+    @FunctionalInterface
+    interface Request {
+
+        /**
+         * Sends the request.
+         *
+         * @return The response
+         * @throws IOException If the request cannot be sent
+         * @throws InterruptedException If the thread is interrupted while waiting
+         */
+        HttpResponse<String> send() throws IOException, InterruptedException;
+    }
+}
@@ -0,0 +1,521 @@
+package com.personal.core;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import com.google.gson.stream.JsonWriter;
+import com.personal.model.Task;
+import com.personal.model.WorkItemResponse;
+import com.personal.service.AzureDevOpsService;
+import com.personal.util.CsvWriter;
+import com.personal.util.TaskJsonConverter;
+import com.personal.util.TaskJsonConverter.WorkItemField;
+import com.personal.util.TaskRowDecoder;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CompletionException;
+
+/**
+ * Keeps a local mirror file of the tasks of a project in sync with Azure DevOps, in both directions.
+ *
+ * <p>
+ * The mirror is a CSV file in the export layout, where Key holds the ID of each work item. The
+ * sync state, kept in the state directory, holds a {@code System.ChangedDate} watermark and the
+ * values and revision of every work item as of the last sync. A sync only queries the work items
+ * changed since the watermark, so a sync with few changes costs a query and a batch request.
+ * </p>
+ *
+ * <p>
+ * Changes are merged field by field, using the mapping of {@link TaskJsonConverter}: a field
+ * changed only in the mirror is sent to Azure DevOps, a field changed only in Azure DevOps is
+ * written to the mirror, and a field changed on both sides takes the Azure DevOps value. Rows
+ * without a key are created as new work items. Updates are rejected by Azure DevOps if the work
+ * item changed after the revision they are based on; they are then retried on the next sync.
+ * </p>
+ *
+ * <p>
+ * Deletions are not synced, and ParentStory and WorkItemType are only read from Azure DevOps.
+ * </p>
+ */
+@Slf4j
+public class WorkItemSync {
+
+    private static final String REV = "System.Rev";
+    private static final String CHANGED_DATE = "System.ChangedDate";
+    private static final int STATE_VERSION = 1;
+
+    /**
+     * How far the watermark is moved back from the latest change seen, so changes committed out
+     * of order around the time of a sync are not missed. Work items changed in this window are
+     * fetched again by the next sync, which does not change them.
+     */
+    private static final Duration WATERMARK_OVERLAP = Duration.ofMinutes(1);
+
+    private static final List<String> FIELDS = new ArrayList<>(WorkItemExporter.FIELDS);
+
+    static {
+        FIELDS.add(REV);
+        FIELDS.add(CHANGED_DATE);
+    }
+
+    private final AzureDevOpsService azureService;
+    private final WorkItemExporter exporter;
+    private final Path stateDirectory;
+
+    /**
+     * Creates a new instance of WorkItemSync.
+     *
+     * @param azureService The service used to create and update work items
+     * @param exporter The exporter used to query and fetch work items
+     * @param stateDirectory The directory of the sync state of every mirror
+     */
+    public WorkItemSync(AzureDevOpsService azureService, WorkItemExporter exporter, Path stateDirectory) {
+        this.azureService = azureService;
+        this.exporter = exporter;
+        this.stateDirectory = stateDirectory;
+    }
+
+    /**
+     * Syncs a mirror file with the work items of a project that match a WIQL condition.
+     *
+     * <p>
+     * Without a state for the mirror and condition, all matching work items are fetched and
+     * written to the mirror; rows of the mirror without a key are still created.
+     * </p>
+     *
+     * @param project A task holding the organization, project and credentials to use
+     * @param condition The WIQL condition, e.g. {@code [System.AreaPath] UNDER 'Project\Team'}
+     * @param mirror The mirror file, created if it does not exist
+     * @throws IOException If the mirror cannot be read or written, or a query fails after every retry
+     * @throws InterruptedException If the thread is interrupted while waiting for a request
+     */
+    public void sync(Task project, String condition, Path mirror) throws IOException, InterruptedException {
+        Path stateFile = stateFile(project, mirror);
+        State state = Files.exists(mirror) ? readState(stateFile) : null;
+        boolean full = state == null || !condition.equals(state.condition);
+        if (full) {
+            log.info("No sync state for {}, fetching every work item", mirror);
+            state = new State(condition);
+        }
+
+        List<Task> newRows = new ArrayList<>();
+        Map<Integer, Task> rows = readMirror(mirror, newRows);
+
+        String query = condition;
+        if (state.watermark != null) {
+            query += " AND [" + CHANGED_DATE + "] >= '" + state.watermark + "'";
+        }
+        List<Integer> ids = exporter.queryIds(project, query);
+        log.info("{} work items changed in Azure DevOps since {}", ids.size(),
+                state.watermark == null ? "the beginning" : state.watermark);
+
+        Map<Integer, Task> merged = new TreeMap<>();
+        List<Update> updates = new ArrayList<>();
+        Instant[] latestChange = {null};
+        State current = state;
+        exporter.fetch(project, ids, FIELDS, batch -> {
+            for (JsonObject item : batch) {
+                int id = item.get("id").getAsInt();
+                JsonObject fields = item.getAsJsonObject("fields");
+                Task remote = WorkItemExporter.toTask(project, item);
+                Instant changed = Instant.parse(fields.get(CHANGED_DATE).getAsString());
+                if (latestChange[0] == null || changed.isAfter(latestChange[0])) {
+                    latestChange[0] = changed;
+                }
+                BaseItem base = new BaseItem(fields.get(REV).getAsInt(), remote);
+                Task local = rows.remove(id);
+                BaseItem previous = current.items.get(id);
+                merged.put(id, local == null ? remote : merge(id, local, remote, previous, updates, base.rev));
+                current.items.put(id, base);
+            }
+        });
+
+        // Rows that did not change in Azure DevOps
+        int stale = 0;
+        for (Map.Entry<Integer, Task> row : rows.entrySet()) {
+            BaseItem base = state.items.get(row.getKey());
+            if (base == null) {
+                // Only a full sync drops rows of work items that no longer match
+                if (full) {
+                    stale++;
+                    continue;
+                }
+                log.warn("Row with key {} is not a synced work item of the project; it is left unchanged", row.getKey());
+            } else {
+                merge(row.getKey(), row.getValue(), base.values, base, updates, base.rev);
+            }
+            merged.put(row.getKey(), row.getValue());
+        }
+        if (stale > 0) {
+            log.info("Dropped {} rows whose work items no longer match the sync", stale);
+        }
+
+        int pushed = push(project, updates, state);
+        int created = create(project, newRows, merged, state);
+        List<Task> mirrorRows = new ArrayList<>(merged.values());
+        // Rows that could not be created stay last, without a key, so the next sync creates them
+        mirrorRows.addAll(newRows);
+
+        if (latestChange[0] != null) {
+            state.watermark = latestChange[0].minus(WATERMARK_OVERLAP).toString();
+        }
+        writeMirror(mirror, mirrorRows);
+        writeState(stateFile, state);
+        log.info("Synced {}: {} work items pulled, {} updated and {} created in Azure DevOps",
+                mirror, ids.size(), pushed, created);
+    }
+
+    /**
+     * Merges a row of the mirror with its work item, field by field.
+     *
+     * @param id The ID of the work item
+     * @param local The row of the mirror; changed fields are sent, the rest take the Azure DevOps value
+     * @param remote The current values of the work item
+     * @param base The values of the work item as of the last sync, or null if it was not synced yet
+     * @param updates The updates to send, to which the update of this work item is added
+     * @param rev The current revision of the work item
+     * @return The merged row
+     */
+    private static Task merge(int id, Task local, Task remote, BaseItem base, List<Update> updates, int rev) {
+        Task merged = remote.toBuilder().build();
+        if (base == null) {
+            // The mirror was written before any sync, e.g. by an export, and Azure DevOps wins
+            return merged;
+        }
+        List<WorkItemField> changed = new ArrayList<>();
+        for (WorkItemField field : WorkItemField.values()) {
+            String mine = normalize(field.get(local));
+            String theirs = normalize(field.get(remote));
+            String original = normalize(field.get(base.values));
+            if (mine.equals(original) || mine.equals(theirs)) {
+                continue;
+            }
+            if (!theirs.equals(original)) {
+                log.warn("Work item {}: {} was changed in the mirror and in Azure DevOps; keeping the Azure DevOps value",
+                        id, field.getReferenceName());
+                continue;
+            }
+            field.set(merged, emptyToNull(mine));
+            changed.add(field);
+        }
+        if (!changed.isEmpty()) {
+            updates.add(new Update(id, merged, changed, rev));
+        }
+        return merged;
+    }
+
+    /**
+     * Sends the fields changed in the mirror to Azure DevOps, one work item at a time.
+     *
+     * @param project A task holding the organization, project and credentials to use
+     * @param updates The updates
+     * @param state The sync state, updated with the values sent
+     * @return The number of updated work items
+     * @throws InterruptedException If the thread is interrupted while waiting for a request
+     */
+    private int push(Task project, List<Update> updates, State state) throws InterruptedException {
+        int pushed = 0;
+        for (Update update : updates) {
+            String json = TaskJsonConverter.updateTaskJson(update.task, update.fields, update.rev);
+            try {
+                JsonObject result = exporter.send(() -> azureService.updateWorkItem(project, update.id, json));
+                state.items.put(update.id, new BaseItem(result.get("rev").getAsInt(), update.task));
+                pushed++;
+            } catch (IOException e) {
+                // The base is left as it was, so the change is sent again by the next sync
+                log.warn("Could not update work item {}: {}", update.id, e.getMessage());
+            }
+        }
+        return pushed;
+    }
+
+    /**
+     * Creates the rows of the mirror that have no key yet as new work items.
+     *
+     * @param project A task holding the organization, project and credentials to use
+     * @param newRows The rows without a key; created rows are moved to merged, failed ones are kept
+     * @param merged The rows of the mirror by ID
+     * @param state The sync state, updated with the created work items
+     * @return The number of created work items
+     */
+    private int create(Task project, List<Task> newRows, Map<Integer, Task> merged, State state) {
+        int created = 0;
+        for (Iterator<Task> rows = newRows.iterator(); rows.hasNext(); ) {
+            Task row = rows.next();
+            row.setOrganization(project.getOrganization());
+            row.setProject(project.getProject());
+            Task task = row.toBuilder().username(project.getUsername()).token(project.getToken()).build();
+            try {
+                WorkItemResponse response = azureService.createTask(task, exporter.getLimits()).join();
+                row.setKey(String.valueOf(response.getId()));
+                merged.put(response.getId(), row);
+                state.items.put(response.getId(), new BaseItem(response.getRev() == null ? 1 : response.getRev(), row));
+                rows.remove();
+                created++;
+            } catch (CompletionException e) {
+                log.warn("Could not create work item for row '{}': {}", row.getTitle(), e.getCause().getMessage());
+            }
+        }
+        return created;
+    }
+
+    /**
+     * Reads the rows of a mirror.
+     *
+     * @param mirror The mirror file
+     * @param newRows The list the rows without a key are added to
+     * @return The rows with a key, by work item ID
+     * @throws IOException If the mirror cannot be read, or a row is invalid
+     */
+    private static Map<Integer, Task> readMirror(Path mirror, List<Task> newRows) throws IOException {
+        Map<Integer, Task> rows = new TreeMap<>();
+        if (!Files.exists(mirror)) {
+            return rows;
+        }
+        try (BufferedReader reader = Files.newBufferedReader(mirror, StandardCharsets.UTF_8)) {
+            String header = reader.readLine();
+            if (header == null) {
+                return rows;
+            }
+            TaskRowDecoder decoder = TaskRowDecoder.forHeader(header);
+            String line;
+            int lineNumber = 1;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                if (line.trim().isEmpty()) {
+                    continue;
+                }
+                Task row = decoder.decode(line, lineNumber);
+                String key = row.getKey();
+                if (key == null || key.isEmpty()) {
+                    newRows.add(row);
+                } else if (rows.put(Integer.parseInt(key), row) != null) {
+                    throw new IllegalArgumentException("Line " + lineNumber + ": Key " + key + " appears twice");
+                }
+            }
+        } catch (IllegalArgumentException e) {
+            // Also a key that is not a work item ID; a row must not be silently dropped from the mirror
+            throw new IOException(mirror + ": " + e.getMessage(), e);
+        }
+        return rows;
+    }
+
+    /**
+     * Writes the rows of a mirror, replacing the file atomically.
+     *
+     * @param mirror The mirror file
+     * @param rows The rows, in the order to write them
+     * @throws IOException If the file cannot be written
+     */
+    private static void writeMirror(Path mirror, Iterable<Task> rows) throws IOException {
+        Path directory = mirror.toAbsolutePath().getParent();
+        Path tmp = Files.createTempFile(directory, ".sync", ".tmp");
+        try {
+            try (BufferedWriter writer = Files.newBufferedWriter(tmp, StandardCharsets.UTF_8)) {
+                writer.write(CsvWriter.HEADER);
+                writer.newLine();
+                for (Task row : rows) {
+                    CsvWriter.writeTask(writer, row);
+                    writer.newLine();
+                }
+            }
+            Files.move(tmp, mirror, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+    }
+
+    /**
+     * Reads the sync state of a mirror.
+     *
+     * @param stateFile The state file
+     * @return The state, or null if there is none or it cannot be read
+     */
+    private static State readState(Path stateFile) {
+        if (!Files.exists(stateFile)) {
+            return null;
+        }
+        try (Reader reader = Files.newBufferedReader(stateFile, StandardCharsets.UTF_8)) {
+            JsonObject json = JsonParser.parseReader(reader).getAsJsonObject();
+            if (json.get("version").getAsInt() != STATE_VERSION) {
+                return null;
+            }
+            State state = new State(json.get("condition").getAsString());
+            JsonElement watermark = json.get("watermark");
+            state.watermark = watermark == null || watermark.isJsonNull() ? null : watermark.getAsString();
+            for (Map.Entry<String, JsonElement> entry : json.getAsJsonObject("items").entrySet()) {
+                JsonObject item = entry.getValue().getAsJsonObject();
+                JsonObject fields = item.getAsJsonObject("fields");
+                Task values = new Task();
+                for (WorkItemField field : WorkItemField.values()) {
+                    JsonElement value = fields.get(field.getReferenceName());
+                    field.set(values, value == null ? null : value.getAsString());
+                }
+                state.items.put(Integer.parseInt(entry.getKey()), new BaseItem(item.get("rev").getAsInt(), values));
+            }
+            return state;
+        } catch (IOException | RuntimeException e) {
+            log.warn("Ignoring unreadable sync state {}: {}", stateFile, e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Writes the sync state of a mirror, replacing the file atomically.
+     *
+     * @param stateFile The state file
+     * @param state The state
+     * @throws IOException If the file cannot be written
+     */
+    private static void writeState(Path stateFile, State state) throws IOException {
+        Files.createDirectories(stateFile.getParent());
+        Path tmp = Files.createTempFile(stateFile.getParent(), "sync", ".tmp");
+        try {
+            try (JsonWriter writer = new JsonWriter(Files.newBufferedWriter(tmp, StandardCharsets.UTF_8))) {
+                writer.beginObject();
+                writer.name("version").value(STATE_VERSION);
+                writer.name("condition").value(state.condition);
+                writer.name("watermark").value(state.watermark);
+                writer.name("items").beginObject();
+                for (Map.Entry<Integer, BaseItem> entry : state.items.entrySet()) {
+                    writer.name(entry.getKey().toString()).beginObject();
+                    writer.name("rev").value(entry.getValue().rev);
+                    writer.name("fields").beginObject();
+                    for (WorkItemField field : WorkItemField.values()) {
+                        String value = field.get(entry.getValue().values);
+                        if (value != null) {
+                            writer.name(field.getReferenceName()).value(value);
+                        }
+                    }
+                    writer.endObject();
+                    writer.endObject();
+                }
+                writer.endObject();
+                writer.endObject();
+            }
+            Files.move(tmp, stateFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+    }
+
+    /**
+     * Gets the state file of a mirror of a project.
+     *
+     * @param project A task holding the organization and project
+     * @param mirror The mirror file
+     * @return The state file, named after the hash of the organization, project and mirror path
+     */
+    private Path stateFile(Task project, Path mirror) {
+        String identity = project.getOrganization() + "/" + project.getProject() + "/" + mirror.toAbsolutePath().normalize();
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(identity.getBytes(StandardCharsets.UTF_8));
+            StringBuilder name = new StringBuilder("sync-");
+            for (int i = 0; i < 12; i++) {
+                name.append(String.format("%02x", digest[i]));
+            }
+            return stateDirectory.resolve(name.append(".json").toString());
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    /**
+     * Normalizes a value for comparison, so an empty cell and a missing field are equal.
+     *
+     * @param value The value
+     * @return The trimmed value, or an empty string for null
+     */
+    private static String normalize(String value) {
+        return value == null ? "" : value.trim();
+    }
+
+    /**
+     * Converts an empty value to null, as fields that are not set are represented.
+     *
+     * @param value The value
+     * @return The value, or null if it is empty
+     */
+    private static String emptyToNull(String value) {
+        return value.isEmpty() ? null : value;
+    }
+
+    /**
+     * The sync state of a mirror.
+     */
+    private static class State {
+        private final String condition;
+        private final Map<Integer, BaseItem> items = new TreeMap<>();
+        private String watermark;
+
+        /**
+         * Creates an empty state.
+         *
+         * @param condition The WIQL condition of the synced work items
+         */
+        State(String condition) {
+            this.condition = condition;
+        }
+    }
+
+    /**
+     * The values and revision of a work item as of the last sync.
+     */
+    private static class BaseItem {
+        private final int rev;
+        private final Task values;
+
+        /**
+         * Creates a new instance of BaseItem.
+         *
+         * @param rev The revision of the work item
+         * @param values The values of its fields
+         */
+        BaseItem(int rev, Task values) {
+            this.rev = rev;
+            this.values = values;
+        }
+    }
+
+    /**
+     * An update of some fields of a work item.
+     */
+    private static class Update {
+        private final int id;
+        private final Task task;
+        private final List<WorkItemField> fields;
+        private final int rev;
+
+        /**
+         * Creates a new instance of Update.
+         *
+         * @param id The ID of the work item
+         * @param task The task with the new values
+         * @param fields The fields to update
+         * @param rev The revision the update is based on
+         */
+        Update(int id, Task task, List<WorkItemField> fields, int rev) {
+            this.id = id;
+            this.task = task;
+            this.fields = fields;
+            this.rev = rev;
+        }
+    }
+}
@@ -0,0 +1,116 @@
+package com.personal.model;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * A node of an Azure DevOps classification tree (areas or iterations).
+ *
+ * <p>
+ * The nodes form a trie keyed by the lower-cased node name, so a full path such as
+ * {@code Project\Team\Sprint 1} can be checked in time proportional to its length.
+ * Azure DevOps compares classification paths case-insensitively.
+ * </p>
+ */
+public class ClassificationNode {
+
+    /**
+     * Separator used by Azure DevOps between the segments of a classification path.
+     */
+    public static final char PATH_SEPARATOR = '\\';
+
+    private final String name;
+    private final Map<String, ClassificationNode> children = new HashMap<>();
+
+    /**
+     * Creates a new node.
+     *
+     * @param name The node name as returned by Azure DevOps
+     */
+    public ClassificationNode(String name) {
+        this.name = name;
+    }
+
+    /**
+     * Gets the node name.
+     *
+     * @return The node name
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Gets the direct children of this node.
+     *
+     * @return An unmodifiable view of the children
+     */
+    public Collection<ClassificationNode> getChildren() {
+        return Collections.unmodifiableCollection(children.values());
+    }
+
+    /**
+     * Adds a child node, replacing any existing child with the same name.
+     *
+     * @param child The child to add
+     * @return The added child
+     */
+    public ClassificationNode addChild(ClassificationNode child) {
+        children.put(child.getName().toLowerCase(Locale.ROOT), child);
+        return child;
+    }
+
+    /**
+     * Checks whether the given path exists in the tree rooted at this node.
+     *
+     * <p>
+     * The first segment of the path must match this node (the project root), and every
+     * following segment must match a child of the previous one. Leading and trailing
+     * separators are ignored.
+     * </p>
+     *
+     * @param path The classification path to check
+     * @return true if the path exists, false otherwise
+     */
+    public boolean containsPath(String path) {
+        if (path == null) {
+            return false;
+        }
+        int start = 0;
+        int end = path.length();
+        while (start < end && path.charAt(start) == PATH_SEPARATOR) {
+            start++;
+        }
+        while (end > start && path.charAt(end - 1) == PATH_SEPARATOR) {
+            end--;
+        }
+        if (start == end) {
+            return false;
+        }
+
+        ClassificationNode current = null;
+        int segmentStart = start;
+        for (int i = start; i <= end; i++) {
+            if (i < end && path.charAt(i) != PATH_SEPARATOR) {
+                continue;
+            }
+            String segment = path.substring(segmentStart, i).trim().toLowerCase(Locale.ROOT);
+            if (current == null) {
+                if (!segment.equals(name.toLowerCase(Locale.ROOT))) {
+                    return false;
+                }
+                current = this;
+            } else {
+                current = current.children.get(segment);
+                if (current == null) {
+                    return false;
+                }
+            }
+            segmentStart = i + 1;
+        }
+        return true;
+    }
+}
@@ -10,11 +10,16 @@ import lombok.NoArgsConstructor;
  * This class contains all the necessary information to create a task in Azure DevOps.
  */
 @Data
-@Builder
+@Builder(toBuilder = true)
 @NoArgsConstructor
 @AllArgsConstructor
 public class Task {
 
+    /**
+     * The default work item type.
+     */
+    public static final String DEFAULT_WORK_ITEM_TYPE = "Task";
+    
     /**
      * The title of the task.
      */
@@ -51,7 +56,8 @@ public class Task {
     private String remainingHours;
     
     /**
-     * The ID of the parent story.
+     * The parent of the task: either the ID of an existing work item, or the key of
+     * another row of the same input file.
      */
     private String parentStory;
     
@@ -80,6 +86,63 @@ public class Task {
      */
     private String token;
     
+    /**
+     * Optional key other rows of the same input file use to reference this row as their parent.
+     */
+    private String key;
+    
+    /**
+     * The work item type to create, e.g. "Task" or "User Story". Defaults to "Task".
+     */
+    private String workItemType;
+    
+    /**
+     * The line of the input file the task was read from, or 0 if unknown.
+     * For workbooks, the row of the sheet.
+     */
+    private int lineNumber;
+    
+    /**
+     * The input file the task was read from, or null if unknown.
+     */
+    private String sourceFile;
+    
+    /**
+     * The sheet of the workbook the task was read from, or null for CSV files.
+     */
+    private String sheet;
+    
+    /**
+     * Gets the work item type to create.
+     *
+     * @return The work item type, or "Task" if none is set
+     */
+    public String getWorkItemType() {
+        return workItemType == null || workItemType.trim().isEmpty() ? DEFAULT_WORK_ITEM_TYPE : workItemType;
+    }
+    
+    /**
+     * Gets the input the task was read from.
+     *
+     * @return The file, followed by "#" and the sheet for workbooks, or null if unknown
+     */
+    public String getSource() {
+        if (sourceFile == null) {
+            return null;
+        }
+        return sheet == null ? sourceFile : sourceFile + "#" + sheet;
+    }
+    
+    /**
+     * Describes where the task was read from, for error reports.
+     *
+     * @return The file, sheet and row of the task, e.g. "plan.xlsx#Team A:12", or "line 12" if the file is unknown
+     */
+    public String getProvenance() {
+        String source = getSource();
+        return source == null ? "line " + lineNumber : source + ":" + lineNumber;
+    }
+    
     /**
      * Validates that the task has all required fields.
      * 
@@ -0,0 +1,75 @@
+package com.personal.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * The outcome of sending a single task to Azure DevOps.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class TaskResult {
+
+    /**
+     * The possible outcomes of a task.
+     */
+    public enum Status {
+        /**
+         * The work item was created.
+         */
+        CREATED,
+        /**
+         * The work item could not be created.
+         */
+        FAILED,
+        /**
+         * The task was not sent because the circuit of its endpoint, or of its parent's, was open,
+         * or the run deadline had passed, or was not retried because the retry budget was
+         * exhausted or the retry could not finish before the deadline; it can be resubmitted.
+         */
+        SHORT_CIRCUITED
+    }
+
+    /**
+     * The task that was sent.
+     */
+    private Task task;
+
+    /**
+     * The outcome of the task.
+     */
+    private Status status;
+
+    /**
+     * The ID of the created work item, or null if it was not created.
+     */
+    private String workItemId;
+
+    /**
+     * The error message if the task failed, or null.
+     */
+    private String error;
+
+    /**
+     * The time in milliseconds spent sending the task, including retries, or 0 if it was not sent.
+     */
+    private long latencyMs;
+
+    /**
+     * The number of requests sent for the task.
+     */
+    private int attempts;
+
+    /**
+     * Checks whether the work item was created.
+     *
+     * @return true if the work item was created, false otherwise
+     */
+    public boolean isCreated() {
+        return status == Status.CREATED;
+    }
+}
@@ -0,0 +1,52 @@
+package com.personal.model;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * The parts of an Azure DevOps work item response the application uses.
+ * All other fields, relations and links of the response are discarded while reading it.
+ */
+@Data
+@NoArgsConstructor
+public class WorkItemResponse {
+
+    /**
+     * The HTTP status code of the response.
+     */
+    private int statusCode;
+
+    /**
+     * The ID of the work item, or null if the response did not contain one.
+     */
+    private Integer id;
+
+    /**
+     * The revision of the work item, or null if the response did not contain one.
+     */
+    private Integer rev;
+
+    /**
+     * The error message returned by Azure DevOps on failure, or null.
+     */
+    private String message;
+
+    /**
+     * The number of attempts it took to get this response. Set by the client, not read from the body.
+     */
+    private int attempts;
+
+    /**
+     * The time in milliseconds spent sending the request, including retries. Set by the client.
+     */
+    private long latencyMs;
+
+    /**
+     * Checks whether the response has a 2xx status code.
+     *
+     * @return true if the request succeeded, false otherwise
+     */
+    public boolean isSuccessful() {
+        return statusCode >= 200 && statusCode < 300;
+    }
+}
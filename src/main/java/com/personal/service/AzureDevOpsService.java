@@ -1,21 +1,51 @@
 package com.personal.service;
 
+import com.google.gson.JsonObject;
 import com.personal.config.AppConfig;
+import com.personal.core.CircuitBreaker;
+import com.personal.core.CircuitOpenException;
+import com.personal.core.CredentialPool;
+import com.personal.core.Deadline;
+import com.personal.core.DeadlineExceededException;
+import com.personal.core.FairScheduler;
+import com.personal.core.RetryBudget;
+import com.personal.core.RetryBudgetExhaustedException;
+import com.personal.core.RunLimits;
+import com.personal.core.SubmissionStoppedException;
+import com.personal.core.TaskCreationException;
 import com.personal.model.Task;
+import com.personal.model.WorkItemResponse;
+import com.personal.util.TaskJsonConverter;
+import com.personal.util.WorkItemResponseParser;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.http.HttpEntity;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpMethod;
-import org.springframework.http.ResponseEntity;
+import org.springframework.http.client.ClientHttpResponse;
+import org.springframework.http.client.SimpleClientHttpRequestFactory;
+import org.springframework.web.client.DefaultResponseErrorHandler;
 import org.springframework.web.client.RestTemplate;
-import org.springframework.web.util.UriComponentsBuilder;
 
-import java.util.Base64;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.CompletableFuture;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
 
 /**
  * Service class for interacting with Azure DevOps API.
@@ -24,11 +54,15 @@ import java.util.concurrent.TimeUnit;
 public class AzureDevOpsService {
     
     private static final String API_VERSION = "6.0";
-    private static final String BASE_URL = "https://dev.azure.com";
+    private static final int MAX_CLASSIFICATION_DEPTH = 14;
     
-    private final RestTemplate restTemplate;
+    private final HttpClient httpClient;
+    private final HedgingPolicy hedgingPolicy;
     private final AppConfig config;
-    private final ExecutorService executorService;
+    private final FairScheduler scheduler;
+    private final CredentialPool credentials;
+    private final Map<String, CircuitBreaker> circuitBreakers = new ConcurrentHashMap<>();
+    private volatile RestTemplate restTemplate;
     
     /**
      * Creates a new instance of AzureDevOpsService.
@@ -37,49 +71,223 @@ public class AzureDevOpsService {
      */
     public AzureDevOpsService(AppConfig config) {
         this.config = config;
-        this.restTemplate = new RestTemplate();
-        this.executorService = Executors.newFixedThreadPool(config.getMaxConcurrentTasks());
+        this.httpClient = HttpClient.newBuilder()
+                .connectTimeout(Duration.ofMillis(config.getConnectTimeoutMs()))
+                .build();
+        this.hedgingPolicy = config.isHedgeGetRequests()
+                ? new HedgingPolicy(config.getHedgeBudgetPercent(), config.getHedgeMinDelayMs())
+                : null;
+        this.scheduler = new FairScheduler(config.getMaxConcurrentTasks(), config.getMaxConcurrentTasksPerOrganization());
+        this.credentials = loadCredentials(config.getCredentialsFile(), config.getCredentialRejectCooldownMs());
+    }
+    
+    /**
+     * Loads the credential pools of the organizations.
+     *
+     * @param credentialsFile The credentials file, or null to use the credentials of every task
+     * @param rejectCooldownMs The time a pooled identity whose token was rejected is left out
+     * @return The credential pool
+     * @throws UncheckedIOException If the credentials file cannot be read
+     */
+    private static CredentialPool loadCredentials(String credentialsFile, long rejectCooldownMs) {
+        if (credentialsFile == null) {
+            return new CredentialPool();
+        }
+        try {
+            return CredentialPool.load(Paths.get(credentialsFile), rejectCooldownMs);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not read credentials file: " + e.getMessage(), e);
+        }
+    }
+    
+    /**
+     * Gets the credentials requests are sent with.
+     *
+     * @return The credential pool
+     */
+    public CredentialPool getCredentials() {
+        return credentials;
+    }
+    
+    /**
+     * Starts loading the Spring transport used to create work items in the background,
+     * so its class loading overlaps with reading and validating the input.
+     */
+    public void warmUp() {
+        CompletableFuture.runAsync(this::restTemplate);
+    }
+    
+    /**
+     * Applies the current concurrency limits of the configuration to the running scheduler,
+     * after they have been changed during the run.
+     */
+    public void applyConcurrencyLimits() {
+        scheduler.setLimits(config.getMaxConcurrentTasks(), config.getMaxConcurrentTasksPerOrganization());
+    }
+    
+    /**
+     * Gets the RestTemplate used to create work items, creating it on first use.
+     * Spring is only loaded when a work item is actually created.
+     *
+     * @return The RestTemplate
+     */
+    private RestTemplate restTemplate() {
+        RestTemplate template = restTemplate;
+        if (template == null) {
+            synchronized (this) {
+                template = restTemplate;
+                if (template == null) {
+                    // A hung connection must not pin a worker; the read timeout bounds each response
+                    SimpleClientHttpRequestFactory requestFactory = new SimpleClientHttpRequestFactory();
+                    requestFactory.setConnectTimeout(config.getConnectTimeoutMs());
+                    requestFactory.setReadTimeout(config.getHttpTimeoutMs());
+                    // Unbuffered, the connection is opened when the body is requested, so a request
+                    // that failed before that is known never to have reached the server
+                    requestFactory.setBufferRequestBody(false);
+                    template = new RestTemplate(requestFactory);
+                    // Error responses are read by the same extractor as successful ones
+                    template.setErrorHandler(new DefaultResponseErrorHandler() {
+                        @Override
+                        public boolean hasError(ClientHttpResponse response) {
+                            return false;
+                        }
+                    });
+                    restTemplate = template;
+                }
+            }
+        }
+        return template;
     }
     
     /**
      * Creates a task in Azure DevOps.
      *
+     * <p>
+     * Failed attempts are only logged at DEBUG level; the final outcome of every task is
+     * reported by the caller. A failed attempt is only retried while the retry budget of the
+     * submission lasts, and if the retry can finish before the task deadline. Once the deadline of
+     * the submission has passed, or once it was stopped, its tasks are no longer sent.
+     * </p>
+     *
+     * <p>
+     * Only throttled requests and server errors are retried; any other status fails the task at once,
+     * without spending the retry budget. A request that fails without a response is only retried if
+     * no connection was made. Once
+     * connected, e.g. after a read timeout, the server may have created the work item, so sending
+     * the task again could create a duplicate; the task fails with an unknown outcome instead.
+     * </p>
+     *
      * @param task The task to create
-     * @return A CompletableFuture that completes with the created task's ID
+     * @param limits The deadline and retry budget of the submission the task belongs to
+     * @return A CompletableFuture that completes with the response of the created work item,
+     *         or exceptionally with a {@link TaskCreationException} once all attempts failed,
+     *         or with a {@link RetryBudgetExhaustedException} if a failed attempt could not be retried,
+     *         or with a {@link DeadlineExceededException} if the task was not sent or retried in time,
+     *         or with a {@link SubmissionStoppedException} if the submission was stopped before it was sent or retried
      */
-    public CompletableFuture<String> createTask(Task task) {
-        return CompletableFuture.supplyAsync(() -> {
-            String url = buildTaskUrl(task);
-            HttpHeaders headers = createHeaders(task);
-            HttpEntity<Map<String, Object>> request = createTaskRequest(task);
+    public CompletableFuture<WorkItemResponse> createTask(Task task, RunLimits limits) {
+        return scheduler.submit(FairScheduler.keyOf(task), () -> {
+            if (limits.getDeadline().isExpired()) {
+                throw new DeadlineExceededException("Not sent, the run deadline has passed");
+            }
+            Deadline deadline = limits.getDeadline().orAfter(config.getTaskDeadlineMs());
+            RetryBudget retryBudget = limits.getRetryBudget();
+            URI url = buildTaskUrl(task);
+            byte[] body = TaskJsonConverter.createTaskJson(task).getBytes(StandardCharsets.UTF_8);
+            
+            CircuitBreaker circuitBreaker = circuitBreakerFor(task);
             
+            long firstAttempt = System.nanoTime();
             int attempts = 0;
             long delay = config.getInitialRetryDelayMs();
+            String lastError = null;
             
             while (attempts < config.getMaxRetryAttempts()) {
+                String stopReason = limits.getStopReason();
+                if (stopReason != null) {
+                    throw new SubmissionStoppedException((attempts == 0 ? "Not sent, " : "Not retried, ") + stopReason
+                            + (lastError != null ? ": " + lastError : ""));
+                }
+                // Every attempt picks an identity again, so a retry avoids a throttled one. It is picked
+                // before the breaker is asked, so a task that has none cannot use up a probe slot
+                CredentialPool.Identity identity = credentials.acquire(task);
+                if (!circuitBreaker.tryAcquire()) {
+                    credentials.release(identity);
+                    throw new CircuitOpenException(endpointOf(task));
+                }
+                long start = System.nanoTime();
+                attempts++;
+                AtomicBoolean connected = new AtomicBoolean();
                 try {
-                    ResponseEntity<Map> response = restTemplate.exchange(
+                    WorkItemResponse response = restTemplate().execute(
                             url,
                             HttpMethod.POST,
-                            request,
-                            Map.class
+                            request -> {
+                                request.getHeaders().putAll(createHeaders(identity));
+                                request.getHeaders().setContentLength(body.length);
+                                OutputStream out = request.getBody();
+                                connected.set(true);
+                                out.write(body);
+                            },
+                            clientResponse -> readWorkItemResponse(identity, clientResponse)
                     );
                     
-                    if (response.getStatusCode().is2xxSuccessful()) {
-                        Map<String, Object> body = response.getBody();
-                        return body != null ? (String) body.get("id") : null;
+                    long elapsedMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+                    if (response != null && response.isSuccessful() && response.getId() != null) {
+                        circuitBreaker.onSuccess(elapsedMs);
+                        retryBudget.onSuccess();
+                        response.setAttempts(attempts);
+                        response.setLatencyMs(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - firstAttempt));
+                        return response;
+                    }
+                    if (response != null && response.isSuccessful()) {
+                        // The work item exists; sending the task again would create a duplicate
+                        circuitBreaker.onSuccess(elapsedMs);
+                        retryBudget.onSuccess();
+                        throw new TaskCreationException("Created, but the ID is unknown: the response had no work item ID",
+                                attempts, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - firstAttempt));
+                    }
+                    if (response == null || isEndpointFailure(response.getStatusCode())) {
+                        circuitBreaker.onFailure(elapsedMs);
+                    } else {
+                        circuitBreaker.onSuccess(elapsedMs);
                     }
                     
-                    log.warn("Failed to create task: {} - Status: {}", task.getTitle(), response.getStatusCode());
+                    lastError = response == null ? "Empty response"
+                            : "Status " + response.getStatusCode() + (response.getMessage() != null ? ": " + response.getMessage() : "");
+                    log.debug("Failed to create task: {} - {}", task.getTitle(), lastError);
+                    if (response != null && !isRetryable(response.getStatusCode())) {
+                        // Sending the same request again would fail the same way, and spend the retry budget
+                        throw new TaskCreationException("Failed to create task, not retried: " + lastError,
+                                attempts, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - firstAttempt));
+                    }
                     
+                } catch (TaskCreationException e) {
+                    throw e;
                 } catch (Exception e) {
-                    log.error("Error creating task: {} - Error: {}", task.getTitle(), e.getMessage());
+                    circuitBreaker.onFailure(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+                    if (connected.get()) {
+                        throw new TaskCreationException("Outcome unknown, not retried: the request may have reached"
+                                + " the server: " + e.getMessage(),
+                                attempts, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - firstAttempt));
+                    }
+                    lastError = e.getMessage();
+                    log.debug("Error creating task: {} - Error: {}", task.getTitle(), lastError);
+                } finally {
+                    credentials.release(identity);
                 }
                 
-                attempts++;
                 if (attempts < config.getMaxRetryAttempts()) {
+                    // A retry may wait for the backoff and then for a whole response
+                    if (!deadline.allows(Math.min(delay, config.getMaxRetryDelayMs()) + config.getHttpTimeoutMs())) {
+                        throw new DeadlineExceededException("Not retried, it could not finish before the deadline: " + lastError);
+                    }
+                    if (!retryBudget.tryAcquire()) {
+                        throw new RetryBudgetExhaustedException(lastError);
+                    }
                     try {
-                        TimeUnit.MILLISECONDS.sleep(delay);
+                        // The limits are re-read on every attempt, so a reloaded configuration applies immediately
+                        TimeUnit.MILLISECONDS.sleep(Math.min(delay, config.getMaxRetryDelayMs()));
                         delay = Math.min(delay * 2, config.getMaxRetryDelayMs());
                     } catch (InterruptedException ie) {
                         Thread.currentThread().interrupt();
@@ -88,8 +296,328 @@ public class AzureDevOpsService {
                 }
             }
             
-            throw new RuntimeException("Failed to create task after " + config.getMaxRetryAttempts() + " attempts");
-        }, executorService);
+            throw new TaskCreationException("Failed to create task after " + attempts + " attempts: " + lastError,
+                    attempts, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - firstAttempt));
+        });
+    }
+    
+    /**
+     * Gets the circuit breaker of the task's organization/project, creating it on first use.
+     *
+     * @param task The task
+     * @return The circuit breaker guarding the task's endpoint
+     */
+    private CircuitBreaker circuitBreakerFor(Task task) {
+        return circuitBreakers.computeIfAbsent(endpointOf(task), endpoint -> new CircuitBreaker(
+                endpoint,
+                config.getCircuitWindowSize(),
+                config.getCircuitMinimumCalls(),
+                config.getCircuitFailureRateThreshold(),
+                config.getCircuitSlowCallDurationMs(),
+                config.getCircuitSlowCallRateThreshold(),
+                config.getCircuitOpenDurationMs(),
+                config.getCircuitHalfOpenProbes()));
+    }
+    
+    /**
+     * Gets the name of the endpoint a task is sent to.
+     *
+     * @param task The task
+     * @return The organization and project of the task
+     */
+    private static String endpointOf(Task task) {
+        return task.getOrganization() + "/" + task.getProject();
+    }
+    
+    /**
+     * Determines if a status code means the endpoint itself is failing rather than the request being invalid.
+     * Revoked credentials, throttling and server errors count against the circuit breaker.
+     *
+     * @param statusCode The HTTP status code
+     * @return true if the status code is an endpoint failure, false otherwise
+     */
+    private static boolean isEndpointFailure(int statusCode) {
+        return statusCode == 401 || statusCode == 403 || statusCode == 429 || statusCode >= 500;
+    }
+    
+    /**
+     * Determines if a failed create request may succeed when sent again: when it was throttled or
+     * the server failed. Invalid requests, missing resources and rejected credentials fail for good.
+     *
+     * @param statusCode The HTTP status code
+     * @return true if the request should be retried, false otherwise
+     */
+    private static boolean isRetryable(int statusCode) {
+        return statusCode == 429 || statusCode >= 500;
+    }
+    
+    /**
+     * Reads the ID, revision and error message of a work item response from its body stream,
+     * after recording its rate limit headers.
+     *
+     * @param identity The identity the request was sent with
+     * @param response The raw HTTP response
+     * @return The parsed response
+     * @throws IOException If the body cannot be read
+     */
+    private WorkItemResponse readWorkItemResponse(CredentialPool.Identity identity, ClientHttpResponse response)
+            throws IOException {
+        credentials.record(identity, response.getRawStatusCode(), response.getHeaders()::getFirst);
+        try (InputStream body = response.getBody()) {
+            return WorkItemResponseParser.parse(response.getRawStatusCode(), body);
+        }
+    }
+    
+    /**
+     * Fetches a classification tree (areas or iterations) of the task's project.
+     *
+     * <p>
+     * The whole tree is requested in a single call using the maximum depth supported by
+     * Azure DevOps. When an ETag from a previous fetch is given, the request is conditional
+     * and the server answers 304 if the tree has not changed.
+     * </p>
+     *
+     * @param task The task whose organization, project and credentials are used
+     * @param structureGroup The structure group, either "Areas" or "Iterations"
+     * @param etag The ETag of the cached tree, or null to fetch unconditionally
+     * @return The HTTP response with the JSON tree as body
+     * @throws IOException If an error occurs while sending the request
+     * @throws InterruptedException If the thread is interrupted while waiting for the response
+     */
+    public HttpResponse<String> fetchClassificationNodes(Task task, String structureGroup, String etag)
+            throws IOException, InterruptedException {
+        URI uri = buildApiUrl(task, "wit/classificationnodes/" + encodePathSegment(structureGroup),
+                "$depth=" + MAX_CLASSIFICATION_DEPTH);
+
+        CredentialPool.Identity identity = credentials.acquire(task);
+        try {
+            HttpRequest.Builder request = HttpRequest.newBuilder()
+                    .uri(uri)
+                    .header("Authorization", identity.getAuthorization())
+                    .timeout(Duration.ofMillis(config.getHttpTimeoutMs()))
+                    .GET();
+            if (etag != null) {
+                request.header("If-None-Match", etag);
+            }
+            return record(identity, awaitGet(sendGet(request.build())));
+        } finally {
+            credentials.release(identity);
+        }
+    }
+    
+    /**
+     * Runs a WIQL query in the task's project.
+     *
+     * @param task The task whose organization, project and credentials are used
+     * @param wiql The query
+     * @param top The maximum number of work items to return
+     * @return The HTTP response with the IDs of the matching work items as body
+     * @throws IOException If an error occurs while sending the request
+     * @throws InterruptedException If the thread is interrupted while waiting for the response
+     */
+    public HttpResponse<String> queryWorkItems(Task task, String wiql, int top)
+            throws IOException, InterruptedException {
+        JsonObject body = new JsonObject();
+        body.addProperty("query", wiql);
+        return sendReadPost(task, buildApiUrl(task, "wit/wiql", "$top=" + top + "&timePrecision=true"), body.toString());
+    }
+    
+    /**
+     * Fetches a batch of work items of the task's organization, with only the given fields.
+     *
+     * <p>
+     * The batch is read with a GET, so it is hedged like every other read when hedging is enabled.
+     * Work items that do not exist or cannot be read are omitted.
+     * </p>
+     *
+     * @param task The task whose organization, project and credentials are used
+     * @param ids The IDs of the work items, at most 200
+     * @param fields The reference names of the fields to return
+     * @return The HTTP response with the work items as body
+     * @throws IOException If an error occurs while sending the request
+     * @throws InterruptedException If the thread is interrupted while waiting for the response
+     */
+    public HttpResponse<String> fetchWorkItemsBatch(Task task, List<Integer> ids, List<String> fields)
+            throws IOException, InterruptedException {
+        String query = "ids=" + ids.stream().map(String::valueOf).collect(Collectors.joining(","))
+                + "&fields=" + fields.stream().map(AzureDevOpsService::encodePathSegment).collect(Collectors.joining(","))
+                + "&errorPolicy=omit";
+        URI uri = buildApiUrl(task, "wit/workitems", query);
+
+        CredentialPool.Identity identity = credentials.acquire(task);
+        try {
+            HttpRequest request = HttpRequest.newBuilder()
+                    .uri(uri)
+                    .header("Authorization", identity.getAuthorization())
+                    .timeout(Duration.ofMillis(config.getHttpTimeoutMs()))
+                    .GET()
+                    .build();
+            return record(identity, awaitGet(sendGet(request)));
+        } finally {
+            credentials.release(identity);
+        }
+    }
+    
+    /**
+     * Updates a work item of the task's organization.
+     *
+     * <p>
+     * The request is sent once; a JSON Patch document that starts with a revision test is safe to
+     * send again, but whether to do so is left to the caller.
+     * </p>
+     *
+     * @param task The task whose organization, project and credentials are used
+     * @param id The ID of the work item
+     * @param patchJson The JSON Patch document of the update
+     * @return The HTTP response with the updated work item as body
+     * @throws IOException If an error occurs while sending the request
+     * @throws InterruptedException If the thread is interrupted while waiting for the response
+     */
+    public HttpResponse<String> updateWorkItem(Task task, int id, String patchJson)
+            throws IOException, InterruptedException {
+        HttpRequest.Builder request = HttpRequest.newBuilder()
+                .uri(buildApiUrl(task, "wit/workitems/" + id, null))
+                .header("Content-Type", "application/json-patch+json")
+                .timeout(Duration.ofMillis(config.getHttpTimeoutMs()))
+                .method("PATCH", HttpRequest.BodyPublishers.ofString(patchJson, StandardCharsets.UTF_8));
+        return send(task, request);
+    }
+    
+    /**
+     * Sends a POST request that only reads data, such as a query. It is not hedged, since its
+     * body cannot be shared between copies, but it is safe to retry.
+     *
+     * @param task The task whose credentials are used
+     * @param uri The URL of the endpoint
+     * @param json The JSON body
+     * @return The HTTP response
+     * @throws IOException If an error occurs while sending the request
+     * @throws InterruptedException If the thread is interrupted while waiting for the response
+     */
+    private HttpResponse<String> sendReadPost(Task task, URI uri, String json) throws IOException, InterruptedException {
+        HttpRequest.Builder request = HttpRequest.newBuilder()
+                .uri(uri)
+                .header("Content-Type", "application/json")
+                .timeout(Duration.ofMillis(config.getHttpTimeoutMs()))
+                .POST(HttpRequest.BodyPublishers.ofString(json, StandardCharsets.UTF_8));
+        return send(task, request);
+    }
+    
+    /**
+     * Sends a request with an identity of the task's organization and records its rate limit headers.
+     *
+     * @param task The task whose organization, or own credentials, are used
+     * @param request The request, without its Authorization header
+     * @return The HTTP response
+     * @throws IOException If an error occurs while sending the request
+     * @throws InterruptedException If the thread is interrupted while waiting for the response
+     */
+    private HttpResponse<String> send(Task task, HttpRequest.Builder request) throws IOException, InterruptedException {
+        CredentialPool.Identity identity = credentials.acquire(task);
+        try {
+            request.header("Authorization", identity.getAuthorization());
+            return record(identity, httpClient.send(request.build(), HttpResponse.BodyHandlers.ofString(StandardCharsets.UTF_8)));
+        } finally {
+            credentials.release(identity);
+        }
+    }
+    
+    /**
+     * Records the rate limit headers of a response for the identity it was sent with.
+     *
+     * @param identity The identity
+     * @param response The HTTP response
+     * @return The response
+     */
+    private HttpResponse<String> record(CredentialPool.Identity identity, HttpResponse<String> response) {
+        credentials.record(identity, response.statusCode(), name -> response.headers().firstValue(name).orElse(null));
+        return response;
+    }
+    
+    /**
+     * Sends an idempotent GET request, hedging it when hedging is enabled.
+     *
+     * <p>
+     * If the response has not arrived by the observed p95 latency and the hedge budget allows it,
+     * an identical request is sent and whichever answers first wins. Only GET requests may go
+     * through this method; POSTs are never hedged.
+     * </p>
+     *
+     * @param request The GET request
+     * @return A CompletableFuture that completes with the first response
+     */
+    private CompletableFuture<HttpResponse<String>> sendGet(HttpRequest request) {
+        if (!"GET".equals(request.method())) {
+            throw new IllegalArgumentException("Only GET requests can be hedged");
+        }
+        if (hedgingPolicy == null) {
+            return httpClient.sendAsync(request, HttpResponse.BodyHandlers.ofString());
+        }
+        
+        CompletableFuture<HttpResponse<String>> result = new CompletableFuture<>();
+        AtomicInteger outstanding = new AtomicInteger(1);
+        CompletableFuture<HttpResponse<String>> primary = sendTimed(request, result, outstanding);
+        
+        long hedgeDelayMs = hedgingPolicy.onRequest();
+        if (hedgeDelayMs >= 0) {
+            CompletableFuture.delayedExecutor(hedgeDelayMs, TimeUnit.MILLISECONDS).execute(() -> {
+                if (result.isDone() || !hedgingPolicy.tryHedge()) {
+                    return;
+                }
+                log.debug("Hedging GET {} after {} ms", request.uri(), hedgeDelayMs);
+                outstanding.incrementAndGet();
+                CompletableFuture<HttpResponse<String>> hedge = sendTimed(request, result, outstanding);
+                result.whenComplete((response, error) -> hedge.cancel(true));
+            });
+        }
+        result.whenComplete((response, error) -> primary.cancel(true));
+        return result;
+    }
+    
+    /**
+     * Sends one copy of a hedged request and completes the shared result with its response if it is the first.
+     *
+     * @param request The GET request
+     * @param result The shared result of all copies
+     * @param outstanding The number of copies that have not completed yet
+     * @return The future of this copy
+     */
+    private CompletableFuture<HttpResponse<String>> sendTimed(HttpRequest request,
+            CompletableFuture<HttpResponse<String>> result, AtomicInteger outstanding) {
+        long start = System.nanoTime();
+        CompletableFuture<HttpResponse<String>> future = httpClient.sendAsync(request, HttpResponse.BodyHandlers.ofString());
+        future.whenComplete((response, error) -> {
+            boolean last = outstanding.decrementAndGet() == 0;
+            if (error == null) {
+                hedgingPolicy.recordLatency(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+                result.complete(response);
+            } else if (last) {
+                // Only fail once no other copy can still answer
+                result.completeExceptionally(error);
+            }
+        });
+        return future;
+    }
+    
+    /**
+     * Waits for a GET response, unwrapping the failure of the request.
+     *
+     * @param future The future of the response
+     * @return The response
+     * @throws IOException If the request failed
+     * @throws InterruptedException If the thread is interrupted while waiting
+     */
+    private static HttpResponse<String> awaitGet(CompletableFuture<HttpResponse<String>> future)
+            throws IOException, InterruptedException {
+        try {
+            return future.get();
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            throw new IOException("GET request failed", cause);
+        }
     }
     
     /**
@@ -98,63 +626,57 @@ public class AzureDevOpsService {
      * @param task The task to create
      * @return The complete URL for the API endpoint
      */
-    private String buildTaskUrl(Task task) {
-        return UriComponentsBuilder.fromHttpUrl(BASE_URL)
-                .path("/{organization}/{project}/_apis/wit/workitems")
-                .path("$Task")
-                .queryParam("api-version", API_VERSION)
-                .buildAndExpand(task.getOrganization(), task.getProject())
-                .toUriString();
+    private URI buildTaskUrl(Task task) {
+        return buildApiUrl(task, "wit/workitems/" + encodePathSegment("$" + task.getWorkItemType()), null);
     }
     
     /**
-     * Creates the HTTP headers for the request.
+     * Builds the URL of an API endpoint of the task's project.
      *
-     * @param task The task containing authentication details
-     * @return The HTTP headers
+     * @param task The task whose organization and project are used
+     * @param path The already encoded path below {@code _apis/}
+     * @param query The already encoded query parameters, without api-version, or null
+     * @return The complete URL for the API endpoint
      */
-    private HttpHeaders createHeaders(Task task) {
-        HttpHeaders headers = new HttpHeaders();
-        String auth = task.getUsername() + ":" + task.getToken();
-        String encodedAuth = Base64.getEncoder().encodeToString(auth.getBytes());
-        headers.set("Authorization", "Basic " + encodedAuth);
-        headers.set("Content-Type", "application/json");
-        return headers;
+    private URI buildApiUrl(Task task, String path, String query) {
+        StringBuilder url = new StringBuilder(config.getBaseUrl())
+                .append('/').append(encodePathSegment(task.getOrganization()))
+                .append('/').append(encodePathSegment(task.getProject()))
+                .append("/_apis/").append(path)
+                .append('?');
+        if (query != null) {
+            url.append(query).append('&');
+        }
+        return URI.create(url.append("api-version=").append(API_VERSION).toString());
     }
     
     /**
-     * Creates the request body for creating a task.
+     * Encodes a value for use as a URL path segment.
      *
-     * @param task The task to create
-     * @return The HTTP entity containing the request body
+     * @param value The value to encode
+     * @return The encoded value
      */
-    private HttpEntity<Map<String, Object>> createTaskRequest(Task task) {
-        Map<String, Object> body = Map.of(
-                "fields", Map.of(
-                        "System.Title", task.getTitle(),
-                        "System.Description", task.getDescription(),
-                        "System.AssignedTo", task.getAssignedTo(),
-                        "Microsoft.VSTS.Scheduling.OriginalEstimate", task.getOriginalEstimateHours(),
-                        "Microsoft.VSTS.Scheduling.RemainingWork", task.getRemainingHours(),
-                        "System.AreaPath", task.getArea(),
-                        "System.Parent", task.getParentStory()
-                )
-        );
-        return new HttpEntity<>(body);
+    private static String encodePathSegment(String value) {
+        return URLEncoder.encode(value, StandardCharsets.UTF_8).replace("+", "%20").replace("%24", "$");
     }
     
     /**
-     * Shuts down the executor service.
+     * Creates the HTTP headers for the request.
+     *
+     * @param identity The identity the request is sent with
+     * @return The HTTP headers
+     */
+    private static HttpHeaders createHeaders(CredentialPool.Identity identity) {
+        HttpHeaders headers = new HttpHeaders();
+        headers.set("Authorization", identity.getAuthorization());
+        headers.set("Content-Type", "application/json-patch+json");
+        return headers;
+    }
+    
+    /**
+     * Shuts down the scheduler once the queued tasks have been sent.
      */
     public void shutdown() {
-        executorService.shutdown();
-        try {
-            if (!executorService.awaitTermination(60, TimeUnit.SECONDS)) {
-                executorService.shutdownNow();
-            }
-        } catch (InterruptedException e) {
-            executorService.shutdownNow();
-            Thread.currentThread().interrupt();
-        }
+        scheduler.shutdown();
     }
 } 
\ No newline at end of file
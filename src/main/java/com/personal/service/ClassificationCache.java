@@ -0,0 +1,409 @@
+package com.personal.service;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import com.personal.config.AppConfig;
+import com.personal.model.ClassificationNode;
+import com.personal.model.Task;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Cache of the area and iteration classification trees of Azure DevOps projects.
+ *
+ * <p>
+ * Each tree is fetched once per organization/project and kept in memory as a trie of
+ * {@link ClassificationNode}s, so every row's paths can be validated locally. The trees are
+ * also persisted to disk together with their ETag and fetch timestamp; on the next run a
+ * stale tree is refreshed with a conditional request, which costs a 304 when nothing changed.
+ * </p>
+ *
+ * <p>
+ * A tree that could not be fetched is reported as missing, so the paths of its rows are not
+ * validated, and fetched again once {@code FAILED_FETCH_RETRY_MS} has passed. In a long-running
+ * daemon or server, trees are refreshed again once they are older than the TTL. Trees are fetched
+ * outside the map of projects, so a slow fetch never blocks the lookups of other projects, and
+ * each project is fetched by one thread at a time.
+ * </p>
+ */
+@Slf4j
+public class ClassificationCache {
+
+    private static final String AREAS = "Areas";
+    private static final String ITERATIONS = "Iterations";
+    private static final long FAILED_FETCH_RETRY_MS = TimeUnit.MINUTES.toMillis(1);
+
+    private final AzureDevOpsService azureService;
+    private final Path cacheDir;
+    private final long ttlMs;
+    private final Map<String, CompletableFuture<ProjectTrees>> projects = new ConcurrentHashMap<>();
+
+    /**
+     * Creates a new instance of ClassificationCache.
+     *
+     * @param azureService The service used to fetch the trees
+     * @param config The application configuration
+     */
+    public ClassificationCache(AzureDevOpsService azureService, AppConfig config) {
+        this.azureService = azureService;
+        this.cacheDir = Paths.get(config.getClassificationCacheDir());
+        this.ttlMs = TimeUnit.MINUTES.toMillis(config.getClassificationCacheTtlMinutes());
+    }
+
+    /**
+     * Gets the area tree of the task's project.
+     *
+     * @param task The task whose organization and project are used
+     * @return The root of the area tree, or null if it could not be obtained, in which case the
+     *         area paths of the task cannot be validated
+     */
+    public ClassificationNode getAreaTree(Task task) {
+        return getProjectTrees(task).areas.root;
+    }
+
+    /**
+     * Gets the iteration tree of the task's project.
+     *
+     * @param task The task whose organization and project are used
+     * @return The root of the iteration tree, or null if it could not be obtained, in which case
+     *         the iteration path of the task cannot be validated
+     */
+    public ClassificationNode getIterationTree(Task task) {
+        return getProjectTrees(task).iterations.root;
+    }
+
+    /**
+     * Gets the trees of the task's project, loading them on first use and refreshing them once
+     * they are older than the TTL, or once the retry time of a tree that could not be fetched has passed.
+     *
+     * <p>
+     * A single thread loads or refreshes the trees of a project. On first use the other threads
+     * wait for it; during a refresh they keep using the current trees, which are never modified.
+     * </p>
+     *
+     * @param task The task whose organization and project are used
+     * @return The trees of the project
+     */
+    private ProjectTrees getProjectTrees(Task task) {
+        String key = task.getOrganization() + "/" + task.getProject();
+        CompletableFuture<ProjectTrees> future = projects.get(key);
+        if (future == null) {
+            CompletableFuture<ProjectTrees> loading = new CompletableFuture<>();
+            future = projects.putIfAbsent(key, loading);
+            if (future == null) {
+                try {
+                    ProjectTrees loaded = loadProjectTrees(task, null);
+                    loading.complete(loaded);
+                    return loaded;
+                } catch (RuntimeException e) {
+                    // The next caller loads the project again
+                    projects.remove(key, loading);
+                    loading.completeExceptionally(e);
+                    throw e;
+                }
+            }
+        }
+        ProjectTrees trees = future.join();
+        // Even with a TTL of 0, trees in memory are not revalidated on every lookup
+        if (!trees.isRefreshDue(Math.max(ttlMs, FAILED_FETCH_RETRY_MS)) || !trees.refreshing.compareAndSet(false, true)) {
+            return trees;
+        }
+        try {
+            ProjectTrees refreshed = loadProjectTrees(task, trees);
+            projects.put(key, CompletableFuture.completedFuture(refreshed));
+            return refreshed;
+        } finally {
+            // Only matters if the refresh failed; the refreshed trees replace these otherwise
+            trees.refreshing.set(false);
+        }
+    }
+
+    /**
+     * Loads the trees of a project from disk, or takes the ones already loaded, and refreshes the
+     * ones that are missing or stale.
+     *
+     * @param task The task whose organization, project and credentials are used
+     * @param loaded The trees already loaded, or null to read them from disk
+     * @return The refreshed trees of the project
+     */
+    private ProjectTrees loadProjectTrees(Task task, ProjectTrees loaded) {
+        Path file = cacheDir.resolve(cacheFileName(task));
+        ProjectTrees current = loaded != null ? loaded : readFromDisk(file);
+
+        long now = System.currentTimeMillis();
+        boolean areasDue = isStale(current.areas, now);
+        boolean iterationsDue = isStale(current.iterations, now);
+        CachedTree areas = refreshIfStale(task, AREAS, current.areas);
+        CachedTree iterations = refreshIfStale(task, ITERATIONS, current.iterations);
+        long retryAt = 0;
+        if (areas.root == null || iterations.root == null) {
+            retryAt = System.currentTimeMillis() + FAILED_FETCH_RETRY_MS;
+            log.warn("Paths of {}/{} are not validated until its classification trees can be fetched; trying again in {} s",
+                    task.getOrganization(), task.getProject(), TimeUnit.MILLISECONDS.toSeconds(FAILED_FETCH_RETRY_MS));
+        } else if ((areasDue && areas == current.areas) || (iterationsDue && iterations == current.iterations)) {
+            // A stale tree is still better than none, but is not fetched again on every lookup
+            retryAt = System.currentTimeMillis() + FAILED_FETCH_RETRY_MS;
+            log.warn("Validating paths of {}/{} against stale classification trees; trying again in {} s",
+                    task.getOrganization(), task.getProject(), TimeUnit.MILLISECONDS.toSeconds(FAILED_FETCH_RETRY_MS));
+        }
+        ProjectTrees trees = new ProjectTrees(areas, iterations, retryAt);
+        if (areas != current.areas || iterations != current.iterations) {
+            writeToDisk(file, trees);
+        }
+        return trees;
+    }
+
+    /**
+     * Refreshes a cached tree when it is missing or older than the configured TTL.
+     *
+     * @param task The task whose organization, project and credentials are used
+     * @param structureGroup The structure group to fetch
+     * @param tree The cached tree
+     * @return The refreshed tree, which must be persisted, or the cached tree itself if it is
+     *         fresh or could not be fetched
+     */
+    private CachedTree refreshIfStale(Task task, String structureGroup, CachedTree tree) {
+        long now = System.currentTimeMillis();
+        if (!isStale(tree, now)) {
+            return tree;
+        }
+
+        try {
+            HttpResponse<String> response = azureService.fetchClassificationNodes(
+                    task, structureGroup, tree.root != null ? tree.etag : null);
+
+            if (response.statusCode() == 304) {
+                log.debug("{} of {}/{} unchanged", structureGroup, task.getOrganization(), task.getProject());
+                return new CachedTree(tree.root, tree.etag, now);
+            }
+            if (response.statusCode() == 200) {
+                ClassificationNode root = parseNode(JsonParser.parseString(response.body()).getAsJsonObject());
+                log.info("Fetched {} of {}/{}", structureGroup, task.getOrganization(), task.getProject());
+                return new CachedTree(root, response.headers().firstValue("ETag").orElse(null), now);
+            }
+            log.warn("Could not fetch {} of {}/{} - Status: {}",
+                    structureGroup, task.getOrganization(), task.getProject(), response.statusCode());
+        } catch (IOException | RuntimeException e) {
+            // An unreadable tree is a failed fetch too
+            log.warn("Could not fetch {} of {}/{} - Error: {}",
+                    structureGroup, task.getOrganization(), task.getProject(), e.getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return tree;
+    }
+
+    /**
+     * Determines if a cached tree must be fetched.
+     *
+     * @param tree The cached tree
+     * @param now The current time, in milliseconds since the epoch
+     * @return true if the tree is missing or older than the TTL, false otherwise
+     */
+    private boolean isStale(CachedTree tree, long now) {
+        return tree.root == null || now - tree.fetchedAt >= ttlMs;
+    }
+
+    /**
+     * Reads the persisted trees of a project.
+     *
+     * @param file The cache file
+     * @return The persisted trees, or empty trees if the file does not exist or is unreadable
+     */
+    private ProjectTrees readFromDisk(Path file) {
+        if (!Files.exists(file)) {
+            return new ProjectTrees(CachedTree.MISSING, CachedTree.MISSING, 0);
+        }
+        try (Reader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            JsonObject json = JsonParser.parseReader(reader).getAsJsonObject();
+            return new ProjectTrees(readTree(json.getAsJsonObject(AREAS)), readTree(json.getAsJsonObject(ITERATIONS)), 0);
+        } catch (Exception e) {
+            log.warn("Ignoring unreadable classification cache {}: {}", file, e.getMessage());
+            return new ProjectTrees(CachedTree.MISSING, CachedTree.MISSING, 0);
+        }
+    }
+
+    /**
+     * Reads a single persisted tree.
+     *
+     * @param json The persisted tree, may be null
+     * @return The tree, or {@link CachedTree#MISSING} if none was persisted
+     */
+    private CachedTree readTree(JsonObject json) {
+        if (json == null || !json.has("root")) {
+            return CachedTree.MISSING;
+        }
+        return new CachedTree(parseNode(json.getAsJsonObject("root")),
+                json.has("etag") ? json.get("etag").getAsString() : null,
+                json.get("fetchedAt").getAsLong());
+    }
+
+    /**
+     * Persists the trees of a project, replacing the previous file atomically.
+     *
+     * @param file The cache file
+     * @param trees The trees to persist
+     */
+    private void writeToDisk(Path file, ProjectTrees trees) {
+        JsonObject json = new JsonObject();
+        json.add(AREAS, writeTree(trees.areas));
+        json.add(ITERATIONS, writeTree(trees.iterations));
+
+        try {
+            Files.createDirectories(cacheDir);
+            Path tmp = Files.createTempFile(cacheDir, "classification", ".tmp");
+            try (Writer writer = Files.newBufferedWriter(tmp, StandardCharsets.UTF_8)) {
+                writer.write(json.toString());
+            }
+            Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            log.warn("Could not write classification cache {}: {}", file, e.getMessage());
+        }
+    }
+
+    /**
+     * Serializes a single tree.
+     *
+     * @param tree The tree to serialize
+     * @return The JSON representation, or an empty object if the tree is not loaded
+     */
+    private JsonObject writeTree(CachedTree tree) {
+        JsonObject json = new JsonObject();
+        if (tree.root != null) {
+            json.addProperty("etag", tree.etag);
+            json.addProperty("fetchedAt", tree.fetchedAt);
+            json.add("root", writeNode(tree.root));
+        }
+        return json;
+    }
+
+    /**
+     * Builds a node and its descendants from the JSON returned by Azure DevOps.
+     *
+     * @param json The JSON node
+     * @return The classification node
+     */
+    private static ClassificationNode parseNode(JsonObject json) {
+        ClassificationNode node = new ClassificationNode(json.get("name").getAsString());
+        JsonArray children = json.getAsJsonArray("children");
+        if (children != null) {
+            for (JsonElement child : children) {
+                node.addChild(parseNode(child.getAsJsonObject()));
+            }
+        }
+        return node;
+    }
+
+    /**
+     * Serializes a node and its descendants using the same shape Azure DevOps returns.
+     *
+     * @param node The classification node
+     * @return The JSON node
+     */
+    private static JsonObject writeNode(ClassificationNode node) {
+        JsonObject json = new JsonObject();
+        json.addProperty("name", node.getName());
+        if (!node.getChildren().isEmpty()) {
+            JsonArray children = new JsonArray();
+            for (ClassificationNode child : node.getChildren()) {
+                children.add(writeNode(child));
+            }
+            json.add("children", children);
+        }
+        return json;
+    }
+
+    /**
+     * Builds a file name for the cache of the task's project.
+     *
+     * @param task The task whose organization and project are used
+     * @return The file name
+     */
+    private static String cacheFileName(Task task) {
+        String name = task.getOrganization() + "_" + task.getProject();
+        return "classification-" + name.replaceAll("[^A-Za-z0-9._-]", "_") + ".json";
+    }
+
+    /**
+     * The area and iteration trees of a single project. The trees are never modified; a refresh
+     * publishes new ones.
+     */
+    private static class ProjectTrees {
+        private final CachedTree areas;
+        private final CachedTree iterations;
+        private final long retryAt;
+        private final AtomicBoolean refreshing = new AtomicBoolean();
+
+        /**
+         * Creates a new instance of ProjectTrees.
+         *
+         * @param areas The area tree
+         * @param iterations The iteration tree
+         * @param retryAt The time to fetch a tree that could not be fetched again, or 0 if both were
+         */
+        private ProjectTrees(CachedTree areas, CachedTree iterations, long retryAt) {
+            this.areas = areas;
+            this.iterations = iterations;
+            this.retryAt = retryAt;
+        }
+
+        /**
+         * Determines if the trees must be refreshed: a tree could not be fetched and its retry time
+         * has passed, or a tree is older than the TTL.
+         *
+         * @param ttlMs The time to live of a tree in milliseconds
+         * @return true if the trees must be refreshed, false otherwise
+         */
+        private boolean isRefreshDue(long ttlMs) {
+            long now = System.currentTimeMillis();
+            if (retryAt != 0) {
+                return now >= retryAt;
+            }
+            return now - Math.min(areas.fetchedAt, iterations.fetchedAt) >= ttlMs;
+        }
+    }
+
+    /**
+     * A tree together with the metadata needed to refresh it.
+     */
+    private static class CachedTree {
+
+        /**
+         * A tree that was never fetched.
+         */
+        private static final CachedTree MISSING = new CachedTree(null, null, 0);
+
+        private final ClassificationNode root;
+        private final String etag;
+        private final long fetchedAt;
+
+        /**
+         * Creates a new instance of CachedTree.
+         *
+         * @param root The root of the tree, or null if it was never fetched
+         * @param etag The ETag of the tree, or null
+         * @param fetchedAt The time the tree was fetched or confirmed unchanged, in milliseconds since the epoch
+         */
+        private CachedTree(ClassificationNode root, String etag, long fetchedAt) {
+            this.root = root;
+            this.etag = etag;
+            this.fetchedAt = fetchedAt;
+        }
+    }
+}
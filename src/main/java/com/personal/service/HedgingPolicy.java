@@ -0,0 +1,90 @@
+package com.personal.service;
+
+import java.util.Arrays;
+
+/**
+ * Decides when a read request should be hedged with a second identical request.
+ *
+ * <p>
+ * The policy keeps the latencies of the most recent requests and hedges a request that has
+ * not answered by the observed 95th percentile. Hedges are limited by a budget expressed as a
+ * percentage of all requests, so hedging cannot multiply the load on a slow service. Until
+ * enough latencies have been observed no request is hedged.
+ * </p>
+ */
+public class HedgingPolicy {
+
+    private static final int SAMPLE_SIZE = 256;
+    private static final int MINIMUM_SAMPLES = 20;
+    private static final double PERCENTILE = 0.95;
+
+    private final int budgetPercent;
+    private final long minDelayMs;
+    private final long[] samples = new long[SAMPLE_SIZE];
+    private int sampleCount;
+    private int nextSample;
+    private long requests;
+    private long hedges;
+
+    /**
+     * Creates a new instance of HedgingPolicy.
+     *
+     * @param budgetPercent The maximum number of hedges, as a percentage of all requests
+     * @param minDelayMs The minimum time to wait before hedging, whatever the observed latency
+     */
+    public HedgingPolicy(int budgetPercent, long minDelayMs) {
+        this.budgetPercent = budgetPercent;
+        this.minDelayMs = minDelayMs;
+    }
+
+    /**
+     * Registers a new request and gets the delay after which it should be hedged.
+     *
+     * @return The hedge delay in milliseconds, or -1 if the request must not be hedged
+     */
+    public synchronized long onRequest() {
+        requests++;
+        if (sampleCount < MINIMUM_SAMPLES) {
+            return -1;
+        }
+        long[] sorted = Arrays.copyOf(samples, sampleCount);
+        Arrays.sort(sorted);
+        long p95 = sorted[(int) Math.ceil(PERCENTILE * sampleCount) - 1];
+        return Math.max(minDelayMs, p95);
+    }
+
+    /**
+     * Asks for permission to send a hedge, consuming budget if granted.
+     *
+     * @return true if the hedge may be sent, false if the budget is exhausted
+     */
+    public synchronized boolean tryHedge() {
+        if ((hedges + 1) * 100 > budgetPercent * requests) {
+            return false;
+        }
+        hedges++;
+        return true;
+    }
+
+    /**
+     * Records the latency of a completed request.
+     *
+     * @param latencyMs The latency in milliseconds
+     */
+    public synchronized void recordLatency(long latencyMs) {
+        samples[nextSample] = latencyMs;
+        nextSample = (nextSample + 1) % SAMPLE_SIZE;
+        if (sampleCount < SAMPLE_SIZE) {
+            sampleCount++;
+        }
+    }
+
+    /**
+     * Gets the number of hedges sent so far.
+     *
+     * @return The number of hedges
+     */
+    public synchronized long getHedges() {
+        return hedges;
+    }
+}
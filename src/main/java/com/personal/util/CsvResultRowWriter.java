@@ -0,0 +1,48 @@
+package com.personal.util;
+
+import com.personal.model.TaskResult;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Writes a results file in the task CSV layout, with the outcome columns appended to every row.
+ */
+public class CsvResultRowWriter implements ResultRowWriter {
+
+    private final BufferedWriter writer;
+
+    /**
+     * Creates the results file, replacing any existing file, and writes its header.
+     *
+     * @param file The results file
+     * @throws IOException If the file cannot be created
+     */
+    public CsvResultRowWriter(Path file) throws IOException {
+        this.writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8);
+        writer.write(CsvWriter.HEADER);
+        writer.write(',');
+        writer.write(String.join(",", RESULT_COLUMNS));
+        writer.newLine();
+    }
+
+    @Override
+    public void write(TaskResult result) throws IOException {
+        CsvWriter.writeTask(writer, result.getTask());
+        writer.write(',');
+        CsvWriter.writeValue(writer, result.getWorkItemId());
+        writer.write(',');
+        writer.write(result.getStatus().name());
+        writer.write(',');
+        CsvWriter.writeValue(writer, result.getError());
+        writer.newLine();
+    }
+
+    @Override
+    public void close() throws IOException {
+        writer.close();
+    }
+}
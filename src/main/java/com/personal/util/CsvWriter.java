@@ -0,0 +1,155 @@
+package com.personal.util;
+
+import com.personal.model.Task;
+import com.personal.model.TaskResult;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+
+/**
+ * Utility class for writing task data to CSV files.
+ *
+ * <p>
+ * Files are written in the same layout {@link CsvReader} reads, including the optional Key and
+ * WorkItemType columns, so they can be fed back to the application.
+ * </p>
+ */
+@Slf4j
+public class CsvWriter {
+
+    /**
+     * Header row of the task CSV layout.
+     */
+    public static final String HEADER =
+            "Title,Description,AssignedTo,IterationPath,AreaPath,OriginalEstimateHours,RemainingHours,"
+                    + "ParentStory,Organization,Project,Area,Username,Token,Key,WorkItemType";
+
+    /**
+     * Header row of the results layout.
+     */
+    public static final String RESULTS_HEADER = "Line,Title,WorkItemId,Status,Error,Source";
+
+    /**
+     * Writes tasks to a CSV file, replacing any existing file.
+     *
+     * @param filePath The path to the CSV file
+     * @param tasks The tasks to write
+     * @throws IOException If an error occurs while writing the file
+     */
+    public static void writeTasksToCsv(String filePath, List<Task> tasks) throws IOException {
+        try (BufferedWriter writer = Files.newBufferedWriter(Paths.get(filePath), StandardCharsets.UTF_8)) {
+            writer.write(HEADER);
+            writer.newLine();
+            for (Task task : tasks) {
+                writeTask(writer, task);
+                writer.newLine();
+            }
+        }
+        log.info("Wrote {} tasks to CSV file {}", tasks.size(), filePath);
+    }
+
+    /**
+     * Writes the outcome of every task of a run to a CSV file, replacing any existing file.
+     *
+     * @param file The path to the CSV file
+     * @param results The results to write
+     * @throws IOException If an error occurs while writing the file
+     */
+    public static void writeResultsToCsv(Path file, List<TaskResult> results) throws IOException {
+        try (BufferedWriter writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            writer.write(RESULTS_HEADER);
+            writer.newLine();
+            for (TaskResult result : results) {
+                writer.write(Integer.toString(result.getTask().getLineNumber()));
+                writer.write(',');
+                writeValue(writer, result.getTask().getTitle());
+                writer.write(',');
+                writeValue(writer, result.getWorkItemId());
+                writer.write(',');
+                writer.write(result.getStatus().name());
+                writer.write(',');
+                writeValue(writer, result.getError());
+                writer.write(',');
+                writeValue(writer, result.getTask().getSource());
+                writer.newLine();
+            }
+        }
+    }
+
+    /**
+     * Writes the columns of a single task, without the line terminator.
+     *
+     * @param writer The writer
+     * @param task The task to write
+     * @throws IOException If an error occurs while writing
+     */
+    public static void writeTask(Writer writer, Task task) throws IOException {
+        writeValue(writer, task.getTitle());
+        writer.write(',');
+        writeValue(writer, task.getDescription());
+        writer.write(',');
+        writeValue(writer, task.getAssignedTo());
+        writer.write(',');
+        writeValue(writer, task.getIterationPath());
+        writer.write(',');
+        writeValue(writer, task.getAreaPath());
+        writer.write(',');
+        writeValue(writer, task.getOriginalEstimateHours());
+        writer.write(',');
+        writeValue(writer, task.getRemainingHours());
+        writer.write(',');
+        writeValue(writer, task.getParentStory());
+        writer.write(',');
+        writeValue(writer, task.getOrganization());
+        writer.write(',');
+        writeValue(writer, task.getProject());
+        writer.write(',');
+        writeValue(writer, task.getArea());
+        writer.write(',');
+        writeValue(writer, task.getUsername());
+        writer.write(',');
+        writeValue(writer, task.getToken());
+        writer.write(',');
+        writeValue(writer, task.getKey());
+        writer.write(',');
+        writeValue(writer, task.getWorkItemType());
+    }
+
+    /**
+     * Writes a single value, quoting it when it contains a comma, a quote or a line break.
+     *
+     * @param writer The writer
+     * @param value The value to write, may be null
+     * @throws IOException If an error occurs while writing
+     */
+    public static void writeValue(Writer writer, String value) throws IOException {
+        if (value == null || value.isEmpty()) {
+            return;
+        }
+        boolean needsQuotes = false;
+        for (int i = 0; i < value.length() && !needsQuotes; i++) {
+            char c = value.charAt(i);
+            needsQuotes = c == ',' || c == '"' || c == '\n' || c == '\r';
+        }
+        if (!needsQuotes) {
+            writer.write(value);
+            return;
+        }
+        writer.write('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"') {
+                writer.write('"');
+            }
+            writer.write(c);
+        }
+        writer.write('"');
+    }
+}
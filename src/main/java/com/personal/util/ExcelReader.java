@@ -0,0 +1,134 @@
+package com.personal.util;
+
+import com.personal.model.Task;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.poi.ss.usermodel.*;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Utility class for reading task data from Excel workbooks.
+ *
+ * <p>
+ * Apache POI is only referenced from this class, so it is loaded only when the input
+ * actually is a workbook and CSV runs do not pay for it.
+ * </p>
+ */
+@Slf4j
+public class ExcelReader {
+
+    /**
+     * Reads tasks from every sheet of an Excel file.
+     *
+     * @param file The Excel file
+     * @return A list of tasks to be aggregated to Azure DevOps, sheet by sheet.
+     * @throws IOException If an error occurs while reading the file
+     */
+    public static List<Task> readTasksFromExcel(Path file) throws IOException {
+        try (Workbook workbook = WorkbookFactory.create(file.toFile(), null, true)) {
+            List<Task> tasks = readTasksFromExcel(workbook);
+            tasks.forEach(task -> task.setSourceFile(file.toString()));
+            return tasks;
+        }
+    }
+
+    /**
+     * Reads tasks data from the provided Excel workbook and creates a list of tasks to be aggregated to Azure DevOps.
+     * <p>
+     * This method parses every sheet of the Excel workbook, e.g. one per team, in order, and extracts task
+     * information from it to create a list of Task objects. Each row in a sheet represents a task, and
+     * specific columns correspond to different attributes of the task.
+     * <p>
+     * Author: Luis Hernandez Jimenez
+     * <p>
+     * Contact: luisjimenezh8@gmail.com <a href="https://www.linkedin.com/in/luis-hernandez-jimenez-55986318a/">LinkedIn</a>
+     * @param workbook The Excel workbook containing task data.
+     * @return A list of tasks to be aggregated to Azure DevOps.
+     */
+    public static List<Task> readTasksFromExcel(Workbook workbook) {
+        List<Task> tasks = new ArrayList<>();
+        for (Sheet sheet : workbook) {
+            try {
+                List<Task> sheetTasks = readTasksFromSheet(sheet);
+                log.debug("Read {} tasks from sheet {}", sheetTasks.size(), sheet.getSheetName());
+                tasks.addAll(sheetTasks);
+            } catch (Exception e) {
+                log.error("Error reading sheet {} of Excel workbook: {}", sheet.getSheetName(), e.getMessage());
+            }
+        }
+        return tasks;
+    }
+
+    /**
+     * Reads the tasks of a single sheet. The first row is the header; rows without an organization are skipped.
+     *
+     * @param sheet The sheet
+     * @return The tasks of the sheet, each with its sheet name and row number
+     */
+    private static List<Task> readTasksFromSheet(Sheet sheet) {
+        List<Task> tasks = new ArrayList<>();
+        // Not getPhysicalNumberOfRows(): blank rows in between would cut off the last rows
+        int lastRow = sheet.getLastRowNum();
+        for (int i = 1; i <= lastRow; i++) {
+            Row row = sheet.getRow(i);
+            if (row != null) {
+                String title = getStringValue(row.getCell(0)); //Column tile
+                String description = getStringValue(row.getCell(1));
+                String assignedTo = getStringValue(row.getCell(2));
+                String iterationPath = getStringValue(row.getCell(3));
+                String areaPath = getStringValue(row.getCell(4));
+                String originalEstimateHours = getStringValue(row.getCell(5));
+                String remainingHours = getStringValue(row.getCell(6));
+                String parentStory = getStringValue(row.getCell(7));
+                String organization = getStringValue(row.getCell(8));
+                String project = getStringValue(row.getCell(9));
+                String area = getStringValue(row.getCell(10));
+                String username = getStringValue(row.getCell(11));
+                String token = getStringValue(row.getCell(12));
+                String key = getStringValue(row.getCell(13));
+                String workItemType = getStringValue(row.getCell(14));
+                if(!organization.isEmpty()) {
+                    tasks.add(Task.builder()
+                            .title(title).description(description).assignedTo(assignedTo)
+                            .iterationPath(iterationPath).areaPath(areaPath)
+                            .originalEstimateHours(originalEstimateHours).remainingHours(remainingHours)
+                            .parentStory(parentStory).organization(organization).project(project).area(area)
+                            .username(username).token(token).key(key).workItemType(workItemType)
+                            .lineNumber(i + 1)
+                            .sheet(sheet.getSheetName())
+                            .build());
+                }
+            }
+        }
+        return tasks;
+    }
+
+    /**
+     * Retrieves the value from the given cell in an Excel spreadsheet.
+     * <p>
+     * This method extracts the value from the provided cell, handling different cell types
+     * such as string and numeric. It returns a trimmed string representation of the cell's value.
+     * <p>
+     * Author: Luis Hernandez Jimenez
+     * <p>
+     * Contact: luisjimenezh8@gmail.com
+     * <a href="https://www.linkedin.com/in/luis-hernandez-jimenez-55986318a/">LinkedIn</a>
+     * @param cell The Excel cell from which to retrieve the value.
+     * @return The value of the cell as a trimmed string. If the cell is null or empty, returns an empty string.
+     */
+    private static String getStringValue(Cell cell) {
+        if (cell == null) {
+            return "";
+        }
+        if (cell.getCellType() == CellType.STRING) {
+            return cell.getStringCellValue().trim();
+        } else if (cell.getCellType() == CellType.NUMERIC) {
+            return String.valueOf((int) cell.getNumericCellValue());
+        } else {
+            return "";
+        }
+    }
+}
@@ -0,0 +1,103 @@
+package com.personal.util;
+
+import com.personal.model.Task;
+import com.personal.model.TaskResult;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.xssf.streaming.SXSSFWorkbook;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Writes a results file as an XLSX workbook in the same column layout {@link ExcelReader} reads,
+ * with the outcome columns appended to every row.
+ *
+ * <p>
+ * The workbook is written through POI's streaming {@link SXSSFWorkbook}: only the last
+ * {@value #ROW_WINDOW} rows are kept in memory and older rows are flushed to a temporary file,
+ * so the size of the results does not affect the heap.
+ * </p>
+ */
+public class ExcelResultRowWriter implements ResultRowWriter {
+
+    private static final int ROW_WINDOW = 100;
+
+    private final Path file;
+    private final SXSSFWorkbook workbook;
+    private final Sheet sheet;
+    private int nextRow;
+
+    /**
+     * Creates the workbook of the results file and writes its header row.
+     * The file itself is written when the writer is closed.
+     *
+     * @param file The results file
+     */
+    public ExcelResultRowWriter(Path file) {
+        this.file = file;
+        this.workbook = new SXSSFWorkbook(ROW_WINDOW);
+        // Rows are compressed in the temporary file, which is otherwise as large as the uncompressed sheet
+        this.workbook.setCompressTempFiles(true);
+        this.sheet = workbook.createSheet("Results");
+
+        String[] taskColumns = CsvWriter.HEADER.split(",");
+        Row header = sheet.createRow(nextRow++);
+        for (int i = 0; i < taskColumns.length; i++) {
+            header.createCell(i).setCellValue(taskColumns[i]);
+        }
+        for (int i = 0; i < RESULT_COLUMNS.length; i++) {
+            header.createCell(taskColumns.length + i).setCellValue(RESULT_COLUMNS[i]);
+        }
+    }
+
+    @Override
+    public void write(TaskResult result) {
+        Task task = result.getTask();
+        Row row = sheet.createRow(nextRow++);
+        int column = 0;
+        setValue(row, column++, task.getTitle());
+        setValue(row, column++, task.getDescription());
+        setValue(row, column++, task.getAssignedTo());
+        setValue(row, column++, task.getIterationPath());
+        setValue(row, column++, task.getAreaPath());
+        setValue(row, column++, task.getOriginalEstimateHours());
+        setValue(row, column++, task.getRemainingHours());
+        setValue(row, column++, task.getParentStory());
+        setValue(row, column++, task.getOrganization());
+        setValue(row, column++, task.getProject());
+        setValue(row, column++, task.getArea());
+        setValue(row, column++, task.getUsername());
+        setValue(row, column++, task.getToken());
+        setValue(row, column++, task.getKey());
+        setValue(row, column++, task.getWorkItemType());
+        setValue(row, column++, result.getWorkItemId());
+        setValue(row, column++, result.getStatus().name());
+        setValue(row, column, result.getError());
+    }
+
+    /**
+     * Sets the value of a cell, leaving the cell out when the value is empty.
+     *
+     * @param row The row
+     * @param column The column index
+     * @param value The value, may be null
+     */
+    private static void setValue(Row row, int column, String value) {
+        if (value != null && !value.isEmpty()) {
+            row.createCell(column).setCellValue(value);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        try (OutputStream out = Files.newOutputStream(file)) {
+            workbook.write(out);
+        } finally {
+            workbook.dispose();
+            workbook.close();
+        }
+    }
+}
@@ -0,0 +1,161 @@
+package com.personal.util;
+
+import java.io.IOException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Utility class for resolving the input option into the files to read.
+ *
+ * <p>
+ * The input can be a single file, a directory, whose CSV, NDJSON and Excel files are all read, or
+ * a glob such as {@code exports/*.csv} or {@code plans/**}{@code /*.xlsx}. {@code -} stands for
+ * the standard input, read as NDJSON. Several inputs can be given separated by commas. Files are
+ * returned in a stable order, so that every run, and every worker of a sharded run, sees the same
+ * rows in the same order.
+ * </p>
+ */
+public class InputSources {
+
+    private static final String GLOB_CHARACTERS = "*?[{";
+
+    /**
+     * Resolves the input option into the files to read.
+     *
+     * @param input The input option: files, directories or globs, separated by commas
+     * @return The input files, in order; a plain file is returned even if it does not exist
+     * @throws IOException If a directory cannot be listed, or a directory or glob has no input file
+     */
+    public static List<Path> resolve(String input) throws IOException {
+        List<Path> files = new ArrayList<>();
+        for (String part : splitInputs(input)) {
+            String spec = part.trim();
+            if (spec.isEmpty()) {
+                continue;
+            }
+            List<Path> resolved;
+            if (isGlob(spec)) {
+                resolved = resolveGlob(spec);
+            } else if (Files.isDirectory(Paths.get(spec))) {
+                resolved = listInputFiles(Paths.get(spec), 1, path -> true);
+            } else {
+                files.add(Paths.get(spec));
+                continue;
+            }
+            if (resolved.isEmpty()) {
+                throw new IOException("No CSV, NDJSON or Excel file matches " + spec);
+            }
+            files.addAll(resolved);
+        }
+        return files.stream().distinct().collect(Collectors.toList());
+    }
+
+    /**
+     * Determines if a file is an input file, from its name. Hidden files and the results files
+     * written next to the inputs are not.
+     *
+     * @param file The file
+     * @return true if the file is a CSV, NDJSON or Excel file to read, false otherwise
+     */
+    public static boolean isInputFile(Path file) {
+        String name = file.getFileName().toString().toLowerCase(Locale.ROOT);
+        if (name.startsWith(".") || name.contains(".result.")) {
+            return false;
+        }
+        return name.endsWith(".csv") || name.endsWith(".jsonl") || name.endsWith(".ndjson")
+                || name.endsWith(".xlsx") || name.endsWith(".xls");
+    }
+
+    /**
+     * Resolves a glob, starting from its longest directory prefix without wildcards.
+     *
+     * @param glob The glob
+     * @return The matching input files, sorted by path
+     * @throws IOException If a directory cannot be listed
+     */
+    private static List<Path> resolveGlob(String glob) throws IOException {
+        Path pattern = Paths.get(glob);
+        Path base = pattern.isAbsolute() ? pattern.getRoot() : null;
+        int depth = 0;
+        boolean recursive = false;
+        for (Path segment : pattern) {
+            String name = segment.toString();
+            if (depth == 0 && !isGlob(name)) {
+                base = base == null ? segment : base.resolve(segment);
+                continue;
+            }
+            depth++;
+            recursive |= name.contains("**");
+        }
+        if (base == null) {
+            base = Paths.get("");
+        }
+        if (depth == 0 || !Files.isDirectory(base)) {
+            return new ArrayList<>();
+        }
+        PathMatcher matcher = FileSystems.getDefault().getPathMatcher("glob:" + glob);
+        return listInputFiles(base, recursive ? Integer.MAX_VALUE : depth, matcher::matches);
+    }
+
+    /**
+     * Lists the input files under a directory.
+     *
+     * @param directory The directory
+     * @param maxDepth The maximum number of directory levels to descend
+     * @param filter The filter the files must match
+     * @return The input files, sorted by path
+     * @throws IOException If the directory cannot be listed
+     */
+    private static List<Path> listInputFiles(Path directory, int maxDepth, PathMatcher filter) throws IOException {
+        try (Stream<Path> files = Files.walk(directory, maxDepth)) {
+            return files.filter(Files::isRegularFile)
+                    .filter(InputSources::isInputFile)
+                    .filter(filter::matches)
+                    .sorted()
+                    .collect(Collectors.toList());
+        }
+    }
+
+    /**
+     * Splits the input option at the commas that are not part of a glob alternative such as {@code {a,b}}.
+     *
+     * @param input The input option
+     * @return The inputs
+     */
+    private static List<String> splitInputs(String input) {
+        List<String> parts = new ArrayList<>();
+        int depth = 0;
+        int start = 0;
+        for (int i = 0; i < input.length(); i++) {
+            char c = input.charAt(i);
+            if (c == '{') {
+                depth++;
+            } else if (c == '}' && depth > 0) {
+                depth--;
+            } else if (c == ',' && depth == 0) {
+                parts.add(input.substring(start, i));
+                start = i + 1;
+            }
+        }
+        parts.add(input.substring(start));
+        return parts;
+    }
+
+    /**
+     * Determines if an input option contains wildcards.
+     *
+     * @param spec The input option
+     * @return true if it is a glob, false otherwise
+     */
+    private static boolean isGlob(String spec) {
+        return spec.chars().anyMatch(c -> GLOB_CHARACTERS.indexOf(c) >= 0);
+    }
+}
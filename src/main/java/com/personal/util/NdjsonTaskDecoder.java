@@ -0,0 +1,123 @@
+package com.personal.util;
+
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.personal.model.Task;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.function.BiConsumer;
+
+/**
+ * Decodes the lines of an NDJSON (JSON Lines) input into tasks, one JSON object per line.
+ *
+ * <p>
+ * Objects are read with Gson's streaming {@link JsonReader} straight into the task, without
+ * building a tree. Properties are named like the columns of a CSV input, matched ignoring case,
+ * spaces and underscores, so both {@code "AssignedTo"} and {@code "assignedTo"} set the assignee.
+ * Numbers and booleans are read as their text, null values are skipped, and an unknown property
+ * or a nested object or array is rejected. As with CSV, required fields are checked by validation.
+ * </p>
+ */
+public class NdjsonTaskDecoder {
+
+    /**
+     * The input name that stands for the standard input.
+     */
+    public static final String STDIN = "-";
+
+    /**
+     * The setters of the property names seen so far, so each name is only normalized once.
+     */
+    private final Map<String, BiConsumer<Task, String>> setters = new HashMap<>();
+
+    /**
+     * Determines if an input is read as NDJSON, from its name. The standard input always is.
+     *
+     * @param file The input file
+     * @return true if the input is NDJSON, false otherwise
+     */
+    public static boolean isNdjson(Path file) {
+        String name = file.getFileName().toString().toLowerCase(Locale.ROOT);
+        return name.equals(STDIN) || name.endsWith(".jsonl") || name.endsWith(".ndjson");
+    }
+
+    /**
+     * Decodes a line.
+     *
+     * @param line The line, holding one JSON object
+     * @param lineNumber The line number, for error messages
+     * @return The task of the line; fields without a property are null
+     * @throws IllegalArgumentException If the line is not a single JSON object of known properties
+     */
+    public Task decode(String line, int lineNumber) {
+        Task task = new Task();
+        readProperties(line, lineNumber, (name, value) -> {
+            BiConsumer<Task, String> setter = setters.computeIfAbsent(name, TaskRowDecoder::fieldSetter);
+            if (setter == null) {
+                throw new IllegalArgumentException(String.format("Line %d: unknown property '%s'", lineNumber, name));
+            }
+            setter.accept(task, value);
+        });
+        return task;
+    }
+
+    /**
+     * Decodes a line into its properties, whatever their names, such as a story of a template input.
+     *
+     * @param line The line, holding one JSON object
+     * @param lineNumber The line number, for error messages
+     * @return The values of the properties by name, in line order; null values are left out
+     * @throws IllegalArgumentException If the line is not a single JSON object of simple values
+     */
+    public static Map<String, String> decodeProperties(String line, int lineNumber) {
+        Map<String, String> properties = new LinkedHashMap<>();
+        readProperties(line, lineNumber, properties::put);
+        return properties;
+    }
+
+    /**
+     * Reads the properties of the JSON object of a line and hands each one to a consumer.
+     *
+     * @param line The line, holding one JSON object
+     * @param lineNumber The line number, for error messages
+     * @param consumer The consumer of the name and value of every property that is not null
+     * @throws IllegalArgumentException If the line is not a single JSON object of simple values
+     */
+    private static void readProperties(String line, int lineNumber, BiConsumer<String, String> consumer) {
+        try (JsonReader reader = new JsonReader(new StringReader(line))) {
+            reader.beginObject();
+            while (reader.hasNext()) {
+                String name = reader.nextName();
+                JsonToken token = reader.peek();
+                switch (token) {
+                    case NULL:
+                        reader.nextNull();
+                        break;
+                    case STRING:
+                    case NUMBER:
+                        consumer.accept(name, reader.nextString().trim());
+                        break;
+                    case BOOLEAN:
+                        consumer.accept(name, Boolean.toString(reader.nextBoolean()));
+                        break;
+                    default:
+                        throw new IllegalArgumentException(String.format(
+                                "Line %d: property '%s' must be a string, number or boolean", lineNumber, name));
+                }
+            }
+            reader.endObject();
+            if (reader.peek() != JsonToken.END_DOCUMENT) {
+                throw new IllegalArgumentException(String.format("Line %d: more than one JSON value", lineNumber));
+            }
+        } catch (IOException | IllegalStateException e) {
+            // Gson reports malformed JSON as either, with advice about lenient parsing that does not apply here
+            throw new IllegalArgumentException(String.format("Line %d: not a valid JSON object", lineNumber), e);
+        }
+    }
+}
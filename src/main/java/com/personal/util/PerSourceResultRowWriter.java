@@ -0,0 +1,66 @@
+package com.personal.util;
+
+import com.personal.model.TaskResult;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+/**
+ * Writes the results of an input made of several files to one results file per input file.
+ *
+ * <p>
+ * Rows arrive in input order, where the rows of each file are contiguous, so only the results
+ * file of the current input file is open: it is closed when the first row of the next file arrives.
+ * </p>
+ */
+public class PerSourceResultRowWriter implements ResultRowWriter {
+
+    /**
+     * Opens the results file of an input file.
+     */
+    @FunctionalInterface
+    public interface Opener {
+
+        /**
+         * Opens the results file of an input file.
+         *
+         * @param input The input file
+         * @return The writer of its results file
+         * @throws IOException If the results file cannot be created
+         */
+        ResultRowWriter open(Path input) throws IOException;
+    }
+
+    private final Opener opener;
+    private String currentSource;
+    private ResultRowWriter current;
+
+    /**
+     * Creates a new instance of PerSourceResultRowWriter.
+     *
+     * @param opener The opener of the results file of each input file
+     */
+    public PerSourceResultRowWriter(Opener opener) {
+        this.opener = opener;
+    }
+
+    @Override
+    public void write(TaskResult result) throws IOException {
+        String source = result.getTask().getSourceFile();
+        if (current == null || !source.equals(currentSource)) {
+            close();
+            current = opener.open(Paths.get(source));
+            currentSource = source;
+        }
+        current.write(result);
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (current != null) {
+            current.close();
+            current = null;
+        }
+    }
+}
@@ -0,0 +1,25 @@
+package com.personal.util;
+
+import com.personal.model.TaskResult;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * Writes the rows of a results file, each being the input row followed by its outcome.
+ */
+public interface ResultRowWriter extends Closeable {
+
+    /**
+     * Columns appended to the task columns of every row.
+     */
+    String[] RESULT_COLUMNS = {"WorkItemId", "Status", "Error"};
+
+    /**
+     * Writes the next row.
+     *
+     * @param result The result of the task of the row
+     * @throws IOException If the row cannot be written
+     */
+    void write(TaskResult result) throws IOException;
+}
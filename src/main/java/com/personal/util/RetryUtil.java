@@ -1,6 +1,8 @@
 package com.personal.util;
 
 import com.personal.config.AppConfig;
+import com.personal.core.RetryBudget;
+import com.personal.core.RetryBudgetExhaustedException;
 import lombok.extern.slf4j.Slf4j;
 
 import java.io.IOException;
@@ -25,12 +27,31 @@ public class RetryUtil {
      * @throws Exception If all retry attempts fail
      */
     public static <T> T executeWithRetry(Callable<T> callable, AppConfig config) throws Exception {
+        return executeWithRetry(callable, config, null);
+    }
+    
+    /**
+     * Executes a callable with retry logic, retrying only while a retry budget lasts.
+     *
+     * @param <T> The type of the result
+     * @param callable The callable to execute
+     * @param config The application configuration
+     * @param budget The retry budget of the run, or null to retry up to maxRetryAttempts
+     * @return The result of the callable
+     * @throws Exception If all retry attempts fail
+     * @throws RetryBudgetExhaustedException If an attempt fails and the budget is exhausted
+     */
+    public static <T> T executeWithRetry(Callable<T> callable, AppConfig config, RetryBudget budget) throws Exception {
         int attempts = 0;
         long delay = config.getInitialRetryDelayMs();
         
         while (true) {
             try {
-                return callable.call();
+                T result = callable.call();
+                if (budget != null) {
+                    budget.onSuccess();
+                }
+                return result;
             } catch (Exception e) {
                 attempts++;
                 if (attempts >= config.getMaxRetryAttempts()) {
@@ -38,6 +59,9 @@ public class RetryUtil {
                         config.getMaxRetryAttempts(), e.getMessage());
                     throw e;
                 }
+                if (budget != null && !budget.tryAcquire()) {
+                    throw new RetryBudgetExhaustedException(e.getMessage());
+                }
                 
                 log.warn("Attempt {} failed. Retrying in {} ms. Error: {}", 
                     attempts, delay, e.getMessage());
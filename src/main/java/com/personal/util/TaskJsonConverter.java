@@ -1,15 +1,98 @@
 package com.personal.util;
 
 
-import com.google.gson.*;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.stream.JsonWriter;
 import com.personal.model.Task;
 
-import java.util.ArrayList;
-import java.util.List;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.util.Collection;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
 
 public class TaskJsonConverter {
-    
-    private static final Gson gson = new Gson();
+
+    /**
+     * The work item fields a task is created with, and the task properties they map to.
+     *
+     * <p>
+     * The same mapping is used to create work items, to read them back in exports and syncs,
+     * and to update them from a sync, so a field round-trips unchanged.
+     * </p>
+     */
+    public enum WorkItemField {
+        TITLE("System.Title", Task::getTitle, Task::setTitle, Kind.TEXT),
+        DESCRIPTION("System.Description", Task::getDescription, Task::setDescription, Kind.TEXT),
+        ASSIGNED_TO("System.AssignedTo", Task::getAssignedTo, Task::setAssignedTo, Kind.IDENTITY),
+        ITERATION_PATH("System.IterationPath", Task::getIterationPath, Task::setIterationPath, Kind.TEXT),
+        AREA_PATH("System.AreaPath", Task::getAreaPath, Task::setAreaPath, Kind.TEXT),
+        ORIGINAL_ESTIMATE("Microsoft.VSTS.Scheduling.OriginalEstimate",
+                Task::getOriginalEstimateHours, Task::setOriginalEstimateHours, Kind.NUMBER),
+        REMAINING_WORK("Microsoft.VSTS.Scheduling.RemainingWork",
+                Task::getRemainingHours, Task::setRemainingHours, Kind.NUMBER);
+
+        private final String referenceName;
+        private final Function<Task, String> getter;
+        private final BiConsumer<Task, String> setter;
+        private final Kind kind;
+
+        WorkItemField(String referenceName, Function<Task, String> getter, BiConsumer<Task, String> setter, Kind kind) {
+            this.referenceName = referenceName;
+            this.getter = getter;
+            this.setter = setter;
+            this.kind = kind;
+        }
+
+        /**
+         * Gets the reference name of the field.
+         *
+         * @return The reference name, e.g. "System.Title"
+         */
+        public String getReferenceName() {
+            return referenceName;
+        }
+
+        /**
+         * Gets the value of the field of a task.
+         *
+         * @param task The task
+         * @return The value, or null if it is not set
+         */
+        public String get(Task task) {
+            return getter.apply(task);
+        }
+
+        /**
+         * Sets the value of the field of a task.
+         *
+         * @param task The task
+         * @param value The value
+         */
+        public void set(Task task, String value) {
+            setter.accept(task, value);
+        }
+    }
+
+    /**
+     * How the value of a field is represented in the JSON of a work item.
+     */
+    private enum Kind {
+        TEXT, NUMBER, IDENTITY
+    }
+
+    /**
+     * Reference name of the parent of a work item.
+     */
+    public static final String PARENT = "System.Parent";
+
+    /**
+     * Reference name of the type of a work item.
+     */
+    public static final String WORK_ITEM_TYPE = "System.WorkItemType";
 
     /**
      * Utility class for converting Task objects into JSON representations compatible with Azure DevOps.
@@ -33,61 +116,150 @@ public class TaskJsonConverter {
      * </p>
      */
     public static String createTaskJson(Task task) {
-        List<JsonObject> operations = new ArrayList<>();
-
-        JsonObject titleOperation = createOperation("add", "/fields/System.Title", task.getTitle());
-        JsonObject descriptionOperation = createOperation("add", "/fields/System.Description", task.getDescription());
-        JsonObject assignedToOperation = createOperation("add", "/fields/System.AssignedTo", task.getAssignedTo());
-        JsonObject iterationPathOperation = createOperation("add", "/fields/System.IterationPath", task.getIterationPath());
-        JsonObject areaPathOperation = createOperation("add", "/fields/System.AreaPath", task.getAreaPath());
-        JsonObject originalEstimateOperation = createOperation("add", "/fields/Microsoft.VSTS.Scheduling.OriginalEstimate", task.getOriginalEstimateHours());
-        JsonObject remainingWorkOperation = createOperation("add", "/fields/Microsoft.VSTS.Scheduling.RemainingWork", task.getRemainingHours());
-
-        operations.add(titleOperation);
-        operations.add(descriptionOperation);
-        operations.add(assignedToOperation);
-        operations.add(iterationPathOperation);
-        operations.add(areaPathOperation);
-        operations.add(originalEstimateOperation);
-        operations.add(remainingWorkOperation);
-
-        // Operación para la relación
-        JsonObject relationOperation = new JsonObject();
-        relationOperation.addProperty("op", "add");
-        relationOperation.addProperty("path", "/relations/-");
-
-        JsonObject relationValue = new JsonObject();
-        relationValue.addProperty("rel", "System.LinkTypes.Hierarchy-Reverse");
-        relationValue.addProperty("url", "https://dev.azure.com/" + task.getOrganization() + "/" + task.getProject() + "/" + task.getArea() + "/_apis/wit/workItems/" + task.getParentStory());
-        JsonObject attributes = new JsonObject();
-        attributes.addProperty("comment", "Added by automated script");
-        relationValue.add("attributes", attributes);
-
-        relationOperation.add("value", relationValue);
-
-        operations.add(relationOperation);
-
-        return gson.toJson(operations);
+        StringWriter json = new StringWriter();
+        try (JsonWriter writer = new JsonWriter(json)) {
+            writer.beginArray();
+
+            for (WorkItemField field : WorkItemField.values()) {
+                writeOperation(writer, "add", "/fields/" + field.referenceName, field.get(task));
+            }
+
+            // Top-level rows, such as stories created in the same run, have no parent
+            if (task.getParentStory() != null && !task.getParentStory().trim().isEmpty()) {
+                // Operación para la relación
+                writer.beginObject();
+                writer.name("op").value("add");
+                writer.name("path").value("/relations/-");
+                writer.name("value").beginObject();
+                writer.name("rel").value("System.LinkTypes.Hierarchy-Reverse");
+                writer.name("url").value("https://dev.azure.com/" + task.getOrganization() + "/" + task.getProject() + "/" + task.getArea() + "/_apis/wit/workItems/" + task.getParentStory());
+                writer.name("attributes").beginObject();
+                writer.name("comment").value("Added by automated script");
+                writer.endObject();
+                writer.endObject();
+                writer.endObject();
+            }
+
+            writer.endArray();
+        } catch (IOException e) {
+            // Writing to a StringWriter does not fail
+            throw new UncheckedIOException(e);
+        }
+        return json.toString();
+    }
+
+    /**
+     * Generates the JSON of an update of some fields of a work item.
+     *
+     * <p>
+     * The update starts with a test of the revision, so it is rejected if the work item was
+     * changed since that revision instead of overwriting the change. Fields that are empty in
+     * the task are removed from the work item.
+     * </p>
+     *
+     * @param task The task with the new values
+     * @param fields The fields to update
+     * @param rev The revision of the work item the update is based on
+     * @return The JSON Patch document of the update
+     */
+    public static String updateTaskJson(Task task, Collection<WorkItemField> fields, int rev) {
+        StringWriter json = new StringWriter();
+        try (JsonWriter writer = new JsonWriter(json)) {
+            writer.beginArray();
+            writer.beginObject();
+            writer.name("op").value("test");
+            writer.name("path").value("/rev");
+            writer.name("value").value(rev);
+            writer.endObject();
+            for (WorkItemField field : fields) {
+                String value = field.get(task);
+                if (value == null || value.trim().isEmpty()) {
+                    writer.beginObject();
+                    writer.name("op").value("remove");
+                    writer.name("path").value("/fields/" + field.referenceName);
+                    writer.endObject();
+                } else {
+                    writeOperation(writer, "add", "/fields/" + field.referenceName, value);
+                }
+            }
+            writer.endArray();
+        } catch (IOException e) {
+            // Writing to a StringWriter does not fail
+            throw new UncheckedIOException(e);
+        }
+        return json.toString();
+    }
+
+    /**
+     * Reads the fields of a work item, as returned by the work item APIs, into a task.
+     *
+     * <p>
+     * Identities are read as their unique name (usually the e-mail address), numbers without a
+     * trailing ".0", and line breaks in text are replaced with spaces, since the input files are
+     * read line by line. The parent is read into ParentStory.
+     * </p>
+     *
+     * @param fields The "fields" object of a work item
+     * @return A task with the values of the fields; organization, project and credentials are not set
+     */
+    public static Task readTask(JsonObject fields) {
+        Task task = new Task();
+        for (WorkItemField field : WorkItemField.values()) {
+            field.set(task, readValue(fields.get(field.referenceName), field.kind));
+        }
+        task.setParentStory(readValue(fields.get(PARENT), Kind.NUMBER));
+        task.setWorkItemType(readValue(fields.get(WORK_ITEM_TYPE), Kind.TEXT));
+        return task;
+    }
+
+    /**
+     * Reads the value of a field.
+     *
+     * @param value The JSON value of the field, or null if the work item does not have it
+     * @param kind How the value is represented
+     * @return The value as a string, or null if it is not set
+     */
+    private static String readValue(JsonElement value, Kind kind) {
+        if (value == null || value.isJsonNull()) {
+            return null;
+        }
+        switch (kind) {
+            case NUMBER:
+                return new BigDecimal(value.getAsString()).stripTrailingZeros().toPlainString();
+            case IDENTITY:
+                if (value.isJsonObject()) {
+                    JsonElement uniqueName = value.getAsJsonObject().get("uniqueName");
+                    return uniqueName == null ? null : uniqueName.getAsString();
+                }
+                return value.getAsString();
+            default:
+                return value.getAsString().replace("\r\n", " ").replace('\n', ' ').replace('\r', ' ');
+        }
     }
 
     /**
-     * Creates a JSON object representing a single operation for Azure DevOps.
+     * Writes a single operation for Azure DevOps.
      *
      * <p>
-     * This method constructs a JSON object representing a single operation to be included in the
-     * series of operations for creating or updating tasks in Azure DevOps.
+     * The operation is written directly to the JSON stream, without building an object tree.
+     * Operations with an empty value are left out, so fields that do not apply to the work item
+     * type are not sent.
      * </p>
      *
+     * @param writer The JSON writer.
      * @param op The type of operation (e.g., "add", "replace").
      * @param path The JSON path to the field being modified.
      * @param value The new value for the field.
-     * @return A JSON object representing a single operation for Azure DevOps.
+     * @throws IOException If the operation cannot be written.
      */
-    private static JsonObject createOperation(String op, String path, String value) {
-        JsonObject operation = new JsonObject();
-        operation.addProperty("op", op);
-        operation.addProperty("path", path);
-        operation.addProperty("value", value);
-        return operation;
+    private static void writeOperation(JsonWriter writer, String op, String path, String value) throws IOException {
+        if (value == null || value.trim().isEmpty()) {
+            return;
+        }
+        writer.beginObject();
+        writer.name("op").value(op);
+        writer.name("path").value(path);
+        writer.name("value").value(value);
+        writer.endObject();
     }
 }
@@ -0,0 +1,356 @@
+package com.personal.util;
+
+import com.personal.model.Task;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.BiConsumer;
+import java.util.stream.Collectors;
+
+/**
+ * Decodes the rows of a CSV input into tasks, following the column names of its header.
+ *
+ * <p>
+ * The header is read once and compiled into a plan that gives the task field of every column,
+ * so the columns can come in any order and optional ones can be left out. A header with an
+ * unknown or repeated column, or without a required one, is rejected before any row is read,
+ * instead of silently shifting the data of every row into the wrong fields.
+ * </p>
+ *
+ * <p>
+ * Rows are decoded in a single pass over the line, with no regular expression and no
+ * intermediate array. Values may be quoted, with {@code ""} for a quote inside a quoted value,
+ * and are trimmed. A row with more non-empty columns than the header, which usually is an
+ * unquoted comma, is rejected.
+ * </p>
+ */
+public class TaskRowDecoder {
+
+    /**
+     * The task field of each known column, by the column name used in {@link CsvWriter#HEADER}.
+     */
+    private enum Column {
+        TITLE("Title", Task::setTitle, true),
+        DESCRIPTION("Description", Task::setDescription, false),
+        ASSIGNED_TO("AssignedTo", Task::setAssignedTo, false),
+        ITERATION_PATH("IterationPath", Task::setIterationPath, false),
+        AREA_PATH("AreaPath", Task::setAreaPath, false),
+        ORIGINAL_ESTIMATE_HOURS("OriginalEstimateHours", Task::setOriginalEstimateHours, false),
+        REMAINING_HOURS("RemainingHours", Task::setRemainingHours, false),
+        PARENT_STORY("ParentStory", Task::setParentStory, false),
+        ORGANIZATION("Organization", Task::setOrganization, true),
+        PROJECT("Project", Task::setProject, true),
+        AREA("Area", Task::setArea, false),
+        USERNAME("Username", Task::setUsername, true),
+        TOKEN("Token", Task::setToken, true),
+        KEY("Key", Task::setKey, false),
+        WORK_ITEM_TYPE("WorkItemType", Task::setWorkItemType, false);
+
+        private final String header;
+        private final BiConsumer<Task, String> setter;
+        private final boolean required;
+
+        Column(String header, BiConsumer<Task, String> setter, boolean required) {
+            this.header = header;
+            this.setter = setter;
+            this.required = required;
+        }
+    }
+
+    private static final Map<String, Column> COLUMNS_BY_NAME = new HashMap<>();
+
+    static {
+        for (Column column : Column.values()) {
+            COLUMNS_BY_NAME.put(normalize(column.header), column);
+        }
+    }
+
+    /**
+     * The field of every column of the input, or null for a column that is ignored.
+     */
+    private final Column[] plan;
+
+    /**
+     * The number of columns a row needs to have every required field.
+     */
+    private final int requiredColumns;
+
+    /**
+     * Creates a new instance of TaskRowDecoder.
+     *
+     * @param plan The field of every column of the input
+     * @param requiredColumns The number of columns a row needs to have every required field
+     */
+    private TaskRowDecoder(Column[] plan, int requiredColumns) {
+        this.plan = plan;
+        this.requiredColumns = requiredColumns;
+    }
+
+    /**
+     * Compiles the decoding plan of an input from its header line.
+     *
+     * <p>
+     * Column names are matched ignoring case, spaces and underscores, so "Assigned To" is the
+     * AssignedTo column. The outcome columns of a results file written by {@code --write-back}
+     * are ignored, so a results file can be used as an input again.
+     * </p>
+     *
+     * @param headerLine The header line of the input
+     * @return The decoder of the rows of the input
+     * @throws IllegalArgumentException If a column is unknown or repeated, or a required column is missing
+     */
+    public static TaskRowDecoder forHeader(String headerLine) {
+        List<String> names = new ArrayList<>();
+        // The header is decoded like a row, into a list of its column names
+        decodeValues(stripByteOrderMark(headerLine), 1, Integer.MAX_VALUE, (column, value) -> names.add(value));
+        while (!names.isEmpty() && names.get(names.size() - 1).isEmpty()) {
+            names.remove(names.size() - 1);
+        }
+
+        List<String> ignored = Arrays.stream(ResultRowWriter.RESULT_COLUMNS)
+                .map(TaskRowDecoder::normalize)
+                .collect(Collectors.toList());
+        Column[] plan = new Column[names.size()];
+        Map<Column, Integer> positions = new HashMap<>();
+        List<String> errors = new ArrayList<>();
+        for (int i = 0; i < names.size(); i++) {
+            String name = normalize(names.get(i));
+            Column column = COLUMNS_BY_NAME.get(name);
+            if (column == null) {
+                if (!ignored.contains(name)) {
+                    errors.add("unknown column '" + names.get(i) + "'");
+                }
+                continue;
+            }
+            Integer previous = positions.putIfAbsent(column, i);
+            if (previous != null) {
+                errors.add("column " + column.header + " appears twice");
+            }
+            plan[i] = column;
+        }
+
+        int requiredColumns = 0;
+        for (Column column : Column.values()) {
+            Integer position = positions.get(column);
+            if (column.required && position == null) {
+                errors.add("missing column " + column.header);
+            } else if (column.required) {
+                requiredColumns = Math.max(requiredColumns, position + 1);
+            }
+        }
+        if (!errors.isEmpty()) {
+            throw new IllegalArgumentException("Invalid header: " + String.join(", ", errors)
+                    + ". Expected columns: " + CsvWriter.HEADER);
+        }
+        return new TaskRowDecoder(plan, requiredColumns);
+    }
+
+    /**
+     * Gets the setter of the task field a name stands for, matched like the columns of a header,
+     * so other input formats name their fields the same way.
+     *
+     * @param name The column or property name
+     * @return The setter of the field, a setter that ignores the value for an outcome column of
+     *         a results file, or null if the name is unknown
+     */
+    static BiConsumer<Task, String> fieldSetter(String name) {
+        String normalized = normalize(name);
+        Column column = COLUMNS_BY_NAME.get(normalized);
+        if (column != null) {
+            return column.setter;
+        }
+        for (String resultColumn : ResultRowWriter.RESULT_COLUMNS) {
+            if (normalize(resultColumn).equals(normalized)) {
+                return (task, value) -> { };
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Splits a line into its values, unquoted and trimmed, like the header and rows of a task input.
+     *
+     * @param line The line
+     * @param lineNumber The line number, for error messages
+     * @return The values of the line
+     * @throws IllegalArgumentException If the line has an unterminated quoted value
+     */
+    static List<String> splitValues(String line, int lineNumber) {
+        List<String> values = new ArrayList<>();
+        decodeValues(stripByteOrderMark(line), lineNumber, Integer.MAX_VALUE, (column, value) -> values.add(value));
+        return values;
+    }
+
+    /**
+     * Decodes a row.
+     *
+     * @param line The line of the row
+     * @param lineNumber The line number, for error messages
+     * @return The task of the row; fields of columns the input does not have are null
+     * @throws IllegalArgumentException If the row has more columns than the header, misses a
+     *                                  required column, or has an unterminated quoted value
+     */
+    public Task decode(String line, int lineNumber) {
+        Task task = new Task();
+        int columns = decodeValues(line, lineNumber, plan.length, (column, value) -> {
+            Column field = plan[column];
+            if (field != null) {
+                field.setter.accept(task, value);
+            }
+        });
+        if (columns < requiredColumns) {
+            throw new IllegalArgumentException(String.format(
+                    "Line %d: Invalid number of fields. Expected %d, got %d", lineNumber, plan.length, columns));
+        }
+        return task;
+    }
+
+    /**
+     * Splits a line into its values in a single pass and hands each one to a consumer.
+     *
+     * @param line The line
+     * @param lineNumber The line number, for error messages
+     * @param maxColumns The number of columns a line may have
+     * @param consumer The consumer of the index and value of every column
+     * @return The number of columns of the line
+     * @throws IllegalArgumentException If the line has more than maxColumns columns or an unterminated quoted value
+     */
+    private static int decodeValues(String line, int lineNumber, int maxColumns, ValueConsumer consumer) {
+        int length = line.length();
+        int position = 0;
+        int column = 0;
+        while (true) {
+            if (column == maxColumns) {
+                if (isBlank(line, position)) {
+                    // Trailing empty columns, as spreadsheet applications export them
+                    return column;
+                }
+                throw new IllegalArgumentException(String.format(
+                        "Line %d: Invalid number of fields. Expected %d, got more; quote values that contain commas",
+                        lineNumber, maxColumns));
+            }
+            int start = skipSpaces(line, position);
+            String value;
+            if (start < length && line.charAt(start) == '"') {
+                StringBuilder unescaped = null;
+                int segment = start + 1;
+                int quote;
+                while (true) {
+                    quote = line.indexOf('"', segment);
+                    if (quote < 0) {
+                        throw new IllegalArgumentException(String.format(
+                                "Line %d: Unterminated quoted value in column %d", lineNumber, column + 1));
+                    }
+                    if (quote + 1 < length && line.charAt(quote + 1) == '"') {
+                        // An escaped quote; the value is only copied when it has one
+                        if (unescaped == null) {
+                            unescaped = new StringBuilder();
+                        }
+                        unescaped.append(line, segment, quote + 1);
+                        segment = quote + 2;
+                        continue;
+                    }
+                    break;
+                }
+                value = unescaped == null
+                        ? line.substring(segment, quote).trim()
+                        : unescaped.append(line, segment, quote).toString().trim();
+                position = skipSpaces(line, quote + 1);
+                if (position < length && line.charAt(position) != ',') {
+                    throw new IllegalArgumentException(String.format(
+                            "Line %d: Unexpected text after the quoted value of column %d", lineNumber, column + 1));
+                }
+            } else {
+                int comma = line.indexOf(',', start);
+                position = comma < 0 ? length : comma;
+                int end = position;
+                while (end > start && line.charAt(end - 1) <= ' ') {
+                    end--;
+                }
+                value = line.substring(start, end);
+            }
+            consumer.accept(column++, value);
+            if (position >= length) {
+                return column;
+            }
+            // Skip the comma
+            position++;
+        }
+    }
+
+    /**
+     * Determines if the rest of a line only has empty columns.
+     *
+     * @param line The line
+     * @param position The position the rest of the line starts at
+     * @return true if the rest of the line only has commas and whitespace, false otherwise
+     */
+    private static boolean isBlank(String line, int position) {
+        for (int i = position; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (c != ',' && c > ' ') {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Skips the spaces and tabs from a position of a line.
+     *
+     * @param line The line
+     * @param position The position
+     * @return The position of the first other character, or the length of the line
+     */
+    private static int skipSpaces(String line, int position) {
+        while (position < line.length() && (line.charAt(position) == ' ' || line.charAt(position) == '\t')) {
+            position++;
+        }
+        return position;
+    }
+
+    /**
+     * Normalizes a column name for matching.
+     *
+     * @param name The column name
+     * @return The name in lower case, without spaces and underscores
+     */
+    static String normalize(String name) {
+        StringBuilder normalized = new StringBuilder(name.length());
+        for (int i = 0; i < name.length(); i++) {
+            char c = name.charAt(i);
+            if (c != ' ' && c != '_') {
+                normalized.append(Character.toLowerCase(c));
+            }
+        }
+        return normalized.toString();
+    }
+
+    /**
+     * Removes the byte order mark some spreadsheet applications write at the start of CSV files.
+     *
+     * @param headerLine The header line
+     * @return The header line without a byte order mark
+     */
+    private static String stripByteOrderMark(String headerLine) {
+        return headerLine.startsWith("\uFEFF") ? headerLine.substring(1) : headerLine;
+    }
+
+    /**
+     * Consumer of the values of a line.
+     */
+    @FunctionalInterface
+    private interface ValueConsumer {
+
+        /**
+         * Accepts the value of a column.
+         *
+         * @param column The index of the column
+         * @param value The value, trimmed
+         */
+        void accept(int column, String value);
+    }
+}
@@ -0,0 +1,505 @@
+package com.personal.util;
+
+import com.personal.model.Task;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * Cache of parsed input files, so that re-running the same large input skips POI or CSV parsing.
+ *
+ * <p>
+ * The tasks of an input file are stored as a compact binary snapshot, keyed by the file's path,
+ * size, modification time and SHA-256 content hash. As with rsync's quick check, a snapshot is used
+ * without hashing when the size and modification time match; when only the modification time
+ * differs, e.g. after a checkout, the content hash decides, and a snapshot it confirms is stored
+ * again with the new modification time.
+ * </p>
+ *
+ * <p>
+ * A snapshot holds a dictionary of the distinct field values, so repeated values such as the
+ * organization, project or token are stored once, an index of the offset of every task, and the
+ * tasks themselves as variable-length dictionary references. It is loaded with a single
+ * memory-mapped read. Snapshots contain the tokens of the input, so they are only readable by
+ * their owner where the file system supports it.
+ * </p>
+ *
+ * <p>
+ * Every time a snapshot is stored, the snapshots whose input file is gone, that were not used for
+ * {@link #MAX_AGE_MS}, or that exceed the size limit of the cache, least recently used first, are deleted.
+ * </p>
+ */
+@Slf4j
+public class TaskSnapshotCache {
+
+    /**
+     * Changed whenever the snapshot layout or the task fields change; older snapshots are ignored.
+     */
+    private static final int VERSION = 1;
+    private static final int MAGIC = 0x41545331;
+    private static final int HASH_LENGTH = 32;
+
+    /**
+     * Time after which a snapshot that was not used is deleted.
+     */
+    private static final long MAX_AGE_MS = TimeUnit.DAYS.toMillis(30);
+
+    private static final List<Function<Task, String>> FIELDS = Arrays.asList(
+            Task::getTitle, Task::getDescription, Task::getAssignedTo, Task::getIterationPath,
+            Task::getAreaPath, Task::getOriginalEstimateHours, Task::getRemainingHours, Task::getParentStory,
+            Task::getOrganization, Task::getProject, Task::getArea, Task::getUsername, Task::getToken,
+            Task::getKey, Task::getWorkItemType, Task::getSheet);
+
+    private final Path directory;
+    private final long maxBytes;
+
+    /**
+     * Creates a new instance of TaskSnapshotCache.
+     *
+     * @param directory The directory the snapshots are stored in
+     * @param maxBytes The total size in bytes of the snapshots kept
+     */
+    public TaskSnapshotCache(Path directory, long maxBytes) {
+        this.directory = directory;
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * Takes the fingerprint of an input file, before it is parsed, so that changes made while it
+     * is being parsed invalidate the snapshot.
+     *
+     * @param file The input file
+     * @return The fingerprint of the file
+     * @throws IOException If the file cannot be read
+     */
+    public Fingerprint fingerprint(Path file) throws IOException {
+        Path absolute = file.toAbsolutePath().normalize();
+        return new Fingerprint(absolute.toString(), Files.size(absolute),
+                Files.getLastModifiedTime(absolute).to(TimeUnit.NANOSECONDS), hash(absolute));
+    }
+
+    /**
+     * Loads the tasks of an input file from its snapshot.
+     *
+     * @param file The input file
+     * @return The tasks, or null if there is no valid snapshot of the current content of the file
+     */
+    public List<Task> load(Path file) {
+        Path absolute = file.toAbsolutePath().normalize();
+        Path snapshot = snapshotFile(absolute);
+        if (!Files.exists(snapshot)) {
+            return null;
+        }
+        List<Task> tasks;
+        Fingerprint refreshed = null;
+        try (FileChannel channel = FileChannel.open(snapshot, StandardOpenOption.READ)) {
+            ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (buffer.getInt() != MAGIC || buffer.getInt() != VERSION) {
+                return null;
+            }
+            String path = readString(buffer);
+            long size = buffer.getLong();
+            long modifiedNanos = buffer.getLong();
+            byte[] hash = new byte[HASH_LENGTH];
+            buffer.get(hash);
+
+            if (!path.equals(absolute.toString()) || size != Files.size(absolute)) {
+                return null;
+            }
+            // Recently used snapshots are the last to be evicted
+            Files.setLastModifiedTime(snapshot, FileTime.fromMillis(System.currentTimeMillis()));
+            long currentNanos = Files.getLastModifiedTime(absolute).to(TimeUnit.NANOSECONDS);
+            boolean touched = modifiedNanos != currentNanos;
+            if (touched && !Arrays.equals(hash, hash(absolute))) {
+                return null;
+            }
+            tasks = readTasks(buffer, file.toString());
+            log.info("Loaded {} tasks of {} from snapshot {}", tasks.size(), file, snapshot.getFileName());
+            if (touched) {
+                refreshed = new Fingerprint(path, size, currentNanos, hash);
+            }
+        } catch (NoSuchFileException e) {
+            if (!Files.exists(absolute)) {
+                // The input is gone, and so are the tokens it held
+                deleteSnapshot(snapshot);
+            }
+            return null;
+        } catch (IOException | RuntimeException e) {
+            // Truncated or corrupt snapshot; the input is parsed again and the snapshot replaced
+            log.warn("Ignoring snapshot {} of {}: {}", snapshot, file, e.toString());
+            return null;
+        }
+        if (refreshed != null) {
+            // Same content with a new modification time: record it, so later runs skip the hash
+            store(refreshed, tasks);
+        }
+        return tasks;
+    }
+
+    /**
+     * Stores the tasks parsed from an input file.
+     *
+     * @param fingerprint The fingerprint of the file, taken before it was parsed
+     * @param tasks The tasks parsed from the file
+     */
+    public void store(Fingerprint fingerprint, List<Task> tasks) {
+        Path snapshot = snapshotFile(Paths.get(fingerprint.path));
+        try {
+            Files.createDirectories(directory);
+            Path tmp = Files.createTempFile(directory, "snapshot", ".tmp");
+            try {
+                restrictToOwner(tmp);
+                try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(tmp))) {
+                    write(new DataOutputStream(out), fingerprint, tasks);
+                }
+                Files.move(tmp, snapshot, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } finally {
+                Files.deleteIfExists(tmp);
+            }
+            log.debug("Stored snapshot of {} ({} tasks) in {}", fingerprint.path, tasks.size(), snapshot);
+        } catch (IOException e) {
+            log.warn("Could not write snapshot of {}: {}", fingerprint.path, e.getMessage());
+        }
+        evict();
+    }
+
+    /**
+     * Deletes the snapshots whose input file is gone or that were not used for {@link #MAX_AGE_MS},
+     * then the least recently used ones until the rest fits in the size limit.
+     */
+    private synchronized void evict() {
+        List<Path> kept = new ArrayList<>();
+        long oldest = System.currentTimeMillis() - MAX_AGE_MS;
+        try (DirectoryStream<Path> snapshots = Files.newDirectoryStream(directory, "snapshot-*.bin")) {
+            for (Path snapshot : snapshots) {
+                String source = readSourcePath(snapshot);
+                if (source == null || !Files.exists(Paths.get(source))
+                        || Files.getLastModifiedTime(snapshot).toMillis() < oldest) {
+                    deleteSnapshot(snapshot);
+                } else {
+                    kept.add(snapshot);
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            log.warn("Could not evict snapshots from {}: {}", directory, e.toString());
+            return;
+        }
+
+        Map<Path, Long> lastUsed = new HashMap<>();
+        Map<Path, Long> sizes = new HashMap<>();
+        for (Path snapshot : kept) {
+            try {
+                lastUsed.put(snapshot, Files.getLastModifiedTime(snapshot).toMillis());
+                sizes.put(snapshot, Files.size(snapshot));
+            } catch (IOException e) {
+                // Deleted meanwhile by another run sharing the cache
+            }
+        }
+        List<Path> byRecentUse = new ArrayList<>(sizes.keySet());
+        byRecentUse.sort(Comparator.comparing(lastUsed::get, Comparator.reverseOrder()));
+        long total = 0;
+        for (Path snapshot : byRecentUse) {
+            total += sizes.get(snapshot);
+            if (total > maxBytes) {
+                deleteSnapshot(snapshot);
+            }
+        }
+    }
+
+    /**
+     * Reads the path of the input file from the header of a snapshot.
+     *
+     * @param snapshot The snapshot file
+     * @return The absolute path of the input file, or null if the snapshot is of another version or corrupt
+     */
+    private static String readSourcePath(Path snapshot) {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(snapshot)))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+                return null;
+            }
+            int length = in.readInt();
+            if (length < 0 || length > Files.size(snapshot)) {
+                return null;
+            }
+            byte[] bytes = new byte[length];
+            in.readFully(bytes);
+            return new String(bytes, StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Deletes a snapshot.
+     *
+     * @param snapshot The snapshot file
+     */
+    private static void deleteSnapshot(Path snapshot) {
+        try {
+            Files.deleteIfExists(snapshot);
+            log.debug("Deleted snapshot {}", snapshot.getFileName());
+        } catch (IOException e) {
+            log.warn("Could not delete snapshot {}: {}", snapshot, e.getMessage());
+        }
+    }
+
+    /**
+     * Writes a snapshot: header, dictionary, offset index and task records.
+     *
+     * @param out The output
+     * @param fingerprint The fingerprint of the input file
+     * @param tasks The tasks of the input file
+     * @throws IOException If the snapshot cannot be written
+     */
+    private static void write(DataOutputStream out, Fingerprint fingerprint, List<Task> tasks) throws IOException {
+        Map<String, Integer> ids = new HashMap<>();
+        List<String> dictionary = new ArrayList<>();
+        ByteArrayOutputStream records = new ByteArrayOutputStream();
+        int[] offsets = new int[tasks.size()];
+        for (int i = 0; i < tasks.size(); i++) {
+            Task task = tasks.get(i);
+            offsets[i] = records.size();
+            for (Function<Task, String> field : FIELDS) {
+                String value = field.apply(task);
+                // 0 is a missing value, so dictionary references start at 1
+                writeVarInt(records, value == null ? 0 : ids.computeIfAbsent(value, v -> {
+                    dictionary.add(v);
+                    return dictionary.size();
+                }));
+            }
+            writeVarInt(records, task.getLineNumber());
+        }
+
+        out.writeInt(MAGIC);
+        out.writeInt(VERSION);
+        writeString(out, fingerprint.path);
+        out.writeLong(fingerprint.size);
+        out.writeLong(fingerprint.modifiedNanos);
+        out.write(fingerprint.hash);
+        out.writeInt(dictionary.size());
+        for (String value : dictionary) {
+            writeString(out, value);
+        }
+        out.writeInt(tasks.size());
+        for (int offset : offsets) {
+            out.writeInt(offset);
+        }
+        records.writeTo(out);
+    }
+
+    /**
+     * Reads the dictionary, offset index and task records of a snapshot.
+     *
+     * @param buffer The snapshot, positioned after the header
+     * @param sourceFile The input file, as the tasks should report it
+     * @return The tasks
+     */
+    private static List<Task> readTasks(ByteBuffer buffer, String sourceFile) {
+        String[] dictionary = new String[buffer.getInt() + 1];
+        for (int i = 1; i < dictionary.length; i++) {
+            dictionary[i] = readString(buffer);
+        }
+        int count = buffer.getInt();
+        int[] offsets = new int[count];
+        for (int i = 0; i < count; i++) {
+            offsets[i] = buffer.getInt();
+        }
+        int recordsStart = buffer.position();
+
+        List<Task> tasks = new ArrayList<>(count);
+        String[] values = new String[FIELDS.size()];
+        for (int i = 0; i < count; i++) {
+            buffer.position(recordsStart + offsets[i]);
+            for (int f = 0; f < values.length; f++) {
+                values[f] = dictionary[readVarInt(buffer)];
+            }
+            tasks.add(Task.builder()
+                    .title(values[0]).description(values[1]).assignedTo(values[2])
+                    .iterationPath(values[3]).areaPath(values[4])
+                    .originalEstimateHours(values[5]).remainingHours(values[6])
+                    .parentStory(values[7]).organization(values[8]).project(values[9]).area(values[10])
+                    .username(values[11]).token(values[12]).key(values[13]).workItemType(values[14])
+                    .sheet(values[15])
+                    .lineNumber(readVarInt(buffer))
+                    .sourceFile(sourceFile)
+                    .build());
+        }
+        return tasks;
+    }
+
+    /**
+     * Gets the snapshot file of an input file.
+     *
+     * @param absolute The absolute path of the input file
+     * @return The snapshot file, named after the hash of the path
+     */
+    private Path snapshotFile(Path absolute) {
+        byte[] digest = sha256().digest(absolute.toString().getBytes(StandardCharsets.UTF_8));
+        StringBuilder name = new StringBuilder("snapshot-");
+        for (int i = 0; i < 12; i++) {
+            name.append(String.format("%02x", digest[i]));
+        }
+        return directory.resolve(name.append(".bin").toString());
+    }
+
+    /**
+     * Computes the SHA-256 hash of the content of a file.
+     *
+     * @param file The file
+     * @return The hash
+     * @throws IOException If the file cannot be read
+     */
+    private static byte[] hash(Path file) throws IOException {
+        MessageDigest digest = sha256();
+        byte[] chunk = new byte[64 * 1024];
+        try (InputStream in = Files.newInputStream(file)) {
+            int read;
+            while ((read = in.read(chunk)) > 0) {
+                digest.update(chunk, 0, read);
+            }
+        }
+        return digest.digest();
+    }
+
+    /**
+     * Creates a SHA-256 digest.
+     *
+     * @return The digest
+     */
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    /**
+     * Makes a file readable and writable by its owner only, where the file system supports it.
+     *
+     * @param file The file
+     */
+    private static void restrictToOwner(Path file) {
+        try {
+            Files.setPosixFilePermissions(file, PosixFilePermissions.fromString("rw-------"));
+        } catch (UnsupportedOperationException | IOException e) {
+            log.debug("Could not restrict permissions of {}: {}", file, e.getMessage());
+        }
+    }
+
+    /**
+     * Writes a string as its UTF-8 length followed by its bytes.
+     *
+     * @param out The output
+     * @param value The string
+     * @throws IOException If the string cannot be written
+     */
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    /**
+     * Reads a string written by {@link #writeString(DataOutputStream, String)}.
+     *
+     * @param buffer The buffer
+     * @return The string
+     */
+    private static String readString(ByteBuffer buffer) {
+        int length = buffer.getInt();
+        if (length < 0 || length > buffer.remaining()) {
+            throw new BufferUnderflowException();
+        }
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Writes a non-negative number in 7-bit groups, so that small numbers take a single byte.
+     *
+     * @param out The output
+     * @param value The number
+     */
+    private static void writeVarInt(ByteArrayOutputStream out, int value) {
+        while ((value & ~0x7F) != 0) {
+            out.write((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.write(value);
+    }
+
+    /**
+     * Reads a number written by {@link #writeVarInt(ByteArrayOutputStream, int)}.
+     *
+     * @param buffer The buffer
+     * @return The number
+     */
+    private static int readVarInt(ByteBuffer buffer) {
+        int value = 0;
+        int shift = 0;
+        byte b;
+        do {
+            b = buffer.get();
+            value |= (b & 0x7F) << shift;
+            shift += 7;
+        } while ((b & 0x80) != 0);
+        return value;
+    }
+
+    /**
+     * Identity of an input file at a point in time.
+     */
+    public static class Fingerprint {
+        private final String path;
+        private final long size;
+        private final long modifiedNanos;
+        private final byte[] hash;
+
+        /**
+         * Creates a new instance of Fingerprint.
+         *
+         * @param path The absolute path of the file
+         * @param size The size of the file in bytes
+         * @param modifiedNanos The modification time of the file in nanoseconds
+         * @param hash The SHA-256 hash of the content of the file
+         */
+        private Fingerprint(String path, long size, long modifiedNanos, byte[] hash) {
+            this.path = path;
+            this.size = size;
+            this.modifiedNanos = modifiedNanos;
+            this.hash = hash;
+        }
+    }
+}
@@ -0,0 +1,273 @@
+package com.personal.util;
+
+import com.personal.model.Task;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.BiConsumer;
+
+/**
+ * A set of task templates that is repeated for every story of a stories input.
+ *
+ * <p>
+ * The templates file is a CSV file with the same columns as a task input, one template per row,
+ * where every column may be left out. Values may contain placeholders such as
+ * {@code ${StoryTitle}}, which are replaced by the value of the column of that name in the story,
+ * matched ignoring case, spaces and underscores. Story columns named like a task field, such as
+ * {@code ParentStory} or {@code AssignedTo}, override the value of every template when they are
+ * not empty; other columns only serve as placeholders.
+ * </p>
+ *
+ * <p>
+ * The templates are compiled once. The tasks of a story are only created when the story is
+ * expanded, so a stories input is turned into tasks one story at a time and the cross product is
+ * never held in memory.
+ * </p>
+ */
+@Slf4j
+public class TaskTemplates {
+
+    private final List<Template> templates;
+
+    /**
+     * The task field setters of the story column names seen so far, by column name, or a setter
+     * that does nothing for a column that is not a task field.
+     */
+    private final Map<String, BiConsumer<Task, String>> overrides = new HashMap<>();
+
+    /**
+     * Creates a new instance of TaskTemplates.
+     *
+     * @param templates The compiled templates
+     */
+    private TaskTemplates(List<Template> templates) {
+        this.templates = templates;
+    }
+
+    /**
+     * Loads and compiles the templates of a templates file.
+     *
+     * @param file The templates file
+     * @return The templates
+     * @throws IOException If the file cannot be read, or has an unknown column or an invalid placeholder
+     */
+    public static TaskTemplates load(Path file) throws IOException {
+        List<Template> templates = new ArrayList<>();
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            String header = reader.readLine();
+            if (header == null) {
+                throw new IOException(file + ": templates file is empty");
+            }
+            List<String> columns = TaskRowDecoder.splitValues(header, 1);
+            List<BiConsumer<Task, String>> setters = new ArrayList<>();
+            for (String column : columns) {
+                BiConsumer<Task, String> setter = column.isEmpty() ? null : TaskRowDecoder.fieldSetter(column);
+                if (setter == null && !column.isEmpty()) {
+                    throw new IOException(file + ": unknown column '" + column + "'. Expected columns: " + CsvWriter.HEADER);
+                }
+                setters.add(setter);
+            }
+
+            String line;
+            int lineNumber = 1;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                if (line.trim().isEmpty()) {
+                    continue;
+                }
+                try {
+                    List<String> values = TaskRowDecoder.splitValues(line, lineNumber);
+                    if (values.size() > columns.size()) {
+                        throw new IllegalArgumentException("Line " + lineNumber + ": more values than columns");
+                    }
+                    List<Field> fields = new ArrayList<>();
+                    for (int i = 0; i < values.size(); i++) {
+                        if (setters.get(i) != null && !values.get(i).isEmpty()) {
+                            fields.add(new Field(setters.get(i), values.get(i), lineNumber));
+                        }
+                    }
+                    templates.add(new Template(fields));
+                } catch (IllegalArgumentException e) {
+                    throw new IOException(file + ": " + e.getMessage(), e);
+                }
+            }
+        }
+        if (templates.isEmpty()) {
+            throw new IOException(file + ": templates file has no template");
+        }
+        log.info("Loaded {} task templates from {}", templates.size(), file);
+        return new TaskTemplates(templates);
+    }
+
+    /**
+     * Reads the column names of a CSV stories input from its header.
+     *
+     * @param headerLine The header line of the stories input
+     * @return The column names
+     */
+    public static List<String> storyColumns(String headerLine) {
+        return TaskRowDecoder.splitValues(headerLine, 1);
+    }
+
+    /**
+     * Creates the tasks of a story of a CSV stories input.
+     *
+     * @param columns The column names of the stories input
+     * @param line The line of the story
+     * @param lineNumber The line number, for error messages
+     * @return The tasks of the story, one per template
+     * @throws IllegalArgumentException If the line has more values than columns, or a placeholder has no column
+     */
+    public List<Task> expand(List<String> columns, String line, int lineNumber) {
+        List<String> values = TaskRowDecoder.splitValues(line, lineNumber);
+        if (values.size() > columns.size()) {
+            throw new IllegalArgumentException("Line " + lineNumber + ": more values than columns");
+        }
+        Map<String, String> story = new HashMap<>();
+        for (int i = 0; i < values.size(); i++) {
+            story.put(columns.get(i), values.get(i));
+        }
+        return expand(story, lineNumber);
+    }
+
+    /**
+     * Creates the tasks of a story.
+     *
+     * @param story The values of the story by column name
+     * @param lineNumber The line number, for error messages
+     * @return The tasks of the story, one per template
+     * @throws IllegalArgumentException If a placeholder has no column in the story
+     */
+    public List<Task> expand(Map<String, String> story, int lineNumber) {
+        Map<String, String> placeholders = new HashMap<>();
+        for (Map.Entry<String, String> column : story.entrySet()) {
+            placeholders.put(TaskRowDecoder.normalize(column.getKey()), column.getValue());
+        }
+
+        List<Task> tasks = new ArrayList<>(templates.size());
+        for (Template template : templates) {
+            Task task = new Task();
+            for (Field field : template.fields) {
+                field.setter.accept(task, field.resolve(placeholders, lineNumber));
+            }
+            for (Map.Entry<String, String> column : story.entrySet()) {
+                if (!column.getValue().isEmpty()) {
+                    overrideOf(column.getKey()).accept(task, column.getValue());
+                }
+            }
+            tasks.add(task);
+        }
+        return tasks;
+    }
+
+    /**
+     * Gets the setter a story column overrides the templates with.
+     *
+     * @param column The column name
+     * @return The setter of the task field of that name, or one that does nothing for other columns
+     */
+    private BiConsumer<Task, String> overrideOf(String column) {
+        return overrides.computeIfAbsent(column, name -> {
+            BiConsumer<Task, String> setter = TaskRowDecoder.fieldSetter(name);
+            return setter != null ? setter : (task, value) -> { };
+        });
+    }
+
+    /**
+     * A template: the fields it sets on every task created from it.
+     */
+    private static final class Template {
+
+        private final List<Field> fields;
+
+        /**
+         * Creates a new instance of Template.
+         *
+         * @param fields The fields the template sets
+         */
+        private Template(List<Field> fields) {
+            this.fields = fields;
+        }
+    }
+
+    /**
+     * A field of a template, with its value split into literal text and placeholders.
+     */
+    private static final class Field {
+
+        private final BiConsumer<Task, String> setter;
+
+        /**
+         * The literal text around the placeholders; there is one more literal than placeholders.
+         */
+        private final List<String> literals = new ArrayList<>();
+
+        /**
+         * The normalized column names of the placeholders.
+         */
+        private final List<String> placeholders = new ArrayList<>();
+
+        /**
+         * The column names of the placeholders as written, for error messages.
+         */
+        private final List<String> names = new ArrayList<>();
+
+        /**
+         * Compiles the value of a field.
+         *
+         * @param setter The setter of the task field
+         * @param value The value, with placeholders such as {@code ${StoryTitle}}
+         * @param lineNumber The line number of the template, for error messages
+         * @throws IllegalArgumentException If a placeholder is not closed or has no name
+         */
+        private Field(BiConsumer<Task, String> setter, String value, int lineNumber) {
+            this.setter = setter;
+            int position = 0;
+            int start;
+            while ((start = value.indexOf("${", position)) >= 0) {
+                int end = value.indexOf('}', start + 2);
+                if (end < 0 || value.substring(start + 2, end).trim().isEmpty()) {
+                    throw new IllegalArgumentException("Line " + lineNumber + ": invalid placeholder in '" + value + "'");
+                }
+                String name = value.substring(start + 2, end).trim();
+                literals.add(value.substring(position, start));
+                placeholders.add(TaskRowDecoder.normalize(name));
+                names.add(name);
+                position = end + 1;
+            }
+            literals.add(value.substring(position));
+        }
+
+        /**
+         * Resolves the value of the field for a story.
+         *
+         * @param story The values of the story by normalized column name
+         * @param lineNumber The line number of the story, for error messages
+         * @return The value with every placeholder replaced
+         * @throws IllegalArgumentException If a placeholder has no column in the story
+         */
+        private String resolve(Map<String, String> story, int lineNumber) {
+            if (placeholders.isEmpty()) {
+                return literals.get(0);
+            }
+            StringBuilder value = new StringBuilder(literals.get(0));
+            for (int i = 0; i < placeholders.size(); i++) {
+                String replacement = story.get(placeholders.get(i));
+                if (replacement == null) {
+                    throw new IllegalArgumentException(String.format(
+                            "Line %d: the story has no column for placeholder '${%s}'", lineNumber, names.get(i)));
+                }
+                value.append(replacement).append(literals.get(i + 1));
+            }
+            return value.toString();
+        }
+    }
+}
@@ -1,10 +1,15 @@
 package com.personal.util;
 
+import com.personal.model.ClassificationNode;
 import com.personal.model.Task;
+import com.personal.service.ClassificationCache;
 import lombok.extern.slf4j.Slf4j;
 
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 import java.util.regex.Pattern;
 
 /**
@@ -27,6 +32,36 @@ public class ValidationUtil {
      * @return true if the task is valid, false otherwise
      */
     public static boolean validateTask(Task task, int lineNumber) {
+        return validateTask(task, lineNumber, null);
+    }
+    
+    /**
+     * Validates a single task and logs any validation errors.
+     * When a classification cache is given, the area and iteration paths are also checked
+     * against the project's classification trees.
+     *
+     * @param task The task to validate
+     * @param lineNumber The line number in the CSV file
+     * @param classificationCache The cache of classification trees, or null to skip path checks
+     * @return true if the task is valid, false otherwise
+     */
+    public static boolean validateTask(Task task, int lineNumber, ClassificationCache classificationCache) {
+        return validateTask(task, lineNumber, classificationCache, Collections.emptySet());
+    }
+    
+    /**
+     * Validates a single task and logs any validation errors. Paths whose classification tree
+     * could not be fetched are logged as not validated, without making the task invalid.
+     *
+     * @param task The task to validate
+     * @param lineNumber The line number in the CSV file
+     * @param classificationCache The cache of classification trees, or null to skip path checks
+     * @param localKeys The keys of the rows of the same input, which are valid parent references;
+     *                  when rows are validated as they are read, the keys of the rows read so far
+     * @return true if the task is valid, false otherwise
+     */
+    public static boolean validateTask(Task task, int lineNumber, ClassificationCache classificationCache,
+                                        Set<String> localKeys) {
         List<String> errors = new ArrayList<>();
         
         // Required fields
@@ -71,14 +106,40 @@ public class ValidationUtil {
         }
         
         if (task.getParentStory() != null && !task.getParentStory().trim().isEmpty()) {
-            if (!NUMERIC_PATTERN.matcher(task.getParentStory()).matches()) {
-                errors.add("ParentStory must be a number");
+            if (!NUMERIC_PATTERN.matcher(task.getParentStory()).matches()
+                    && !localKeys.contains(task.getParentStory().trim())) {
+                errors.add("ParentStory must be a number or the key of another row");
             }
         }
         
+        // Classification paths; without a tree they are reported as not validated rather than as valid
+        List<String> notValidated = new ArrayList<>();
+        if (classificationCache != null && errors.isEmpty()) {
+            ClassificationNode areas = classificationCache.getAreaTree(task);
+            if (areas != null) {
+                checkPath(areas, task.getAreaPath(), "AreaPath", errors);
+                checkPath(areas, task.getArea(), "Area", errors);
+            } else {
+                addIfPresent(task.getAreaPath(), "AreaPath", notValidated);
+                addIfPresent(task.getArea(), "Area", notValidated);
+            }
+            ClassificationNode iterations = classificationCache.getIterationTree(task);
+            if (iterations != null) {
+                checkPath(iterations, task.getIterationPath(), "IterationPath", errors);
+            } else {
+                addIfPresent(task.getIterationPath(), "IterationPath", notValidated);
+            }
+        }
+        if (!notValidated.isEmpty()) {
+            log.warn("{} of {} not validated: the classification tree of {}/{} is unavailable",
+                    String.join(", ", notValidated),
+                    task.getSourceFile() == null ? "line " + lineNumber : task.getProvenance(),
+                    task.getOrganization(), task.getProject());
+        }
+        
         // Log errors if any
         if (!errors.isEmpty()) {
-            log.error("Validation errors for line {}:", lineNumber);
+            log.error("Validation errors for {}:", task.getSourceFile() == null ? "line " + lineNumber : task.getProvenance());
             for (String error : errors) {
                 log.error("  - {}", error);
             }
@@ -95,10 +156,28 @@ public class ValidationUtil {
      * @return true if all tasks are valid, false otherwise
      */
     public static boolean validateAndLogTasks(List<Task> tasks) {
+        return validateAndLogTasks(tasks, null);
+    }
+    
+    /**
+     * Validates a list of tasks, including their classification paths, and logs any validation errors.
+     *
+     * @param tasks The list of tasks to validate
+     * @param classificationCache The cache of classification trees, or null to skip path checks
+     * @return true if all tasks are valid, false otherwise
+     */
+    public static boolean validateAndLogTasks(List<Task> tasks, ClassificationCache classificationCache) {
         boolean allValid = true;
         
+        Set<String> localKeys = new HashSet<>();
+        for (Task task : tasks) {
+            if (task.getKey() != null && !task.getKey().trim().isEmpty()) {
+                localKeys.add(task.getKey().trim());
+            }
+        }
+        
         for (int i = 0; i < tasks.size(); i++) {
-            if (!validateTask(tasks.get(i), i + 1)) {
+            if (!validateTask(tasks.get(i), i + 1, classificationCache, localKeys)) {
                 allValid = false;
             }
         }
@@ -109,4 +188,31 @@ public class ValidationUtil {
         
         return allValid;
     }
+    
+    /**
+     * Adds the name of an optional classification field to a list if the field is set.
+     *
+     * @param path The path of the field, may be null or empty
+     * @param fieldName The field name
+     * @param fields The list to add the field name to
+     */
+    private static void addIfPresent(String path, String fieldName, List<String> fields) {
+        if (path != null && !path.trim().isEmpty()) {
+            fields.add(fieldName);
+        }
+    }
+
+    /**
+     * Checks that an optional classification path exists in the given tree.
+     *
+     * @param tree The root of the classification tree
+     * @param path The path to check, may be null or empty
+     * @param fieldName The field name used in the error message
+     * @param errors The list to add the error to
+     */
+    private static void checkPath(ClassificationNode tree, String path, String fieldName, List<String> errors) {
+        if (path != null && !path.trim().isEmpty() && !tree.containsPath(path)) {
+            errors.add(fieldName + " '" + path + "' does not exist in project " + tree.getName());
+        }
+    }
 } 
\ No newline at end of file
@@ -0,0 +1,89 @@
+package com.personal.util;
+
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.personal.model.WorkItemResponse;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Utility class for reading Azure DevOps work item responses as a stream.
+ *
+ * <p>
+ * Only the top-level {@code id}, {@code rev} and {@code message} properties are read.
+ * Everything else is skipped token by token, so no object tree is built for the fields,
+ * relations and links that make up most of the response.
+ * </p>
+ */
+public class WorkItemResponseParser {
+
+    /**
+     * Reads a work item response body.
+     *
+     * <p>
+     * The body is consumed to the end, including anything after the JSON object or a body that
+     * is not JSON, so the underlying connection can be reused, but the stream is not closed;
+     * that remains the caller's responsibility.
+     * </p>
+     *
+     * @param statusCode The HTTP status code of the response
+     * @param body The response body, may be null
+     * @return The parsed response
+     * @throws IOException If the body cannot be read
+     */
+    public static WorkItemResponse parse(int statusCode, InputStream body) throws IOException {
+        WorkItemResponse response = new WorkItemResponse();
+        response.setStatusCode(statusCode);
+        if (body == null) {
+            return response;
+        }
+
+        readProperties(new JsonReader(new InputStreamReader(body, StandardCharsets.UTF_8)), response);
+        // Trailing bytes, or the rest of a body that is not JSON, would keep the connection from being reused
+        body.transferTo(OutputStream.nullOutputStream());
+        return response;
+    }
+
+    /**
+     * Reads the top-level properties of interest of a work item response.
+     *
+     * @param reader The reader of the body
+     * @param response The response to fill
+     * @throws IOException If the body cannot be read
+     */
+    private static void readProperties(JsonReader reader, WorkItemResponse response) throws IOException {
+        reader.setLenient(true);
+        JsonToken first;
+        try {
+            first = reader.peek();
+        } catch (EOFException e) {
+            // Empty body, e.g. 204 responses
+            return;
+        }
+        if (first != JsonToken.BEGIN_OBJECT) {
+            reader.skipValue();
+            return;
+        }
+
+        reader.beginObject();
+        while (reader.hasNext()) {
+            String name = reader.nextName();
+            JsonToken token = reader.peek();
+            if ("id".equals(name) && token == JsonToken.NUMBER) {
+                response.setId(reader.nextInt());
+            } else if ("rev".equals(name) && token == JsonToken.NUMBER) {
+                response.setRev(reader.nextInt());
+            } else if ("message".equals(name) && token == JsonToken.STRING) {
+                response.setMessage(reader.nextString());
+            } else {
+                reader.skipValue();
+            }
+        }
+        reader.endObject();
+    }
+}
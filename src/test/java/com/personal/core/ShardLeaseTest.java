@@ -0,0 +1,143 @@
+package com.personal.core;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests of {@link ShardLease}.
+ */
+class ShardLeaseTest {
+
+    private static final long TIMEOUT_MS = 60_000;
+
+    @TempDir
+    Path directory;
+
+    /**
+     * A lease that is renewed cannot be taken by another worker, and is free again once released.
+     */
+    @Test
+    void heldLeaseIsExclusiveUntilReleased() throws IOException {
+        Path file = directory.resolve("shard-0.lease");
+
+        ShardLease lease = ShardLease.tryAcquire(file, "worker-a", TIMEOUT_MS);
+        assertNotNull(lease);
+        assertNull(ShardLease.tryAcquire(file, "worker-b", TIMEOUT_MS));
+        assertTrue(lease.renew());
+
+        lease.release();
+        assertFalse(Files.exists(file));
+        assertNotNull(ShardLease.tryAcquire(file, "worker-b", TIMEOUT_MS));
+    }
+
+    /**
+     * A lease whose heartbeat is older than the timeout is broken and taken over, and its former
+     * holder can neither renew nor release it anymore.
+     */
+    @Test
+    void expiredLeaseIsTakenOver() throws IOException {
+        Path file = directory.resolve("shard-0.lease");
+        ShardLease stale = ShardLease.tryAcquire(file, "worker-a", TIMEOUT_MS);
+        assertNotNull(stale);
+        expire(file);
+
+        ShardLease lease = ShardLease.tryAcquire(file, "worker-b", TIMEOUT_MS);
+        assertNotNull(lease);
+        assertEquals("worker-b", Files.readString(file));
+        assertFalse(stale.renew());
+
+        stale.release();
+        assertTrue(Files.exists(file));
+        assertTrue(lease.renew());
+        assertEquals(List.of(file), listFiles());
+    }
+
+    /**
+     * Workers racing to break the same expired lease end up with a single holder, and leave no
+     * renamed lease file behind.
+     */
+    @Test
+    void racingWorkersLeaveASingleHolder() throws Exception {
+        int workers = 8;
+        ExecutorService executor = Executors.newFixedThreadPool(workers);
+        try {
+            for (int round = 0; round < 50; round++) {
+                Path file = directory.resolve("shard-" + round + ".lease");
+                Files.writeString(file, "dead-worker");
+                expire(file);
+
+                CountDownLatch start = new CountDownLatch(1);
+                List<Future<ShardLease>> attempts = new ArrayList<>();
+                for (int i = 0; i < workers; i++) {
+                    String owner = "worker-" + i;
+                    Callable<ShardLease> attempt = () -> {
+                        start.await();
+                        return ShardLease.tryAcquire(file, owner, TIMEOUT_MS);
+                    };
+                    attempts.add(executor.submit(attempt));
+                }
+                start.countDown();
+
+                List<ShardLease> acquired = new ArrayList<>();
+                for (Future<ShardLease> attempt : attempts) {
+                    ShardLease lease = attempt.get(10, TimeUnit.SECONDS);
+                    if (lease != null) {
+                        acquired.add(lease);
+                    }
+                }
+                // A worker may briefly believe it holds a lease that was lost in the race,
+                // but only one of them can still renew it
+                assertFalse(acquired.isEmpty(), "round " + round);
+                assertEquals(1, acquired.stream().filter(ShardLease::renew).count(), "round " + round);
+                assertEquals(List.of(file), listFiles().stream()
+                        .filter(path -> path.getFileName().toString().startsWith(file.getFileName().toString()))
+                        .collect(Collectors.toList()), "round " + round);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Moves the heartbeat of a lease file past the timeout.
+     *
+     * @param file The lease file
+     * @throws IOException If the modification time cannot be set
+     */
+    private static void expire(Path file) throws IOException {
+        Files.setLastModifiedTime(file, FileTime.fromMillis(System.currentTimeMillis() - 2 * TIMEOUT_MS));
+    }
+
+    /**
+     * Lists the files of the lease directory.
+     *
+     * @return The files
+     * @throws IOException If the directory cannot be listed
+     */
+    private List<Path> listFiles() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.collect(Collectors.toList());
+        }
+    }
+}
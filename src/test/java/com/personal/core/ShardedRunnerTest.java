@@ -0,0 +1,116 @@
+package com.personal.core;
+
+import com.personal.model.Task;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests of {@link ShardedRunner#partition(List, int)}.
+ */
+class ShardedRunnerTest {
+
+    /**
+     * Rows without keys are split into shards of the requested size, in input order.
+     */
+    @Test
+    void independentRowsFillShards() {
+        List<Task> tasks = new ArrayList<>();
+        for (int i = 0; i < 7; i++) {
+            tasks.add(task("row-" + i, null, null));
+        }
+
+        List<List<Task>> shards = ShardedRunner.partition(tasks, 3);
+
+        assertEquals(List.of(3, 3, 1), sizes(shards));
+        assertEquals(tasks, flatten(shards));
+    }
+
+    /**
+     * A hierarchy is never split, even when it crosses a shard boundary or is larger than a shard.
+     */
+    @Test
+    void hierarchiesStayInOneShard() {
+        Task first = task("first", null, null);
+        Task story = task("story", "S1", null);
+        Task child = task("child", "C1", "S1");
+        Task grandchild = task("grandchild", null, "C1");
+        Task sibling = task("sibling", null, "S1");
+        Task last = task("last", null, null);
+
+        List<List<Task>> shards = ShardedRunner.partition(
+                List.of(first, story, child, grandchild, sibling, last), 2);
+
+        assertEquals(List.of(List.of(first), List.of(story, child, grandchild, sibling), List.of(last)), shards);
+    }
+
+    /**
+     * A child listed before its parent, and interleaved with other rows, joins the shard of its parent.
+     */
+    @Test
+    void childBeforeParentJoinsItsHierarchy() {
+        Task child = task("child", null, " S1 ");
+        Task other = task("other", null, null);
+        Task story = task("story", "S1", null);
+
+        List<List<Task>> shards = ShardedRunner.partition(List.of(child, other, story), 1);
+
+        assertEquals(2, shards.size());
+        List<Task> hierarchy = shards.stream().filter(shard -> shard.contains(story)).findFirst().orElseThrow();
+        assertTrue(hierarchy.contains(child));
+        assertEquals(List.of(other), shards.stream().filter(shard -> !shard.contains(story)).findFirst().orElseThrow());
+    }
+
+    /**
+     * Rows whose parents form a cycle are still partitioned, each exactly once.
+     */
+    @Test
+    void cyclesTerminate() {
+        Task a = task("a", "A", "B");
+        Task b = task("b", "B", "A");
+        Task c = task("c", null, null);
+
+        List<List<Task>> shards = ShardedRunner.partition(List.of(a, b, c), 10);
+
+        List<Task> rows = flatten(shards);
+        assertEquals(3, rows.size());
+        assertTrue(rows.containsAll(List.of(a, b, c)));
+    }
+
+    /**
+     * Creates a task row.
+     *
+     * @param title The title
+     * @param key The key, or null
+     * @param parentStory The key or work item ID of the parent, or null
+     * @return The task
+     */
+    private static Task task(String title, String key, String parentStory) {
+        return Task.builder().title(title).key(key).parentStory(parentStory).build();
+    }
+
+    /**
+     * Gets the sizes of shards.
+     *
+     * @param shards The shards
+     * @return The number of rows of every shard
+     */
+    private static List<Integer> sizes(List<List<Task>> shards) {
+        return shards.stream().map(List::size).collect(Collectors.toList());
+    }
+
+    /**
+     * Concatenates shards.
+     *
+     * @param shards The shards
+     * @return The rows of every shard, in order
+     */
+    private static List<Task> flatten(List<List<Task>> shards) {
+        return shards.stream().flatMap(List::stream).collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,213 @@
+package com.personal.core;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests of {@link SpillQueue}.
+ */
+class SpillQueueTest {
+
+    private static final SpillQueue.Codec<String> CODEC = new SpillQueue.Codec<>() {
+        @Override
+        public void encode(String item, DataOutputStream out) throws IOException {
+            out.writeUTF(item);
+        }
+
+        @Override
+        public String decode(DataInputStream in) throws IOException {
+            return in.readUTF();
+        }
+    };
+
+    @TempDir
+    Path directory;
+
+    /**
+     * Items past the high-water mark roll over into several segments, which are deleted as they are
+     * read, and every item comes back in the order it was put.
+     */
+    @Test
+    void spilledItemsRollOverSegmentsAndKeepTheirOrder() throws Exception {
+        SpillQueue<String> queue = new SpillQueue<>(directory, CODEC, 4, 64);
+        List<String> items = items(0, 200);
+        for (String item : items) {
+            queue.put(item);
+        }
+        queue.close();
+
+        assertEquals(200, queue.size());
+        int segments = segmentFiles().size();
+        assertTrue(segments > 1, "expected several segments, got " + segments);
+
+        List<String> taken = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            taken.add(queue.take());
+        }
+        assertTrue(segmentFiles().size() < segments, "read segments are deleted");
+
+        String item;
+        while ((item = queue.take()) != null) {
+            taken.add(item);
+        }
+        assertEquals(items, taken);
+        assertEquals(0, queue.size());
+        assertEquals(List.of(), listFiles(directory));
+    }
+
+    /**
+     * While items are on disk, new items are spilled behind them even if memory has room again,
+     * and the queue returns to memory once the disk is drained.
+     */
+    @Test
+    void interleavedPutsAndTakesKeepTheirOrder() throws Exception {
+        SpillQueue<String> queue = new SpillQueue<>(directory, CODEC, 3, 64);
+        List<String> taken = new ArrayList<>();
+        for (String item : items(0, 10)) {
+            queue.put(item);
+        }
+        for (int i = 0; i < 5; i++) {
+            taken.add(queue.take());
+        }
+        for (String item : items(10, 20)) {
+            queue.put(item);
+        }
+        while (queue.size() > 0) {
+            taken.add(queue.take());
+        }
+        assertEquals(List.of(), listFiles(directory));
+
+        for (String item : items(20, 22)) {
+            queue.put(item);
+        }
+        assertEquals(List.of(), listFiles(directory), "below the high-water mark again");
+        queue.close();
+        String item;
+        while ((item = queue.take()) != null) {
+            taken.add(item);
+        }
+        assertEquals(items(0, 22), taken);
+    }
+
+    /**
+     * An item larger than a segment gets a segment of its own.
+     */
+    @Test
+    void itemLargerThanASegmentIsSpilled() throws Exception {
+        SpillQueue<String> queue = new SpillQueue<>(directory, CODEC, 1, 16);
+        String large = "x".repeat(1000);
+        queue.put("first");
+        queue.put(large);
+        queue.put("last");
+        queue.close();
+
+        assertEquals("first", queue.take());
+        assertEquals(large, queue.take());
+        assertEquals("last", queue.take());
+        assertNull(queue.take());
+    }
+
+    /**
+     * A consumer that waits for items sees everything a concurrent producer puts, in order.
+     */
+    @Test
+    void consumerKeepsUpWithAConcurrentProducer() throws Exception {
+        SpillQueue<String> queue = new SpillQueue<>(directory, CODEC, 50, 256);
+        List<String> items = items(0, 5000);
+        CompletableFuture<List<String>> consumer = CompletableFuture.supplyAsync(() -> {
+            List<String> taken = new ArrayList<>();
+            try {
+                String item;
+                while ((item = queue.take()) != null) {
+                    taken.add(item);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return taken;
+        });
+        for (String item : items) {
+            queue.put(item);
+        }
+        queue.close();
+
+        assertEquals(items, consumer.get(30, TimeUnit.SECONDS));
+        assertEquals(List.of(), listFiles(directory));
+    }
+
+    /**
+     * Discarding a queue with spilled items removes its segment files and its directory.
+     */
+    @Test
+    void discardRemovesTheSpillDirectory() throws Exception {
+        SpillQueue<String> queue = new SpillQueue<>(directory, CODEC, 2, 64);
+        for (String item : items(0, 50)) {
+            queue.put(item);
+        }
+        assertTrue(segmentFiles().size() > 1);
+
+        queue.discard();
+
+        assertEquals(0, queue.size());
+        assertNull(queue.take());
+        assertEquals(List.of(), listFiles(directory));
+    }
+
+    /**
+     * Creates numbered items.
+     *
+     * @param from The number of the first item
+     * @param to The number after the last item
+     * @return The items
+     */
+    private static List<String> items(int from, int to) {
+        List<String> items = new ArrayList<>();
+        for (int i = from; i < to; i++) {
+            items.add("item-" + i);
+        }
+        return items;
+    }
+
+    /**
+     * Lists the segment files of every queue in the spill directory.
+     *
+     * @return The segment files
+     * @throws IOException If the directory cannot be listed
+     */
+    private List<Path> segmentFiles() throws IOException {
+        List<Path> segments = new ArrayList<>();
+        for (Path queueDirectory : listFiles(directory)) {
+            segments.addAll(listFiles(queueDirectory));
+        }
+        return segments;
+    }
+
+    /**
+     * Lists the files of a directory.
+     *
+     * @param path The directory
+     * @return The files
+     * @throws IOException If the directory cannot be listed
+     */
+    private static List<Path> listFiles(Path path) throws IOException {
+        try (Stream<Path> files = Files.list(path)) {
+            return files.collect(Collectors.toList());
+        }
+    }
+}
@@ -0,0 +1,152 @@
+package com.personal.util;
+
+import com.personal.model.Task;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests of {@link TaskRowDecoder}.
+ */
+class TaskRowDecoderTest {
+
+    private static final String MINIMAL_HEADER = "Title,Organization,Project,Username,Token";
+
+    /**
+     * Every column of the standard header is decoded into its field.
+     */
+    @Test
+    void decodesTheStandardHeader() {
+        TaskRowDecoder decoder = TaskRowDecoder.forHeader(CsvWriter.HEADER);
+
+        Task task = decoder.decode("Title,Desc,me@example.com,Sprint 1,Area\\A,4,2,S1,org,proj,Area,user,tok,K1,Bug", 2);
+
+        assertEquals("Title", task.getTitle());
+        assertEquals("Desc", task.getDescription());
+        assertEquals("me@example.com", task.getAssignedTo());
+        assertEquals("Sprint 1", task.getIterationPath());
+        assertEquals("Area\\A", task.getAreaPath());
+        assertEquals("4", task.getOriginalEstimateHours());
+        assertEquals("2", task.getRemainingHours());
+        assertEquals("S1", task.getParentStory());
+        assertEquals("org", task.getOrganization());
+        assertEquals("proj", task.getProject());
+        assertEquals("Area", task.getArea());
+        assertEquals("user", task.getUsername());
+        assertEquals("tok", task.getToken());
+        assertEquals("K1", task.getKey());
+        assertEquals("Bug", task.getWorkItemType());
+    }
+
+    /**
+     * Columns may come in any order, with optional ones left out, and names are matched ignoring
+     * case, spaces, underscores and a byte order mark.
+     */
+    @Test
+    void matchesColumnsByName() {
+        TaskRowDecoder decoder = TaskRowDecoder.forHeader("\uFEFFtoken, user_name ,PROJECT,organization,Assigned To,title");
+
+        Task task = decoder.decode("tok,user,proj,org,me,Title", 2);
+
+        assertEquals("Title", task.getTitle());
+        assertEquals("me", task.getAssignedTo());
+        assertEquals("tok", task.getToken());
+        assertEquals("user", task.getUsername());
+        assertNull(task.getDescription());
+    }
+
+    /**
+     * Quoted values keep their commas and escaped quotes, and values are trimmed.
+     */
+    @Test
+    void decodesQuotedValues() {
+        TaskRowDecoder decoder = TaskRowDecoder.forHeader(MINIMAL_HEADER);
+
+        Task task = decoder.decode(" \"Fix a, b and c\" ,\"say \"\"hi\"\"\",\"\" , proj ,\"\"\"\"", 2);
+
+        assertEquals("Fix a, b and c", task.getTitle());
+        assertEquals("say \"hi\"", task.getOrganization());
+        assertEquals("", task.getProject());
+        assertEquals("proj", task.getUsername());
+        assertEquals("\"", task.getToken());
+    }
+
+    /**
+     * Splitting a line gives every value, unquoted.
+     */
+    @Test
+    void splitsValues() {
+        assertEquals(List.of("a", "b,c", "", "d \"e\""), TaskRowDecoder.splitValues("a, \"b,c\",,\"d \"\"e\"\"\"", 1));
+    }
+
+    /**
+     * Malformed quoting is rejected with the line and column.
+     */
+    @Test
+    void rejectsMalformedQuotes() {
+        TaskRowDecoder decoder = TaskRowDecoder.forHeader(MINIMAL_HEADER);
+
+        IllegalArgumentException unterminated = assertThrows(IllegalArgumentException.class,
+                () -> decoder.decode("Title,\"org,proj,user,tok", 7));
+        assertTrue(unterminated.getMessage().contains("Line 7: Unterminated quoted value in column 2"),
+                unterminated.getMessage());
+
+        IllegalArgumentException trailing = assertThrows(IllegalArgumentException.class,
+                () -> decoder.decode("\"Title\" x,org,proj,user,tok", 8));
+        assertTrue(trailing.getMessage().contains("Line 8: Unexpected text after the quoted value of column 1"),
+                trailing.getMessage());
+    }
+
+    /**
+     * A row with an extra non-empty column, usually an unquoted comma, is rejected, while trailing
+     * empty columns are ignored; a row that misses a required column is rejected too.
+     */
+    @Test
+    void checksTheNumberOfColumns() {
+        TaskRowDecoder decoder = TaskRowDecoder.forHeader(MINIMAL_HEADER);
+
+        assertEquals("tok", decoder.decode("Title,org,proj,user,tok,, ,", 2).getToken());
+
+        IllegalArgumentException extra = assertThrows(IllegalArgumentException.class,
+                () -> decoder.decode("Fix a, b,org,proj,user,tok", 3));
+        assertTrue(extra.getMessage().contains("Line 3: Invalid number of fields"), extra.getMessage());
+
+        IllegalArgumentException missing = assertThrows(IllegalArgumentException.class,
+                () -> decoder.decode("Title,org,proj", 4));
+        assertTrue(missing.getMessage().contains("Line 4: Invalid number of fields. Expected 5, got 3"),
+                missing.getMessage());
+    }
+
+    /**
+     * A header with unknown, repeated or missing columns is rejected with every problem at once.
+     */
+    @Test
+    void rejectsInvalidHeaders() {
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class,
+                () -> TaskRowDecoder.forHeader("Title,Titel,Organization,Project,Token,title"));
+
+        assertTrue(e.getMessage().startsWith("Invalid header: "), e.getMessage());
+        assertTrue(e.getMessage().contains("unknown column 'Titel'"), e.getMessage());
+        assertTrue(e.getMessage().contains("column Title appears twice"), e.getMessage());
+        assertTrue(e.getMessage().contains("missing column Username"), e.getMessage());
+        assertTrue(e.getMessage().contains("Expected columns: " + CsvWriter.HEADER), e.getMessage());
+    }
+
+    /**
+     * The outcome columns of a results file are ignored, so it can be used as an input again.
+     */
+    @Test
+    void ignoresResultColumns() {
+        TaskRowDecoder decoder = TaskRowDecoder.forHeader(MINIMAL_HEADER + ",WorkItemId,Status,Error,");
+
+        Task task = decoder.decode("Title,org,proj,user,tok,42,CREATED,", 2);
+
+        assertEquals("Title", task.getTitle());
+        assertEquals("tok", task.getToken());
+    }
+}